@@ -0,0 +1,137 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Compares the event throughput of the different {@link EventsManager} implementations.
+ * The events are created the way the QSim creates them: a number of events per sim step,
+ * followed by a call to {@link EventsManager#afterSimStep(double)}.
+ * <p></p>
+ * Usage: <code>EventsManagerThroughputBenchmark [numberOfThreads [numberOfHandlers [eventsPerSimStep [numberOfSimSteps]]]]</code>
+ */
+public class EventsManagerThroughputBenchmark {
+
+	public static void main(String[] args) {
+		int numberOfThreads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int numberOfHandlers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int eventsPerSimStep = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		int numberOfSimSteps = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+		List<Id<Vehicle>> vehicleIds = new ArrayList<>();
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (int i = 0; i < eventsPerSimStep; i++) {
+			vehicleIds.add(Id.createVehicleId(i));
+			linkIds.add(Id.createLinkId(i));
+		}
+
+		for (int run = 0; run < 2; run++) {
+			// the first run is a warm-up
+			measure("EventsManagerImpl", EventsUtils.createEventsManager(), numberOfHandlers, vehicleIds, linkIds, numberOfSimSteps);
+			measure("SimStepParallelEventsManagerImpl", createEventsManager(numberOfThreads, true, false), numberOfHandlers, vehicleIds, linkIds, numberOfSimSteps);
+			measure("ParallelEventsManagerImpl", createEventsManager(numberOfThreads, false, false), numberOfHandlers, vehicleIds, linkIds, numberOfSimSteps);
+			// from the config, the ParallelEventsManager would use one thread per handler, so use the same number of threads here
+			measure("ParallelEventsManager", new ParallelEventsManager(true, numberOfThreads), numberOfHandlers, vehicleIds, linkIds, numberOfSimSteps);
+			measure("RingBufferEventsManager", createEventsManager(numberOfThreads, true, true), numberOfHandlers, vehicleIds, linkIds, numberOfSimSteps);
+		}
+	}
+
+	/**
+	 * Creates the events manager the way the controler does, from a config with the given number of threads.
+	 */
+	private static EventsManager createEventsManager(int numberOfThreads, boolean synchronizeOnSimSteps, boolean useRingBuffer) {
+		Config config = ConfigUtils.createConfig();
+		ParallelEventHandlingConfigGroup parallelEventHandling = config.parallelEventHandling();
+		parallelEventHandling.setNumberOfThreads(numberOfThreads);
+		parallelEventHandling.setSynchronizeOnSimSteps(synchronizeOnSimSteps);
+		parallelEventHandling.setUseRingBuffer(useRingBuffer);
+		return EventsUtils.createEventsManager(config);
+	}
+
+	private static void measure(String name, EventsManager events, int numberOfHandlers,
+			List<Id<Vehicle>> vehicleIds, List<Id<Link>> linkIds, int numberOfSimSteps) {
+		CountingHandler[] handlers = new CountingHandler[numberOfHandlers];
+		for (int i = 0; i < numberOfHandlers; i++) {
+			handlers[i] = new CountingHandler();
+			events.addHandler(handlers[i]);
+		}
+
+		long start = System.nanoTime();
+		events.initProcessing();
+		for (int time = 0; time < numberOfSimSteps; time++) {
+			for (int i = 0; i < vehicleIds.size(); i++) {
+				events.processEvent(new LinkLeaveEvent(time, vehicleIds.get(i), linkIds.get(i)));
+				events.processEvent(new LinkEnterEvent(time, vehicleIds.get(i), linkIds.get(i)));
+			}
+			events.afterSimStep(time);
+		}
+		events.finishProcessing();
+		long duration = System.nanoTime() - start;
+
+		long numberOfEvents = 2L * vehicleIds.size() * numberOfSimSteps;
+		for (CountingHandler handler : handlers) {
+			if (handler.counter != numberOfEvents) {
+				throw new RuntimeException(name + ": handler saw " + handler.counter + " instead of " + numberOfEvents + " events.");
+			}
+		}
+		System.out.println(String.format("%-35s %10d events in %8.1f ms, %12.0f events/s", name, numberOfEvents,
+				duration / 1e6, numberOfEvents / (duration / 1e9)));
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		private long counter = 0;
+		private long hash = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.counter++;
+			this.hash += event.getLinkId().hashCode();
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.counter++;
+			this.hash -= event.getLinkId().hashCode();
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.counter = 0;
+			this.hash = 0;
+		}
+	}
+
+}
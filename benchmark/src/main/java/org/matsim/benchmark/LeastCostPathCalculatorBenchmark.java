@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.benchmark.jmh.GridScenario;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.ContractionHierarchiesFactory;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+
+/**
+ * Compares {@link ContractionHierarchiesFactory} with {@link FastAStarLandmarksFactory} on the same
+ * set of random origin-destination pairs, and checks that both find paths of the same cost.
+ * The pre-processing is measured separately from the queries.
+ * <p></p>
+ * Usage: <code>LeastCostPathCalculatorBenchmark [networkFile|gridSize [numberOfQueries [numberOfThreads]]]</code>
+ */
+public class LeastCostPathCalculatorBenchmark {
+
+	public static void main(String[] args) {
+		String networkArg = args.length > 0 ? args[0] : "200";
+		int numberOfQueries = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int numberOfThreads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+		Network network;
+		if (networkArg.matches("\\d+")) {
+			network = GridScenario.createNetwork(Integer.parseInt(networkArg));
+		} else {
+			network = NetworkUtils.createNetwork();
+			new MatsimNetworkReader(network).readFile(networkArg);
+		}
+		System.out.println("network with " + network.getNodes().size() + " nodes and " + network.getLinks().size() + " links");
+
+		Random random = new Random(4711);
+		Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		Node[] fromNodes = new Node[numberOfQueries];
+		Node[] toNodes = new Node[numberOfQueries];
+		double[] departureTimes = new double[numberOfQueries];
+		for (int i = 0; i < numberOfQueries; i++) {
+			fromNodes[i] = nodes[random.nextInt(nodes.length)];
+			toNodes[i] = nodes[random.nextInt(nodes.length)];
+			departureTimes[i] = 5 * 3600 + random.nextInt(16 * 3600);
+		}
+
+		FreespeedTravelTimeAndDisutility costs = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		for (int run = 0; run < 2; run++) {
+			// the first run is a warm-up
+			double[] landmarksCosts = measure("FastAStarLandmarks", new FastAStarLandmarksFactory(), network, costs, fromNodes, toNodes, departureTimes);
+			double[] chCosts = measure("ContractionHierarchies", new ContractionHierarchiesFactory(numberOfThreads, 3600.0, 30 * 3600.0),
+					network, costs, fromNodes, toNodes, departureTimes);
+			int differences = 0;
+			for (int i = 0; i < numberOfQueries; i++) {
+				if (Math.abs(landmarksCosts[i] - chCosts[i]) > 1e-6 * Math.max(1.0, Math.abs(landmarksCosts[i]))) {
+					differences++;
+				}
+			}
+			System.out.println(differences + " of " + numberOfQueries + " paths have different costs");
+		}
+	}
+
+	private static double[] measure(String name, LeastCostPathCalculatorFactory factory, Network network, FreespeedTravelTimeAndDisutility costs,
+			Node[] fromNodes, Node[] toNodes, double[] departureTimes) {
+		long start = System.nanoTime();
+		LeastCostPathCalculator router = factory.createPathCalculator(network, costs, costs);
+		long preProcessing = System.nanoTime() - start;
+
+		double[] result = new double[fromNodes.length];
+		start = System.nanoTime();
+		for (int i = 0; i < fromNodes.length; i++) {
+			Path path = router.calcLeastCostPath(fromNodes[i], toNodes[i], departureTimes[i], null, null);
+			result[i] = path == null ? Double.POSITIVE_INFINITY : path.travelCost;
+		}
+		long queries = System.nanoTime() - start;
+		System.out.println(String.format("%-25s pre-processing %10.1f ms, %8d queries in %10.1f ms, %8.3f ms/query", name,
+				preProcessing / 1e6, fromNodes.length, queries / 1e6, queries / 1e6 / fromNodes.length));
+		return result;
+	}
+
+}
@@ -0,0 +1,178 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.utils.collections.PackedKdTree;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Compares {@link QuadTree} with {@link PackedKdTree} on the node coordinates of a real network
+ * (by default the berlin network of the examples). The queries are located around randomly chosen
+ * nodes, so they follow the spatial distribution of the network like the queries in a simulation do.
+ * <p></p>
+ * Usage: <code>SpatialIndexBenchmark [networkFile [numberOfQueries [radius [k]]]]</code>
+ */
+public class SpatialIndexBenchmark {
+
+	public static void main(String[] args) {
+		int numberOfQueries = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		double radius = args.length > 2 ? Double.parseDouble(args[2]) : 500.0;
+		int k = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+		Network network = NetworkUtils.createNetwork();
+		if (args.length > 0) {
+			new MatsimNetworkReader(network).readFile(args[0]);
+		} else {
+			new MatsimNetworkReader(network).parse(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("berlin"), "network.xml.gz"));
+		}
+		Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		System.out.println("network with " + nodes.length + " nodes");
+
+		Random random = new Random(4711);
+		double[] xs = new double[numberOfQueries];
+		double[] ys = new double[numberOfQueries];
+		for (int i = 0; i < numberOfQueries; i++) {
+			Node node = nodes[random.nextInt(nodes.length)];
+			xs[i] = node.getCoord().getX() + (random.nextDouble() - 0.5) * radius;
+			ys[i] = node.getCoord().getY() + (random.nextDouble() - 0.5) * radius;
+		}
+
+		for (int run = 0; run < 2; run++) {
+			// the first run is a warm-up
+			long start = System.nanoTime();
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (Node node : nodes) {
+				minX = Math.min(minX, node.getCoord().getX());
+				minY = Math.min(minY, node.getCoord().getY());
+				maxX = Math.max(maxX, node.getCoord().getX());
+				maxY = Math.max(maxY, node.getCoord().getY());
+			}
+			QuadTree<Node> quadTree = new QuadTree<>(minX, minY, maxX, maxY);
+			for (Node node : nodes) {
+				quadTree.put(node.getCoord().getX(), node.getCoord().getY(), node);
+			}
+			measure("QuadTree build", start, 1);
+
+			start = System.nanoTime();
+			PackedKdTree.Builder<Node> builder = new PackedKdTree.Builder<>();
+			for (Node node : nodes) {
+				builder.put(node.getCoord().getX(), node.getCoord().getY(), node);
+			}
+			PackedKdTree<Node> kdTree = builder.build();
+			measure("PackedKdTree build", start, 1);
+
+			start = System.nanoTime();
+			double quadTreeSum = 0.0;
+			for (int i = 0; i < numberOfQueries; i++) {
+				quadTreeSum += calcDistance(quadTree.getClosest(xs[i], ys[i]), xs[i], ys[i]);
+			}
+			measure("QuadTree getClosest", start, numberOfQueries);
+
+			start = System.nanoTime();
+			double kdTreeSum = 0.0;
+			for (int i = 0; i < numberOfQueries; i++) {
+				kdTreeSum += calcDistance(kdTree.getClosest(xs[i], ys[i]), xs[i], ys[i]);
+			}
+			measure("PackedKdTree getClosest", start, numberOfQueries);
+			if (Math.abs(quadTreeSum - kdTreeSum) > 1e-6 * quadTreeSum) {
+				throw new RuntimeException("getClosest: the sums of the distances differ, " + quadTreeSum + " vs. " + kdTreeSum);
+			}
+
+			start = System.nanoTime();
+			long quadTreeCount = 0;
+			for (int i = 0; i < numberOfQueries; i++) {
+				quadTreeCount += quadTree.getDisk(xs[i], ys[i], radius).size();
+			}
+			measure("QuadTree getDisk", start, numberOfQueries);
+
+			start = System.nanoTime();
+			long kdTreeCount = 0;
+			ResultCounter<Node> counter = new ResultCounter<>();
+			for (int i = 0; i < numberOfQueries; i++) {
+				counter.size = 0;
+				kdTreeCount += kdTree.getDisk(xs[i], ys[i], radius, counter).size();
+			}
+			measure("PackedKdTree getDisk", start, numberOfQueries);
+			if (quadTreeCount != kdTreeCount) {
+				throw new RuntimeException("getDisk: the numbers of found objects differ, " + quadTreeCount + " vs. " + kdTreeCount);
+			}
+
+			start = System.nanoTime();
+			Node[] result = new Node[k];
+			double[] distances = new double[k];
+			double kNearestSum = 0.0;
+			for (int i = 0; i < numberOfQueries; i++) {
+				int count = kdTree.getKNearest(xs[i], ys[i], k, result, distances);
+				kNearestSum += distances[count - 1];
+			}
+			measure("PackedKdTree getKNearest", start, numberOfQueries);
+			System.out.println(String.format("average distance to the %d. nearest node: %.1f", k, kNearestSum / numberOfQueries));
+		}
+	}
+
+	private static double calcDistance(Node node, double x, double y) {
+		double dx = node.getCoord().getX() - x;
+		double dy = node.getCoord().getY() - y;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private static void measure(String name, long start, int numberOfQueries) {
+		long duration = System.nanoTime() - start;
+		System.out.println(String.format("%-25s %10d queries in %10.1f ms, %8.3f us/query", name, numberOfQueries,
+				duration / 1e6, duration / 1e3 / numberOfQueries));
+	}
+
+	/**
+	 * Only counts the found objects, so the allocation-free query is measured without the costs of a collection.
+	 */
+	private static class ResultCounter<T> extends AbstractCollection<T> {
+		private int size = 0;
+
+		@Override
+		public boolean add(T object) {
+			this.size++;
+			return true;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+	}
+
+}
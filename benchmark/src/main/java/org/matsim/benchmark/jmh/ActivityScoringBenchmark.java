@@ -0,0 +1,100 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scoring.functions.CharyparNagelActivityScoring;
+import org.matsim.core.scoring.functions.ScoringParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link CharyparNagelActivityScoring} on the home-work-home plans of the grid scenario.
+ * One operation is the scoring of all activities of one plan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ActivityScoringBenchmark {
+
+	private static final int PLANS = 10000;
+
+	private ScoringParameters params;
+	private Activity[][] activities;
+
+	@Setup
+	public void setup() {
+		Scenario scenario = GridScenario.createScenario(30, PLANS);
+		Config config = scenario.getConfig();
+		this.params = new ScoringParameters.Builder(config.planCalcScore(), config.planCalcScore().getScoringParameters(null), config.scenario()).build();
+
+		// the activities as the scoring gets them from the events, i.e. with start times
+		this.activities = new Activity[PLANS][];
+		int i = 0;
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			List<Activity> acts = new ArrayList<>();
+			double arrivalTime = Double.NEGATIVE_INFINITY;
+			for (PlanElement pe : person.getSelectedPlan().getPlanElements()) {
+				if (pe instanceof Activity) {
+					Activity act = PopulationUtils.createActivity((Activity) pe);
+					act.setStartTime(arrivalTime);
+					acts.add(act);
+				} else {
+					Leg leg = (Leg) pe;
+					arrivalTime = leg.getDepartureTime() + leg.getTravelTime();
+				}
+			}
+			this.activities[i++] = acts.toArray(new Activity[acts.size()]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PLANS)
+	public void score(final Blackhole blackhole) {
+		for (Activity[] acts : this.activities) {
+			CharyparNagelActivityScoring scoring = new CharyparNagelActivityScoring(this.params);
+			scoring.handleFirstActivity(acts[0]);
+			for (int i = 1; i < acts.length - 1; i++) {
+				scoring.handleActivity(acts[i]);
+			}
+			scoring.handleLastActivity(acts[acts.length - 1]);
+			scoring.finish();
+			blackhole.consume(scoring.getScore());
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link EventsManager#processEvent(Event)} of the single-threaded events manager, which
+ * dispatches every event to the matching handler methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EventsManagerBenchmark {
+
+	private static final int EVENTS = 10000;
+
+	@Param({"1", "8"})
+	public int numberOfHandlers;
+
+	private EventsManager events;
+	private Event[] eventArray;
+
+	@Setup
+	public void setup() {
+		this.events = EventsUtils.createEventsManager();
+		for (int i = 0; i < this.numberOfHandlers; i++) {
+			this.events.addHandler(new CountingHandler());
+		}
+		this.eventArray = new Event[EVENTS];
+		for (int i = 0; i < EVENTS; i += 2) {
+			this.eventArray[i] = new LinkLeaveEvent(i, Id.createVehicleId(i % 1000), Id.createLinkId(i % 997));
+			this.eventArray[i + 1] = new LinkEnterEvent(i, Id.createVehicleId(i % 1000), Id.createLinkId((i + 1) % 997));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void processEvent() {
+		for (Event event : this.eventArray) {
+			this.events.processEvent(event);
+		}
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		long count = 0;
+
+		@Override
+		public void handleEvent(final LinkEnterEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void handleEvent(final LinkLeaveEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void reset(final int iteration) {
+			this.count = 0;
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Creates synthetic scenarios of arbitrary size for the benchmarks: a grid network, where every tenth row and
+ * column is a faster road, and a population of car commuters with routed home-work-home plans. The scenarios
+ * only depend on their size, so the results of different runs can be compared.
+ */
+public final class GridScenario {
+
+	public static final double LINK_LENGTH = 200.0;
+
+	private GridScenario() {
+	}
+
+	/**
+	 * @param size the number of nodes per row and column
+	 */
+	public static Network createNetwork(final int size) {
+		Network network = NetworkUtils.createNetwork();
+		addGrid(network, size);
+		return network;
+	}
+
+	private static void addGrid(final Network network, final int size) {
+		Random random = new Random(42);
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * LINK_LENGTH, y * LINK_LENGTH));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				// every tenth row and column is a faster road
+				double freespeed = (x % 10 == 0 || y % 10 == 0) ? 22.0 : 8.0 + random.nextInt(6);
+				if (x + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), nodes[x][y], nodes[x + 1][y], LINK_LENGTH, freespeed, 1000.0, 1.0);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), nodes[x + 1][y], nodes[x][y], LINK_LENGTH, freespeed, 1000.0, 1.0);
+				}
+				if (y + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), nodes[x][y], nodes[x][y + 1], LINK_LENGTH, freespeed, 1000.0, 1.0);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), nodes[x][y + 1], nodes[x][y], LINK_LENGTH, freespeed, 1000.0, 1.0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a config with scoring parameters for the activities of the population and a simulation of 30 hours
+	 */
+	public static Config createConfig() {
+		Config config = ConfigUtils.createConfig();
+		ActivityParams home = new ActivityParams("home");
+		home.setTypicalDuration(12 * 3600.0);
+		config.planCalcScore().addActivityParams(home);
+		ActivityParams work = new ActivityParams("work");
+		work.setTypicalDuration(8 * 3600.0);
+		work.setOpeningTime(7 * 3600.0);
+		work.setClosingTime(19 * 3600.0);
+		config.planCalcScore().addActivityParams(work);
+		config.qsim().setEndTime(30 * 3600.0);
+		return config;
+	}
+
+	/**
+	 * @param size the number of nodes per row and column of the grid
+	 * @param numberOfPersons the number of persons, each with one plan home-work-home by car along a shortest path
+	 */
+	public static Scenario createScenario(final int size, final int numberOfPersons) {
+		Scenario scenario = ScenarioUtils.createScenario(createConfig());
+		Network network = scenario.getNetwork();
+		addGrid(network, size);
+
+		FreespeedTravelTimeAndDisutility costs = new FreespeedTravelTimeAndDisutility(scenario.getConfig().planCalcScore());
+		LeastCostPathCalculator router = new FastAStarLandmarksFactory().createPathCalculator(network, costs, costs);
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		PopulationFactory factory = scenario.getPopulation().getFactory();
+		Random random = new Random(4711);
+		for (int i = 0; i < numberOfPersons; i++) {
+			Link homeLink = links.get(random.nextInt(links.size()));
+			Link workLink;
+			do {
+				workLink = links.get(random.nextInt(links.size()));
+			} while (workLink == homeLink);
+
+			Person person = factory.createPerson(Id.createPersonId(i));
+			Plan plan = factory.createPlan();
+			Activity home = factory.createActivityFromLinkId("home", homeLink.getId());
+			home.setEndTime(6 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(home);
+			plan.addLeg(createLeg(factory, router, network, homeLink, workLink, home.getEndTime()));
+			Activity work = factory.createActivityFromLinkId("work", workLink.getId());
+			work.setEndTime(16 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(work);
+			plan.addLeg(createLeg(factory, router, network, workLink, homeLink, work.getEndTime()));
+			plan.addActivity(factory.createActivityFromLinkId("home", homeLink.getId()));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		return scenario;
+	}
+
+	private static Leg createLeg(final PopulationFactory factory, final LeastCostPathCalculator router, final Network network,
+			final Link fromLink, final Link toLink, final double departureTime) {
+		Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null, null);
+		List<Id<Link>> linkIds = new ArrayList<>();
+		linkIds.add(fromLink.getId());
+		for (Link link : path.links) {
+			linkIds.add(link.getId());
+		}
+		linkIds.add(toLink.getId());
+		Leg leg = factory.createLeg(TransportMode.car);
+		leg.setDepartureTime(departureTime);
+		leg.setTravelTime(path.travelTime);
+		leg.setRoute(RouteUtils.createNetworkRoute(linkIds, network));
+		leg.getRoute().setTravelTime(path.travelTime);
+		return leg;
+	}
+
+}
@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.population.io.ParallelPopulationReader;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the reading of a gzipped population_v6 file with routed plans, once with the
+ * sequential {@link PopulationReader} and once with the {@link ParallelPopulationReader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PopulationReaderBenchmark {
+
+	@Param({"50000"})
+	public int numberOfPersons;
+
+	@Param({"sequential", "parallel"})
+	public String reader;
+
+	private Scenario scenario;
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		this.scenario = GridScenario.createScenario(50, this.numberOfPersons);
+		this.file = File.createTempFile("population", ".xml.gz");
+		new PopulationWriter(this.scenario.getPopulation(), this.scenario.getNetwork()).writeV6(this.file.getPath());
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.file.delete();
+	}
+
+	@Benchmark
+	public Scenario readPopulation() {
+		Scenario result = new ScenarioUtils.ScenarioBuilder(this.scenario.getConfig()).setNetwork(this.scenario.getNetwork()).build();
+		if ("parallel".equals(this.reader)) {
+			new ParallelPopulationReader(result, Runtime.getRuntime().availableProcessors()).readFile(this.file.getPath());
+		} else {
+			new PopulationReader(result).readFile(this.file.getPath());
+		}
+		return result;
+	}
+
+}
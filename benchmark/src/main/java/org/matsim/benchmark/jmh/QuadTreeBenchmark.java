@@ -0,0 +1,87 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.core.utils.collections.QuadTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the nearest-neighbour and the disk queries of the {@link QuadTree}, with uniformly distributed
+ * points in an area of 50 x 50 km.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QuadTreeBenchmark {
+
+	private static final int QUERIES = 1000;
+	private static final double EXTENT = 50000.0;
+
+	@Param({"10000", "1000000"})
+	public int numberOfPoints;
+
+	private QuadTree<Integer> quadTree;
+	private double[] queryX;
+	private double[] queryY;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(4711);
+		this.quadTree = new QuadTree<>(0.0, 0.0, EXTENT, EXTENT);
+		for (int i = 0; i < this.numberOfPoints; i++) {
+			this.quadTree.put(random.nextDouble() * EXTENT, random.nextDouble() * EXTENT, i);
+		}
+		this.queryX = new double[QUERIES];
+		this.queryY = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.queryX[i] = random.nextDouble() * EXTENT;
+			this.queryY[i] = random.nextDouble() * EXTENT;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void getClosest(final Blackhole blackhole) {
+		for (int i = 0; i < QUERIES; i++) {
+			blackhole.consume(this.quadTree.getClosest(this.queryX[i], this.queryY[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void getDisk(final Blackhole blackhole) {
+		for (int i = 0; i < QUERIES; i++) {
+			blackhole.consume(this.quadTree.getDisk(this.queryX[i], this.queryY[i], 500.0));
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures how fast the {@link TravelTimeCalculator} takes up link enter and leave events, i.e. the
+ * work it does during the mobsim. One operation is one link traversal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TravelTimeCalculatorBenchmark {
+
+	private static final int TRAVERSALS = 10000;
+
+	@Param({"100"})
+	public int gridSize;
+
+	private TravelTimeCalculator calculator;
+	private LinkEnterEvent[] enterEvents;
+	private LinkLeaveEvent[] leaveEvents;
+	private int iteration = 0;
+
+	@Setup
+	public void setup() {
+		Network network = GridScenario.createNetwork(this.gridSize);
+		this.calculator = TravelTimeCalculator.create(network, new TravelTimeCalculatorConfigGroup());
+
+		Random random = new Random(4711);
+		Link[] links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		this.enterEvents = new LinkEnterEvent[TRAVERSALS];
+		this.leaveEvents = new LinkLeaveEvent[TRAVERSALS];
+		for (int i = 0; i < TRAVERSALS; i++) {
+			Link link = links[random.nextInt(links.length)];
+			double enterTime = random.nextInt(24 * 3600);
+			double travelTime = link.getLength() / link.getFreespeed() * (1.0 + random.nextDouble());
+			this.enterEvents[i] = new LinkEnterEvent(enterTime, Id.createVehicleId(i), link.getId());
+			this.leaveEvents[i] = new LinkLeaveEvent(enterTime + travelTime, Id.createVehicleId(i), link.getId());
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		this.calculator.reset(this.iteration++);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRAVERSALS)
+	public void handleEvents() {
+		for (int i = 0; i < TRAVERSALS; i++) {
+			this.calculator.handleEvent(this.enterEvents[i]);
+			this.calculator.handleEvent(this.leaveEvents[i]);
+		}
+	}
+
+}
@@ -0,0 +1,11 @@
+/**
+ * Microbenchmarks of the hot paths of MATSim, written for the Java Microbenchmark Harness (JMH). They use
+ * the synthetic scenarios of {@link org.matsim.benchmark.jmh.GridScenario}, so they do not need any input files.
+ * <p>
+ * After <code>mvn package</code>, all benchmarks are run with
+ * <pre>java -cp matsim-benchmark-0.11.0-SNAPSHOT.jar:libs/* org.openjdk.jmh.Main</pre>
+ * A single benchmark is selected with a regular expression, and the parameters can be overridden, e.g.
+ * <pre>java -cp matsim-benchmark-0.11.0-SNAPSHOT.jar:libs/* org.openjdk.jmh.Main RouterBenchmark -p gridSize=500</pre>
+ * Use <code>-rf json</code> to write the results to a file, so that they can be compared between versions.
+ */
+package org.matsim.benchmark.jmh;
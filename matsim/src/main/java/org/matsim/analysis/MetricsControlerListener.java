@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MetricsControlerListener.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import javax.inject.Inject;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup.MetricsFormat;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.metrics.Counter;
+import org.matsim.core.utils.metrics.Metrics;
+import org.matsim.core.utils.metrics.MetricsWriter;
+import org.matsim.core.utils.metrics.PrometheusEndpoint;
+
+/**
+ * Enables the {@link Metrics} for the run, adds the mobsim-wide measurements, and writes all of them at the end
+ * of every iteration, after which they are reset. Also counts the events, so that the events per second of
+ * the mobsim can be reported; as a handler, it only sees the events if it is installed.
+ */
+final class MetricsControlerListener implements StartupListener, BeforeMobsimListener, AfterMobsimListener, IterationEndsListener,
+		ShutdownListener, BasicEventHandler {
+
+	private final ControlerConfigGroup controlerConfig;
+	private final OutputDirectoryHierarchy controlerIO;
+
+	private final Counter events = Metrics.counter("events.processed");
+	private PrometheusEndpoint endpoint = null;
+	private long mobsimStart = 0;
+
+	@Inject
+	MetricsControlerListener(ControlerConfigGroup controlerConfig, OutputDirectoryHierarchy controlerIO) {
+		this.controlerConfig = controlerConfig;
+		this.controlerIO = controlerIO;
+	}
+
+	@Override
+	public void notifyStartup(final StartupEvent event) {
+		Metrics.reset();
+		Metrics.setEnabled(true);
+		if (this.controlerConfig.getMetricsPort() > 0) {
+			this.endpoint = new PrometheusEndpoint(this.controlerConfig.getMetricsPort());
+		}
+	}
+
+	@Override
+	public void notifyBeforeMobsim(final BeforeMobsimEvent event) {
+		this.mobsimStart = System.nanoTime();
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		this.events.increment();
+	}
+
+	@Override
+	public void reset(final int iteration) {
+	}
+
+	@Override
+	public void notifyAfterMobsim(final AfterMobsimEvent event) {
+		double seconds = (System.nanoTime() - this.mobsimStart) / 1e9;
+		Metrics.gauge("mobsim.duration_s").set(seconds);
+		Metrics.gauge("events.perSecond").set(seconds > 0 ? this.events.getCount() / seconds : 0.0);
+	}
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		MetricsFormat format = this.controlerConfig.getMetricsFormat();
+		if (format == MetricsFormat.csv) {
+			MetricsWriter.writeCsv(this.controlerIO.getIterationFilename(event.getIteration(), "metrics.csv"), event.getIteration());
+		} else if (format == MetricsFormat.json) {
+			MetricsWriter.writeJson(this.controlerIO.getIterationFilename(event.getIteration(), "metrics.json"), event.getIteration());
+		}
+		Metrics.reset();
+	}
+
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		if (this.endpoint != null) {
+			this.endpoint.stop();
+			this.endpoint = null;
+		}
+		Metrics.setEnabled(false);
+	}
+
+}
@@ -0,0 +1,43 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MetricsModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import com.google.inject.Singleton;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.AbstractModule;
+
+/**
+ * Enables the {@link org.matsim.core.utils.metrics.Metrics} if they are to be written or served, see
+ * {@link ControlerConfigGroup#getMetricsFormat()} and {@link ControlerConfigGroup#getMetricsPort()}.
+ */
+public final class MetricsModule extends AbstractModule {
+
+	@Override
+	public void install() {
+		ControlerConfigGroup controlerConfig = getConfig().controler();
+		if (controlerConfig.getMetricsFormat() != ControlerConfigGroup.MetricsFormat.none || controlerConfig.getMetricsPort() > 0) {
+			bind(MetricsControlerListener.class).in(Singleton.class);
+			addControlerListenerBinding().to(MetricsControlerListener.class);
+			addEventHandlerBinding().to(MetricsControlerListener.class);
+		}
+	}
+
+}
@@ -40,7 +40,7 @@ import org.matsim.vehicles.Vehicle;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, IdCache> cache = new ConcurrentHashMap<Class<?>, IdCache>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -58,20 +58,55 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 * This method supports a cache where ids are stored and re-used per type.   
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
+		IdCache idCache = cache.computeIfAbsent(type, k -> new IdCache());
 		Gbl.assertNotNull(key);
-		Id<?> id = map.get(key);
+		Id<?> id = idCache.ids.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			id = idCache.add(key);
 		}
 		
 		return (Id<T>) id;
 	}
+
+	/**
+	 * @return the id of the given type with the given string, or <code>null</code> if it was not created yet.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Id<T> get(final String key, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		return idCache == null ? null : (Id<T>) idCache.ids.get(key);
+	}
+
+	/**
+	 * @return the id of the given type with the given index, or <code>null</code> if there is no such id.
+	 *
+	 * @see #index()
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		if (idCache == null) {
+			return null;
+		}
+		Id<?>[] ids = idCache.idsByIndex;
+		return index >= 0 && index < ids.length ? (Id<T>) ids[index] : null;
+	}
+
+	/**
+	 * @return the number of ids that were created for the given type so far. All of them have an {@link #index()}
+	 * below this number.
+	 */
+	public static int getNumberOfIds(final Class<?> type) {
+		IdCache idCache = cache.get(type);
+		return idCache == null ? 0 : idCache.size;
+	}
+
+	/**
+	 * @return a number that is unique for all ids of the same type. The ids of a type are numbered consecutively
+	 * in the order they are created, starting at 0. So the index can be used to store data for ids in arrays,
+	 * see {@link org.matsim.core.utils.collections.IdMap}.
+	 */
+	public abstract int index();
 	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
@@ -113,9 +148,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
@@ -129,6 +171,32 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 	
+	/**
+	 * All ids of one type, by their string and by their index.
+	 */
+	private static final class IdCache {
+		private final Map<String, Id<?>> ids = new ConcurrentHashMap<String, Id<?>>();
+		private volatile Id<?>[] idsByIndex = new Id<?>[16];
+		private volatile int size = 0;
+
+		private synchronized Id<?> add(final String key) {
+			Id<?> id = this.ids.get(key);
+			if (id == null) {
+				if (this.size == this.idsByIndex.length) {
+					Id<?>[] grown = new Id<?>[this.idsByIndex.length * 2];
+					System.arraycopy(this.idsByIndex, 0, grown, 0, this.size);
+					this.idsByIndex = grown;
+				}
+				id = new IdImpl<Object>(key, this.size);
+				this.idsByIndex[this.size] = id;
+				this.size++;
+				// only publish the id once it can also be found by its index
+				this.ids.put(key, id);
+			}
+			return id;
+		}
+	}
+
 	public static <T> String writeId( Id<T> id ) {
 		if ( id==null ) {
 			return "null" ;
@@ -38,6 +38,7 @@ public final class PopulationWriter implements MatsimWriter {
 	private final Population population;
 	private final Network network;
 	private final Map<Class<?>,AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private int compressionThreads = 0;
 
 	public PopulationWriter(
 			final CoordinateTransformation transformation,
@@ -70,6 +71,15 @@ public final class PopulationWriter implements MatsimWriter {
 		this.attributeConverters.putAll( converters );
 	}
 
+	/**
+	 * Sets the number of threads compressing the file, if it is gzip- or zstd-compressed.
+	 *
+	 * @see org.matsim.core.utils.io.AbstractMatsimWriter#setCompressionThreads(int)
+	 */
+	public void setCompressionThreads(final int compressionThreads) {
+		this.compressionThreads = compressionThreads;
+	}
+
 	/**
 	 * Writes the population in the most current format (currently population_v6.dtd).
 	 */
@@ -84,7 +94,10 @@ public final class PopulationWriter implements MatsimWriter {
 	 * @param filename
 	 */
 	public void writeV4(final String filename) {
-		new org.matsim.core.population.io.PopulationWriter(transformation , this.population, this.network).writeV4(filename);
+		final org.matsim.core.population.io.PopulationWriter writer =
+				new org.matsim.core.population.io.PopulationWriter(transformation , this.population, this.network);
+		writer.setCompressionThreads( compressionThreads );
+		writer.writeV4(filename);
 	}
 
 	/**
@@ -93,7 +106,10 @@ public final class PopulationWriter implements MatsimWriter {
 	 * @param filename
 	 */
 	public void writeV5(final String filename) {
-		new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network).writeV5(filename);
+		final org.matsim.core.population.io.PopulationWriter writer =
+				new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network);
+		writer.setCompressionThreads( compressionThreads );
+		writer.writeV5(filename);
 	}
 
 	/**
@@ -105,6 +121,7 @@ public final class PopulationWriter implements MatsimWriter {
 		final org.matsim.core.population.io.PopulationWriter writer =
 				new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network);
 		writer.putAttributeConverters( attributeConverters );
+		writer.setCompressionThreads( compressionThreads );
 		writer.writeV6(filename);
 	}
 }
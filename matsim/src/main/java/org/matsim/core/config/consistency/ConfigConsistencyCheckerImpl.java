@@ -154,9 +154,14 @@ public final class ConfigConsistencyCheckerImpl implements ConfigConsistencyChec
 		}
 	}
 
-	private static void checkTransit(final Config config) {
+	/*package*/ static void checkTransit(final Config config) {
 		if ( config.transit().isUseTransit() && config.transit().getVehiclesFile()==null ) {
 			log.warn("Your are using Transit but have not provided a transit vehicles file. This most likely won't work.");
 		}
+		if ( config.transit().isUseTransit() && config.qsim().isUsingWorkStealing() ) {
+			// passengers at a stop may be served by vehicles in different chunks, so boarding would depend on the threads
+			throw new IllegalStateException("Transit is not supported together with qsim.usingWorkStealing, since the result"
+					+ " would depend on the number of threads. Switch off work stealing or transit.");
+		}
 	}
 }
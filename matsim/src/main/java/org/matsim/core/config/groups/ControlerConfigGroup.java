@@ -20,6 +20,7 @@
 
 package org.matsim.core.config.groups;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -37,9 +38,11 @@ import org.matsim.core.utils.misc.StringUtils;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, ContractionHierarchies}
 
-	public enum EventsFileFormat {xml}
+	public enum EventsFileFormat {xml, binary}
+
+	public enum MetricsFormat {none, csv, json}
 
 	public static final String GROUP_NAME = "controler";
 
@@ -61,6 +64,12 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public enum MobsimType {qsim, JDEQSim}
 
 	private static final String WRITE_SNAPSHOTS_INTERVAL = "writeSnapshotsInterval";
+	private static final String COMPRESSION_THREADS = "compressionThreads";
+	private static final String METRICS_FORMAT = "metricsFormat";
+	private static final String METRICS_PORT = "metricsPort";
+	private static final String WRITE_CHECKPOINTS_INTERVAL = "writeCheckpointsInterval";
+	private static final String CHECKPOINTS_TO_KEEP = "checkpointsToKeep";
+	private static final String RESTART_FROM_CHECKPOINT = "restartFromCheckpoint";
 
 
 	private String outputDirectory = "./output";
@@ -82,6 +91,12 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private boolean createGraphs = true;
 	private boolean dumpDataAtEnd = true;
 	private OverwriteFileSetting overwriteFileSetting = OverwriteFileSetting.failIfDirectoryExists;
+	private int compressionThreads = 0;
+	private MetricsFormat metricsFormat = MetricsFormat.none;
+	private int metricsPort = 0;
+	private int writeCheckpointsInterval = 0;
+	private int checkpointsToKeep = 1;
+	private String restartFromCheckpoint = null;
 
 	public ControlerConfigGroup() {
 		super(GROUP_NAME);
@@ -91,9 +106,11 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks + " or " +
+				RoutingAlgorithmType.ContractionHierarchies + ". " + RoutingAlgorithmType.ContractionHierarchies + " needs some pre-processing in every iteration, " +
+				"but answers queries much faster, so it pays off when many routes are computed per iteration.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
-		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
+		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml, binary."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
 		map.put(WRITE_EVENTS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations events are written " +
 				"to a file. `0' disables events writing completely.");
@@ -120,6 +137,19 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
+		map.put(COMPRESSION_THREADS, "Default=0; The number of threads compressing the plans and events files (ending with .gz or .zst), "
+				+ "in addition to the thread writing them. `0' compresses them on the writing thread.");
+		map.put(METRICS_FORMAT, "Default=" + MetricsFormat.none + "; Writes measurements of the mobsim steps, replanning modules, scoring and I/O "
+				+ "to the file metrics.csv or metrics.json in every iteration directory. Possible values: " + Arrays.toString(MetricsFormat.values()));
+		map.put(METRICS_PORT, "Default=0; If > 0, the current measurements are served in the format of Prometheus on http://localhost:<port>/metrics. "
+				+ "The measurements are also taken if only this is set.");
+		map.put(WRITE_CHECKPOINTS_INTERVAL, "iterationNumber % " + WRITE_CHECKPOINTS_INTERVAL + " == 0 defines in which iterations the plans with their scores, "
+				+ "the travel times and the strategy weights are written to the checkpoints directory, from where the run can be resumed. `0' disables checkpoints.");
+		map.put(CHECKPOINTS_TO_KEEP, "Default=1; The number of most recent checkpoints kept, older ones are deleted.");
+		map.put(RESTART_FROM_CHECKPOINT, "The checkpoint file a run is resumed from after the scenario has been loaded, or `latest' for the most "
+				+ "recent checkpoint in the output directory. The run continues with the iteration after the one of the checkpoint. "
+				+ "To continue in the same output directory, set " + OVERWRITE_FILE + " to "
+				+ OverwriteFileSetting.overwriteExistingFiles + ".");
 		return map;
 	}
 
@@ -304,6 +334,66 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.writeSnapshotsInterval = writeSnapshotsInterval;
 	}
 
+	@StringGetter( COMPRESSION_THREADS )
+	public int getCompressionThreads() {
+		return this.compressionThreads;
+	}
+
+	@StringSetter( COMPRESSION_THREADS )
+	public void setCompressionThreads(final int compressionThreads) {
+		this.compressionThreads = compressionThreads;
+	}
+
+	@StringGetter( METRICS_FORMAT )
+	public MetricsFormat getMetricsFormat() {
+		return this.metricsFormat;
+	}
+
+	@StringSetter( METRICS_FORMAT )
+	public void setMetricsFormat(final MetricsFormat metricsFormat) {
+		this.metricsFormat = metricsFormat;
+	}
+
+	@StringGetter( METRICS_PORT )
+	public int getMetricsPort() {
+		return this.metricsPort;
+	}
+
+	@StringSetter( METRICS_PORT )
+	public void setMetricsPort(final int metricsPort) {
+		this.metricsPort = metricsPort;
+	}
+
+	@StringGetter( WRITE_CHECKPOINTS_INTERVAL )
+	public int getWriteCheckpointsInterval() {
+		return this.writeCheckpointsInterval;
+	}
+
+	@StringSetter( WRITE_CHECKPOINTS_INTERVAL )
+	public void setWriteCheckpointsInterval(final int writeCheckpointsInterval) {
+		this.writeCheckpointsInterval = writeCheckpointsInterval;
+	}
+
+	@StringGetter( CHECKPOINTS_TO_KEEP )
+	public int getCheckpointsToKeep() {
+		return this.checkpointsToKeep;
+	}
+
+	@StringSetter( CHECKPOINTS_TO_KEEP )
+	public void setCheckpointsToKeep(final int checkpointsToKeep) {
+		this.checkpointsToKeep = checkpointsToKeep;
+	}
+
+	@StringGetter( RESTART_FROM_CHECKPOINT )
+	public String getRestartFromCheckpoint() {
+		return this.restartFromCheckpoint;
+	}
+
+	@StringSetter( RESTART_FROM_CHECKPOINT )
+	public void setRestartFromCheckpoint(final String restartFromCheckpoint) {
+		this.restartFromCheckpoint = (restartFromCheckpoint == null || restartFromCheckpoint.isEmpty()) ? null : restartFromCheckpoint;
+	}
+
 	@StringGetter( CREATE_GRAPHS )
 	public boolean isCreateGraphs() {
 		return createGraphs;
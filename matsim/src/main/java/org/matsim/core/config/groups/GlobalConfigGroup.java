@@ -40,10 +40,12 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String PARALLEL_XML_READING = "parallelXmlReading";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private boolean parallelXmlReading = false;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -51,6 +53,8 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(PARALLEL_XML_READING, "If true, network files of the format network_v2 and population files of the format population_v6 "
+				+ "are read in chunks by " + NUMBER_OF_THREADS + " threads, with a non-validating parser.  Files in other formats are read as usual.") ;
 		return map ;
 	}
 
@@ -84,6 +88,15 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.coordinateSystem = coordinateSystem;
 	}
 	
+	@StringGetter( PARALLEL_XML_READING )
+	public boolean isParallelXmlReading() {
+		return this.parallelXmlReading;
+	}
+	@StringSetter( PARALLEL_XML_READING )
+	public void setParallelXmlReading(final boolean parallelXmlReading) {
+		this.parallelXmlReading = parallelXmlReading;
+	}
+	
 	private static final String INSITING_ON_DEPRECATED_CONFIG_VERSION = "insistingOnDeprecatedConfigVersion" ;
 	@StringGetter( INSITING_ON_DEPRECATED_CONFIG_VERSION )
 	public final boolean isInsistingOnDeprecatedConfigVersion() { return this.insistingOnDeprecatedConfigVersion ; }
@@ -44,6 +44,12 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
+
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private Boolean useRingBuffer = false;
+
+	private final static String EVENTS_RING_BUFFER_SIZE = "eventsRingBufferSize";
+	private Integer eventsRingBufferSize = null;
 	
 	private boolean locked = false;
 
@@ -60,6 +66,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(USE_RING_BUFFER, "If enabled, events are handed to the " + NUMBER_OF_THREADS + " events processing threads through a preallocated ring buffer "
+				+ "instead of blocking queues. Events are always synchronized on sim steps. This feature is still experimental!");
+		comments.put(EVENTS_RING_BUFFER_SIZE, "Number of slots of the events ring buffer, must be a power of 2. _null_ means the framework decides by itself.");
 		return comments;
 	}
 
@@ -127,6 +136,34 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( USE_RING_BUFFER )
+	public Boolean getUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(Boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( EVENTS_RING_BUFFER_SIZE )
+	public Integer getEventsRingBufferSize() {
+		return this.eventsRingBufferSize;
+	}
+
+	@StringSetter( EVENTS_RING_BUFFER_SIZE )
+	public void setEventsRingBufferSize(Integer eventsRingBufferSize) {
+		if ( !this.locked ) {
+			this.eventsRingBufferSize = eventsRingBufferSize;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
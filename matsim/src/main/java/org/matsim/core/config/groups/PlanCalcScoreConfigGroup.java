@@ -65,6 +65,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String NUMBER_OF_SCORING_SHARDS = "numberOfScoringShards";
+
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney";
 
 	private static final String UTL_OF_LINE_SWITCH = "utilityOfLineSwitch";
@@ -396,6 +398,10 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 				"[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money).");
 		map.put(WRITE_EXPERIENCED_PLANS,
 				"write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(NUMBER_OF_SCORING_SHARDS,
+				"0 (default) means that all events, legs and activities are passed to the scoring functions under one common lock. "
+						+ "A larger number partitions the scoring functions by person into this many shards, each with its own queue, "
+						+ "which are processed in parallel without a common lock.  The scores are the same in both cases.");
 
 		return map;
 	}
@@ -748,6 +754,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public int getNumberOfScoringShards() {
+		return delegate.getNumberOfScoringShards();
+	}
+
+	public void setNumberOfScoringShards(int numberOfScoringShards) {
+		delegate.setNumberOfScoringShards(numberOfScoringShards);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		if (getScoringParameters(null) != null)
 			return getScoringParameters(null).getMarginalUtlOfWaiting_utils_hr();
@@ -1481,6 +1495,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private int numberOfScoringShards = 0;
+
 		private Double fractionOfIterationsToStartScoreMSA = null;
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
@@ -1554,5 +1570,16 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter(NUMBER_OF_SCORING_SHARDS)
+		public int getNumberOfScoringShards() {
+			return numberOfScoringShards;
+		}
+
+		@StringSetter(NUMBER_OF_SCORING_SHARDS)
+		public void setNumberOfScoringShards(int numberOfScoringShards) {
+			testForLocked();
+			this.numberOfScoringShards = numberOfScoringShards;
+		}
+
 	}
 }
\ No newline at end of file
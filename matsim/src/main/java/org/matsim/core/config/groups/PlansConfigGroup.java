@@ -91,6 +91,15 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
 
+		comments.put( PERSONS_PER_CHUNK, "If larger than 0, the population is kept on disk in chunks of this many persons, and only " +
+				CHUNKS_IN_MEMORY + " chunks are held in memory at the same time. Custom attributes of persons and plans do not survive this. " +
+				"default=0, i.e. the whole population is kept in memory." );
+		comments.put( CHUNKS_IN_MEMORY, "The number of population chunks held in memory if " + PERSONS_PER_CHUNK + " is set." );
+		comments.put( COMPACT_POPULATION, "If true, the plans that are not selected are stored in packed arrays instead of objects, " +
+				"which needs considerably less memory. Plans with attributes on activities or legs are not packed. default=false" );
+		comments.put( CHUNK_DIRECTORY, "The directory where the population chunks are stored if " + PERSONS_PER_CHUNK + " is set. " +
+				"If not specified, a temporary directory is used." );
+
 		return comments;
 	}
 
@@ -188,5 +197,56 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.inputCRS = inputCRS;
 	}
 
+	// ---
+
+	private static final String PERSONS_PER_CHUNK = "personsPerChunk";
+	private static final String CHUNKS_IN_MEMORY = "chunksInMemory";
+	private static final String CHUNK_DIRECTORY = "chunkDirectory";
+	private int personsPerChunk = 0;
+	private int chunksInMemory = 16;
+	private String chunkDirectory = null;
+	private static final String COMPACT_POPULATION = "compactPopulation";
+	private boolean compactPopulation = false;
+
+	@StringGetter( PERSONS_PER_CHUNK )
+	public int getPersonsPerChunk() {
+		return this.personsPerChunk;
+	}
+
+	@StringSetter( PERSONS_PER_CHUNK )
+	public void setPersonsPerChunk(final int personsPerChunk) {
+		this.personsPerChunk = personsPerChunk;
+	}
+
+	@StringGetter( CHUNKS_IN_MEMORY )
+	public int getChunksInMemory() {
+		return this.chunksInMemory;
+	}
+
+	@StringSetter( CHUNKS_IN_MEMORY )
+	public void setChunksInMemory(final int chunksInMemory) {
+		this.chunksInMemory = chunksInMemory;
+	}
+
+	@StringGetter( CHUNK_DIRECTORY )
+	public String getChunkDirectory() {
+		return this.chunkDirectory;
+	}
+
+	@StringSetter( CHUNK_DIRECTORY )
+	public void setChunkDirectory(final String chunkDirectory) {
+		this.chunkDirectory = chunkDirectory;
+	}
+
+	@StringGetter( COMPACT_POPULATION )
+	public boolean isCompactPopulation() {
+		return this.compactPopulation;
+	}
+
+	@StringSetter( COMPACT_POPULATION )
+	public void setCompactPopulation(final boolean compactPopulation) {
+		this.compactPopulation = compactPopulation;
+	}
+
 
 }
@@ -67,6 +67,10 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	public static enum StarttimeInterpretation { maxOfStarttimeAndEarliestActivityEnd, onlyUseStarttime } ;
 	public static enum EndtimeInterpretation { minOfEndtimeAndMobsimFinished, onlyUseEndtime } ;
 
+	private static final String NETSIM_PARTITIONING = "netsimPartitioning";
+	public static enum NetsimPartitioning { roundRobin, capacityWeighted, workloadWeighted } ;
+	private NetsimPartitioning netsimPartitioning = NetsimPartitioning.roundRobin;
+
 	private static final String NODE_OFFSET = "nodeOffset";
 
 
@@ -124,6 +128,8 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private double nodeOffset = 0;
 	private float linkWidth = 30;
 	private boolean usingThreadpool = true;
+	private boolean usingWorkStealing = false;
+	private int workStealingChunkSize = 256;
 
 	public static final String LINK_WIDTH = "linkWidth";
 
@@ -222,6 +228,10 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "Number of threads used for the QSim.  "
 				+ "Note that this setting is independent from the \"global\" threads setting.  "
 				+ "In contrast to earlier versions, the non-parallel special version is no longer there." ) ;
+		map.put(NETSIM_PARTITIONING, "Defines how the nodes and links are assigned to the threads of the QSim. "
+				+ NetsimPartitioning.roundRobin + ": one after the other (default); "
+				+ NetsimPartitioning.capacityWeighted + ": spatially compact parts with the same sum of link capacities; "
+				+ NetsimPartitioning.workloadWeighted + ": spatially compact parts with the same number of node activations in the previous iteration.");
 		map.put(REMOVE_STUCK_VEHICLES, REMOVE_STUCK_VEHICLES_STRING );
 		map.put(STUCK_TIME, STUCK_TIME_STRING );
 
@@ -264,6 +274,11 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(USING_WORK_STEALING, "if true, the active nodes and links are not assigned to fixed runners, but processed in chunks by a work-stealing "
+				+ "thread pool in every time step.  The events of a time step do not depend on the number of threads then.  "
+				+ "Not supported together with transit.  Overrides " + USING_THREADPOOL + " and " + NETSIM_PARTITIONING + ".  Default is false.") ;
+		map.put(WORK_STEALING_CHUNK_SIZE, "number of nodes or links which are processed as one chunk if " + USING_WORK_STEALING + " is true.  "
+				+ "Default is 256.") ;
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
@@ -409,6 +424,16 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter(NETSIM_PARTITIONING)
+	public NetsimPartitioning getNetsimPartitioning() {
+		return this.netsimPartitioning;
+	}
+
+	@StringSetter(NETSIM_PARTITIONING)
+	public void setNetsimPartitioning(NetsimPartitioning netsimPartitioning) {
+		this.netsimPartitioning = netsimPartitioning;
+	}
+
 	@StringGetter(SIM_STARTTIME_INTERPRETATION)
 	public StarttimeInterpretation getSimStarttimeInterpretation() {
 		return simStarttimeInterpretation;
@@ -526,6 +551,29 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	private static final String USING_WORK_STEALING = "usingWorkStealing" ;
+	@StringGetter(USING_WORK_STEALING)
+	public boolean isUsingWorkStealing() {
+		return this.usingWorkStealing ;
+	}
+	@StringSetter(USING_WORK_STEALING)
+	public void setUsingWorkStealing( boolean val ) {
+		this.usingWorkStealing = val ;
+	}
+
+	private static final String WORK_STEALING_CHUNK_SIZE = "workStealingChunkSize" ;
+	@StringGetter(WORK_STEALING_CHUNK_SIZE)
+	public int getWorkStealingChunkSize() {
+		return this.workStealingChunkSize ;
+	}
+	@StringSetter(WORK_STEALING_CHUNK_SIZE)
+	public void setWorkStealingChunkSize( int val ) {
+		if ( val < 1 ) {
+			throw new IllegalArgumentException( "chunk size must be at least 1, but is " + val ) ;
+		}
+		this.workStealingChunkSize = val ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
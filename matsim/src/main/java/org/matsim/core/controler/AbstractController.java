@@ -107,8 +107,30 @@ import org.matsim.core.gbl.MatsimRandom;
      */
     protected abstract boolean continueIterations(int iteration);
 
+    /**
+     * Restores the state of an interrupted run, see {@link org.matsim.core.config.groups.ControlerConfigGroup#getRestartFromCheckpoint()}.
+     * The configured first iteration stays the same, so everything depending on it behaves as in the interrupted run.
+     *
+     * @return the iteration the restored state belongs to, or <code>null</code> to start with the first iteration
+     */
+    protected Integer restoreCheckpoint(Config config) {
+        if (config.controler().getRestartFromCheckpoint() != null) {
+            throw new RuntimeException(this.getClass().getName() + " cannot restart from checkpoints.");
+        }
+        return null;
+    }
+
+    /**
+     * Writes the state after the given iteration to a checkpoint, see {@link org.matsim.core.config.groups.ControlerConfigGroup#getWriteCheckpointsInterval()}.
+     */
+    protected void writeCheckpoint(int iteration) {
+        throw new RuntimeException(this.getClass().getName() + " cannot write checkpoints.");
+    }
+
     private void doIterations(Config config) throws MatsimRuntimeModifications.UnexpectedShutdownException {
-        for (int iteration = config.controler().getFirstIteration(); continueIterations(iteration); iteration++) {
+        Integer checkpointIteration = restoreCheckpoint(config);
+        int firstIteration = checkpointIteration == null ? config.controler().getFirstIteration() : checkpointIteration + 1;
+        for (int iteration = firstIteration; continueIterations(iteration); iteration++) {
             iteration(config, iteration);
         }
     }
@@ -159,6 +181,16 @@ import org.matsim.core.gbl.MatsimRandom;
             }
         });
 
+        final int writeCheckpointsInterval = config.controler().getWriteCheckpointsInterval();
+        if (writeCheckpointsInterval > 0 && iteration % writeCheckpointsInterval == 0) {
+            iterationStep("checkpoint", new Runnable() {
+                @Override
+                public void run() {
+                    writeCheckpoint(iteration);
+                }
+            });
+        }
+
         this.getStopwatch().endIteration();
         this.getStopwatch().writeTextFile(this.getControlerIO().getOutputFilename("stopwatch"));
         if (config.controler().isCreateGraphs()) {
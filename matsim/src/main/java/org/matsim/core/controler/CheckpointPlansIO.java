@@ -0,0 +1,314 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointPlansIO.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Writes and reads the plans of a population in a binary format for {@link Checkpointing}. All times, scores and
+ * coordinates are written as they are, so a population restored from a checkpoint is identical to the written one,
+ * which would not be the case after a round trip through the xml formats.
+ * <p></p>
+ * Only the plans are part of the checkpoint: when reading, the plans of the persons of the given population are
+ * replaced, the persons and their attributes are left as they are.
+ */
+final class CheckpointPlansIO {
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG = 1;
+
+	private final ObjectAttributesConverter converter = new ObjectAttributesConverter();
+
+	/*package*/ void write(final Population population, final DataOutput out) throws IOException {
+		out.writeInt(population.getPersons().size());
+		for (Person person : population.getPersons().values()) {
+			writeUtf8(person.getId().toString(), out);
+			out.writeInt(person.getPlans().size());
+			for (Plan plan : person.getPlans()) {
+				writePlan(plan, plan == person.getSelectedPlan(), out);
+			}
+		}
+	}
+
+	/*package*/ void read(final Population population, final DataInput in) throws IOException {
+		int numberOfPersons = in.readInt();
+		if (numberOfPersons != population.getPersons().size()) {
+			throw new IllegalStateException("The checkpoint contains " + numberOfPersons + " persons, but the population "
+					+ population.getPersons().size() + ".");
+		}
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Id<Person> personId = Id.create(readUtf8(in), Person.class);
+			Person person = population.getPersons().get(personId);
+			if (person == null) {
+				throw new IllegalStateException("Person " + personId + " of the checkpoint is not part of the population.");
+			}
+			// (unselect first, removing the selected plan would select another one at random)
+			person.setSelectedPlan(null);
+			for (Plan plan : new ArrayList<>(person.getPlans())) {
+				person.removePlan(plan);
+			}
+			int numberOfPlans = in.readInt();
+			for (int j = 0; j < numberOfPlans; j++) {
+				Plan plan = factory.createPlan();
+				person.addPlan(plan);
+				if (readPlan(plan, factory, in)) {
+					person.setSelectedPlan(plan);
+				}
+			}
+		}
+	}
+
+	private void writePlan(final Plan plan, final boolean selected, final DataOutput out) throws IOException {
+		out.writeBoolean(selected);
+		out.writeBoolean(plan.getScore() != null);
+		if (plan.getScore() != null) {
+			out.writeDouble(plan.getScore());
+		}
+		writeString(plan.getType(), out);
+		writeAttributes(plan.getAttributes(), out);
+		out.writeInt(plan.getPlanElements().size());
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Activity) {
+				out.writeByte(ACTIVITY);
+				writeActivity((Activity) pe, out);
+			} else if (pe instanceof Leg) {
+				out.writeByte(LEG);
+				writeLeg((Leg) pe, out);
+			} else {
+				throw new IllegalArgumentException("Cannot write plan element of type " + pe.getClass().getName());
+			}
+		}
+	}
+
+	private boolean readPlan(final Plan plan, final PopulationFactory factory, final DataInput in) throws IOException {
+		boolean selected = in.readBoolean();
+		if (in.readBoolean()) {
+			plan.setScore(in.readDouble());
+		}
+		plan.setType(readString(in));
+		readAttributes(plan.getAttributes(), in);
+		int numberOfElements = in.readInt();
+		for (int i = 0; i < numberOfElements; i++) {
+			byte type = in.readByte();
+			if (type == ACTIVITY) {
+				plan.addActivity(readActivity(factory, in));
+			} else if (type == LEG) {
+				plan.addLeg(readLeg(factory, in));
+			} else {
+				throw new IllegalStateException("Unknown plan element type " + type);
+			}
+		}
+		return selected;
+	}
+
+	private void writeActivity(final Activity act, final DataOutput out) throws IOException {
+		writeString(act.getType(), out);
+		writeId(act.getLinkId(), out);
+		writeId(act.getFacilityId(), out);
+		Coord coord = act.getCoord();
+		out.writeByte(coord == null ? 0 : (coord.hasZ() ? 3 : 2));
+		if (coord != null) {
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				out.writeDouble(coord.getZ());
+			}
+		}
+		out.writeDouble(act.getStartTime());
+		out.writeDouble(act.getEndTime());
+		out.writeDouble(act.getMaximumDuration());
+		writeAttributes(act.getAttributes(), out);
+	}
+
+	private Activity readActivity(final PopulationFactory factory, final DataInput in) throws IOException {
+		String type = readString(in);
+		Activity act = factory.createActivityFromLinkId(type, readId(in, Link.class));
+		act.setFacilityId(readId(in, ActivityFacility.class));
+		byte dimensions = in.readByte();
+		if (dimensions == 2) {
+			act.setCoord(new Coord(in.readDouble(), in.readDouble()));
+		} else if (dimensions == 3) {
+			act.setCoord(new Coord(in.readDouble(), in.readDouble(), in.readDouble()));
+		}
+		act.setStartTime(in.readDouble());
+		act.setEndTime(in.readDouble());
+		act.setMaximumDuration(in.readDouble());
+		readAttributes(act.getAttributes(), in);
+		return act;
+	}
+
+	private void writeLeg(final Leg leg, final DataOutput out) throws IOException {
+		writeString(leg.getMode(), out);
+		out.writeDouble(leg.getDepartureTime());
+		out.writeDouble(leg.getTravelTime());
+		writeAttributes(leg.getAttributes(), out);
+		Route route = leg.getRoute();
+		out.writeBoolean(route != null);
+		if (route == null) {
+			return;
+		}
+		writeUtf8(route.getRouteType(), out);
+		writeId(route.getStartLinkId(), out);
+		writeId(route.getEndLinkId(), out);
+		out.writeDouble(route.getDistance());
+		out.writeDouble(route.getTravelTime());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			out.writeInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				writeUtf8(linkId.toString(), out);
+			}
+			out.writeDouble(networkRoute.getTravelCost());
+			writeId(networkRoute.getVehicleId(), out);
+		} else {
+			writeString(route.getRouteDescription(), out);
+		}
+	}
+
+	private Leg readLeg(final PopulationFactory factory, final DataInput in) throws IOException {
+		Leg leg = factory.createLeg(readString(in));
+		leg.setDepartureTime(in.readDouble());
+		leg.setTravelTime(in.readDouble());
+		readAttributes(leg.getAttributes(), in);
+		if (!in.readBoolean()) {
+			return leg;
+		}
+		Class<? extends Route> routeClass = factory.getRouteFactories().getRouteClassForType(readUtf8(in));
+		Id<Link> startLinkId = readId(in, Link.class);
+		Id<Link> endLinkId = readId(in, Link.class);
+		Route route = factory.getRouteFactories().createRoute(routeClass, startLinkId, endLinkId);
+		double distance = in.readDouble();
+		double travelTime = in.readDouble();
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			int numberOfLinks = in.readInt();
+			List<Id<Link>> linkIds = new ArrayList<>(numberOfLinks);
+			for (int i = 0; i < numberOfLinks; i++) {
+				linkIds.add(Id.create(readUtf8(in), Link.class));
+			}
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+			networkRoute.setTravelCost(in.readDouble());
+			networkRoute.setVehicleId(readId(in, Vehicle.class));
+		} else {
+			String description = readString(in);
+			if (description != null) {
+				route.setRouteDescription(description);
+			}
+		}
+		// set after the description, as some routes derive them from it
+		route.setDistance(distance);
+		route.setTravelTime(travelTime);
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private void writeAttributes(final Attributes attributes, final DataOutput out) throws IOException {
+		List<String[]> converted = new ArrayList<>(attributes.size());
+		for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+			String value = this.converter.convertToString(e.getValue());
+			if (value != null) {
+				// (the converter logs a warning for values it cannot convert, as for the xml files)
+				converted.add(new String[] {e.getKey(), e.getValue().getClass().getCanonicalName(), value});
+			}
+		}
+		out.writeInt(converted.size());
+		for (String[] attribute : converted) {
+			writeUtf8(attribute[0], out);
+			writeUtf8(attribute[1], out);
+			writeUtf8(attribute[2], out);
+		}
+	}
+
+	private void readAttributes(final Attributes attributes, final DataInput in) throws IOException {
+		attributes.clear();
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			String name = readUtf8(in);
+			String className = readUtf8(in);
+			Object value = this.converter.convert(className, readUtf8(in));
+			if (value != null) {
+				attributes.putAttribute(name, value);
+			}
+		}
+	}
+
+	private static void writeId(final Id<?> id, final DataOutput out) throws IOException {
+		writeString(id == null ? null : id.toString(), out);
+	}
+
+	private static <T> Id<T> readId(final DataInput in, final Class<T> idClass) throws IOException {
+		String id = readString(in);
+		return id == null ? null : Id.create(id, idClass);
+	}
+
+	private static void writeString(final String s, final DataOutput out) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			writeUtf8(s, out);
+		}
+	}
+
+	private static String readString(final DataInput in) throws IOException {
+		return in.readBoolean() ? readUtf8(in) : null;
+	}
+
+	/**
+	 * Unlike {@link DataOutput#writeUTF(String)}, not limited to strings of 65535 bytes, which converted attribute
+	 * values or route descriptions may well exceed.
+	 */
+	private static void writeUtf8(final String s, final DataOutput out) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readUtf8(final DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
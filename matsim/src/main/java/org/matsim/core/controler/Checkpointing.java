@@ -0,0 +1,218 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Checkpointing.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.StrategyConfigGroup.StrategySettings;
+import org.matsim.core.replanning.GenericPlanStrategy;
+import org.matsim.core.replanning.StrategyManager;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Writes the state of a run after an iteration to a checkpoint, and restores it before the iterations start, such that
+ * a run resumed from a checkpoint continues as it would have without the interruption. A checkpoint holds
+ * <ul>
+ * <li> the plans of all persons with their scores, see {@link CheckpointPlansIO},
+ * <li> the data of all bound {@link TravelTimeCalculator}s, which the replanning of the next iteration uses,
+ * <li> the weights of the replanning strategies, which may have been changed during the run,
+ * <li> the iteration number and the random seed.
+ * </ul>
+ * The random numbers need no further state, as {@link org.matsim.core.gbl.MatsimRandom} is reset from the seed and
+ * the iteration number at the start of every iteration. Random number generators that are kept by some component over
+ * several iterations, as well as any other state of additional modules, are not part of a checkpoint.
+ */
+final class Checkpointing {
+
+	private static final Logger log = Logger.getLogger(Checkpointing.class);
+
+	private static final int MAGIC = 0x4d415443;
+	private static final int VERSION = 1;
+
+	static final String LATEST = "latest";
+
+	private final Config config;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final Population population;
+	private final Provider<StrategyManager> strategyManager;
+	private final Injector injector;
+
+	@Inject
+	Checkpointing(Config config, OutputDirectoryHierarchy controlerIO, Population population,
+			Provider<StrategyManager> strategyManager, Injector injector) {
+		this.config = config;
+		this.controlerIO = controlerIO;
+		this.population = population;
+		this.strategyManager = strategyManager;
+		this.injector = injector;
+	}
+
+	/*package*/ void write(final int iteration) {
+		String filename = this.controlerIO.getCheckpointFilename(iteration);
+		log.info("writing checkpoint " + filename);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(IOUtils.getOutputStream(filename, false)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(iteration);
+			out.writeLong(this.config.global().getRandomSeed());
+
+			new CheckpointPlansIO().write(this.population, out);
+
+			List<Binding<TravelTimeCalculator>> calculators = getTravelTimeCalculatorBindings();
+			out.writeInt(calculators.size());
+			for (Binding<TravelTimeCalculator> binding : calculators) {
+				out.writeUTF(binding.getKey().toString());
+				binding.getProvider().get().writeCheckpoint(out);
+			}
+
+			StrategyManager strategies = this.strategyManager.get();
+			Set<String> subpopulations = getSubpopulations();
+			out.writeInt(subpopulations.size());
+			for (String subpopulation : subpopulations) {
+				out.writeBoolean(subpopulation != null);
+				if (subpopulation != null) {
+					out.writeUTF(subpopulation);
+				}
+				List<Double> weights = strategies.getWeights(subpopulation);
+				out.writeInt(weights.size());
+				for (double weight : weights) {
+					out.writeDouble(weight);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write checkpoint " + filename, e);
+		}
+		this.controlerIO.deleteOldCheckpoints(this.config.controler().getCheckpointsToKeep());
+	}
+
+	/**
+	 * Restores the state from the checkpoint set by {@link org.matsim.core.config.groups.ControlerConfigGroup#getRestartFromCheckpoint()}.
+	 * If checkpoints are written or read, also makes sure at the start of the run that all state can be checkpointed.
+	 *
+	 * @return the iteration of the checkpoint, or <code>null</code> if no checkpoint is set
+	 */
+	/*package*/ Integer restore() {
+		String filename = this.config.controler().getRestartFromCheckpoint();
+		if (filename != null || this.config.controler().getWriteCheckpointsInterval() > 0) {
+			// fail now rather than when the first checkpoint is written
+			for (Binding<TravelTimeCalculator> binding : getTravelTimeCalculatorBindings()) {
+				if (!binding.getProvider().get().isCheckpointSupported()) {
+					throw new RuntimeException("The travel times of " + binding.getKey() + " cannot be checkpointed, as they"
+							+ " are collected in a custom data structure. Disable checkpoints or use the default travel time data.");
+				}
+			}
+		}
+		if (filename == null) {
+			return null;
+		}
+		if (LATEST.equals(filename)) {
+			filename = this.controlerIO.getLatestCheckpointFilename();
+			if (filename == null) {
+				throw new RuntimeException("There is no checkpoint in " + this.controlerIO.getCheckpointPath() + " to restart from.");
+			}
+		}
+		log.info("restoring checkpoint " + filename);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(filename)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new RuntimeException(filename + " is not a checkpoint of this version of MATSim.");
+			}
+			int iteration = in.readInt();
+			long randomSeed = in.readLong();
+			if (randomSeed != this.config.global().getRandomSeed()) {
+				log.warn("The checkpoint was written with random seed " + randomSeed + ", but the run uses "
+						+ this.config.global().getRandomSeed() + ". The run will not continue as the original one.");
+			}
+
+			new CheckpointPlansIO().read(this.population, in);
+
+			List<Binding<TravelTimeCalculator>> calculators = getTravelTimeCalculatorBindings();
+			int numberOfCalculators = in.readInt();
+			if (numberOfCalculators != calculators.size()) {
+				throw new RuntimeException("The checkpoint contains " + numberOfCalculators + " travel time calculators, but "
+						+ calculators.size() + " are bound.");
+			}
+			for (Binding<TravelTimeCalculator> binding : calculators) {
+				String key = in.readUTF();
+				if (!key.equals(binding.getKey().toString())) {
+					throw new RuntimeException("The checkpoint contains travel times for " + key + ", but not for " + binding.getKey());
+				}
+				binding.getProvider().get().readCheckpoint(in);
+			}
+
+			StrategyManager strategies = this.strategyManager.get();
+			int numberOfSubpopulations = in.readInt();
+			for (int i = 0; i < numberOfSubpopulations; i++) {
+				String subpopulation = in.readBoolean() ? in.readUTF() : null;
+				List<GenericPlanStrategy<Plan, Person>> planStrategies = strategies.getStrategies(subpopulation);
+				int numberOfWeights = in.readInt();
+				if (numberOfWeights != planStrategies.size()) {
+					throw new RuntimeException("The checkpoint contains " + numberOfWeights + " strategies for subpopulation "
+							+ subpopulation + ", but " + planStrategies.size() + " are configured.");
+				}
+				for (int j = 0; j < numberOfWeights; j++) {
+					strategies.changeWeightOfStrategy(planStrategies.get(j), subpopulation, in.readDouble());
+				}
+			}
+			log.info("restored checkpoint of iteration " + iteration);
+			return iteration;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read checkpoint " + filename, e);
+		}
+	}
+
+	private List<Binding<TravelTimeCalculator>> getTravelTimeCalculatorBindings() {
+		List<Binding<TravelTimeCalculator>> bindings = new ArrayList<>(this.injector.findBindingsByType(TypeLiteral.get(TravelTimeCalculator.class)));
+		bindings.sort(Comparator.comparing(binding -> binding.getKey().toString()));
+		return bindings;
+	}
+
+	private Set<String> getSubpopulations() {
+		Set<String> subpopulations = new LinkedHashSet<>();
+		for (StrategySettings settings : this.config.strategy().getStrategySettings()) {
+			subpopulations.add(settings.getSubpopulation());
+		}
+		return subpopulations;
+	}
+
+}
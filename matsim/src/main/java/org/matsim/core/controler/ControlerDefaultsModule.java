@@ -56,6 +56,7 @@ public final class ControlerDefaultsModule extends AbstractModule {
         install(new TravelDistanceStatsModule());
         install(new ScoreStatsModule());
         install(new ModeStatsModule());
+        install(new MetricsModule());
         install(new CountsModule());
         install(new PtCountsModule());
         install(new VspPlansCleanerModule());
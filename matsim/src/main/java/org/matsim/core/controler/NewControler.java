@@ -51,6 +51,7 @@ class NewControler extends AbstractController implements ControlerI {
 	private final Set<ControlerListener> controlerListenersDeclaredByModules;
 	private final ControlerConfigGroup controlerConfigGroup;
 	private final OutputDirectoryHierarchy outputDirectoryHierarchy;
+	private final Checkpointing checkpointing;
 	
 	@Inject
 	NewControler(Config config, ControlerListenerManagerImpl controlerListenerManager, MatsimServices matsimServices,
@@ -59,7 +60,7 @@ class NewControler extends AbstractController implements ControlerI {
 			 PlansScoring plansScoring, TerminationCriterion terminationCriterion, DumpDataAtEnd dumpDataAtEnd,
 			 Set<ControlerListener> controlerListenersDeclaredByModules, ControlerConfigGroup controlerConfigGroup,
 			 OutputDirectoryHierarchy outputDirectoryHierarchy
-			, PrepareForMobsim prepareForMobsim
+			, PrepareForMobsim prepareForMobsim, Checkpointing checkpointing
  ) {
 		super(controlerListenerManager, stopWatch, matsimServices);
 		this.config = config;
@@ -76,6 +77,7 @@ class NewControler extends AbstractController implements ControlerI {
 		this.controlerListenersDeclaredByModules = controlerListenersDeclaredByModules;
 		this.controlerConfigGroup = controlerConfigGroup;
 		this.outputDirectoryHierarchy = outputDirectoryHierarchy;
+		this.checkpointing = checkpointing;
 	}
 
 	@Override
@@ -126,6 +128,16 @@ class NewControler extends AbstractController implements ControlerI {
 		this.mobsimProvider.get().run();
 	}
 
+	@Override
+	protected final Integer restoreCheckpoint(Config config) {
+		return this.checkpointing.restore();
+	}
+
+	@Override
+	protected final void writeCheckpoint(int iteration) {
+		this.checkpointing.write(iteration);
+	}
+
 	@Override
 	protected final boolean continueIterations(int it) {
 		return terminationCriterion.continueIterations(it);
@@ -2,6 +2,8 @@ package org.matsim.core.controler;
 
 import org.matsim.analysis.IterationStopWatch;
 
+import com.google.inject.Singleton;
+
 public final class NewControlerModule extends AbstractModule {
 	@Override
 	public void install() {
@@ -20,5 +22,7 @@ public final class NewControlerModule extends AbstractModule {
 
 		bind(PrepareForSim.class).to(PrepareForSimImpl.class);
 		bind(PrepareForMobsim.class).to(PrepareForMobsimImpl.class);
+
+		bind(Checkpointing.class).in(Singleton.class);
 	}
 }
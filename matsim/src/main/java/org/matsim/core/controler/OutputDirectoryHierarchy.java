@@ -20,6 +20,7 @@
 package org.matsim.core.controler;
 
 import java.io.File;
+import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.core.config.groups.ControlerConfigGroup;
@@ -39,6 +40,10 @@ public final class OutputDirectoryHierarchy {
 	public enum OverwriteFileSetting {failIfDirectoryExists, overwriteExistingFiles, deleteDirectoryIfExists}
 
 	private static final String DIRECTORY_ITERS = "ITERS";
+
+	private static final String DIRECTORY_CHECKPOINTS = "checkpoints";
+
+	private static final String CHECKPOINT_SUFFIX = ".checkpoint.zst";
 	
 	private static Logger log = Logger.getLogger(OutputDirectoryHierarchy.class);
 	
@@ -141,7 +146,77 @@ public final class OutputDirectoryHierarchy {
 		return s.toString();
 	}
 
-	
+	/**
+	 * Returns the path to the directory where checkpoints are stored. The directory path does not include the trailing '/'.
+	 */
+	public final String getCheckpointPath() {
+		return outputPath + "/" + DIRECTORY_CHECKPOINTS;
+	}
+
+	/**
+	 * Returns the complete filename of the checkpoint of the given iteration. The checkpoint directory is created if it
+	 * does not exist yet.
+	 *
+	 * @return complete path and filename to the checkpoint, if set prefixed with the runId
+	 */
+	public final String getCheckpointFilename(final int iteration) {
+		File dir = new File(getCheckpointPath());
+		if (!dir.mkdir() && !dir.exists()) {
+			throw new RuntimeException("The checkpoint directory " + getCheckpointPath() + " could not be created.");
+		}
+		StringBuilder s = new StringBuilder(getCheckpointPath());
+		s.append('/');
+		if (runId != null) {
+			s.append(runId);
+			s.append('.');
+		}
+		s.append(iteration);
+		s.append(CHECKPOINT_SUFFIX);
+		return s.toString();
+	}
+
+	/**
+	 * @return the complete filename of the checkpoint with the highest iteration number, or <code>null</code> if there
+	 * is no checkpoint
+	 */
+	public final String getLatestCheckpointFilename() {
+		TreeMap<Integer, File> checkpoints = getCheckpoints();
+		return checkpoints.isEmpty() ? null : checkpoints.lastEntry().getValue().getPath();
+	}
+
+	/**
+	 * Deletes all but the <code>checkpointsToKeep</code> checkpoints with the highest iteration numbers.
+	 */
+	public final void deleteOldCheckpoints(final int checkpointsToKeep) {
+		TreeMap<Integer, File> checkpoints = getCheckpoints();
+		while (checkpoints.size() > Math.max(checkpointsToKeep, 0)) {
+			File file = checkpoints.pollFirstEntry().getValue();
+			log.info("deleting checkpoint " + file.getPath());
+			if (!file.delete()) {
+				log.warn("Could not delete checkpoint " + file.getPath() + ".");
+			}
+		}
+	}
+
+	private TreeMap<Integer, File> getCheckpoints() {
+		TreeMap<Integer, File> checkpoints = new TreeMap<>();
+		String prefix = runId == null ? "" : runId + ".";
+		File[] files = new File(getCheckpointPath()).listFiles();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				if (file.isFile() && name.startsWith(prefix) && name.endsWith(CHECKPOINT_SUFFIX)) {
+					try {
+						checkpoints.put(Integer.parseInt(name.substring(prefix.length(), name.length() - CHECKPOINT_SUFFIX.length())), file);
+					} catch (NumberFormatException e) {
+						// not one of our checkpoints
+					}
+				}
+			}
+		}
+		return checkpoints;
+	}
+
 	public String getOutputPath() {
 		return outputPath;
 	}
@@ -277,6 +277,7 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 
 		final PopulationWriter writer = new PopulationWriter(population, network);
 		writer.putAttributeConverters( attributeConverters );
+		writer.setCompressionThreads(config.controler().getCompressionThreads());
 		writer.write(controlerIO.getOutputFilename(Controler.OUTPUT_PREFIX + Controler.FILENAME_POPULATION));
 
 		final ObjectAttributes personAttributes = population.getPersonAttributes();
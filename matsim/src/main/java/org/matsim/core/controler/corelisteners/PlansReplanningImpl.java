@@ -21,6 +21,7 @@
 package org.matsim.core.controler.corelisteners;
 
 import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.population.CompactPopulation;
 import org.matsim.core.controler.events.ReplanningEvent;
 import org.matsim.core.controler.listener.ReplanningListener;
 import org.matsim.core.replanning.ReplanningContext;
@@ -56,6 +57,10 @@ final class PlansReplanningImpl implements PlansReplanning, ReplanningListener {
 	@Override
 	public void notifyReplanning(final ReplanningEvent event) {
 		strategyManager.run(population, event.getIteration(), replanningContextProvider.get());
+		if (population instanceof CompactPopulation) {
+			// the plans that were not selected are not needed before the next replanning
+			((CompactPopulation) population).compact();
+		}
 	}
 
 }
@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}. The file is memory-mapped block by block,
+ * and only the blocks that contain events within the requested time window and of the requested
+ * event types are decoded at all.
+ * <p></p>
+ * File layout (all numbers big-endian):
+ * <pre>
+ * header:     int magic, int version
+ * blocks:     int[n] type, double[n] time, int[n] link, int[n+1] attribute offsets, int[] attribute (key, value) pairs
+ * dictionary: int size, size times (int byteLength, UTF-8 bytes)
+ * index:      per block: long offset, int byteLength, int n, double minTime, double maxTime, int numTypes, int[numTypes] types
+ * footer:     long dictionaryOffset, long indexOffset, int numBlocks, int magic
+ * </pre>
+ * Types, links and attributes refer to entries of the dictionary, {@value #NO_ENTRY} stands for <code>null</code>.
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	private final static Logger log = Logger.getLogger(EventsReaderBinary.class);
+
+	public static final int MAGIC = 0x4D534556; // "MSEV"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 8;
+	public static final int FOOTER_SIZE = 24;
+	public static final int NO_ENTRY = -1;
+	/** the attribute that is stored in its own column */
+	public static final String ATTRIBUTE_LINK = "link";
+
+	private final EventsReaderXMLv1 delegate;
+	private double fromTime = Double.NEGATIVE_INFINITY;
+	private double toTime = Double.POSITIVE_INFINITY;
+	private Set<String> eventTypes = null;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper<?> cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	/**
+	 * Only events with <code>fromTime &lt;= time &lt;= toTime</code> are read.
+	 */
+	public void setTimeWindow(final double fromTime, final double toTime) {
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
+	/**
+	 * Only events of the given types are read. <code>null</code> reads all events.
+	 */
+	public void setEventTypes(final Set<String> eventTypes) {
+		this.eventTypes = eventTypes;
+	}
+
+	/**
+	 * @return true if the given file starts like a binary events file.
+	 */
+	public static boolean isBinaryEventsFile(final String filename) {
+		File file = new File(filename);
+		if (!file.isFile() || file.length() < HEADER_SIZE + FOOTER_SIZE) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+				FileChannel channel = file.getChannel()) {
+			long size = channel.size();
+
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IllegalArgumentException("File " + filename + " is not a binary events file.");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary events file " + filename);
+			}
+
+			MappedByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, size - FOOTER_SIZE, FOOTER_SIZE);
+			long dictionaryOffset = footer.getLong();
+			long indexOffset = footer.getLong();
+			int numBlocks = footer.getInt();
+			if (footer.getInt() != MAGIC) {
+				throw new IllegalArgumentException("Binary events file " + filename + " is incomplete. Was it closed correctly?");
+			}
+
+			String[] dictionary = readDictionary(channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset, indexOffset - dictionaryOffset));
+			boolean[] typeFilter = createTypeFilter(dictionary);
+
+			MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, size - FOOTER_SIZE - indexOffset);
+			int readBlocks = 0;
+			for (int b = 0; b < numBlocks; b++) {
+				long offset = index.getLong();
+				int byteLength = index.getInt();
+				int eventCount = index.getInt();
+				double minTime = index.getDouble();
+				double maxTime = index.getDouble();
+				int numTypes = index.getInt();
+				boolean containsType = typeFilter == null;
+				for (int t = 0; t < numTypes; t++) {
+					int type = index.getInt();
+					containsType = containsType || typeFilter[type];
+				}
+				if (!containsType || maxTime < this.fromTime || minTime > this.toTime) {
+					continue;
+				}
+				readBlock(channel.map(FileChannel.MapMode.READ_ONLY, offset, byteLength), eventCount, dictionary, typeFilter);
+				readBlocks++;
+			}
+			log.info("read " + readBlocks + " of " + numBlocks + " blocks from " + filename);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String[] readDictionary(final MappedByteBuffer buffer) {
+		String[] dictionary = new String[buffer.getInt()];
+		byte[] bytes = new byte[256];
+		for (int i = 0; i < dictionary.length; i++) {
+			int length = buffer.getInt();
+			if (length > bytes.length) {
+				bytes = new byte[Math.max(length, 2 * bytes.length)];
+			}
+			buffer.get(bytes, 0, length);
+			dictionary[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+		return dictionary;
+	}
+
+	private boolean[] createTypeFilter(final String[] dictionary) {
+		if (this.eventTypes == null) {
+			return null;
+		}
+		boolean[] filter = new boolean[dictionary.length];
+		for (int i = 0; i < dictionary.length; i++) {
+			filter[i] = this.eventTypes.contains(dictionary[i]);
+		}
+		return filter;
+	}
+
+	private void readBlock(final MappedByteBuffer buffer, final int n, final String[] dictionary, final boolean[] typeFilter) {
+		int timesStart = n * 4;
+		int linksStart = timesStart + n * 8;
+		int offsetsStart = linksStart + n * 4;
+		int attributesStart = offsetsStart + (n + 1) * 4;
+
+		AttributesImpl atts = new AttributesImpl();
+		for (int i = 0; i < n; i++) {
+			int type = buffer.getInt(i * 4);
+			if (typeFilter != null && !typeFilter[type]) {
+				continue;
+			}
+			double time = buffer.getDouble(timesStart + i * 8);
+			if (time < this.fromTime || time > this.toTime) {
+				continue;
+			}
+
+			atts.clear();
+			int link = buffer.getInt(linksStart + i * 4);
+			if (link != NO_ENTRY) {
+				atts.addAttribute("", ATTRIBUTE_LINK, ATTRIBUTE_LINK, "CDATA", dictionary[link]);
+			}
+			int from = buffer.getInt(offsetsStart + i * 4);
+			int to = buffer.getInt(offsetsStart + (i + 1) * 4);
+			for (int a = from; a < to; a += 2) {
+				String key = dictionary[buffer.getInt(attributesStart + a * 4)];
+				int value = buffer.getInt(attributesStart + (a + 1) * 4);
+				atts.addAttribute("", key, key, "CDATA", value == NO_ENTRY ? null : dictionary[value]);
+			}
+			this.delegate.handleEvent(time, dictionary[type], atts);
+		}
+	}
+
+}
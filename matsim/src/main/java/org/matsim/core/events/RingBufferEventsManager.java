@@ -0,0 +1,376 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * An EventsManager that hands events to its processing threads through a preallocated ring buffer
+ * instead of blocking queues.
+ * <p></p>
+ * Producers (the mobsim threads, but also event handlers that create events themselves) claim a slot
+ * by incrementing a shared sequence, store the event in the slot and mark it as published. Each
+ * processing thread owns a group of handlers and its own sequence cursor. It processes all events
+ * that are published contiguously after its cursor as one batch and only then advances the cursor,
+ * so that the producers see one write per batch and not per event. A producer only has to wait if
+ * it would overwrite a slot that the slowest processing thread has not yet passed.
+ * <p></p>
+ * Like {@link SimStepParallelEventsManagerImpl}, all events of a time step are processed before
+ * {@link #afterSimStep(double)} returns, including events that are created by event handlers while
+ * processing that time step. A {@link LastEventOfSimStep} is published at the end of each time step.
+ * <p></p>
+ * Note that the buffer must be large enough to hold the events created by event handlers during one
+ * batch. If a processing thread would have to wait for itself, an exception is thrown.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManager.class);
+
+	public final static int DEFAULT_BUFFER_SIZE = 65536;
+
+	private final static int SPIN_TRIES = 100;
+	private final static int YIELD_TRIES = 100;
+	private final static long PARK_NANOS = 50000;
+
+	private final int numOfThreads;
+	private final int bufferSize;
+	private final int indexMask;
+	private final int indexShift;
+
+	private final EventsManagerImpl delegate;
+	private final EventsManagerImpl[] eventsManagers;
+	private int handlerCount = 0;
+
+	private final Event[] entries;
+	/** stores for each slot the round (sequence / bufferSize) of the last event published into it */
+	private final AtomicIntegerArray availableRounds;
+	/** the highest claimed sequence */
+	private final PaddedSequence claimSequence = new PaddedSequence(-1);
+	/** the cursors of the processing threads */
+	private PaddedSequence[] consumerSequences;
+	/** cached minimum of the consumer sequences, to avoid reading all of them for each claim */
+	private final PaddedSequence gatingSequenceCache = new PaddedSequence(-1);
+
+	private ProcessEventsRunnable[] runnables;
+	private Thread[] threads;
+
+	private volatile boolean parallelMode = false;
+	private volatile boolean running = false;
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+
+	@Inject
+	RingBufferEventsManager(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1,
+				config.getEventsRingBufferSize() != null ? config.getEventsRingBufferSize() : DEFAULT_BUFFER_SIZE);
+	}
+
+	public RingBufferEventsManager(final int numOfThreads) {
+		this(numOfThreads, DEFAULT_BUFFER_SIZE);
+	}
+
+	public RingBufferEventsManager(final int numOfThreads, final int bufferSize) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1, but is " + numOfThreads);
+		}
+		if (bufferSize < 2 || Integer.bitCount(bufferSize) != 1) {
+			throw new IllegalArgumentException("Buffer size must be a power of 2, but is " + bufferSize);
+		}
+		this.numOfThreads = numOfThreads;
+		this.bufferSize = bufferSize;
+		this.indexMask = bufferSize - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+		log.info("number of threads=" + numOfThreads + ", buffer size=" + bufferSize);
+
+		this.entries = new Event[bufferSize];
+		this.availableRounds = new AtomicIntegerArray(bufferSize);
+		for (int i = 0; i < bufferSize; i++) {
+			this.availableRounds.set(i, -1);
+		}
+
+		this.delegate = new EventsManagerImpl();
+		this.eventsManagers = new EventsManagerImpl[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (this.parallelMode) publish(event);
+		else this.delegate.processEvent(event);
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+
+		this.eventsManagers[this.handlerCount % this.numOfThreads].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		if (this.parallelMode) log.warn("Removing EventHandler while RingBufferEventsManager is in 'parallel' mode. This is not expected to happen :?");
+
+		this.delegate.removeHandler(handler);
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
+
+		/*
+		 * The sequences keep on counting over the iterations, so the slots can be reused without
+		 * resetting them.
+		 */
+		long start = this.claimSequence.get();
+		this.gatingSequenceCache.set(start);
+		this.consumerSequences = new PaddedSequence[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) this.consumerSequences[i] = new PaddedSequence(start);
+
+		this.hadException.set(null);
+		this.running = true;
+
+		UncaughtExceptionHandler uncaughtExceptionHandler = new ExceptionHandler();
+		this.runnables = new ProcessEventsRunnable[this.numOfThreads];
+		this.threads = new Thread[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			this.runnables[i] = new ProcessEventsRunnable(this.eventsManagers[i], this.consumerSequences[i]);
+			Thread thread = new Thread(this.runnables[i]);
+			thread.setDaemon(true);
+			thread.setUncaughtExceptionHandler(uncaughtExceptionHandler);
+			thread.setName(ProcessEventsRunnable.class.getSimpleName() + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+
+		this.parallelMode = true;
+	}
+
+	/*
+	 * Events created after this method has been called (e.g. money events by the road pricing contrib)
+	 * are processed directly in the calling thread.
+	 */
+	@Override
+	public synchronized void finishProcessing() {
+		Throwable throwable = this.hadException.get();
+		if (throwable == null) {
+			this.processEvent(new LastEventOfIteration(Double.POSITIVE_INFINITY));
+			awaitAllEventsProcessed(Double.POSITIVE_INFINITY);
+			throwable = this.hadException.get();
+		}
+
+		this.running = false;
+		for (Thread thread : this.threads) {
+			LockSupport.unpark(thread);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		this.parallelMode = false;
+		// do not keep the events of the last iteration alive
+		for (int i = 0; i < this.bufferSize; i++) this.entries[i] = null;
+
+		this.delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		/*
+		 * If an exception occurred, at least one of the events processing threads has crashed.
+		 * Waiting for it would never end.
+		 */
+		if (this.hadException.get() != null) {
+			return;
+		}
+		awaitAllEventsProcessed(time);
+	}
+
+	/**
+	 * Publishes a {@link LastEventOfSimStep} and waits until every processing thread has passed it.
+	 * Event handlers might have created additional events in the meantime which are located after the
+	 * marker in the buffer. In that case, another marker is published and we wait again.
+	 */
+	private void awaitAllEventsProcessed(double time) {
+		long marker = publish(new LastEventOfSimStep(time));
+		while (true) {
+			for (PaddedSequence sequence : this.consumerSequences) {
+				int counter = 0;
+				while (sequence.get() < marker) {
+					counter = idle(counter);
+					if (this.hadException.get() != null) return;
+				}
+			}
+			if (this.claimSequence.get() == marker) return;
+			marker = publish(new LastEventOfSimStep(time));
+		}
+	}
+
+	private long publish(final Event event) {
+		long sequence = this.claimSequence.incrementAndGet();
+		long wrapPoint = sequence - this.bufferSize;
+		if (wrapPoint > this.gatingSequenceCache.get()) {
+			awaitCapacity(wrapPoint);
+		}
+		int index = (int) sequence & this.indexMask;
+		this.entries[index] = event;
+		// the ordered write makes the entry visible to the processing threads before the slot is marked as available
+		this.availableRounds.lazySet(index, (int) (sequence >>> this.indexShift));
+		return sequence;
+	}
+
+	private void awaitCapacity(long wrapPoint) {
+		int counter = 0;
+		long minSequence;
+		while (wrapPoint > (minSequence = getMinimumConsumerSequence())) {
+			if (this.hadException.get() != null) {
+				throw new RuntimeException("Exception while processing events.", this.hadException.get());
+			}
+			for (Thread thread : this.threads) {
+				if (thread == Thread.currentThread()) {
+					throw new RuntimeException("The events ring buffer is full while an event handler creates new events. " +
+							"This would block forever. Please increase the buffer size, currently " + this.bufferSize);
+				}
+			}
+			counter = idle(counter);
+		}
+		this.gatingSequenceCache.set(minSequence);
+	}
+
+	private long getMinimumConsumerSequence() {
+		long min = Long.MAX_VALUE;
+		for (PaddedSequence sequence : this.consumerSequences) {
+			min = Math.min(min, sequence.get());
+		}
+		return min;
+	}
+
+	private boolean isAvailable(long sequence) {
+		return this.availableRounds.get((int) sequence & this.indexMask) == (int) (sequence >>> this.indexShift);
+	}
+
+	/**
+	 * Busy spin first, then yield, then park for a short time.
+	 */
+	private static int idle(int counter) {
+		if (counter < SPIN_TRIES) {
+			return counter + 1;
+		} else if (counter < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+			return counter + 1;
+		}
+		LockSupport.parkNanos(PARK_NANOS);
+		return counter;
+	}
+
+	private final class ProcessEventsRunnable implements Runnable {
+
+		private final EventsManager eventsManager;
+		private final PaddedSequence sequence;
+		private double lastEventTime = Double.NEGATIVE_INFINITY;
+
+		ProcessEventsRunnable(EventsManager eventsManager, PaddedSequence sequence) {
+			this.eventsManager = eventsManager;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public void run() {
+			long nextSequence = this.sequence.get() + 1;
+			int counter = 0;
+			while (running) {
+				if (!isAvailable(nextSequence)) {
+					counter = idle(counter);
+					continue;
+				}
+				counter = 0;
+
+				// collect all contiguously published events and process them as one batch
+				long availableSequence = nextSequence;
+				while (isAvailable(availableSequence + 1)) availableSequence++;
+
+				for (long s = nextSequence; s <= availableSequence; s++) {
+					Event event = entries[(int) s & indexMask];
+					if (event.getTime() < this.lastEventTime) {
+						throw new RuntimeException("Events in the queue are not ordered chronologically. " +
+								"This should never happen. Is the RingBufferEventsManager registered " +
+								"as a MobsimAfterSimStepListener?");
+					}
+					this.lastEventTime = event.getTime();
+					if (!(event instanceof LastEventOfSimStep) && !(event instanceof LastEventOfIteration)) {
+						this.eventsManager.processEvent(event);
+					}
+				}
+				this.sequence.set(availableSequence);
+				nextSequence = availableSequence + 1;
+			}
+			Gbl.printCurrentThreadCpuTime();
+		}
+	}	// ProcessEventsRunnable
+
+	/**
+	 * A sequence counter that is padded so that the counters of different threads do not share a cache line.
+	 */
+	@SuppressWarnings("unused")
+	private static final class PaddedSequence extends AtomicLong {
+		private static final long serialVersionUID = 1L;
+		private long p1, p2, p3, p4, p5, p6, p7;
+
+		PaddedSequence(long initialValue) {
+			super(initialValue);
+		}
+	}
+
+	private final class ExceptionHandler implements UncaughtExceptionHandler {
+		@Override
+		public void uncaughtException(Thread t, Throwable e) {
+			hadException.set(e);
+			log.error("Thread " + t.getName() + " died with exception while handling events.", e);
+		}
+	}
+
+}
@@ -0,0 +1,276 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events into the binary, block-oriented format read by {@link EventsReaderBinary}.
+ * <p></p>
+ * All strings (event types, attribute names and values, thus also all ids) are dictionary-encoded.
+ * The events are collected in blocks of fixed size. Each block stores its events column-wise:
+ * the event types, the times and the link ids in fixed-width columns, followed by the
+ * remaining attributes as pairs of dictionary entries. The dictionary and an index of all blocks
+ * (with their time range and the contained event types) are written at the end of the file,
+ * so the file can only be read after {@link #closeFile()} was called.
+ *
+ * @see EventsReaderBinary for a description of the file layout
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+	private final FileOutputStream stream;
+	private final FileChannel channel;
+	private final int blockSize;
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<String> dictionaryEntries = new ArrayList<>();
+
+	private final int[] types;
+	private final double[] times;
+	private final int[] links;
+	private final int[] attributeOffsets;
+	private int[] attributes = new int[1024];
+	private int eventCount = 0;
+	private int attributeCount = 0;
+
+	private final List<BlockInfo> blocks = new ArrayList<>();
+
+	public EventWriterBinary(final String outfilename) {
+		this(outfilename, DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final String outfilename, final int blockSize) {
+		this.blockSize = blockSize;
+		this.types = new int[blockSize];
+		this.times = new double[blockSize];
+		this.links = new int[blockSize];
+		this.attributeOffsets = new int[blockSize + 1];
+		try {
+			this.stream = new FileOutputStream(outfilename);
+			this.channel = this.stream.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(EventsReaderBinary.HEADER_SIZE);
+			header.putInt(EventsReaderBinary.MAGIC);
+			header.putInt(EventsReaderBinary.VERSION);
+			header.flip();
+			write(header);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		int index = this.eventCount;
+		this.types[index] = encode(event.getEventType());
+		this.times[index] = event.getTime();
+		this.links[index] = EventsReaderBinary.NO_ENTRY;
+		this.attributeOffsets[index] = this.attributeCount;
+		for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+			String key = entry.getKey();
+			if (Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key)) {
+				continue;
+			}
+			if (EventsReaderBinary.ATTRIBUTE_LINK.equals(key)) {
+				this.links[index] = encode(entry.getValue());
+				continue;
+			}
+			if (this.attributeCount + 2 > this.attributes.length) {
+				this.attributes = Arrays.copyOf(this.attributes, this.attributes.length * 2);
+			}
+			this.attributes[this.attributeCount++] = encode(key);
+			this.attributes[this.attributeCount++] = encode(entry.getValue());
+		}
+		this.eventCount++;
+		if (this.eventCount == this.blockSize) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			if (this.eventCount > 0) {
+				writeBlock();
+			}
+
+			long dictionaryOffset = this.channel.position();
+			writeDictionary();
+
+			long indexOffset = this.channel.position();
+			writeIndex();
+
+			ByteBuffer footer = ByteBuffer.allocate(EventsReaderBinary.FOOTER_SIZE);
+			footer.putLong(dictionaryOffset);
+			footer.putLong(indexOffset);
+			footer.putInt(this.blocks.size());
+			footer.putInt(EventsReaderBinary.MAGIC);
+			footer.flip();
+			write(footer);
+
+			this.stream.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private int encode(final String value) {
+		if (value == null) {
+			return EventsReaderBinary.NO_ENTRY;
+		}
+		Integer index = this.dictionary.get(value);
+		if (index == null) {
+			index = this.dictionaryEntries.size();
+			this.dictionary.put(value, index);
+			this.dictionaryEntries.add(value);
+		}
+		return index;
+	}
+
+	private void writeBlock() {
+		int n = this.eventCount;
+		this.attributeOffsets[n] = this.attributeCount;
+
+		int byteLength = n * (4 + 8 + 4) + (n + 1) * 4 + this.attributeCount * 4;
+		ByteBuffer buffer = ByteBuffer.allocate(byteLength);
+		double minTime = Double.POSITIVE_INFINITY;
+		double maxTime = Double.NEGATIVE_INFINITY;
+		int[] blockTypes = new int[0];
+		for (int i = 0; i < n; i++) {
+			int type = this.types[i];
+			buffer.putInt(type);
+			if (Arrays.binarySearch(blockTypes, type) < 0) {
+				blockTypes = Arrays.copyOf(blockTypes, blockTypes.length + 1);
+				blockTypes[blockTypes.length - 1] = type;
+				Arrays.sort(blockTypes);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			double time = this.times[i];
+			buffer.putDouble(time);
+			minTime = Math.min(minTime, time);
+			maxTime = Math.max(maxTime, time);
+		}
+		for (int i = 0; i < n; i++) {
+			buffer.putInt(this.links[i]);
+		}
+		for (int i = 0; i <= n; i++) {
+			buffer.putInt(this.attributeOffsets[i]);
+		}
+		for (int i = 0; i < this.attributeCount; i++) {
+			buffer.putInt(this.attributes[i]);
+		}
+		buffer.flip();
+
+		try {
+			long offset = this.channel.position();
+			write(buffer);
+			this.blocks.add(new BlockInfo(offset, byteLength, n, minTime, maxTime, blockTypes));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		this.eventCount = 0;
+		this.attributeCount = 0;
+	}
+
+	private void writeDictionary() throws IOException {
+		byte[][] encoded = new byte[this.dictionaryEntries.size()][];
+		int byteLength = 4;
+		for (int i = 0; i < encoded.length; i++) {
+			encoded[i] = this.dictionaryEntries.get(i).getBytes(StandardCharsets.UTF_8);
+			byteLength += 4 + encoded[i].length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(byteLength);
+		buffer.putInt(encoded.length);
+		for (byte[] bytes : encoded) {
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+		buffer.flip();
+		write(buffer);
+	}
+
+	private void writeIndex() throws IOException {
+		int byteLength = 0;
+		for (BlockInfo block : this.blocks) {
+			byteLength += 8 + 4 + 4 + 8 + 8 + 4 + block.types.length * 4;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(byteLength);
+		for (BlockInfo block : this.blocks) {
+			buffer.putLong(block.offset);
+			buffer.putInt(block.byteLength);
+			buffer.putInt(block.eventCount);
+			buffer.putDouble(block.minTime);
+			buffer.putDouble(block.maxTime);
+			buffer.putInt(block.types.length);
+			for (int type : block.types) {
+				buffer.putInt(type);
+			}
+		}
+		buffer.flip();
+		write(buffer);
+	}
+
+	private void write(final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			this.channel.write(buffer);
+		}
+	}
+
+	private static class BlockInfo {
+		final long offset;
+		final int byteLength;
+		final int eventCount;
+		final double minTime;
+		final double maxTime;
+		final int[] types;
+
+		BlockInfo(long offset, int byteLength, int eventCount, double minTime, double maxTime, int[] types) {
+			this.offset = offset;
+			this.byteLength = byteLength;
+			this.eventCount = eventCount;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+			this.types = types;
+		}
+	}
+
+}
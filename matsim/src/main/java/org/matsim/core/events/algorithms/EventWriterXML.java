@@ -35,7 +35,15 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 	private final BufferedWriter out;
 
 	public EventWriterXML(final String outfilename) {
-		this.out = IOUtils.getBufferedWriter(outfilename);
+		this(outfilename, 0);
+	}
+
+	/**
+	 * @param compressionThreads the number of threads compressing the events if the file is gzip- or
+	 * zstd-compressed, see {@link org.matsim.core.utils.io.ParallelCompressingOutputStream}
+	 */
+	public EventWriterXML(final String outfilename, final int compressionThreads) {
+		this.out = IOUtils.getBufferedWriter(outfilename, compressionThreads);
 		this.writeHeader();
 	}
 
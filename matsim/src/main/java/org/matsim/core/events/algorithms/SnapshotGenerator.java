@@ -42,17 +42,26 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfoFactory;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 import org.matsim.vis.snapshotwriters.SnapshotWriter;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 
+/**
+ * Generates snapshots of the agent positions from events.
+ * <p></p>
+ * The state of the links is kept in an array indexed by {@link Id#index()}, the agents are stored in an {@link IdMap}.
+ * Every agent is in at most one queue of one link, the queues are linked lists through the agents, so agents are
+ * moved between queues in constant time. Positions are only calculated when a snapshot is actually written, and only
+ * for the links where agents currently are. Wrap writers in a {@link org.matsim.vis.snapshotwriters.ParallelSnapshotWriter}
+ * to write the snapshots on separate threads.
+ */
 public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArrivalEventHandler, LinkEnterEventHandler,
 		LinkLeaveEventHandler, VehicleEntersTrafficEventHandler, PersonStuckEventHandler, VehicleLeavesTrafficEventHandler {
 
@@ -60,9 +69,10 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	private final Network network;
 	private int lastSnapshotIndex = -1;
 	private final double snapshotPeriod;
-	private final HashMap<Id<Link>, EventLink> eventLinks;
-	private final ArrayList<EventLink> linkList;
-	private final HashMap<Id<Person>, EventAgent> eventAgents;
+	private EventLink[] eventLinks;
+	private final List<EventLink> activeLinks;
+	private final IdMap<Person, EventAgent> eventAgents;
+	private final List<AgentSnapshotInfo> positions = new ArrayList<>();
 	private final List<SnapshotWriter> snapshotWriters = new ArrayList<>();
 	private final double capCorrectionFactor;
 	private final double storageCapFactor;
@@ -75,10 +85,8 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	
 	public SnapshotGenerator(final Network network, final double snapshotPeriod, final QSimConfigGroup config) {
 		this.network = network;
-		int initialCapacity = (int)(network.getLinks().size()*1.1);
-		this.eventLinks = new HashMap<>(initialCapacity, 0.95f);
-		this.linkList = new ArrayList<>(initialCapacity);
-		this.eventAgents = new HashMap<>(1000, 0.95f);
+		this.activeLinks = new ArrayList<>();
+		this.eventAgents = new IdMap<>(Person.class);
 		this.snapshotPeriod = snapshotPeriod;
 		this.capCorrectionFactor = config.getFlowCapFactor() / network.getCapacityPeriod();
 		this.storageCapFactor = config.getStorageCapFactor();
@@ -105,31 +113,39 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	@Override
 	public void handleEvent(final PersonDepartureEvent event) {
 		testForSnapshot(event.getTime());
-		this.eventLinks.get(event.getLinkId()).departure(getEventAgent(event.getPersonId(), event.getTime()));
+		EventLink link = getEventLink(event.getLinkId());
+		link.departure(getEventAgent(event.getPersonId(), event.getTime()));
+		activate(link);
 	}
 
 	@Override
 	public void handleEvent(final PersonArrivalEvent event) {
 		testForSnapshot(event.getTime());
-		this.eventLinks.get(event.getLinkId()).arrival(getEventAgent(event.getPersonId(), event.getTime()));
+		EventLink link = getEventLink(event.getLinkId());
+		link.arrival(getEventAgent(event.getPersonId(), event.getTime()));
+		activate(link);
 	}
 
 	@Override
 	public void handleEvent(final LinkEnterEvent event) {
 		testForSnapshot(event.getTime());
-		this.eventLinks.get(event.getLinkId()).enter(getEventAgent(delegate.getDriverOfVehicle(event.getVehicleId()), event.getTime()));
+		EventLink link = getEventLink(event.getLinkId());
+		link.enter(getEventAgent(delegate.getDriverOfVehicle(event.getVehicleId()), event.getTime()));
+		activate(link);
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent event) {
 		testForSnapshot(event.getTime());
-		this.eventLinks.get(event.getLinkId()).leave(getEventAgent(delegate.getDriverOfVehicle(event.getVehicleId()), event.getTime()));
+		getEventLink(event.getLinkId()).leave(getEventAgent(delegate.getDriverOfVehicle(event.getVehicleId()), event.getTime()));
 	}
 
 	@Override
 	public void handleEvent(final VehicleEntersTrafficEvent event) {
 		testForSnapshot(event.getTime());
-		this.eventLinks.get(event.getLinkId()).wait2link(getEventAgent(event.getPersonId(), event.getTime()));
+		EventLink link = getEventLink(event.getLinkId());
+		link.wait2link(getEventAgent(event.getPersonId(), event.getTime()));
+		activate(link);
 		
 		delegate.handleEvent(event);
 	}
@@ -138,26 +154,40 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	public void handleEvent(final PersonStuckEvent event) {
 		testForSnapshot(event.getTime());
 		if (event.getLinkId() != null) { // link id is optional - agent can be teleporting or whatever.
-			this.eventLinks.get(event.getLinkId()).stuck(getEventAgent(event.getPersonId(), event.getTime()));
+			getEventLink(event.getLinkId()).stuck(getEventAgent(event.getPersonId(), event.getTime()));
 		}
 	}
 
 	@Override
 	public void reset(final int iteration) {
-		this.eventLinks.clear();
+		final double effectiveCellSize = this.network.getEffectiveCellSize();
+		int maxIndex = -1;
+		for (Id<Link> linkId : this.network.getLinks().keySet()) {
+			maxIndex = Math.max(maxIndex, linkId.index());
+		}
+		this.eventLinks = new EventLink[maxIndex + 1];
 		for (Link link : this.network.getLinks().values()) {
-			final double effectiveCellSize;
-			effectiveCellSize = this.network.getEffectiveCellSize();
-			this.eventLinks.put(link.getId(), new EventLink(link, this.capCorrectionFactor, effectiveCellSize, this.storageCapFactor));
+			this.eventLinks[link.getId().index()] = new EventLink(link, this.capCorrectionFactor, effectiveCellSize, this.storageCapFactor);
 		}
-		this.linkList.clear();
-		this.linkList.addAll(eventLinks.values());
+		this.activeLinks.clear();
 		this.eventAgents.clear();
 		this.lastSnapshotIndex = -1;
 		
 		delegate.reset(iteration);
 	}
 
+	private EventLink getEventLink(final Id<Link> linkId) {
+		int index = linkId.index();
+		return index < this.eventLinks.length ? this.eventLinks[index] : null;
+	}
+
+	private void activate(final EventLink link) {
+		if (!link.active) {
+			link.active = true;
+			this.activeLinks.add(link);
+		}
+	}
+
 	private EventAgent getEventAgent(final Id<Person> id, double time) {
 		EventAgent agent = this.eventAgents.get(id);
 		if (agent == null) {
@@ -183,7 +213,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 	private void doSnapshot(final double time) {
 		if (time >= skipUntil) {
 			if (!this.snapshotWriters.isEmpty()) {
-				Collection<AgentSnapshotInfo> positions = getVehiclePositions(time);
+				List<AgentSnapshotInfo> positions = getVehiclePositions(time);
 				for (SnapshotWriter writer : this.snapshotWriters) {
 					writer.beginSnapshot(time);
 					for (AgentSnapshotInfo position : positions) {
@@ -191,27 +221,35 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 					}
 					writer.endSnapshot();
 				}
+				positions.clear();
 			}
 		}
 	}
 
-	private Collection<AgentSnapshotInfo> getVehiclePositions(final double time) {
-		Collection<AgentSnapshotInfo> positions = new ArrayList<>();
-		if (this.snapshotStyle == SnapshotStyle.queue) {
-			for (EventLink link : this.linkList) {
-				link.getVehiclePositionsQueue(positions, time, this.snapshotInfoFactory);
-			}
-		} else if (this.snapshotStyle == SnapshotStyle.equiDist) {
-			for (EventLink link : this.linkList) {
-				link.getVehiclePositionsEquil(positions, time, this.snapshotInfoFactory);
-			}
-		} else {
+	private List<AgentSnapshotInfo> getVehiclePositions(final double time) {
+		if (this.snapshotStyle != SnapshotStyle.queue && this.snapshotStyle != SnapshotStyle.equiDist) {
 			// log statement to clarify: why only two snapshot styles. Amit Mar'17
 			log.warn("Cannot generate snapshots offline (e.g., from events) for "+this.snapshotStyle
 					+ ". This snapshot style is supported during simulation only.");
 			throw new RuntimeException("The snapshotStyle \"" + this.snapshotStyle + "\" is not supported.");
 		}
-		return positions;
+		// go through the links with agents, and forget the ones that became empty in the meantime
+		int active = 0;
+		for (int i = 0; i < this.activeLinks.size(); i++) {
+			EventLink link = this.activeLinks.get(i);
+			if (link.isEmpty()) {
+				link.active = false;
+				continue;
+			}
+			this.activeLinks.set(active++, link);
+			if (this.snapshotStyle == SnapshotStyle.queue) {
+				link.getVehiclePositionsQueue(this.positions, time, this.snapshotInfoFactory);
+			} else {
+				link.getVehiclePositionsEquil(this.positions, time, this.snapshotInfoFactory);
+			}
+		}
+		this.activeLinks.subList(active, this.activeLinks.size()).clear();
+		return this.positions;
 	}
 
 	public final void finish() {
@@ -234,10 +272,11 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 
 	private static class EventLink {
 		private final Link link;
-		private final List<EventAgent> drivingQueue;
-		private final List<EventAgent> parkingQueue;
-		private final List<EventAgent> waitingQueue;
-		private final List<EventAgent> buffer;
+		private final AgentQueue drivingQueue;
+		private final AgentQueue parkingQueue;
+		private final AgentQueue waitingQueue;
+		private final AgentQueue buffer;
+		private boolean active = false;
 
 		private final double euklideanDist;
 		private final double freespeedTravelTime;
@@ -250,10 +289,10 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 
 		private EventLink(final Link link2, final double capCorrectionFactor, final double effectiveCellSize, final double storageCapFactor) {
 			this.link = link2;
-			this.drivingQueue = new ArrayList<>();
-			this.parkingQueue = new ArrayList<>();
-			this.waitingQueue = new ArrayList<>();
-			this.buffer = new ArrayList<>();
+			this.drivingQueue = new AgentQueue();
+			this.parkingQueue = new AgentQueue();
+			this.waitingQueue = new AgentQueue();
+			this.buffer = new AgentQueue();
 			this.euklideanDist = CoordUtils.calcEuclideanDistance(link2.getFromNode().getCoord(), link2.getToNode().getCoord());
 			this.freespeedTravelTime = Math.ceil( this.link.getLength() / this.link.getFreespeed() ) + 1; 
 			this.timeCap = this.link.getCapacity() * capCorrectionFactor;
@@ -263,34 +302,30 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 			this.spaceCap = (this.link.getLength() * this.link.getNumberOfLanes()) / this.effectiveCellSize * storageCapFactor;
 		}
 
+		private boolean isEmpty() {
+			return this.drivingQueue.size == 0 && this.parkingQueue.size == 0 && this.waitingQueue.size == 0 && this.buffer.size == 0;
+		}
+
+		// adding an agent to a queue removes it from wherever it was before
+
 		private void enter(final EventAgent agent) {
-			if (agent.currentLink != null) {
-				agent.currentLink.stuck(agent); // use stuck to remove it from wherever it is
-			}
-			agent.currentLink = this;
 			this.drivingQueue.add(agent);
 		}
 
 		private void leave(final EventAgent agent) {
 			this.drivingQueue.remove(agent);
 			this.buffer.remove(agent);
-			agent.currentLink = null;
 		}
 
 		private void arrival(final EventAgent agent) {
-			this.buffer.remove(agent);
-			this.drivingQueue.remove(agent);
 			this.parkingQueue.add(agent);
 		}
 
 		private void departure(final EventAgent agent) {
-			agent.currentLink = this;
-			this.parkingQueue.remove(agent);
 			this.waitingQueue.add(agent);
 		}
 
 		private void wait2link(final EventAgent agent) {
-			this.waitingQueue.remove(agent);
 			this.buffer.add(agent);
 		}
 
@@ -300,7 +335,6 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 			this.parkingQueue.remove(agent);
 			this.waitingQueue.remove(agent);
 			this.buffer.remove(agent);
-			agent.currentLink = null;
 		}
 
 		/**
@@ -311,26 +345,31 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		 * @param positions A collection where the calculated positions can be stored.
 		 * @param time The current timestep
 		 */
-		private void getVehiclePositionsQueue(final Collection<AgentSnapshotInfo> positions, final double time, AgentSnapshotInfoFactory snapshotInfoFactory) {
+		private void getVehiclePositionsQueue(final List<AgentSnapshotInfo> positions, final double time, AgentSnapshotInfoFactory snapshotInfoFactory) {
 			double queueEnd = this.link.getLength(); // the length of the queue jammed vehicles build at the end of the link
 			double vehLen = Math.min(	// the length of a vehicle in visualization
 					this.euklideanDist / this.spaceCap, // all vehicles must have place on the link
 					this.effectiveCellSize / this.storageCapFactor); // a vehicle should not be larger than it's actual size
+			int nLanes = NetworkUtils.getNumberOfLanesAsInt(Time.UNDEFINED_TIME, this.link);
 
 			// put all cars in the buffer one after the other
-			for (EventAgent agent : this.buffer) {
+			if (this.buffer.size > 0) {
+				int nLanesNow = NetworkUtils.getNumberOfLanesAsInt(time, this.link);
+				double freespeed = this.link.getFreespeed(time);
+				for (EventAgent agent = this.buffer.first; agent != null; agent = agent.next) {
 
-				int lane = 1 + (agent.intId % NetworkUtils.getNumberOfLanesAsInt(time, this.link));
+					int lane = 1 + (agent.intId % nLanesNow);
 
-				int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
-				double speed = (time > cmp) ? 0.0 : this.link.getFreespeed(time);
-				agent.speed = speed;
+					int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
+					double speed = (time > cmp) ? 0.0 : freespeed;
+					agent.speed = speed;
 
-				AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, queueEnd/* + NetworkLayer.CELL_LENGTH*/, lane);
-				position.setColorValueBetweenZeroAndOne( agent.speed) ;
-				position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
-				positions.add(position);
-				queueEnd -= vehLen;
+					AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, queueEnd/* + NetworkLayer.CELL_LENGTH*/, lane);
+					position.setColorValueBetweenZeroAndOne( agent.speed) ;
+					position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
+					positions.add(position);
+					queueEnd -= vehLen;
+				}
 			}
 
 			/* place other driving cars according the following rule:
@@ -340,7 +379,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 			 * - if the position is not within the queue, just place the car with free speed at that place
 			 */
 			double lastDistance = Integer.MAX_VALUE;
-			for (EventAgent agent : this.drivingQueue) {
+			for (EventAgent agent = this.drivingQueue.first; agent != null; agent = agent.next) {
 				double travelTime = time - agent.time;
 				double distanceOnLink = (this.freespeedTravelTime == 0.0 ? 0.0 : ((travelTime / this.freespeedTravelTime) * this.euklideanDist));
 				if (distanceOnLink > queueEnd) { // vehicle is already in queue
@@ -360,7 +399,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 				int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
 				double speed = (time > cmp) ? 0.0 : this.link.getFreespeed(time);
 				agent.speed = speed;
-				int lane = 1 + (agent.intId % NetworkUtils.getNumberOfLanesAsInt(org.matsim.core.utils.misc.Time.UNDEFINED_TIME, this.link));
+				int lane = 1 + (agent.intId % nLanes);
 				AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distanceOnLink/* + NetworkLayer.CELL_LENGTH*/, lane);
 				position.setColorValueBetweenZeroAndOne( agent.speed) ;
 				position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
@@ -371,8 +410,8 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 			/* Put the vehicles from the waiting list in positions.
 			 * Their actual position doesn't matter, so they are just placed
 			 * to the coordinates of the from node */
-			int lane = NetworkUtils.getNumberOfLanesAsInt(org.matsim.core.utils.misc.Time.UNDEFINED_TIME, this.link) + 1; // place them next to the link
-			for (EventAgent agent : this.waitingQueue) {
+			int lane = nLanes + 1; // place them next to the link
+			for (EventAgent agent = this.waitingQueue.first; agent != null; agent = agent.next) {
 				AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, this.effectiveCellSize, lane);
 				position.setColorValueBetweenZeroAndOne( 0.0) ;
 				position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
@@ -382,8 +421,8 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 			/* put the vehicles from the parking list in positions
 			 * their actual position doesn't matter, so they are just placed
 			 * to the coordinates of the from node */
-			lane = NetworkUtils.getNumberOfLanesAsInt(org.matsim.core.utils.misc.Time.UNDEFINED_TIME, this.link) + 2; // place them next to the link
-			for (EventAgent agent : this.parkingQueue) {
+			lane = nLanes + 2; // place them next to the link
+			for (EventAgent agent = this.parkingQueue.first; agent != null; agent = agent.next) {
 				AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, this.effectiveCellSize, lane);
 				position.setColorValueBetweenZeroAndOne(0.0) ;
 				position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY);
@@ -399,11 +438,11 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		 * @param positions A collection where the calculated positions can be stored.
 		 * @param time The current timestep
 		 */
-		private void getVehiclePositionsEquil(final Collection<AgentSnapshotInfo> positions, final double time, AgentSnapshotInfoFactory snapshotInfoFactory) {
-			int bufferSize = this.buffer.size();
-			int drivingQueueSize = this.drivingQueue.size();
-			int waitingQueueSize = this.waitingQueue.size();
-			int parkingQueueSize = this.parkingQueue.size();
+		private void getVehiclePositionsEquil(final List<AgentSnapshotInfo> positions, final double time, AgentSnapshotInfoFactory snapshotInfoFactory) {
+			int bufferSize = this.buffer.size;
+			int drivingQueueSize = this.drivingQueue.size;
+			int waitingQueueSize = this.waitingQueue.size;
+			int parkingQueueSize = this.parkingQueue.size;
 			if (bufferSize + drivingQueueSize + waitingQueueSize + parkingQueueSize > 0 ) {
 				int cnt = bufferSize + drivingQueueSize;
 				int nLanes = NetworkUtils.getNumberOfLanesAsInt(time, this.link);
@@ -413,36 +452,22 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 					double distFromFromNode = linkLength - cellSize / 2.0;
 					double freespeed = this.link.getFreespeed(time);
 
-					// the cars in the buffer
-					for (EventAgent agent : this.buffer) {
-						agent.lane = 1 + agent.intId % nLanes;
-						int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
-						if (time > cmp) {
-							agent.speed = 0.0;
-						} else {
-							agent.speed = freespeed;
-						}
-						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, agent.lane);
-						position.setColorValueBetweenZeroAndOne( agent.speed) ;
-						position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
-						positions.add(position);
-						distFromFromNode -= cellSize;
-					}
-
-					// the cars in the drivingQueue
-					for (EventAgent agent : this.drivingQueue) {
-						agent.lane = 1 + agent.intId % nLanes;
-						int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
-						if (time > cmp) {
-							agent.speed = 0.0;
-						} else {
-							agent.speed = freespeed;
+					// the cars in the buffer, then the cars in the drivingQueue
+					for (AgentQueue queue : new AgentQueue[] {this.buffer, this.drivingQueue}) {
+						for (EventAgent agent = queue.first; agent != null; agent = agent.next) {
+							agent.lane = 1 + agent.intId % nLanes;
+							int cmp = (int) (agent.time + this.freespeedTravelTime + this.inverseTimeCap + 2.0);
+							if (time > cmp) {
+								agent.speed = 0.0;
+							} else {
+								agent.speed = freespeed;
+							}
+							AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, agent.lane);
+							position.setColorValueBetweenZeroAndOne( agent.speed) ;
+							position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
+							positions.add(position);
+							distFromFromNode -= cellSize;
 						}
-						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, agent.lane);
-						position.setColorValueBetweenZeroAndOne( agent.speed) ;
-						position.setAgentState(AgentSnapshotInfo.AgentState.PERSON_DRIVING_CAR);
-						positions.add(position);
-						distFromFromNode -= cellSize;
 					}
 				}
 
@@ -452,7 +477,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 					int lane = nLanes + 2;
 					double cellSize = Math.min(this.effectiveCellSize, linkLength / waitingQueueSize);
 					double distFromFromNode = linkLength - cellSize / 2.0;
-					for (EventAgent agent : this.waitingQueue) {
+					for (EventAgent agent = this.waitingQueue.first; agent != null; agent = agent.next) {
 						agent.lane = lane;
 						agent.speed = 0.0;
 						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, agent.lane);
@@ -469,7 +494,7 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 					int lane = nLanes + 4;
 					double cellSize = linkLength / parkingQueueSize;
 					double distFromFromNode = linkLength - cellSize / 2.0;
-					for (EventAgent agent : this.parkingQueue) {
+					for (EventAgent agent = this.parkingQueue.first; agent != null; agent = agent.next) {
 						agent.lane = lane;
 						agent.speed = 0.0;
 						AgentSnapshotInfo position = snapshotInfoFactory.createAgentSnapshotInfo(agent.id, this.link, distFromFromNode, agent.lane);
@@ -483,37 +508,65 @@ public class SnapshotGenerator implements PersonDepartureEventHandler, PersonArr
 		}
 	}
 
-	private static class EventAgent implements Comparable<EventAgent> {
+	/**
+	 * A doubly linked list through the {@link EventAgent}s, in the order they were added.
+	 */
+	private static final class AgentQueue {
+		private EventAgent first = null;
+		private EventAgent last = null;
+		private int size = 0;
+
+		private void add(final EventAgent agent) {
+			if (agent.queue != null) {
+				agent.queue.remove(agent);
+			}
+			agent.queue = this;
+			agent.prev = this.last;
+			agent.next = null;
+			if (this.last == null) {
+				this.first = agent;
+			} else {
+				this.last.next = agent;
+			}
+			this.last = agent;
+			this.size++;
+		}
+
+		private void remove(final EventAgent agent) {
+			if (agent.queue != this) {
+				return;
+			}
+			if (agent.prev == null) {
+				this.first = agent.next;
+			} else {
+				agent.prev.next = agent.next;
+			}
+			if (agent.next == null) {
+				this.last = agent.prev;
+			} else {
+				agent.next.prev = agent.prev;
+			}
+			agent.queue = null;
+			agent.prev = null;
+			agent.next = null;
+			this.size--;
+		}
+	}
+
+	private static class EventAgent {
 		protected final Id<Person> id;
 		protected final int intId;
 		protected double time;
-		protected EventLink currentLink = null;
 		protected double speed = 0.0;
 		protected int lane = 1;
+		private AgentQueue queue = null;
+		private EventAgent prev = null;
+		private EventAgent next = null;
 		protected EventAgent(final Id<Person> id, final double time) {
 			this.id = id;
 			this.time = time;
 			this.intId = id.hashCode();
 		}
-
-		@Override
-		public int compareTo(final EventAgent o) {
-			return this.id.compareTo(o.id);
-		}
-
-		@Override
-		public boolean equals(final Object o) {
-			if (o instanceof EventAgent) {
-				return this.id.equals(((EventAgent) o).id);
-			}
-			return false;
-		}
-
-		@Override
-		public int hashCode() {
-			return this.id.hashCode();
-		}
-
 	}
 
 	@Override
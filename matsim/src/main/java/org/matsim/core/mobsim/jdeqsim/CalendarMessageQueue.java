@@ -0,0 +1,235 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarMessageQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * A message queue with one bucket per second. The buckets form a ring that covers the next {@value #RING_SIZE}
+ * seconds, later messages are kept in an overflow heap and are moved into the ring when their time comes within
+ * its range. When the simulation reaches a bucket, its messages are sorted, so putting a message into the queue
+ * and getting the next one take constant amortized time, instead of logarithmic time as in the binary heap of the
+ * {@link MessageQueue}.
+ * <p></p>
+ * Removed messages are taken out of their bucket directly. Only messages in the bucket which is currently
+ * processed and in the overflow heap are just marked as dead and skipped, as in the {@link MessageQueue}.
+ * <p></p>
+ * The messages are returned in exactly the same order as by the {@link MessageQueue}, see
+ * {@link Message#compareTo(Message)}.
+ */
+public class CalendarMessageQueue extends MessageQueue {
+
+	private static final int RING_SIZE = 1 << 16;
+	private static final int MASK = RING_SIZE - 1;
+	/** limits the bucket numbers, so that differences between them cannot overflow */
+	private static final long MAX_BUCKET = Long.MAX_VALUE >> 2;
+
+	private final Message[][] slots = new Message[RING_SIZE][];
+	private final int[] slotSizes = new int[RING_SIZE];
+	private int messagesInRing = 0;
+	private final PriorityQueue<Message> overflow = new PriorityQueue<>();
+
+	/** the sorted messages of the current bucket, from currentHead to currentSize */
+	private Message[] current = new Message[16];
+	private int currentHead = 0;
+	private int currentSize = 0;
+	/** the current bucket; all messages up to this bucket are in the current messages */
+	private long cursor = -1;
+
+	private int queueSize = 0;
+
+	@Override
+	public void putMessage(Message m) {
+		long bucket = getBucket(m.getMessageArrivalTime());
+		if (bucket <= this.cursor) {
+			insertCurrent(m);
+		} else if (bucket - this.cursor < RING_SIZE) {
+			addToSlot(m, (int) (bucket & MASK));
+		} else {
+			this.overflow.add(m);
+		}
+		this.queueSize++;
+	}
+
+	@Override
+	public void removeMessage(Message m) {
+		if (m.queueSlot >= 0) {
+			int slot = m.queueSlot;
+			int last = --this.slotSizes[slot];
+			Message[] slotMessages = this.slots[slot];
+			Message moved = slotMessages[last];
+			slotMessages[m.queueIndex] = moved;
+			moved.queueIndex = m.queueIndex;
+			slotMessages[last] = null;
+			m.queueSlot = -1;
+			this.messagesInRing--;
+		}
+		m.killMessage();
+		this.queueSize--;
+	}
+
+	@Override
+	public Message getNextMessage() {
+		while (fillCurrent()) {
+			Message m = this.current[this.currentHead];
+			this.current[this.currentHead++] = null;
+			if (m.isAlive()) {
+				this.queueSize--;
+				return m;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Message peekMessage() {
+		while (fillCurrent()) {
+			Message m = this.current[this.currentHead];
+			if (m.isAlive()) {
+				return m;
+			}
+			// discard dead messages
+			this.current[this.currentHead++] = null;
+		}
+		return null;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.queueSize == 0;
+	}
+
+	@Override
+	public int getQueueSize() {
+		return this.queueSize;
+	}
+
+	private static long getBucket(double time) {
+		double bucket = Math.floor(time);
+		if (bucket >= MAX_BUCKET) {
+			return MAX_BUCKET;
+		} else if (bucket <= -MAX_BUCKET) {
+			return -MAX_BUCKET;
+		}
+		return (long) bucket;
+	}
+
+	/**
+	 * moves the messages of the next non-empty bucket into the current messages, if there are no current messages left
+	 *
+	 * @return <code>false</code> if the queue is empty
+	 */
+	private boolean fillCurrent() {
+		while (this.currentHead == this.currentSize) {
+			this.currentHead = 0;
+			this.currentSize = 0;
+			if (this.messagesInRing == 0) {
+				// skip the empty buckets up to the first message in the overflow heap
+				Message m;
+				while ((m = this.overflow.peek()) != null && !m.isAlive()) {
+					this.overflow.poll();
+				}
+				if (m == null) {
+					return false;
+				}
+				this.cursor = getBucket(m.getMessageArrivalTime());
+			} else {
+				this.cursor++;
+			}
+
+			Message m;
+			while ((m = this.overflow.peek()) != null && getBucket(m.getMessageArrivalTime()) - this.cursor < RING_SIZE) {
+				this.overflow.poll();
+				if (m.isAlive()) {
+					addToSlot(m, (int) (getBucket(m.getMessageArrivalTime()) & MASK));
+				}
+			}
+
+			int slot = (int) (this.cursor & MASK);
+			int size = this.slotSizes[slot];
+			if (size > 0) {
+				if (this.current.length < size) {
+					this.current = new Message[Math.max(size, 2 * this.current.length)];
+				}
+				Message[] slotMessages = this.slots[slot];
+				for (int i = 0; i < size; i++) {
+					slotMessages[i].queueSlot = -1;
+				}
+				System.arraycopy(slotMessages, 0, this.current, 0, size);
+				Arrays.fill(slotMessages, 0, size, null);
+				this.slotSizes[slot] = 0;
+				this.messagesInRing -= size;
+				Arrays.sort(this.current, 0, size);
+				this.currentSize = size;
+			}
+		}
+		return true;
+	}
+
+	private void addToSlot(Message m, int slot) {
+		Message[] slotMessages = this.slots[slot];
+		int size = this.slotSizes[slot];
+		if (slotMessages == null) {
+			slotMessages = new Message[4];
+			this.slots[slot] = slotMessages;
+		} else if (slotMessages.length == size) {
+			slotMessages = Arrays.copyOf(slotMessages, 2 * size);
+			this.slots[slot] = slotMessages;
+		}
+		slotMessages[size] = m;
+		m.queueSlot = slot;
+		m.queueIndex = size;
+		this.slotSizes[slot] = size + 1;
+		this.messagesInRing++;
+	}
+
+	/**
+	 * inserts the message into the sorted current messages, after the messages which are not after it
+	 */
+	private void insertCurrent(Message m) {
+		if (this.currentSize == this.current.length) {
+			int size = this.currentSize - this.currentHead;
+			Message[] messages = size < this.current.length / 2 ? this.current : new Message[2 * this.current.length];
+			System.arraycopy(this.current, this.currentHead, messages, 0, size);
+			if (messages == this.current) {
+				Arrays.fill(messages, size, this.currentSize, null);
+			}
+			this.current = messages;
+			this.currentHead = 0;
+			this.currentSize = size;
+		}
+		int low = this.currentHead;
+		int high = this.currentSize;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.current[middle].compareTo(m) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		System.arraycopy(this.current, low, this.current, low + 1, this.currentSize - low);
+		this.current[low] = m;
+		this.currentSize++;
+	}
+
+}
@@ -37,6 +37,26 @@ public abstract class EventMessage extends Message {
 	public void resetMessage(Scheduler scheduler, Vehicle vehicle) {
 		this.scheduler = scheduler;
 		this.vehicle = vehicle;
+		reviveMessage();
+	}
+
+	/**
+	 * 
+	 * Messages with the same time and priority are ordered by the id of the person of the vehicle, so that the
+	 * order in which they are processed does not depend on the order in which they were put into the queue.
+	 * The parallel simulation relies on this to produce the same events as the sequential one. The id itself
+	 * is compared, not its index, as the index depends on the order in which the ids were created.
+	 */
+	@Override
+	public int compareTo(Message otherMessage) {
+		int result = super.compareTo(otherMessage);
+		if (result == 0 && otherMessage instanceof EventMessage) {
+			Vehicle otherVehicle = ((EventMessage) otherMessage).vehicle;
+			if (this.vehicle != null && otherVehicle != null) {
+				result = this.vehicle.getOwnerPerson().getId().compareTo(otherVehicle.getOwnerPerson().getId());
+			}
+		}
+		return result;
 	}
 
 }
@@ -22,6 +22,9 @@ package org.matsim.core.mobsim.jdeqsim;
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.utils.misc.Time;
 
+import java.util.Arrays;
+import java.util.Map;
+
 /**
  * The micro-simulation parameters.
  *
@@ -57,6 +60,10 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	public final static String CAR_SIZE = "carSize";
 	public final static String GAP_TRAVEL_SPEED = "gapTravelSpeed";
 	public final static String END_TIME = "endTime";
+	public final static String NUMBER_OF_THREADS = "numberOfThreads";
+	public final static String MESSAGE_QUEUE = "messageQueue";
+
+	public enum MessageQueueType {priorityQueue, calendarQueue}
 
 	// INPUT
 	private double simulationEndTime = Double.MAX_VALUE; // in s
@@ -71,11 +78,24 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	 * 'stuckTime' for entering next road, it will enter the next. in seconds
 	 */
 	private double squeezeTime = 1800;
+	private int numberOfThreads = 1;
+	private MessageQueueType messageQueue = MessageQueueType.priorityQueue;
 
 	public JDEQSimConfigGroup() {
 		super(NAME);
 	}
 
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> map = super.getComments();
+		map.put(NUMBER_OF_THREADS, "Number of threads for the simulation. With more than one thread, the network is split into as "
+				+ "many parts, which are simulated in parallel. The events are the same as with one thread.");
+		map.put(MESSAGE_QUEUE, "The queue of the scheduled messages. Possible values: " + Arrays.toString(MessageQueueType.values())
+				+ ". The " + MessageQueueType.calendarQueue + " keeps the messages in buckets of one second and is faster for large "
+				+ "scenarios. Both return the messages in the same order.");
+		return map;
+	}
+
 	// should garbage collection of messages be activated
 	private static boolean GC_MESSAGES = false;
 
@@ -169,4 +189,24 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 		this.squeezeTime = squeezeTime;
 	}
 
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	@StringGetter(MESSAGE_QUEUE)
+	public MessageQueueType getMessageQueue() {
+		return messageQueue;
+	}
+
+	@StringSetter(MESSAGE_QUEUE)
+	public void setMessageQueue(MessageQueueType messageQueue) {
+		this.messageQueue = messageQueue;
+	}
+
 }
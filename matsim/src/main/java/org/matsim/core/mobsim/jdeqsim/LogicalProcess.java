@@ -0,0 +1,218 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LogicalProcess.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import org.matsim.api.core.v01.events.Event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A part of the network in the parallel micro-simulation. It has its own message queue and processes
+ * the messages of its roads. Messages for roads of other logical processes are collected and handed
+ * over by the {@link ParallelScheduler} after each step, the same for the events.
+ *
+ * @see ParallelScheduler
+ */
+class LogicalProcess extends Scheduler {
+
+	private final ParallelScheduler parallelScheduler;
+
+	/**
+	 * the messages in the queue, which can send messages to other logical processes when being processed,
+	 * with the earliest time and priority these messages can have
+	 */
+	private final PriorityQueue<Bound> triggers = new PriorityQueue<>();
+
+	/**
+	 * the minimal time between processing a message and any message to another logical process that can
+	 * follow from it, except for the triggers
+	 */
+	private double lookahead = Double.POSITIVE_INFINITY;
+
+	private final List<Message> outgoingMessages = new ArrayList<>();
+	private final List<LogicalProcess> outgoingTargets = new ArrayList<>();
+
+	private final List<Event> events = new ArrayList<>();
+	private final List<Message> eventSources = new ArrayList<>();
+	private Message currentMessage = null;
+	private double lastMessageTime = Double.NEGATIVE_INFINITY;
+
+	LogicalProcess(ParallelScheduler parallelScheduler, MessageQueue queue) {
+		super(queue);
+		this.parallelScheduler = parallelScheduler;
+	}
+
+	/**
+	 * Messages are always routed through the parallel scheduler, which knows the logical process of their road.
+	 */
+	@Override
+	public void schedule(Message m) {
+		this.parallelScheduler.schedule(m);
+	}
+
+	@Override
+	public void startSimulation() {
+		throw new UnsupportedOperationException("the simulation is run by the " + ParallelScheduler.class.getSimpleName());
+	}
+
+	/*package*/ void putMessage(Message m) {
+		this.queue.putMessage(m);
+		Bound bound = this.parallelScheduler.getTriggerBound(m, this);
+		if (bound != null) {
+			this.triggers.add(bound);
+		}
+	}
+
+	/*package*/ void sendMessage(Message m, LogicalProcess target) {
+		this.outgoingMessages.add(m);
+		this.outgoingTargets.add(target);
+	}
+
+	/*package*/ void deliverMessages() {
+		for (int i = 0; i < this.outgoingMessages.size(); i++) {
+			this.outgoingTargets.get(i).putMessage(this.outgoingMessages.get(i));
+		}
+		this.outgoingMessages.clear();
+		this.outgoingTargets.clear();
+	}
+
+	/*package*/ void reduceLookahead(double lookahead) {
+		this.lookahead = Math.min(this.lookahead, lookahead);
+	}
+
+	/*package*/ double getLookahead() {
+		return this.lookahead;
+	}
+
+	/*package*/ Message peekMessage() {
+		return this.queue.peekMessage();
+	}
+
+	/**
+	 * @return the earliest time and priority a message to another logical process can have, which is sent
+	 *         while processing the messages of this logical process, or <code>null</code> if there are no
+	 *         messages
+	 */
+	/*package*/ Bound getLowerBound() {
+		Message next = this.queue.peekMessage();
+		if (next == null) {
+			return null;
+		}
+		// processed and removed messages are dead
+		while (!this.triggers.isEmpty() && !this.triggers.peek().message.isAlive()) {
+			this.triggers.poll();
+		}
+		Bound bound = new Bound(next.getMessageArrivalTime() + this.lookahead, Integer.MAX_VALUE, null);
+		if (!this.triggers.isEmpty() && this.triggers.peek().compareTo(bound) < 0) {
+			bound = this.triggers.peek();
+		}
+		return bound;
+	}
+
+	/**
+	 * process all messages which are before the bound
+	 */
+	/*package*/ void processMessages(Bound bound) {
+		Message m;
+		while ((m = this.queue.peekMessage()) != null && bound.isAfter(m)) {
+			processMessage(this.queue.getNextMessage());
+		}
+	}
+
+	/*package*/ void processNextMessage() {
+		processMessage(this.queue.getNextMessage());
+	}
+
+	private void processMessage(Message m) {
+		this.currentMessage = m;
+		this.lastMessageTime = m.getMessageArrivalTime();
+		m.processEvent();
+		m.handleMessage();
+		// mark the message as processed, for the triggers. It is not disposed, since the triggers and the events still refer to it.
+		m.killMessage();
+		this.currentMessage = null;
+	}
+
+	/*package*/ double getLastMessageTime() {
+		return this.lastMessageTime;
+	}
+
+	/*package*/ void addEvent(Event event) {
+		this.events.add(event);
+		this.eventSources.add(this.currentMessage);
+	}
+
+	/*package*/ List<Event> getEvents() {
+		return this.events;
+	}
+
+	/**
+	 * @return for each event the message which created it
+	 */
+	/*package*/ List<Message> getEventSources() {
+		return this.eventSources;
+	}
+
+	/*package*/ void clearEvents() {
+		this.events.clear();
+		this.eventSources.clear();
+	}
+
+	/**
+	 * A time and priority in the message order.
+	 */
+	/*package*/ static final class Bound implements Comparable<Bound> {
+		private final double time;
+		private final int priority;
+		private final Message message;
+
+		/*package*/ Bound(double time, int priority, Message message) {
+			this.time = time;
+			this.priority = priority;
+			this.message = message;
+		}
+
+		/*package*/ double getTime() {
+			return this.time;
+		}
+
+		/**
+		 * @return <code>true</code> if the message comes before this bound in the message queue
+		 */
+		/*package*/ boolean isAfter(Message m) {
+			return m.getMessageArrivalTime() < this.time
+					|| (m.getMessageArrivalTime() == this.time && m.getPriority() > this.priority);
+		}
+
+		@Override
+		public int compareTo(Bound other) {
+			int result = Double.compare(this.time, other.time);
+			if (result == 0) {
+				// higher priority means for a queue, that it comes first
+				result = Integer.compare(other.priority, this.priority);
+			}
+			return result;
+		}
+	}
+
+}
@@ -40,6 +40,10 @@ public abstract class Message implements Comparable<Message> {
 	protected int priority = 0;
 	private boolean isAlive = true;
 
+	// the position in the CalendarMessageQueue, if the message is in one of its buckets
+	/*package*/ int queueSlot = -1;
+	/*package*/ int queueIndex;
+
 	public Message() {
 	}
 
@@ -19,11 +19,16 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.ArrayDeque;
 import java.util.LinkedList;
 
 /**
  * The message factory is used for creating and disposing messages - mainly for
  * performance gain to have lesser garbage collection.
+ * <p></p>
+ * The messages processed by a {@link Scheduler} are kept in the pool of that scheduler, see
+ * {@link MessagePool}, and are reused for new messages of that scheduler first. The static pools only
+ * contain the messages disposed explicitly.
  * 
  * @author rashid_waraich
  */
@@ -73,64 +78,135 @@ public class MessageFactory {
 		}
 	}
 
+	/**
+	 * Puts a processed message back into the pool of its type, so that it can be reused. Must not be called while
+	 * the message is still referenced, e.g. in a message queue.
+	 */
+	public static void disposeMessage(Message message) {
+		if (message instanceof EnterRoadMessage) {
+			disposeEnterRoadMessage((EnterRoadMessage) message);
+		} else if (message instanceof LeaveRoadMessage) {
+			disposeLeaveRoadMessage((LeaveRoadMessage) message);
+		} else if (message instanceof EndRoadMessage) {
+			disposeEndRoadMessage((EndRoadMessage) message);
+		} else if (message instanceof EndLegMessage) {
+			disposeEndLegMessage((EndLegMessage) message);
+		} else if (message instanceof StartingLegMessage) {
+			disposeStartingLegMessage((StartingLegMessage) message);
+		} else if (message instanceof DeadlockPreventionMessage) {
+			disposeDeadlockPreventionMessage((DeadlockPreventionMessage) message);
+		}
+	}
+
 	public static EndLegMessage getEndLegMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (endLegMessageQueue.size() == 0) {
+		EndLegMessage message = scheduler == null ? null : scheduler.messagePool.endLegMessages.poll();
+		if (message == null && endLegMessageQueue.size() > 0) {
+			message = endLegMessageQueue.poll();
+		}
+		if (message == null) {
 			return new EndLegMessage(scheduler, vehicle);
-		} else {
-			EndLegMessage message = endLegMessageQueue.poll();
-			message.resetMessage(scheduler, vehicle);
-			return message;
 		}
+		message.resetMessage(scheduler, vehicle);
+		return message;
 	}
 
 	public static EnterRoadMessage getEnterRoadMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (enterRoadMessageQueue.size() == 0) {
+		EnterRoadMessage message = scheduler == null ? null : scheduler.messagePool.enterRoadMessages.poll();
+		if (message == null && enterRoadMessageQueue.size() > 0) {
+			message = enterRoadMessageQueue.poll();
+		}
+		if (message == null) {
 			return new EnterRoadMessage(scheduler, vehicle);
-		} else {
-			EnterRoadMessage message = enterRoadMessageQueue.poll();
-			message.resetMessage(scheduler, vehicle);
-			return message;
 		}
+		message.resetMessage(scheduler, vehicle);
+		return message;
 	}
 
 	public static StartingLegMessage getStartingLegMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (startingLegMessageQueue.size() == 0) {
+		StartingLegMessage message = scheduler == null ? null : scheduler.messagePool.startingLegMessages.poll();
+		if (message == null && startingLegMessageQueue.size() > 0) {
+			message = startingLegMessageQueue.poll();
+		}
+		if (message == null) {
 			return new StartingLegMessage(scheduler, vehicle);
-		} else {
-			StartingLegMessage message = startingLegMessageQueue.poll();
-			message.resetMessage(scheduler, vehicle);
-			return message;
 		}
+		message.resetMessage(scheduler, vehicle);
+		return message;
 	}
 
 	public static LeaveRoadMessage getLeaveRoadMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (leaveRoadMessageQueue.size() == 0) {
+		LeaveRoadMessage message = scheduler == null ? null : scheduler.messagePool.leaveRoadMessages.poll();
+		if (message == null && leaveRoadMessageQueue.size() > 0) {
+			message = leaveRoadMessageQueue.poll();
+		}
+		if (message == null) {
 			return new LeaveRoadMessage(scheduler, vehicle);
-		} else {
-			LeaveRoadMessage message = leaveRoadMessageQueue.poll();
-			message.resetMessage(scheduler, vehicle);
-			return message;
 		}
+		message.resetMessage(scheduler, vehicle);
+		return message;
 	}
 
 	public static EndRoadMessage getEndRoadMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (endRoadMessageQueue.size() == 0) {
+		EndRoadMessage message = scheduler == null ? null : scheduler.messagePool.endRoadMessages.poll();
+		if (message == null && endRoadMessageQueue.size() > 0) {
+			message = endRoadMessageQueue.poll();
+		}
+		if (message == null) {
 			return new EndRoadMessage(scheduler, vehicle);
-		} else {
-			EndRoadMessage message = endRoadMessageQueue.poll();
-			message.resetMessage(scheduler, vehicle);
-			return message;
 		}
+		message.resetMessage(scheduler, vehicle);
+		return message;
 	}
 
 	public static DeadlockPreventionMessage getDeadlockPreventionMessage(Scheduler scheduler, Vehicle vehicle) {
-		if (deadlockPreventionMessageQueue.size() == 0) {
+		DeadlockPreventionMessage message = scheduler == null ? null : scheduler.messagePool.deadlockPreventionMessages.poll();
+		if (message == null && deadlockPreventionMessageQueue.size() > 0) {
+			message = deadlockPreventionMessageQueue.poll();
+		}
+		if (message == null) {
 			return new DeadlockPreventionMessage(scheduler, vehicle);
-		} else {
-			DeadlockPreventionMessage message = deadlockPreventionMessageQueue.poll();
-			message.resetMessage(scheduler, vehicle);
-			return message;
 		}
+		message.resetMessage(scheduler, vehicle);
+		return message;
+	}
+
+	/**
+	 * The processed messages of one {@link Scheduler}, which are reused for the messages created for this scheduler.
+	 * In contrast to the static pools, it is not shared between simulations, and it is only used by the thread
+	 * running the scheduler.
+	 */
+	/*package*/ static final class MessagePool {
+
+		private final ArrayDeque<EndLegMessage> endLegMessages = new ArrayDeque<>();
+		private final ArrayDeque<EnterRoadMessage> enterRoadMessages = new ArrayDeque<>();
+		private final ArrayDeque<StartingLegMessage> startingLegMessages = new ArrayDeque<>();
+		private final ArrayDeque<LeaveRoadMessage> leaveRoadMessages = new ArrayDeque<>();
+		private final ArrayDeque<EndRoadMessage> endRoadMessages = new ArrayDeque<>();
+		private final ArrayDeque<DeadlockPreventionMessage> deadlockPreventionMessages = new ArrayDeque<>();
+
+		/**
+		 * Puts a processed message back into the pool of its type, so that it can be reused. Must not be called
+		 * while the message is still referenced, e.g. in a message queue.
+		 */
+		/*package*/ void dispose(Message message) {
+			if (JDEQSimConfigGroup.isGC_MESSAGES()) {
+				return;
+			}
+			if (message instanceof EnterRoadMessage) {
+				this.enterRoadMessages.add((EnterRoadMessage) message);
+			} else if (message instanceof LeaveRoadMessage) {
+				this.leaveRoadMessages.add((LeaveRoadMessage) message);
+			} else if (message instanceof EndRoadMessage) {
+				this.endRoadMessages.add((EndRoadMessage) message);
+			} else if (message instanceof EndLegMessage) {
+				this.endLegMessages.add((EndLegMessage) message);
+			} else if (message instanceof StartingLegMessage) {
+				this.startingLegMessages.add((StartingLegMessage) message);
+			} else if (message instanceof DeadlockPreventionMessage) {
+				this.deadlockPreventionMessages.add((DeadlockPreventionMessage) message);
+			}
+		}
+
 	}
 
 	public static void GC_ALL_MESSAGES() {
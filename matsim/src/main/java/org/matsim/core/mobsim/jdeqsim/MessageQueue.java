@@ -80,6 +80,23 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * 
+	 * get the first message in the queue (with least time stamp) without
+	 * removing it from the queue
+	 *
+	 * @return the first message, or <code>null</code> if there are no more
+	 *         messages
+	 */
+	public Message peekMessage() {
+		Message m;
+		// discard dead messages
+		while ((m = queue1.peek()) != null && !m.isAlive()) {
+			queue1.poll();
+		}
+		return m;
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
@@ -88,4 +105,18 @@ public class MessageQueue {
 		return queueSize;
 	}
 
+	/**
+	 * @return a new, empty message queue of the type set in the config
+	 */
+	public static MessageQueue create(JDEQSimConfigGroup config) {
+		switch (config.getMessageQueue()) {
+			case calendarQueue:
+				return new CalendarMessageQueue();
+			case priorityQueue:
+				return new MessageQueue();
+			default:
+				throw new IllegalArgumentException("unknown message queue: " + config.getMessageQueue());
+		}
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelJDEQSimulation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.jdeqsim.util.Timer;
+
+import javax.inject.Inject;
+
+import java.util.HashMap;
+
+/**
+ * The micro-simulation with the network split into {@link JDEQSimConfigGroup#getNumberOfThreads()} parts,
+ * which are simulated in parallel. The events are the same as the events of the {@link JDEQSimulation}.
+ *
+ * @see ParallelScheduler
+ */
+public class ParallelJDEQSimulation extends JDEQSimulation {
+
+	private final static Logger log = Logger.getLogger(ParallelJDEQSimulation.class);
+
+	private final JDEQSimConfigGroup config;
+	private final EventsManager events;
+
+	@Inject
+	public ParallelJDEQSimulation(final JDEQSimConfigGroup config, final Scenario scenario, final EventsManager events) {
+		super(config, scenario, events);
+		this.config = config;
+		this.events = events;
+	}
+
+	@Override
+	public void run() {
+		events.initProcessing();
+		Timer t = new Timer();
+		t.startTimer();
+
+		// the message pools are not thread-safe, the processed messages are not reused in the parallel simulation
+		MessageFactory.GC_ALL_MESSAGES();
+		ParallelScheduler scheduler = new ParallelScheduler(this.scenario.getNetwork(), config, events);
+		Road.setAllRoads(new HashMap<Id<Link>, Road>());
+
+		// initialize network, each road is simulated by the logical process of its part of the network
+		Road road;
+		for (Link link : this.scenario.getNetwork().getLinks().values()) {
+			road = new Road(scheduler.getLogicalProcess(link), link);
+			Road.getAllRoads().put(link.getId(), road);
+		}
+		scheduler.initLookahead(config, this.scenario.getPopulation(), this.scenario.getConfig().network().isTimeVariantNetwork());
+
+		Message.setEventsManager(scheduler.getEventsManager());
+		try {
+			for (Person person : this.scenario.getPopulation().getPersons().values()) {
+				new Vehicle(scheduler, person, activityDurationInterpretation); // the vehicle registers itself to the scheduler
+			}
+
+			scheduler.startSimulation();
+		} finally {
+			Message.setEventsManager(events);
+		}
+
+		t.endTimer();
+		log.info("Time needed for one iteration (only JDEQSimulation part): " + t.getMeasuredTime() + "[ms]");
+		events.finishProcessing();
+	}
+}
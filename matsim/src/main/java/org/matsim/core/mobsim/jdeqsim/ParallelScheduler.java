@@ -0,0 +1,474 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelScheduler.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+import org.matsim.core.population.routes.NetworkRoute;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The scheduler of the parallel micro-simulation.
+ * <p></p>
+ * The network is split into logical processes, each with its own message queue. A road belongs to the logical
+ * process of its from node. The logical processes are synchronized conservatively: in each step, all of them
+ * process their messages up to a common bound in parallel, and the messages to other logical processes are
+ * delivered afterwards. The bound is chosen so that no message to another logical process can be earlier than
+ * it, using the lookahead of the roads at the border (free speed travel time, flow capacity, gap travel time
+ * and squeeze time) and the messages which can directly send messages to other logical processes (a vehicle
+ * crossing the border, a teleported leg to another part of the network). If the next message is not before
+ * the bound, only this message is processed, like in the sequential {@link Scheduler}.
+ * <p></p>
+ * As messages with the same time and priority are ordered by person (see {@link EventMessage#compareTo(Message)}),
+ * every logical process processes its messages in the same order as the sequential scheduler, and the events,
+ * which are collected per logical process and merged in message order after each step, are the same.
+ */
+class ParallelScheduler extends Scheduler {
+
+	private static final Logger log = Logger.getLogger(ParallelScheduler.class);
+
+	private static final ThreadLocal<LogicalProcess> currentProcess = new ThreadLocal<>();
+
+	private final LogicalProcess[] processes;
+	private final Map<Id<Node>, LogicalProcess> processOfNode = new HashMap<>();
+	private final EventsManager events;
+	private final EventsManager processEvents;
+	private final double simulationEndTime;
+
+	// the bound of the current step, only set while the messages are processed in parallel
+	private LogicalProcess.Bound windowBound = null;
+
+	private int parallelSteps = 0;
+	private int sequentialSteps = 0;
+	private double hourlyLogTime = 3600;
+	private final double simulationStartTime = System.currentTimeMillis();
+
+	ParallelScheduler(Network network, JDEQSimConfigGroup config, EventsManager events) {
+		super(new MessageQueue(), config.getSimulationEndTime());
+		this.simulationEndTime = config.getSimulationEndTime();
+		this.events = events;
+		this.processEvents = new LogicalProcessEventsManager();
+		this.processes = new LogicalProcess[Math.max(1, config.getNumberOfThreads())];
+		for (int i = 0; i < this.processes.length; i++) {
+			this.processes[i] = new LogicalProcess(this, MessageQueue.create(config));
+		}
+		partition(new ArrayList<>(network.getNodes().values()), 0, this.processes.length);
+	}
+
+	/**
+	 * recursive coordinate bisection, so that every part has about the same number of links
+	 */
+	private void partition(List<Node> nodes, int firstProcess, int numberOfProcesses) {
+		if (numberOfProcesses == 1) {
+			for (Node node : nodes) {
+				this.processOfNode.put(node.getId(), this.processes[firstProcess]);
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		int numberOfLinks = 0;
+		for (Node node : nodes) {
+			Coord coord = node.getCoord();
+			minX = Math.min(minX, coord.getX());
+			maxX = Math.max(maxX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxY = Math.max(maxY, coord.getY());
+			numberOfLinks += node.getOutLinks().size();
+		}
+		if (maxX - minX >= maxY - minY) {
+			nodes.sort(Comparator.comparingDouble((Node node) -> node.getCoord().getX()).thenComparing(Node::getId));
+		} else {
+			nodes.sort(Comparator.comparingDouble((Node node) -> node.getCoord().getY()).thenComparing(Node::getId));
+		}
+		int firstHalf = numberOfProcesses / 2;
+		double linksInFirstHalf = (double) numberOfLinks * firstHalf / numberOfProcesses;
+		int split = 0;
+		int links = 0;
+		while (split < nodes.size() && links < linksInFirstHalf) {
+			links += nodes.get(split).getOutLinks().size();
+			split++;
+		}
+		partition(new ArrayList<>(nodes.subList(0, split)), firstProcess, firstHalf);
+		partition(new ArrayList<>(nodes.subList(split, nodes.size())), firstProcess + firstHalf, numberOfProcesses - firstHalf);
+	}
+
+	/*package*/ LogicalProcess getLogicalProcess(Link link) {
+		return this.processOfNode.get(link.getFromNode().getId());
+	}
+
+	/**
+	 * The events manager for the messages, which collects the events per logical process.
+	 */
+	/*package*/ EventsManager getEventsManager() {
+		return this.processEvents;
+	}
+
+	/**
+	 * Calculates the lookahead of the logical processes. Must be called after all roads were created.
+	 *
+	 * @param timeVariantNetwork if the free speed can change, vehicles can reach the end of a road earlier
+	 *        than with the free speed of the link, so the free speed travel time cannot be used as lookahead
+	 */
+	/*package*/ void initLookahead(JDEQSimConfigGroup config, Population population, boolean timeVariantNetwork) {
+		for (Road road : Road.getAllRoads().values()) {
+			LogicalProcess process = (LogicalProcess) road.getScheduler();
+			Link link = road.getLink();
+			// the end of the road is at the border: vehicles leaving it enter a road of another process
+			if (this.processOfNode.get(link.getToNode().getId()) != process) {
+				double freeSpeedTravelTime = timeVariantNetwork ? 0.0 : link.getLength() / link.getFreespeed();
+				process.reduceLookahead(Math.min(freeSpeedTravelTime, road.inverseOutFlowCapacity));
+			}
+			// vehicles enter the road from roads of another process
+			for (Link inLink : link.getFromNode().getInLinks().values()) {
+				if (getLogicalProcess(inLink) != process) {
+					process.reduceLookahead(Math.min(link.getLength() / config.getGapTravelSpeed(), config.getSqueezeTime()));
+					break;
+				}
+			}
+		}
+		// teleported legs to another process
+		for (Person person : population.getPersons().values()) {
+			Plan plan = person.getSelectedPlan();
+			if (plan == null) {
+				continue;
+			}
+			List<PlanElement> actsLegs = plan.getPlanElements();
+			for (int i = 1; i < actsLegs.size() - 1; i += 2) {
+				Leg leg = (Leg) actsLegs.get(i);
+				LogicalProcess from = (LogicalProcess) Road.getRoad(((Activity) actsLegs.get(i - 1)).getLinkId()).getScheduler();
+				LogicalProcess to = (LogicalProcess) Road.getRoad(((Activity) actsLegs.get(i + 1)).getLinkId()).getScheduler();
+				if (from != to) {
+					if (!leg.getMode().equals(TransportMode.car)) {
+						from.reduceLookahead(leg.getTravelTime());
+					} else if (!(leg.getRoute() instanceof NetworkRoute) || ((NetworkRoute) leg.getRoute()).getLinkIds().isEmpty()) {
+						from.reduceLookahead(0.0);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < this.processes.length; i++) {
+			log.info("logical process " + i + ": lookahead " + this.processes[i].getLookahead() + "[s]");
+		}
+	}
+
+	@Override
+	public void schedule(Message m) {
+		LogicalProcess target = getTarget(m);
+		LogicalProcess current = currentProcess.get();
+		if (current == null || current == target) {
+			target.putMessage(m);
+		} else {
+			if (this.windowBound != null && this.windowBound.isAfter(m)) {
+				throw new IllegalStateException("A message for another part of the network at time " + m.getMessageArrivalTime()
+						+ " is before the end of the current step at " + this.windowBound.getTime()
+						+ ". Possibly a route contains links which are not connected.");
+			}
+			current.sendMessage(m, target);
+		}
+	}
+
+	@Override
+	public void unschedule(Message m) {
+		getTarget(m).unschedule(m);
+	}
+
+	/**
+	 * @return the logical process, which has to process the message
+	 */
+	private LogicalProcess getTarget(Message m) {
+		Road road = (Road) m.getReceivingUnit();
+		if (m instanceof EndRoadMessage) {
+			// handling the message changes the road the vehicle enters next
+			road = Road.getRoad(getNextLinkId(((EndRoadMessage) m).vehicle));
+		}
+		return (LogicalProcess) road.getScheduler();
+	}
+
+	/**
+	 * @return the earliest time and priority of a message to another logical process, which is sent
+	 *         directly when this message is processed, or <code>null</code>
+	 */
+	/*package*/ LogicalProcess.Bound getTriggerBound(Message m, LogicalProcess process) {
+		if (m instanceof EndRoadMessage) {
+			// the vehicle crosses the border, and leaves the previous road when it enters the next one
+			if (((Road) m.getReceivingUnit()).getScheduler() != process) {
+				return new LogicalProcess.Bound(m.getMessageArrivalTime(), JDEQSimConfigGroup.PRIORITY_LEAVE_ROAD_MESSAGE, m);
+			}
+		} else if (m instanceof DeadlockPreventionMessage) {
+			Vehicle vehicle = ((DeadlockPreventionMessage) m).vehicle;
+			if (vehicle.getLinkIndex() >= 0 && Road.getRoad(getPreviousLinkId(vehicle)).getScheduler() != process) {
+				return new LogicalProcess.Bound(m.getMessageArrivalTime(), JDEQSimConfigGroup.PRIORITY_LEAVE_ROAD_MESSAGE, m);
+			}
+		} else if (m instanceof StartingLegMessage) {
+			Vehicle vehicle = ((StartingLegMessage) m).vehicle;
+			Leg leg = vehicle.getCurrentLeg();
+			boolean car = leg.getMode().equals(TransportMode.car);
+			if (!car || vehicle.getCurrentLinkRoute().length == 0) {
+				Activity nextActivity = (Activity) vehicle.getOwnerPerson().getSelectedPlan().getPlanElements().get(vehicle.getLegIndex() + 1);
+				if (Road.getRoad(nextActivity.getLinkId()).getScheduler() != process) {
+					double arrivalTime = car ? m.getMessageArrivalTime() : m.getMessageArrivalTime() + leg.getTravelTime();
+					return new LogicalProcess.Bound(arrivalTime, JDEQSimConfigGroup.PRIORITY_ARRIVAL_MESSAGE, m);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * the link, on which the vehicle requests to enter next, see {@link EndRoadMessage#handleMessage()}
+	 */
+	private static Id<Link> getNextLinkId(Vehicle vehicle) {
+		if (vehicle.isCurrentLegFinished()) {
+			List<PlanElement> actsLegs = vehicle.getOwnerPerson().getSelectedPlan().getPlanElements();
+			return ((Activity) actsLegs.get(vehicle.getLegIndex() + 1)).getLinkId();
+		}
+		return vehicle.getCurrentLinkRoute()[vehicle.getLinkIndex() + 1];
+	}
+
+	/**
+	 * the link, which the vehicle leaves when entering the next one, see {@link Vehicle#scheduleLeavePreviousRoadMessage(double)}
+	 */
+	private static Id<Link> getPreviousLinkId(Vehicle vehicle) {
+		if (vehicle.getLinkIndex() == 0) {
+			List<PlanElement> actsLegs = vehicle.getOwnerPerson().getSelectedPlan().getPlanElements();
+			return ((Activity) actsLegs.get(vehicle.getLegIndex() - 1)).getLinkId();
+		}
+		return vehicle.getCurrentLinkRoute()[vehicle.getLinkIndex() - 1];
+	}
+
+	@Override
+	public void startSimulation() {
+		ExecutorService executor = Executors.newFixedThreadPool(this.processes.length, runnable -> {
+			Thread thread = new Thread(runnable, "JDEQSim");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			double simTime = 0;
+			while (simTime < this.simulationEndTime) {
+				for (LogicalProcess process : this.processes) {
+					process.deliverMessages();
+				}
+				flushEvents();
+
+				LogicalProcess nextProcess = null;
+				Message nextMessage = null;
+				for (LogicalProcess process : this.processes) {
+					Message m = process.peekMessage();
+					if (m != null && (nextMessage == null || m.compareTo(nextMessage) < 0)) {
+						nextMessage = m;
+						nextProcess = process;
+					}
+				}
+				if (nextMessage == null) {
+					break;
+				}
+
+				LogicalProcess.Bound bound = new LogicalProcess.Bound(this.simulationEndTime, Integer.MAX_VALUE, null);
+				for (LogicalProcess process : this.processes) {
+					LogicalProcess.Bound processBound = process.getLowerBound();
+					if (processBound != null && processBound.compareTo(bound) < 0) {
+						bound = processBound;
+					}
+				}
+
+				if (bound.isAfter(nextMessage)) {
+					simTime = processMessages(executor, bound);
+				} else {
+					// nothing can be processed in parallel, continue with the next message only
+					this.sequentialSteps++;
+					simTime = nextMessage.getMessageArrivalTime();
+					currentProcess.set(nextProcess);
+					try {
+						nextProcess.processNextMessage();
+					} finally {
+						currentProcess.remove();
+					}
+				}
+				printLog(simTime);
+			}
+			for (LogicalProcess process : this.processes) {
+				process.deliverMessages();
+			}
+			flushEvents();
+		} finally {
+			executor.shutdownNow();
+		}
+		log.info("steps with messages processed in parallel: " + this.parallelSteps + "; steps with a single message: " + this.sequentialSteps);
+	}
+
+	/**
+	 * @return the time of the last processed message
+	 */
+	private double processMessages(ExecutorService executor, LogicalProcess.Bound bound) {
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (LogicalProcess process : this.processes) {
+			Message m = process.peekMessage();
+			if (m != null && bound.isAfter(m)) {
+				tasks.add(() -> {
+					currentProcess.set(process);
+					try {
+						process.processMessages(bound);
+					} finally {
+						currentProcess.remove();
+					}
+					return null;
+				});
+			}
+		}
+		this.parallelSteps++;
+		this.windowBound = bound;
+		try {
+			if (tasks.size() == 1) {
+				tasks.get(0).call();
+			} else {
+				for (Future<Void> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			this.windowBound = null;
+		}
+		double simTime = Double.NEGATIVE_INFINITY;
+		for (LogicalProcess process : this.processes) {
+			simTime = Math.max(simTime, process.getLastMessageTime());
+		}
+		return simTime;
+	}
+
+	/**
+	 * passes the events of all logical processes to the events manager, in the order of the messages which created them
+	 */
+	private void flushEvents() {
+		int[] next = new int[this.processes.length];
+		while (true) {
+			int nextProcess = -1;
+			Message nextSource = null;
+			for (int i = 0; i < this.processes.length; i++) {
+				if (next[i] < this.processes[i].getEvents().size()) {
+					Message source = this.processes[i].getEventSources().get(next[i]);
+					if (nextSource == null || source.compareTo(nextSource) < 0) {
+						nextSource = source;
+						nextProcess = i;
+					}
+				}
+			}
+			if (nextProcess < 0) {
+				break;
+			}
+			this.events.processEvent(this.processes[nextProcess].getEvents().get(next[nextProcess]));
+			next[nextProcess]++;
+		}
+		for (LogicalProcess process : this.processes) {
+			process.clearEvents();
+		}
+	}
+
+	private void printLog(double simTime) {
+		// print output each hour
+		if (simTime / this.hourlyLogTime > 1) {
+			this.hourlyLogTime = simTime + 3600;
+			log.info("Simulation at " + simTime / 3600 + "[h]; s/r:" + simTime / (System.currentTimeMillis() - this.simulationStartTime) * 1000);
+			Gbl.printMemoryUsage();
+		}
+	}
+
+	/**
+	 * Collects the events of the messages in the logical process, which currently processes them.
+	 */
+	private final class LogicalProcessEventsManager implements EventsManager {
+
+		@Override
+		public void processEvent(Event event) {
+			LogicalProcess process = currentProcess.get();
+			if (process == null) {
+				events.processEvent(event);
+			} else {
+				process.addEvent(event);
+			}
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void initProcessing() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void finishProcessing() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
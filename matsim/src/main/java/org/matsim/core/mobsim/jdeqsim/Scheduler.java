@@ -35,6 +35,7 @@ public class Scheduler {
 	private double simulationStartTime = System.currentTimeMillis();
 	private final double simulationEndTime;
 	private double hourlyLogTime = 3600;
+	/*package*/ final MessageFactory.MessagePool messagePool = new MessageFactory.MessagePool();
 
 	public Scheduler(MessageQueue queue) {
 		this(queue, Double.MAX_VALUE);
@@ -61,6 +62,8 @@ public class Scheduler {
 				simTime = m.getMessageArrivalTime();
 				m.processEvent();
 				m.handleMessage();
+				// the message is not referenced any more, reuse it
+				this.messagePool.dispose(m);
 			}
 			printLog();
 		}
@@ -0,0 +1,303 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndsQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ObjDoubleConsumer;
+
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * The agents performing an activity in the {@link ActivityEngine}, ordered by the end times of their activities.
+ * <p></p>
+ * This is a calendar queue with one bucket per second. The buckets form a ring that covers the next
+ * {@value #RING_SIZE} seconds. Activities that end later, and all activities that are added before the first
+ * time step, are kept in an overflow heap and are moved into the ring when their time comes within its range. So
+ * adding and removing an agent (e.g. when within-day replanning reschedules its activity end) takes constant time,
+ * and no objects are created for an agent once it performed its first activity.
+ * <p></p>
+ * The activity end time is stored when an agent is added. It is not read from the agent again, since an agent may
+ * change it (within-day replanning) before it is rescheduled. The agents that end their activities in the same time
+ * step are returned by {@link #poll(double)} in the same order as by the former priority queue: by activity end
+ * time, and for the same time the agent with the larger id first.
+ * <p></p>
+ * All methods are synchronized, since agents may be added from several threads in the parallel QSim.
+ */
+final class ActivityEndsQueue {
+
+	private static final int RING_SIZE = 1 << 16;
+	private static final int MASK = RING_SIZE - 1;
+
+	private static final int NOT_QUEUED = -1;
+	private static final int IN_OVERFLOW = -2;
+	private static final int IN_DUE = -3;
+
+	private static final Comparator<Entry> COMPARATOR = (e0, e1) -> {
+		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+		if (cmp == 0) {
+			// same order as before, see the comment in ActivityEngine
+			return e1.agent.getId().compareTo(e0.agent.getId());
+		}
+		return cmp;
+	};
+
+	private static final class Entry {
+		final MobsimAgent agent;
+		double activityEndTime;
+		/** the slot in the ring, or one of NOT_QUEUED, IN_OVERFLOW or IN_DUE */
+		int slot = NOT_QUEUED;
+		/** the position in the slot or in the list of due entries */
+		int index;
+
+		Entry(final MobsimAgent agent) {
+			this.agent = agent;
+		}
+	}
+
+	private final Map<MobsimAgent, Entry> entries = new IdentityHashMap<>();
+	private final Entry[][] slots = new Entry[RING_SIZE][];
+	private final int[] slotSizes = new int[RING_SIZE];
+	private final PriorityQueue<Entry> overflow = new PriorityQueue<>(COMPARATOR);
+
+	/** the entries ending in the current time step, sorted; removed entries are replaced by <code>null</code> */
+	private final List<Entry> due = new ArrayList<>();
+	private int dueHead = 0;
+	private double dueTime = Double.NaN;
+
+	private boolean started = false;
+	/** the first second that has not been moved to the due entries yet */
+	private long cursor = 0;
+	private int size = 0;
+
+	synchronized void add(final MobsimAgent agent, final double activityEndTime) {
+		Entry entry = this.entries.get(agent);
+		if (entry == null) {
+			entry = new Entry(agent);
+			this.entries.put(agent, entry);
+		} else if (entry.slot != NOT_QUEUED) {
+			removeEntry(entry);
+		}
+		entry.activityEndTime = activityEndTime;
+		insert(entry);
+		this.size++;
+	}
+
+	/**
+	 * @return <code>true</code> if the agent was in the queue
+	 */
+	synchronized boolean remove(final MobsimAgent agent) {
+		Entry entry = this.entries.get(agent);
+		if (entry == null || entry.slot == NOT_QUEUED) {
+			return false;
+		}
+		removeEntry(entry);
+		return true;
+	}
+
+	/**
+	 * Removes and returns the next agent whose activity ends at or before <code>time</code>. Must be called until it
+	 * returns <code>null</code> before it is called with a later time.
+	 */
+	synchronized MobsimAgent poll(final double time) {
+		if (this.dueTime != time) {
+			collectDue(time);
+		}
+		while (this.dueHead < this.due.size()) {
+			Entry entry = this.due.get(this.dueHead++);
+			if (entry != null) {
+				entry.slot = NOT_QUEUED;
+				this.size--;
+				return entry.agent;
+			}
+		}
+		this.due.clear();
+		this.dueHead = 0;
+		this.dueTime = Double.NaN;
+		return null;
+	}
+
+	synchronized int size() {
+		return this.size;
+	}
+
+	/**
+	 * Passes all agents in the queue with their activity end times to the consumer, ordered by activity end time.
+	 */
+	synchronized void forEach(final ObjDoubleConsumer<MobsimAgent> consumer) {
+		List<Entry> queued = new ArrayList<>(this.size);
+		for (Entry entry : this.entries.values()) {
+			if (entry.slot != NOT_QUEUED) {
+				queued.add(entry);
+			}
+		}
+		queued.sort(COMPARATOR);
+		for (Entry entry : queued) {
+			consumer.accept(entry.agent, entry.activityEndTime);
+		}
+	}
+
+	synchronized void clear() {
+		this.entries.clear();
+		Arrays.fill(this.slots, null);
+		Arrays.fill(this.slotSizes, 0);
+		this.overflow.clear();
+		this.due.clear();
+		this.dueHead = 0;
+		this.dueTime = Double.NaN;
+		this.started = false;
+		this.cursor = 0;
+		this.size = 0;
+	}
+
+	private void insert(final Entry entry) {
+		if (entry.activityEndTime <= this.dueTime) {
+			// ends in the time step that is currently processed
+			insertDue(entry);
+			return;
+		}
+		long second = getSecond(entry.activityEndTime);
+		if (!this.started || second >= this.cursor + RING_SIZE) {
+			entry.slot = IN_OVERFLOW;
+			this.overflow.add(entry);
+		} else {
+			addToSlot((int) (second & MASK), entry);
+		}
+	}
+
+	private void removeEntry(final Entry entry) {
+		if (entry.slot == IN_OVERFLOW) {
+			this.overflow.remove(entry);
+		} else if (entry.slot == IN_DUE) {
+			this.due.set(entry.index, null);
+		} else {
+			int slot = entry.slot;
+			int last = --this.slotSizes[slot];
+			Entry[] slotEntries = this.slots[slot];
+			Entry moved = slotEntries[last];
+			slotEntries[entry.index] = moved;
+			moved.index = entry.index;
+			slotEntries[last] = null;
+		}
+		entry.slot = NOT_QUEUED;
+		this.size--;
+	}
+
+	/**
+	 * @return the second whose slot contains the activity end time, i.e. the time rounded up, but not before the cursor
+	 */
+	private long getSecond(final double activityEndTime) {
+		double second = Math.ceil(activityEndTime);
+		if (!(second > this.cursor)) { // also for undefined times
+			return this.cursor;
+		}
+		return second >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE / 2 : (long) second;
+	}
+
+	private void addToSlot(final int slot, final Entry entry) {
+		Entry[] slotEntries = this.slots[slot];
+		int size = this.slotSizes[slot];
+		if (slotEntries == null) {
+			slotEntries = new Entry[4];
+			this.slots[slot] = slotEntries;
+		} else if (size == slotEntries.length) {
+			slotEntries = Arrays.copyOf(slotEntries, 2 * size);
+			this.slots[slot] = slotEntries;
+		}
+		slotEntries[size] = entry;
+		entry.slot = slot;
+		entry.index = size;
+		this.slotSizes[slot] = size + 1;
+	}
+
+	private void refill() {
+		while (!this.overflow.isEmpty() && getSecond(this.overflow.peek().activityEndTime) < this.cursor + RING_SIZE) {
+			Entry entry = this.overflow.poll();
+			addToSlot((int) (getSecond(entry.activityEndTime) & MASK), entry);
+		}
+	}
+
+	private void collectDue(final double time) {
+		long lastSecond = (long) Math.floor(time);
+		if (!this.started) {
+			this.started = true;
+			this.cursor = lastSecond;
+		}
+		for ( ; this.cursor <= lastSecond; this.cursor++) {
+			refill();
+			int slot = (int) (this.cursor & MASK);
+			Entry[] slotEntries = this.slots[slot];
+			for (int i = 0, n = this.slotSizes[slot]; i < n; i++) {
+				this.due.add(slotEntries[i]);
+				slotEntries[i] = null;
+			}
+			this.slotSizes[slot] = 0;
+		}
+		refill();
+		if (time > lastSecond) {
+			// the slot of the next second may contain activities ending before the current (fractional) time
+			int slot = (int) (this.cursor & MASK);
+			Entry[] slotEntries = this.slots[slot];
+			for (int i = this.slotSizes[slot] - 1; i >= 0; i--) {
+				Entry entry = slotEntries[i];
+				if (entry.activityEndTime <= time) {
+					int last = --this.slotSizes[slot];
+					slotEntries[i] = slotEntries[last];
+					slotEntries[i].index = i;
+					slotEntries[last] = null;
+					this.due.add(entry);
+				}
+			}
+		}
+		this.due.sort(COMPARATOR);
+		for (int i = 0; i < this.due.size(); i++) {
+			Entry entry = this.due.get(i);
+			entry.slot = IN_DUE;
+			entry.index = i;
+		}
+		this.dueTime = time;
+	}
+
+	private void insertDue(final Entry entry) {
+		int position = this.dueHead;
+		while (position < this.due.size()) {
+			Entry other = this.due.get(position);
+			if (other != null && COMPARATOR.compare(entry, other) < 0) {
+				break;
+			}
+			position++;
+		}
+		this.due.add(position, entry);
+		entry.slot = IN_DUE;
+		for (int i = position; i < this.due.size(); i++) {
+			Entry other = this.due.get(i);
+			if (other != null) {
+				other.index = i;
+			}
+		}
+	}
+
+}
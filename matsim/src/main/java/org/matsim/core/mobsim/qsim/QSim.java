@@ -44,6 +44,8 @@ import org.matsim.core.mobsim.qsim.qnetsimengine.NetsimEngine;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
 import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.utils.metrics.Metrics;
+import org.matsim.core.utils.metrics.Timer;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
@@ -131,6 +133,7 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		if (analyzeRunTimes) this.mobsimEngineRunTimes = new HashMap<>();
 		else this.mobsimEngineRunTimes = null;
 	}
+	private static final Timer SIM_STEP_TIMER = Metrics.timer("mobsim.simStep");
 
 	/*package (for tests)*/ final InternalInterface internalInterface = new InternalInterface() {
 
@@ -336,6 +339,7 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	 * @return true if the simulation needs to continue
 	 */
 	/*package*/ boolean doSimStep() {
+		final long simStepStart = SIM_STEP_TIMER.start();
 		if (analyzeRunTimes) this.startTime = System.nanoTime();
 
 		final double now = this.getSimTimer().getTimeOfDay();
@@ -388,6 +392,7 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
+		SIM_STEP_TIMER.stop(simStepStart);
 
 		return doContinue;
 	}
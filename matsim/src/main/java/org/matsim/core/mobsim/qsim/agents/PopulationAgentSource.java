@@ -56,13 +56,16 @@ public final class PopulationAgentSource implements AgentSource {
 
 	@Override
 	public void insertAgentsIntoMobsim() {
-		for (Person p : population.getPersons().values()) {
-			MobsimAgent agent = this.agentFactory.createMobsimAgentFromPerson(p);
-			qsim.insertAgentIntoMobsim(agent);
-		}
-		for (Person p : population.getPersons().values()) {
-			insertVehicles(p);
-		}
+		// chunk by chunk, so that the routes get their vehicle ids while a disk-backed population still has them in memory
+		PopulationUtils.forEachChunk(population, persons -> {
+			for (Person p : persons) {
+				MobsimAgent agent = this.agentFactory.createMobsimAgentFromPerson(p);
+				qsim.insertAgentIntoMobsim(agent);
+			}
+			for (Person p : persons) {
+				insertVehicles(p);
+			}
+		});
 	}
 	
 	private void insertVehicles(Person person) {
@@ -12,7 +12,13 @@ import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkUtils;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 
 class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 	private static final Logger log = Logger.getLogger( NetworkChangeEventsEngine.class ) ;
@@ -29,13 +35,19 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 
 	@Override
 	public void onPrepareSim() {
-		Queue<NetworkChangeEvent> changeEvents = NetworkUtils.getNetworkChangeEvents(this.network);
-		for (final NetworkChangeEvent changeEvent : changeEvents) {
-			addNetworkChangeEventToMessageQ(changeEvent);
+		// one message for all change events with the same start time, so that every link is recalculated only once
+		List<NetworkChangeEvent> changeEvents = new ArrayList<>(NetworkUtils.getNetworkChangeEvents(this.network));
+		changeEvents.sort(new NetworkChangeEvent.StartTimeComparator());
+		int from = 0;
+		for (int to = 1; to <= changeEvents.size(); to++) {
+			if (to == changeEvents.size() || changeEvents.get(to).getStartTime() != changeEvents.get(from).getStartTime()) {
+				addNetworkChangeEventsToMessageQ(new ArrayList<>(changeEvents.subList(from, to)));
+				from = to;
+			}
 		}
 	}
 	
-	private void addNetworkChangeEventToMessageQ(NetworkChangeEvent changeEvent) {
+	private void addNetworkChangeEventsToMessageQ(List<NetworkChangeEvent> changeEvents) {
 		Message m = new Message() {
 			@Override
 			public void processEvent() {
@@ -44,15 +56,19 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 
 			@Override
 			public void handleMessage() {
-				applyTheChangeEvent(changeEvent);
+				applyTheChangeEvents(changeEvents);
 			}
 		};
-		m.setMessageArrivalTime(changeEvent.getStartTime());
+		m.setMessageArrivalTime(changeEvents.get(0).getStartTime());
 		this.messageQueue.putMessage(m);
 	}
 	
-	private void applyTheChangeEvent(NetworkChangeEvent changeEvent) {
-		for (Link link : changeEvent.getLinks()) {
+	private void applyTheChangeEvents(Collection<NetworkChangeEvent> changeEvents) {
+		Set<Link> links = new LinkedHashSet<>();
+		for (NetworkChangeEvent changeEvent : changeEvents) {
+			links.addAll(changeEvent.getLinks());
+		}
+		for (Link link : links) {
 			final NetsimLink netsimLink = this.internalInterface.getMobsim().getNetsimNetwork().getNetsimLink(link.getId());
 			if ( netsimLink instanceof TimeVariantLink) {
 				((TimeVariantLink) netsimLink).recalcTimeVariantAttributes();
@@ -79,9 +95,9 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 		}
 		
 		if ( event.getStartTime()<= this.internalInterface.getMobsim().getSimTimer().getTimeOfDay() ) {
-			this.applyTheChangeEvent(event);
+			this.applyTheChangeEvents(Collections.singletonList(event));
 		} else {
-			this.addNetworkChangeEventToMessageQ(event);
+			this.addNetworkChangeEventsToMessageQ(Collections.singletonList(event));
 		}
 		
 	}
@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CoordinateBisectionQNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Partitions the network by recursive coordinate bisection: the nodes are split at the weighted median
+ * of the longer side of their bounding box, and both halves are split again until there is one part per
+ * runner. Each part thus gets (approximately) the same sum of node weights, and the parts are spatially
+ * compact, i.e. most links connect nodes of the same part.
+ * <p></p>
+ * This is a geometric stand-in for multilevel graph partitioning (as done by Metis): it does not need
+ * an external library and is fast enough to be run before every mobsim, but it only looks at the
+ * coordinates and not at the network topology.
+ */
+public final class CoordinateBisectionQNetworkPartitioner implements QNetworkPartitioner {
+
+	private final ToDoubleFunction<Node> nodeWeights;
+
+	public CoordinateBisectionQNetworkPartitioner(ToDoubleFunction<Node> nodeWeights) {
+		this.nodeWeights = nodeWeights;
+	}
+
+	/**
+	 * Weights every node by the capacity of its in-links, which are handled when the node is moved, and of its
+	 * out-links, which are handled by the same runner.
+	 */
+	public static CoordinateBisectionQNetworkPartitioner createCapacityWeighted() {
+		return new CoordinateBisectionQNetworkPartitioner(node -> {
+			double weight = 0.0;
+			for (Link link : node.getInLinks().values()) {
+				weight += link.getCapacity();
+			}
+			for (Link link : node.getOutLinks().values()) {
+				weight += link.getCapacity();
+			}
+			return weight;
+		});
+	}
+
+	/**
+	 * Weights every node by the number of time steps it was active in the previous mobsim. Nodes that were never
+	 * active still get a small weight, so they are spread evenly as well.
+	 */
+	public static CoordinateBisectionQNetworkPartitioner createWorkloadWeighted(final NetsimNodeWorkload workload) {
+		return new CoordinateBisectionQNetworkPartitioner(node -> 1.0 + workload.getActiveTimeSteps(node.getId()));
+	}
+
+	@Override
+	public Map<Id<Node>, Integer> partition(Network network, int numberOfRunners) {
+		Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		double[] weights = new double[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			weights[i] = Math.max(0.0, this.nodeWeights.applyAsDouble(nodes[i]));
+		}
+		Integer[] indices = new Integer[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			indices[i] = i;
+		}
+		int[] parts = new int[nodes.length];
+		bisect(nodes, weights, indices, 0, nodes.length, 0, numberOfRunners, parts);
+
+		Map<Id<Node>, Integer> partition = new HashMap<>();
+		for (int i = 0; i < nodes.length; i++) {
+			partition.put(nodes[i].getId(), parts[i]);
+		}
+		return partition;
+	}
+
+	/**
+	 * Assigns the nodes <code>indices[from] .. indices[to - 1]</code> to the parts <code>firstPart .. firstPart + numberOfParts - 1</code>.
+	 */
+	private static void bisect(final Node[] nodes, final double[] weights, final Integer[] indices, final int from, final int to,
+			final int firstPart, final int numberOfParts, final int[] parts) {
+		if (numberOfParts == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				parts[indices[i]] = firstPart;
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double totalWeight = 0.0;
+		for (int i = from; i < to; i++) {
+			Node node = nodes[indices[i]];
+			minX = Math.min(minX, node.getCoord().getX());
+			maxX = Math.max(maxX, node.getCoord().getX());
+			minY = Math.min(minY, node.getCoord().getY());
+			maxY = Math.max(maxY, node.getCoord().getY());
+			totalWeight += weights[indices[i]];
+		}
+
+		// ties are broken by the position in the network, so the partition is deterministic
+		Comparator<Integer> comparator;
+		if (maxX - minX >= maxY - minY) {
+			comparator = Comparator.<Integer>comparingDouble(i -> nodes[i].getCoord().getX()).thenComparingInt(i -> i);
+		} else {
+			comparator = Comparator.<Integer>comparingDouble(i -> nodes[i].getCoord().getY()).thenComparingInt(i -> i);
+		}
+		Arrays.sort(indices, from, to, comparator);
+
+		int partsLeft = numberOfParts / 2;
+		double targetWeight = totalWeight * partsLeft / numberOfParts;
+		int split = from;
+		if (totalWeight > 0.0) {
+			double weight = 0.0;
+			while (split < to && weight + weights[indices[split]] / 2 <= targetWeight) {
+				weight += weights[indices[split]];
+				split++;
+			}
+		} else {
+			split = from + (to - from) * partsLeft / numberOfParts;
+		}
+		// both sides need at least one node per part if possible
+		split = Math.max(split, from + Math.min(partsLeft, to - from - 1));
+		split = Math.min(split, to - Math.min(numberOfParts - partsLeft, to - from - 1));
+
+		bisect(nodes, weights, indices, from, split, firstPart, partsLeft, parts);
+		bisect(nodes, weights, indices, split, to, firstPart + partsLeft, numberOfParts - partsLeft, parts);
+	}
+
+}
@@ -18,7 +18,12 @@ public class NetsimEngineContext {
 	public NetsimEngineContext(EventsManager events, double effectiveCellSize, AgentCounter agentCounter,
 			AbstractAgentSnapshotInfoBuilder snapshotInfoBuilder, QSimConfigGroup qsimConfig, MobsimTimer mobsimTimer, 
 			SnapshotLinkWidthCalculator linkWidthCalculator) {
-		this.events = events;
+		if (qsimConfig != null && qsimConfig.isUsingWorkStealing()) {
+			// keep the events of the nodes and links in a deterministic order, see QNetsimEngineWorkStealingRunner
+			this.events = new NetsimTaskEventsManager(events);
+		} else {
+			this.events = events;
+		}
 		this.effectiveCellSize = effectiveCellSize;
 		this.agentCounter = agentCounter;
 		this.snapshotInfoBuilder = snapshotInfoBuilder;
@@ -0,0 +1,63 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimNodeWorkload.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Remembers for how many time steps each node was active in the last mobsim, so that the next mobsim can
+ * balance its runners accordingly. Since the mobsim is newly created in every iteration, this is kept
+ * as a scenario element.
+ */
+public final class NetsimNodeWorkload {
+
+	public static final String ELEMENT_NAME = "netsimNodeWorkload";
+
+	private final Map<Id<Node>, Long> activeTimeSteps = new HashMap<>();
+
+	public static NetsimNodeWorkload getOrCreate(final Scenario scenario) {
+		NetsimNodeWorkload workload = (NetsimNodeWorkload) scenario.getScenarioElement(ELEMENT_NAME);
+		if (workload == null) {
+			workload = new NetsimNodeWorkload();
+			scenario.addScenarioElement(ELEMENT_NAME, workload);
+		}
+		return workload;
+	}
+
+	public boolean isEmpty() {
+		return this.activeTimeSteps.isEmpty();
+	}
+
+	public long getActiveTimeSteps(final Id<Node> nodeId) {
+		Long steps = this.activeTimeSteps.get(nodeId);
+		return steps == null ? 0 : steps;
+	}
+
+	/*package*/ void setActiveTimeSteps(final Id<Node> nodeId, final long steps) {
+		this.activeTimeSteps.put(nodeId, steps);
+	}
+
+}
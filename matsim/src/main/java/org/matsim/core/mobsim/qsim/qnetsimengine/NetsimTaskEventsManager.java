@@ -0,0 +1,81 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimTaskEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Used by the nodes and links when the {@link QNetsimEngineWorkStealingRunner} is used: events created while a chunk of
+ * nodes or links is processed are kept with the chunk and passed on in chunk order afterwards. All other events are passed
+ * on directly.
+ */
+final class NetsimTaskEventsManager implements EventsManager {
+
+	private final EventsManager delegate;
+
+	NetsimTaskEventsManager(EventsManager delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void processEvent(Event event) {
+		QNetsimEngineWorkStealingRunner.Chunk chunk = QNetsimEngineWorkStealingRunner.getCurrentChunk();
+		if (chunk != null) {
+			chunk.addEvent(this.delegate, event);
+		} else {
+			this.delegate.processEvent(event);
+		}
+	}
+
+	@Override
+	public void addHandler(EventHandler handler) {
+		this.delegate.addHandler(handler);
+	}
+
+	@Override
+	public void removeHandler(EventHandler handler) {
+		this.delegate.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		this.delegate.afterSimStep(time);
+	}
+
+	@Override
+	public void finishProcessing() {
+		this.delegate.finishProcessing();
+	}
+
+}
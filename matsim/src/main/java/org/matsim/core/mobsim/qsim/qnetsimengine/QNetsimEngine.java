@@ -41,6 +41,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -59,6 +60,7 @@ import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.utils.metrics.Metrics;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -120,6 +122,14 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final boolean usingWorkStealing;
+
+	private final int workStealingChunkSize;
+
+	private QNetsimEngineWorkStealingRunner workStealingRunner;
+
+	private QNetworkPartitioner networkPartitioner;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -141,6 +151,12 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.usingWorkStealing = qsimConfigGroup.isUsingWorkStealing();
+		this.workStealingChunkSize = qsimConfigGroup.getWorkStealingChunkSize();
+		if (this.usingWorkStealing && config.transit().isUseTransit()) {
+			// see ConfigConsistencyCheckerImpl, repeated here for qsims that are set up without a controler
+			throw new IllegalStateException("Transit is not supported together with qsim.usingWorkStealing.");
+		}
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -178,6 +194,33 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		network.initialize(this, sim.getAgentCounter(), sim.getSimTimer() );
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
+		this.networkPartitioner = createNetworkPartitioner(sim.getScenario());
+	}
+
+	private static QNetworkPartitioner createNetworkPartitioner(Scenario scenario) {
+		switch (scenario.getConfig().qsim().getNetsimPartitioning()) {
+		case roundRobin:
+			return new RoundRobinQNetworkPartitioner();
+		case capacityWeighted:
+			return CoordinateBisectionQNetworkPartitioner.createCapacityWeighted();
+		case workloadWeighted:
+			NetsimNodeWorkload workload = NetsimNodeWorkload.getOrCreate(scenario);
+			if (workload.isEmpty()) {
+				log.info("no workload of a previous mobsim available, weighting the nodes by link capacity.");
+				return CoordinateBisectionQNetworkPartitioner.createCapacityWeighted();
+			}
+			return CoordinateBisectionQNetworkPartitioner.createWorkloadWeighted(workload);
+		default:
+			throw new RuntimeException("Unknown netsim partitioning: " + scenario.getConfig().qsim().getNetsimPartitioning());
+		}
+	}
+
+	/**
+	 * Replaces the partitioner configured by {@link QSimConfigGroup#getNetsimPartitioning()}. Needs to be called before the
+	 * simulation is prepared.
+	 */
+	public final void setNetworkPartitioner(QNetworkPartitioner networkPartitioner) {
+		this.networkPartitioner = networkPartitioner;
 	}
 
 	private static int wrnCnt = 0;
@@ -241,7 +284,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			engine.afterSim();
 		}
 
-		if (this.usingThreadpool) {
+		if (this.usingWorkStealing) {
+			this.workStealingRunner.afterSim();
+		} else if (this.usingThreadpool) {
 			this.pool.shutdown();
 		} else {
 			/*
@@ -252,6 +297,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			this.startBarrier.arriveAndAwaitAdvance();
 		}
 
+		logBarrierWaitTimes();
+		recordNodeWorkload();
+
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
 		 * in the buffer (such links are *not* active, as the buffer gets emptied
@@ -313,20 +361,30 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			engine.setTime(time);
 		}
 
-		if (this.usingThreadpool) {
+		if (this.usingWorkStealing) {
+			this.workStealingRunner.doSimStep(time);
+		} else if (this.usingThreadpool) {
 			try {
 				for (QNetsimEngineRunner engine : this.engines) {
 					engine.setMovingNodes(true);
 				}
+				long start = System.nanoTime();
 				for (Future<Boolean> future : pool.invokeAll(this.engines)) {
 					future.get();
 				}
+				long end = System.nanoTime();
 				for (QNetsimEngineRunner engine : this.engines) {
+					engine.addWaitTimeAfterCall(end - start);
 					engine.setMovingNodes(false);
 				}
+				start = end;
 				for (Future<Boolean> future : pool.invokeAll(this.engines)) {
 					future.get();
 				}
+				end = System.nanoTime();
+				for (QNetsimEngineRunner engine : this.engines) {
+					engine.addWaitTimeAfterCall(end - start);
+				}
 			} catch (InterruptedException e) {
 				throw new RuntimeException(e) ;
 			} catch (ExecutionException e) {
@@ -357,6 +415,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		for (QNetsimEngineRunner engine : this.engines) {
 			numLinks = numLinks + engine.getNumberOfSimulatedLinks();
 		}
+		if (this.workStealingRunner != null) {
+			numLinks = numLinks + this.workStealingRunner.getNumberOfSimulatedLinks();
+		}
 
 		return numLinks;
 	}
@@ -368,6 +429,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		for (QNetsimEngineRunner engine : this.engines) {
 			numNodes = numNodes + engine.getNumberOfSimulatedNodes();
 		}
+		if (this.workStealingRunner != null) {
+			numNodes = numNodes + this.workStealingRunner.getNumberOfSimulatedNodes();
+		}
 
 		return numNodes;
 	}
@@ -409,6 +473,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	}
 
 	private void letVehicleArrive(QVehicle veh) {
+		if (this.usingWorkStealing && QNetsimEngineWorkStealingRunner.deferVehicleArrival(veh)) {
+			// will be called again after the current chunk of links is processed
+			return;
+		}
 		double now = this.qsim.getSimTimer().getTimeOfDay();
 		MobsimDriverAgent driver = veh.getDriver();
 		this.qsim.getEventsManager().processEvent(new PersonLeavesVehicleEvent(now, driver.getId(), veh.getId()));
@@ -422,6 +490,13 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 		this.engines = new ArrayList<>();
 
+		if (this.usingWorkStealing) {
+			this.workStealingRunner = new QNetsimEngineWorkStealingRunner(this.numOfThreads, this.workStealingChunkSize,
+					this::letVehicleArrive);
+			assignNetElementActivatorsForWorkStealing();
+			return;
+		}
+
 		this.startBarrier = new Phaser(this.numOfThreads + 1);
 		Phaser separationBarrier = new Phaser(this.numOfThreads);
 		this.endBarrier = new Phaser(this.numOfThreads + 1);
@@ -470,9 +545,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
-		int roundRobin = 0;
+		Map<Id<Node>, Integer> partition = this.networkPartitioner.partition(network.getNetwork(), this.numOfRunners);
 		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+			int i = partition.get(node.getNode().getId());
 			if ( node instanceof QNodeImpl ) {
 				((QNodeImpl) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -498,8 +573,6 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 				links[i]++;
 
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
@@ -510,6 +583,53 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this.linksToActivateInitially.clear();
 	}
 
+	/*
+	 * With work stealing, there is only one registry for all nodes and links.
+	 */
+	private void assignNetElementActivatorsForWorkStealing() {
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			if ( node instanceof QNodeImpl ) {
+				((QNodeImpl) node).setNetElementActivationRegistry(this.workStealingRunner);
+			}
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				AbstractQLink qLink = (AbstractQLink) network.getNetsimLink(outLink.getId());
+				qLink.setNetElementActivationRegistry(this.workStealingRunner);
+				if (linksToActivateInitially.remove(qLink)
+						|| qsim.getScenario().getConfig().qsim().getSimStarttimeInterpretation()==StarttimeInterpretation.onlyUseStarttime) {
+					this.workStealingRunner.registerLinkAsActive(qLink);
+				}
+			}
+		}
+		log.info("Using work stealing with " + this.numOfThreads + " threads for all nodes and links.");
+		this.linksToActivateInitially.clear();
+	}
+
+	private void logBarrierWaitTimes() {
+		for (int i = 0; i < this.engines.size(); i++) {
+			QNetsimEngineRunner engine = this.engines.get(i);
+			long total = engine.getBusyTime() + engine.getBarrierWaitTime();
+			log.info("QNetsimEngineRunner #" + i + ": busy " + engine.getBusyTime() / 1000000 + " ms, waiting for other runners "
+					+ engine.getBarrierWaitTime() / 1000000 + " ms (" + (total == 0 ? 0 : 100 * engine.getBarrierWaitTime() / total) + "%)");
+			Metrics.gauge("mobsim.runner" + i + ".busy_ms").set(engine.getBusyTime() / 1e6);
+			Metrics.gauge("mobsim.runner" + i + ".barrierWait_ms").set(engine.getBarrierWaitTime() / 1e6);
+		}
+	}
+
+	/*
+	 * Remembers how often each node was active, so that the next mobsim can balance the runners accordingly.
+	 */
+	private void recordNodeWorkload() {
+		if (this.qsim.getScenario().getConfig().qsim().getNetsimPartitioning() != QSimConfigGroup.NetsimPartitioning.workloadWeighted) {
+			return;
+		}
+		NetsimNodeWorkload workload = NetsimNodeWorkload.getOrCreate(this.qsim.getScenario());
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			if (node instanceof QNodeImpl) {
+				workload.setActiveTimeSteps(node.getNode().getId(), ((QNodeImpl) node).getActiveTimeSteps());
+			}
+		}
+	}
+
 	public void printEngineRunTimes() {
 		if (!QSim.analyzeRunTimes) return;
 		
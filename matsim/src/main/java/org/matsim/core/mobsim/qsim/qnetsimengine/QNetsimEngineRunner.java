@@ -78,6 +78,14 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
+
+	/*
+	 * Time this runner spent waiting for the other runners, i.e. at the barriers or, when using the
+	 * thread pool, between finishing its own work and the end of the slowest runner.
+	 */
+	private long barrierWaitTime = 0;
+	private long busyTime = 0;
+	private long callBusyTime = 0;
 	{	
 		if (QSim.analyzeRunTimes) runTimes = new long[QNetsimEngine.numObservedTimeSteps];
 		else runTimes = null;
@@ -116,11 +124,14 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			return false;
 		}
 
+		long start = System.nanoTime();
 		if (this.movingNodes) {
 			moveNodes();
 		} else {
 			moveLinks();
 		}
+		this.callBusyTime = System.nanoTime() - start;
+		this.busyTime += this.callBusyTime;
 		return true ;
 	}
 
@@ -144,15 +155,21 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 				return;
 			}
 
+			long start = System.nanoTime();
 			moveNodes();
+			long end = System.nanoTime();
+			this.busyTime += end - start;
 
 			// After moving the QNodes all we use a Phaser to synchronize the threads.
 			this.separationBarrier.arriveAndAwaitAdvance();
 
+			start = System.nanoTime();
+			this.barrierWaitTime += start - end;
 			moveLinks();
+			end = System.nanoTime();
+			this.busyTime += end - start;
 
 			if (QSim.analyzeRunTimes) {
-				long end = System.nanoTime();
 				int bin = (int) this.time;
 				if (bin < this.runTimes.length) this.runTimes[bin] = end - this.startTime;
 			}
@@ -162,6 +179,7 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			 * reach this barrier the main thread can go on.
 			 */
 			this.endBarrier.arriveAndAwaitAdvance();
+			this.barrierWaitTime += System.nanoTime() - end;
 		}
 	}
 	private void moveNodes() {
@@ -232,4 +250,20 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	public void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
+
+	/**
+	 * Only used with the thread pool: the time between the end of this runner's last call and the end of the
+	 * slowest runner is accounted as waiting time.
+	 */
+	/*package*/ void addWaitTimeAfterCall(long wallTime) {
+		this.barrierWaitTime += Math.max(0, wallTime - this.callBusyTime);
+	}
+
+	/*package*/ long getBarrierWaitTime() {
+		return this.barrierWaitTime;
+	}
+
+	/*package*/ long getBusyTime() {
+		return this.busyTime;
+	}
 }
\ No newline at end of file
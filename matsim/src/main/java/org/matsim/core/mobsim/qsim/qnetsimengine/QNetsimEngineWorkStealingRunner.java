@@ -0,0 +1,285 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWorkStealingRunner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+
+/**
+ * Alternative to the {@link QNetsimEngineRunner}s: instead of assigning every node and link to a fixed runner, all active
+ * nodes (and later all active links) are cut into chunks of a fixed number of elements in every time step, see
+ * {@link org.matsim.core.config.groups.QSimConfigGroup#getWorkStealingChunkSize()}. The chunks are
+ * processed by a {@link ForkJoinPool}, so idle threads steal chunks from busy ones, and the load follows the traffic
+ * through the network during the day.
+ * <p></p>
+ * The result does not depend on the number of threads or on which thread processed which chunk:
+ * <ul>
+ * <li> Nodes and links activated while a chunk is processed are collected per chunk, and appended to the active elements
+ * in chunk order after the phase.
+ * <li> Events created by the nodes and links (see {@link NetsimTaskEventsManager}) as well as arriving vehicles are
+ * collected per chunk as well, and are passed on in chunk order after the phase, from the calling thread.
+ * </ul>
+ * Activations from outside the chunks (e.g. departures) may only happen between the phases, as with the other runners.
+ * Transit is not supported: vehicles in different chunks may serve the same stop, and which of them boards a waiting
+ * passenger would depend on the threads.
+ */
+final class QNetsimEngineWorkStealingRunner extends NetElementActivationRegistry {
+
+	private static final Logger log = Logger.getLogger(QNetsimEngineWorkStealingRunner.class);
+
+	private static final ThreadLocal<Chunk> currentChunk = new ThreadLocal<>();
+
+	private static final Comparator<QNodeImpl> NODE_ORDER = Comparator.comparing(node -> node.getNode().getId());
+
+	private final ForkJoinPool pool;
+	private final Consumer<QVehicle> arrivalHandler;
+	private final int chunkSize;
+
+	private final List<QNodeImpl> activeNodes = new ArrayList<>();
+	private final List<QLinkI> activeLinks = new ArrayList<>();
+	private final List<Chunk> chunks = new ArrayList<>();
+
+	private boolean moving = false;
+	private double time;
+
+	/*package*/ QNetsimEngineWorkStealingRunner(int numberOfThreads, int chunkSize, Consumer<QVehicle> arrivalHandler) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunk size must be at least 1, but is " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+		this.pool = new ForkJoinPool(numberOfThreads, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("QNetsimEngine_WorkStealingThread_" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+		this.arrivalHandler = arrivalHandler;
+	}
+
+	/*package*/ void doSimStep(double time) {
+		this.time = time;
+		move(this.activeNodes, true);
+		move(this.activeLinks, false);
+	}
+
+	private <T> void move(List<T> elements, boolean movingNodes) {
+		int numberOfChunks = (elements.size() + this.chunkSize - 1) / this.chunkSize;
+		while (this.chunks.size() < numberOfChunks) {
+			this.chunks.add(new Chunk());
+		}
+		for (int i = 0; i < numberOfChunks; i++) {
+			this.chunks.get(i).reset(i * this.chunkSize, Math.min(elements.size(), (i + 1) * this.chunkSize));
+		}
+
+		this.moving = true;
+		try {
+			this.pool.invoke(new ChunkAction(elements, movingNodes, 0, numberOfChunks));
+		} finally {
+			this.moving = false;
+		}
+
+		// keep the elements that remain active, in their previous order
+		int size = 0;
+		for (int i = 0; i < numberOfChunks; i++) {
+			Chunk chunk = this.chunks.get(i);
+			for (int j = chunk.from; j < chunk.from + chunk.remainingActive; j++) {
+				elements.set(size++, elements.get(j));
+			}
+		}
+		elements.subList(size, elements.size()).clear();
+
+		// afterwards, everything that happened within the chunks, in chunk order
+		int firstActivatedNode = this.activeNodes.size();
+		for (int i = 0; i < numberOfChunks; i++) {
+			Chunk chunk = this.chunks.get(i);
+			this.activeNodes.addAll(chunk.activatedNodes);
+			this.activeLinks.addAll(chunk.activatedLinks);
+			chunk.flush(this.arrivalHandler);
+		}
+		/*
+		 * Links from different chunks may lead to the same node, and it depends on the timing which of them activates it.
+		 * Thus, the order of the activated nodes needs to be fixed. Links are only activated by their from node, so their
+		 * order is already deterministic.
+		 */
+		this.activeNodes.subList(firstActivatedNode, this.activeNodes.size()).sort(NODE_ORDER);
+	}
+
+	private <T> void process(Chunk chunk, List<T> elements, boolean movingNodes) {
+		currentChunk.set(chunk);
+		try {
+			int remaining = chunk.from;
+			for (int i = chunk.from; i < chunk.to; i++) {
+				T element = elements.get(i);
+				boolean remainsActive = movingNodes ? ((QNodeImpl) element).doSimStep(this.time) : ((QLinkI) element).doSimStep();
+				if (remainsActive) {
+					// only this chunk writes into its range of the list
+					elements.set(remaining++, element);
+				}
+			}
+			chunk.remainingActive = remaining - chunk.from;
+		} finally {
+			currentChunk.remove();
+		}
+	}
+
+	/**
+	 * @return the chunk that is processed by the current thread, or <code>null</code> if it does not process one.
+	 */
+	/*package*/ static Chunk getCurrentChunk() {
+		return currentChunk.get();
+	}
+
+	/**
+	 * Defers the arrival of the vehicle to the end of the phase if it happens while a chunk is processed.
+	 *
+	 * @return true if the arrival was deferred
+	 */
+	/*package*/ static boolean deferVehicleArrival(QVehicle vehicle) {
+		Chunk chunk = currentChunk.get();
+		if (chunk == null) {
+			return false;
+		}
+		chunk.entries.add(vehicle);
+		chunk.targets.add(null);
+		return true;
+	}
+
+	@Override
+	void registerNodeAsActive(QNodeImpl node) {
+		Chunk chunk = currentChunk.get();
+		if (chunk != null) {
+			chunk.activatedNodes.add(node);
+		} else {
+			registerFromOutside(node, this.activeNodes);
+		}
+	}
+
+	@Override
+	void registerLinkAsActive(QLinkI link) {
+		Chunk chunk = currentChunk.get();
+		if (chunk != null) {
+			chunk.activatedLinks.add(link);
+		} else {
+			registerFromOutside(link, this.activeLinks);
+		}
+	}
+
+	private synchronized <T> void registerFromOutside(T element, List<T> elements) {
+		if (this.moving) {
+			throw new RuntimeException("Tried to activate a net element from outside the QNetsimEngine while it was moving. Aborting!");
+		}
+		elements.add(element);
+	}
+
+	@Override
+	int getNumberOfSimulatedNodes() {
+		return this.activeNodes.size();
+	}
+
+	@Override
+	int getNumberOfSimulatedLinks() {
+		return this.activeLinks.size();
+	}
+
+	/*package*/ void afterSim() {
+		log.info("QNetsimEngine work stealing: " + this.pool.getStealCount() + " chunks were stolen by other threads.");
+		this.pool.shutdown();
+	}
+
+	/**
+	 * Everything that happens while a range of active nodes or links is processed, in the order it happened.
+	 */
+	/*package*/ static final class Chunk {
+		private int from;
+		private int to;
+		private int remainingActive;
+		private final List<QNodeImpl> activatedNodes = new ArrayList<>();
+		private final List<QLinkI> activatedLinks = new ArrayList<>();
+		// events (with the events manager they are meant for) and arriving vehicles (with null)
+		private final List<Object> entries = new ArrayList<>();
+		private final List<EventsManager> targets = new ArrayList<>();
+
+		private void reset(int from, int to) {
+			this.from = from;
+			this.to = to;
+			this.remainingActive = 0;
+			this.activatedNodes.clear();
+			this.activatedLinks.clear();
+			this.entries.clear();
+			this.targets.clear();
+		}
+
+		/*package*/ void addEvent(EventsManager target, Event event) {
+			this.entries.add(event);
+			this.targets.add(target);
+		}
+
+		private void flush(Consumer<QVehicle> arrivalHandler) {
+			for (int i = 0; i < this.entries.size(); i++) {
+				EventsManager target = this.targets.get(i);
+				if (target != null) {
+					target.processEvent((Event) this.entries.get(i));
+				} else {
+					arrivalHandler.accept((QVehicle) this.entries.get(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Splits the chunks recursively, so that idle threads can steal the larger halves.
+	 */
+	private final class ChunkAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List<?> elements;
+		private final boolean movingNodes;
+		private final int fromChunk;
+		private final int toChunk;
+
+		ChunkAction(List<?> elements, boolean movingNodes, int fromChunk, int toChunk) {
+			this.elements = elements;
+			this.movingNodes = movingNodes;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.toChunk - this.fromChunk == 1) {
+				process(QNetsimEngineWorkStealingRunner.this.chunks.get(this.fromChunk), this.elements, this.movingNodes);
+			} else if (this.toChunk > this.fromChunk) {
+				int middle = (this.fromChunk + this.toChunk) >>> 1;
+				invokeAll(new ChunkAction(this.elements, this.movingNodes, this.fromChunk, middle),
+						new ChunkAction(this.elements, this.movingNodes, middle, this.toChunk));
+			}
+		}
+	}
+
+}
@@ -21,7 +21,6 @@
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
@@ -32,6 +31,7 @@ import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNode;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.vis.snapshotwriters.VisLink;
 
 /**
@@ -55,8 +55,8 @@ public class QNetwork implements NetsimNetwork {
 	QNetwork(final Network network, final QNetworkFactory netsimNetworkFactory ) {
 		this.network = network;
 		this.queueNetworkFactory = netsimNetworkFactory;
-		this.links = new LinkedHashMap<>((int)(network.getLinks().size()*1.1), 0.95f);
-		this.nodes = new LinkedHashMap<>((int)(network.getLinks().size()*1.1), 0.95f);
+		this.links = new IdMap<>(Link.class);
+		this.nodes = new IdMap<>(Node.class);
 	}
 
 	public void initialize(QNetsimEngine simEngine1, AgentCounter agentCounter, MobsimTimer simTimer) {
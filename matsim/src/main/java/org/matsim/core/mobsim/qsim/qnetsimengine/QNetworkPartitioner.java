@@ -0,0 +1,46 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Decides which {@link QNetsimEngineRunner} handles which node. A runner also handles the out-links
+ * of its nodes, since links are only activated by the node upstream of them.
+ * <p></p>
+ * The runners wait for each other after moving the nodes and after moving the links of each time step,
+ * so a partition should balance the work per runner.  Keeping adjacent nodes in the same partition
+ * additionally reduces the number of vehicles that are handed over between runners.
+ *
+ * @see org.matsim.core.config.groups.QSimConfigGroup.NetsimPartitioning
+ */
+public interface QNetworkPartitioner {
+
+	/**
+	 * @return for every node of the network the index of the runner that handles it, in <code>[0, numberOfRunners)</code>.
+	 */
+	Map<Id<Node>, Integer> partition(Network network, int numberOfRunners);
+
+}
@@ -87,6 +87,12 @@ final class QNodeImpl implements QNodeI {
 	
 	private final TurnAcceptanceLogic turnAcceptanceLogic ;
 
+	/*
+	 * Only used to balance the QNetsimEngineRunners in the next iteration. A node is only moved
+	 * by the runner it is assigned to, so this needs not to be thread-safe.
+	 */
+	private long activeTimeSteps = 0;
+
 	private QNodeImpl(final Node n, NetsimEngineContext context, NetsimInternalInterface netsimEngine2, TurnAcceptanceLogic turnAcceptanceLogic) {
 		this.node = n;
 		this.netsimEngine = netsimEngine2 ;
@@ -95,7 +101,7 @@ final class QNodeImpl implements QNodeI {
 		int nofInLinks = this.node.getInLinks().size();
 		this.inLinksArrayCache = new QLinkI[nofInLinks];
 		this.tempLinks = new QLinkI[nofInLinks];
-		if (this.context.qsimConfig.getNumberOfThreads() > 1) { 
+		if (this.context.qsimConfig.getNumberOfThreads() > 1 || this.context.qsimConfig.isUsingWorkStealing()) { 
 			// This could just as well be the "normal" case. The second alternative
 			// is just there so some scenarios / test cases stay
 			// "event-file-compatible". Consider removing the second alternative.
@@ -167,6 +173,10 @@ final class QNodeImpl implements QNodeI {
 		}
 	}
 
+	/*package*/ final long getActiveTimeSteps() {
+		return this.activeTimeSteps;
+	}
+
 	final boolean isActive() {
 		// yyyy I cannot say if this needs to be in QNodeI or not.  The mechanics of this are tricky to implement, so it would 
 		// not be a stable/robust API.  kai, jul'17
@@ -193,6 +203,7 @@ final class QNodeImpl implements QNodeI {
 	 */
 	@Override
 	public boolean doSimStep(final double now) {
+		this.activeTimeSteps++;
 		
 		int inLinksCounter = 0;
 		double inLinksCapSum = 0.0;
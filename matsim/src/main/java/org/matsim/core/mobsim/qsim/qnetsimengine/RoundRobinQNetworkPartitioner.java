@@ -0,0 +1,47 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RoundRobinQNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Assigns the nodes to the runners in the order of the network, one after the other. This ignores
+ * locality as well as load, but was the only option for a long time, so it remains the default.
+ */
+public final class RoundRobinQNetworkPartitioner implements QNetworkPartitioner {
+
+	@Override
+	public Map<Id<Node>, Integer> partition(Network network, int numberOfRunners) {
+		Map<Id<Node>, Integer> partition = new HashMap<>();
+		int roundRobin = 0;
+		for (Node node : network.getNodes().values()) {
+			partition.put(node.getId(), roundRobin % numberOfRunners);
+			roundRobin++;
+		}
+		return partition;
+	}
+
+}
@@ -29,6 +29,9 @@ import org.matsim.core.utils.misc.Time;
 /**
  * This class follows the rules assumed in {@link TravelTimeCalculator}: The constructor arguments
  * timeSlice and maxTime have the same meaning as there, and the last time bin is open ended.
+ * <p></p>
+ * The values are written into a new array when the attribute is recalculated, so {@link #getValue(double)}
+ * needs no lock.
  */
 final class FixedIntervalTimeVariantAttribute
 implements TimeVariantAttribute
@@ -36,11 +39,11 @@ implements TimeVariantAttribute
 	private final int timeSlice;
 	private final int numSlots;
 
-	private double baseValue;
-	private double[] values;
+	private volatile double baseValue;
+	private volatile double[] values;
 
-	private int eventsCount = 0;
-	private int eventsCountWhenLastRecalc = -1;
+	private volatile int eventsCount = 0;
+	private volatile int eventsCountWhenLastRecalc = -1;
 
 
 	public FixedIntervalTimeVariantAttribute(int timeSlice, int maxTime)
@@ -65,15 +68,15 @@ implements TimeVariantAttribute
 		this.baseValue = baseValue1;
 
 		if (eventsCount == 0) {
+			this.values = null;
+			eventsCountWhenLastRecalc = 0;
 			return;
 		}
 
 		//To save memory, the array is constructed only if there is at least one ChangeEvent.
 		//This saves a lot of memory in cases when only one attribute is time variant, while
 		//the remaining two are invariant.
-		if (values == null) {
-			values = new double[numSlots];
-		}
+		double[] values = new double[numSlots];
 
 		int numEvent = 0;
 		int fromBin = 0;//inclusive
@@ -105,6 +108,7 @@ implements TimeVariantAttribute
 			}
 		}
 		Arrays.fill(values, fromBin, values.length, currentValue);
+		this.values = values;
 		eventsCountWhenLastRecalc = eventsCount;
 
 		if (numEvent != this.eventsCount) {
@@ -117,7 +121,9 @@ implements TimeVariantAttribute
 	@Override
 	public double getValue(final double time)
 	{
-		if (time == Time.UNDEFINED_TIME || eventsCount == 0) {
+		// read the array only once, it may be replaced or removed concurrently
+		double[] values = this.values;
+		if (time == Time.UNDEFINED_TIME || values == null) {
 			return baseValue;
 		}
 
@@ -330,7 +330,8 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 	/*package*/ abstract static class HashSetCache {
 		private final static Map<Integer, List<Set<String>>> cache = new ConcurrentHashMap<>();
-		public static Set<String> get(final Set<String> set) {
+		// synchronized, as links may be created by several threads, e.g. by the ParallelNetworkReader
+		public static synchronized Set<String> get(final Set<String> set) {
 			if (set == null) {
 				return null;
 			}
@@ -36,6 +36,9 @@ import org.matsim.api.core.v01.network.*;
 	// member variables
 	//////////////////////////////////////////////////////////////////////
 
+	// The change events are compiled into arrays by the time variant attributes when they are read the next time.
+	// Reading the attributes needs no lock, only applying events and compiling them is synchronized.
+
 	private TreeMap<Double,NetworkChangeEvent> changeEvents;
 
 	private final TimeVariantAttribute variableFreespeed;
@@ -121,10 +124,13 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the freespeed at time <tt>time</tt>.
 	 */
 	@Override
-	public synchronized double getFreespeed(final double time) {
-
+	public double getFreespeed(final double time) {
 		if (variableFreespeed.isRecalcRequired()) {
-			recalcFreespeed();
+			synchronized (this) {
+				if (variableFreespeed.isRecalcRequired()) {
+					recalcFreespeed();
+				}
+			}
 		}
 
 		return variableFreespeed.getValue(time);
@@ -147,10 +153,13 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the flow capacity at time <tt>time</tt>.
 	 */
 	@Override
-	public synchronized double getFlowCapacityPerSec(final double time) {
-
+	public double getFlowCapacityPerSec(final double time) {
 		if (variableFlowCapacity.isRecalcRequired()) {
-			recalcFlowCapacity();
+			synchronized (this) {
+				if (variableFlowCapacity.isRecalcRequired()) {
+					recalcFlowCapacity();
+				}
+			}
 		}
 
 		return variableFlowCapacity.getValue(time);
@@ -171,7 +180,7 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the capacity per network's capperiod timestep
 	 */
 	@Override
-	public synchronized double getCapacity(final double time) {
+	public double getCapacity(final double time) {
 		return getFlowCapacityPerSec(time) * getCapacityPeriod();
 	}
 
@@ -193,9 +202,13 @@ import org.matsim.api.core.v01.network.*;
 	 * encode the (min) width of the link to calculate the flow capacity - [GL] 13may08
 	 */
 	@Override
-	public synchronized double getNumberOfLanes(final double time) {
+	public double getNumberOfLanes(final double time) {
 		if (variableLanes.isRecalcRequired()) {
-			recalcLanes();
+			synchronized (this) {
+				if (variableLanes.isRecalcRequired()) {
+					recalcLanes();
+				}
+			}
 		}
 
 		return variableLanes.getValue(time);
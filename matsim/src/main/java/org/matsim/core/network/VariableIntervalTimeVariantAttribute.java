@@ -24,18 +24,40 @@ import java.util.*;
 import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
 
 
+/**
+ * The values of an attribute are compiled into two arrays, the start times and the values from these times on.
+ * They are replaced as a whole when the attribute is recalculated, so {@link #getValue(double)} needs no lock.
+ * <p></p>
+ * Most lookups (by the QSim, or by a router expanding its search) are for the same or a slightly later time than
+ * the one before, so the index of the last lookup is remembered and checked first, before the binary search.
+ * The index is shared by all threads; as it is validated before it is used, a lookup of another thread only
+ * costs a binary search.
+ */
 final class VariableIntervalTimeVariantAttribute
 implements TimeVariantAttribute
 {
-	private int aEvents = 1;
-	private double[] aValues;
-	private double[] aTimes;
+	private static final class Values {
+		final double[] times;
+		final double[] values;
+
+		Values(double[] times, double[] values) {
+			this.times = times;
+			this.values = values;
+		}
+	}
+
+	/** the number of values: one plus the number of change events */
+	private volatile int aEvents = 1;
+	private volatile Values compiled;
+	private volatile double baseValue;
+	private int cursor = 0;
 
 
 	@Override
 	public boolean isRecalcRequired()
 	{
-		return (this.aTimes == null) || (this.aTimes.length != this.aEvents);
+		Values values = this.compiled;
+		return (values == null) || (values.times.length != this.aEvents);
 		// The first condition just says if there is no material, we don't need to do anything.
 		// yyyy The second condition is a bit weird.  It essentially checks if the cached data structure (aTimes) has
 		// as many entries as it should have (given by aEvents).  This does need, however, an honest calling of
@@ -52,10 +74,12 @@ implements TimeVariantAttribute
 	public void recalc(TreeMap<Double, NetworkChangeEvent> changeEvents,
 			ChangeValueGetter valueGetter, double baseValue)
 	{
-		this.aTimes = new double[this.aEvents];
-		this.aValues = new double[this.aEvents];
-		this.aTimes[0] = Double.NEGATIVE_INFINITY;
-		this.aValues[0] = baseValue;
+		this.baseValue = baseValue;
+		int events = this.aEvents;
+		double[] aTimes = new double[events];
+		double[] aValues = new double[events];
+		aTimes[0] = Double.NEGATIVE_INFINITY;
+		aValues[0] = baseValue;
 
 		int numEvent = 0;
 		if (changeEvents != null) {
@@ -66,19 +90,19 @@ implements TimeVariantAttribute
 					switch( value.getType() ) {
 					case ABSOLUTE_IN_SI_UNITS:
 						// here, we just need to replace the value:
-						this.aValues[++numEvent] = value.getValue();
-						this.aTimes[numEvent] = event.getStartTime();
+						aValues[++numEvent] = value.getValue();
+						aTimes[numEvent] = event.getStartTime();
 						break;
 					case FACTOR: {
 						// there, the change event multiplies what we have so far:
-						double currentValue = this.aValues[numEvent];
-						this.aValues[++numEvent] = currentValue * value.getValue();
-						this.aTimes[numEvent] = event.getStartTime();
+						double currentValue = aValues[numEvent];
+						aValues[++numEvent] = currentValue * value.getValue();
+						aTimes[numEvent] = event.getStartTime();
 						break; }
 					case OFFSET_IN_SI_UNITS: {
-						double currentValue = this.aValues[numEvent];
-						this.aValues[++numEvent] = currentValue + value.getValue();
-						this.aTimes[numEvent] = event.getStartTime();
+						double currentValue = aValues[numEvent];
+						aValues[++numEvent] = currentValue + value.getValue();
+						aTimes[numEvent] = event.getStartTime();
 						break; }
 					default:
 						throw new RuntimeException( "unknown ChangeType" ) ;
@@ -87,20 +111,45 @@ implements TimeVariantAttribute
 			}
 		}
 
-		if (numEvent != this.aEvents - 1) {
-			throw new RuntimeException("Expected number of change events (" + (this.aEvents - 1)
+		if (numEvent != events - 1) {
+			throw new RuntimeException("Expected number of change events (" + (events - 1)
 					+ ") differs from the number of events found (" + numEvent + ")!");
 		}
+		this.compiled = new Values(aTimes, aValues);
 	}
 
 
 	@Override
 	public double getValue(final double time)
 	{
+		// read the compiled values only once, they may be replaced or removed concurrently
+		Values values = this.compiled;
+		if (values == null) {
+			return this.baseValue;
+		}
+		double[] aTimes = values.times;
+		int key = this.cursor;
+		if (key < aTimes.length && aTimes[key] <= time) {
+			// the same or a later interval as the last lookup
+			int steps = 0;
+			while (key + 1 < aTimes.length && aTimes[key + 1] <= time) {
+				key++;
+				if (++steps > 2) {
+					key = search(aTimes, time);
+					break;
+				}
+			}
+		} else {
+			key = search(aTimes, time);
+		}
+		this.cursor = key;
+		return values.values[key];
+	}
+
+	private static int search(double[] aTimes, double time) {
 		// after we have put everything into an array by recalc, we just need a binary search:
-		int key = Arrays.binarySearch(this.aTimes, time);
-		key = key >= 0 ? key : -key - 2;
-		return this.aValues[key];
+		int key = Arrays.binarySearch(aTimes, time);
+		return key >= 0 ? key : -key - 2;
 	}
 
 
@@ -114,8 +163,7 @@ implements TimeVariantAttribute
 	@Override
 	public void clearEvents()
 	{
-		aTimes = null;
-		aValues = null;
+		compiled = null;
 		aEvents = 1;
 	}
 }
@@ -65,6 +65,7 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 	private final String externalInputCRS;
 	private final String targetCRS;
 	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
+	private String transformationInputCRS = null;
 
 	private final static Logger log = Logger.getLogger(NetworkReaderMatsimV2.class);
 
@@ -76,11 +77,19 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 		this.targetCRS = targetCRS;
 		if (externalInputCRS != null && targetCRS != null) {
 			this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(externalInputCRS, targetCRS);
+			this.transformationInputCRS = externalInputCRS;
 			ProjectionUtils.putCRS(network, targetCRS);
 		}
 		this.network = network;
 	}
 
+	/**
+	 * @return the CRS the coordinates are currently transformed from, or <code>null</code> if they are not transformed
+	 */
+	/*package*/ String getTransformationInputCRS() {
+		return this.transformationInputCRS;
+	}
+
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
 		switch( name ) {
@@ -115,6 +124,7 @@ final class NetworkReaderMatsimV2 extends MatsimXmlParser {
 							log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
 						}
 						coordinateTransformation = TransformationFactory.getCoordinateTransformation(inputCRS, targetCRS);
+						transformationInputCRS = inputCRS;
 						ProjectionUtils.putCRS(network, targetCRS);
 					}
 				}
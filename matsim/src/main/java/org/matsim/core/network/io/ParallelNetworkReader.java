@@ -0,0 +1,244 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelNetworkReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.io.ChunkedMatsimXmlParser;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A network reader that reads files of the format <code>network_v2.dtd</code> in parallel, see
+ * {@link ChunkedMatsimXmlParser}. Nodes and links are parsed in chunks on several threads and added to
+ * the network in the order of the file. As the links refer to the nodes, all nodes are added before
+ * the first link is parsed. Files in other formats are read by a {@link MatsimNetworkReader}.
+ */
+public final class ParallelNetworkReader extends ChunkedMatsimXmlParser<ParallelNetworkReader.ChunkNetwork> {
+
+	private final static String NETWORK_V2 = "network_v2.dtd";
+	private final static String NODES = "nodes";
+	private final static String LINKS = "links";
+	private final static String NODE = "node";
+	private final static String LINK = "link";
+	private final static int ELEMENTS_PER_CHUNK = 5000;
+
+	private final String inputCRS;
+	private final String targetCRS;
+	private final Network network;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+
+	private NetworkReaderMatsimV2 mainParser = null;
+
+	public ParallelNetworkReader(final Network network, final int numberOfThreads) {
+		this(null, null, network, numberOfThreads);
+	}
+
+	public ParallelNetworkReader(final String inputCRS, final String targetCRS, final Network network, final int numberOfThreads) {
+		this(inputCRS, targetCRS, network, numberOfThreads, ELEMENTS_PER_CHUNK);
+	}
+
+	/*package*/ ParallelNetworkReader(final String inputCRS, final String targetCRS, final Network network, final int numberOfThreads, final int elementsPerChunk) {
+		super(numberOfThreads, elementsPerChunk);
+		this.inputCRS = inputCRS;
+		this.targetCRS = targetCRS;
+		this.network = network;
+		// defaults from network_v2.dtd
+		setDefaultAttribute(LINKS, "capperiod", "01:00:00");
+		setDefaultAttribute(LINKS, "effectivecellsize", "7.5");
+		setDefaultAttribute(LINKS, "effectivelanewidth", "3.75");
+		setDefaultAttribute(LINK, "modes", "car");
+	}
+
+	public void putAttributeConverter(Class<?> clazz, AttributeConverter<?> converter) {
+		this.converters.put( clazz, converter );
+	}
+
+	public void putAttributeConverters(Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		this.converters.putAll( attributeConverters );
+	}
+
+	@Override
+	protected MatsimXmlParser createMainParser(final String doctype) {
+		if (!NETWORK_V2.equals(doctype)) {
+			return null;
+		}
+		this.mainParser = new NetworkReaderMatsimV2(this.inputCRS, this.targetCRS, this.network);
+		this.mainParser.putAttributeConverters(this.converters);
+		return this.mainParser;
+	}
+
+	@Override
+	protected MatsimXmlParser createSequentialParser() {
+		MatsimNetworkReader reader = new MatsimNetworkReader(this.inputCRS, this.targetCRS, this.network);
+		reader.putAttributeConverters(this.converters);
+		return reader;
+	}
+
+	@Override
+	protected boolean isChunkElement(final String name, final Stack<String> context) {
+		return (NODE.equals(name) && NODES.equals(context.peek())) || (LINK.equals(name) && LINKS.equals(context.peek()));
+	}
+
+	@Override
+	protected Chunk<ChunkNetwork> createChunk() {
+		final ChunkNetwork chunkNetwork = new ChunkNetwork(this.network);
+		// the chunks have to use the coordinate transformation that is defined by now, possibly in the file
+		final NetworkReaderMatsimV2 parser = new NetworkReaderMatsimV2(this.mainParser.getTransformationInputCRS(), this.targetCRS, chunkNetwork);
+		parser.putAttributeConverters(this.converters);
+		return new Chunk<ChunkNetwork>() {
+			@Override
+			public MatsimXmlParser getParser() {
+				return parser;
+			}
+
+			@Override
+			public ChunkNetwork getResult() {
+				return chunkNetwork;
+			}
+		};
+	}
+
+	@Override
+	protected void mergeChunk(final ChunkNetwork chunkNetwork) {
+		for (Node node : chunkNetwork.nodes) {
+			this.network.addNode(node);
+		}
+		for (Link link : chunkNetwork.links) {
+			this.network.addLink(link);
+		}
+	}
+
+	@Override
+	protected void finish() {
+		if (this.targetCRS != null) {
+			ProjectionUtils.putCRS(this.network, this.targetCRS);
+		}
+	}
+
+	/**
+	 * Collects the nodes and links of a chunk. Nodes and links are created by the factory of the network
+	 * that is read, and links refer to its nodes, which are all added before the first link chunk is parsed.
+	 */
+	static final class ChunkNetwork implements Network {
+
+		private final Network network;
+		private final List<Node> nodes = new ArrayList<>();
+		private final List<Link> links = new ArrayList<>();
+
+		ChunkNetwork(final Network network) {
+			this.network = network;
+		}
+
+		@Override
+		public void addNode(final Node nn) {
+			this.nodes.add(nn);
+		}
+
+		@Override
+		public void addLink(final Link ll) {
+			this.links.add(ll);
+		}
+
+		@Override
+		public NetworkFactory getFactory() {
+			return this.network.getFactory();
+		}
+
+		@Override
+		public Map<Id<Node>, ? extends Node> getNodes() {
+			return this.network.getNodes();
+		}
+
+		@Override
+		public Map<Id<Link>, ? extends Link> getLinks() {
+			return this.network.getLinks();
+		}
+
+		@Override
+		public Attributes getAttributes() {
+			return this.network.getAttributes();
+		}
+
+		@Override
+		public double getCapacityPeriod() {
+			return this.network.getCapacityPeriod();
+		}
+
+		@Override
+		public double getEffectiveLaneWidth() {
+			return this.network.getEffectiveLaneWidth();
+		}
+
+		@Override
+		public double getEffectiveCellSize() {
+			return this.network.getEffectiveCellSize();
+		}
+
+		@Override
+		public String getName() {
+			return this.network.getName();
+		}
+
+		@Override
+		public Node removeNode(final Id<Node> nodeId) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Link removeLink(final Id<Link> linkId) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setCapacityPeriod(final double capPeriod) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setEffectiveCellSize(final double effectiveCellSize) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setEffectiveLaneWidth(final double effectiveLaneWidth) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setName(final String name) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
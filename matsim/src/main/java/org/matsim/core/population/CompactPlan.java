@@ -0,0 +1,404 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A plan that can store its plan elements in two packed arrays instead of an object graph: one int array
+ * for types, modes, ids and route links, one double array for coordinates and times. Ids are stored by their
+ * {@link Id#index()}, activity types and modes by their index in a global string table.
+ * <p></p>
+ * The plan elements are materialized as ordinary activities and legs as soon as {@link #getPlanElements()}
+ * (or one of the add methods) is called, since the callers keep references to them and modify the list.
+ * They stay materialized until {@link #compact()} is called again. Only plans of the core activity and leg
+ * implementations without element attributes are compacted, and only network routes of the default implementation are packed; all other routes are kept
+ * as they are.
+ *
+ * @see CompactPopulation
+ */
+/* deliberately package */ final class CompactPlan implements Plan {
+
+	private static final int ACTIVITY = 0;
+	private static final int ACTIVITY_WITH_COORD = 1;
+	private static final int ACTIVITY_WITH_COORD_AND_Z = 2;
+	private static final int LEG = 3;
+	private static final int LEG_WITH_LINKS = 4;
+	private static final int LEG_WITH_ROUTE = 5;
+
+	private static final int NONE = -1;
+
+	private static final Class<?> LINK_NETWORK_ROUTE = RouteUtils.createLinkNetworkRouteImpl(null, null).getClass();
+
+	private static final Map<String, Integer> stringIndices = new HashMap<>();
+	private static volatile String[] strings = new String[0];
+
+	/** the materialized plan elements, or <code>null</code> if the plan is compacted */
+	private ArrayList<PlanElement> planElements = new ArrayList<>();
+	private int[] ints = null;
+	private double[] doubles = null;
+	private Route[] routes = null;
+	private int size = 0;
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+	private Attributes attributes = null;
+	private Customizable customizableDelegate = null;
+
+	/**
+	 * Creates a plan with the same properties as the given one. The plan elements are not copied but shared.
+	 */
+	static CompactPlan of(final Plan plan) {
+		CompactPlan compactPlan = new CompactPlan();
+		compactPlan.planElements.addAll(plan.getPlanElements());
+		compactPlan.score = plan.getScore();
+		compactPlan.person = plan.getPerson();
+		compactPlan.type = plan.getType();
+		if (!plan.getAttributes().isEmpty()) {
+			for (Map.Entry<String, Object> entry : plan.getAttributes().getAsMap().entrySet()) {
+				compactPlan.getAttributes().putAttribute(entry.getKey(), entry.getValue());
+			}
+		}
+		if (!plan.getCustomAttributes().isEmpty()) {
+			compactPlan.getCustomAttributes().putAll(plan.getCustomAttributes());
+		}
+		return compactPlan;
+	}
+
+	/**
+	 * Packs the plan elements into the arrays, if possible.
+	 *
+	 * @return true if the plan is compacted now
+	 */
+	boolean compact() {
+		if (this.planElements == null) {
+			return true;
+		}
+		if (!isCompactable()) {
+			return false;
+		}
+		int intCount = 0;
+		int doubleCount = 0;
+		int routeCount = 0;
+		for (PlanElement pe : this.planElements) {
+			// other implementations of activities and legs may have additional state, and would be materialized as core ones
+			if (pe.getClass() == ActivityImpl.class) {
+				Activity act = (Activity) pe;
+				intCount += 4;
+				doubleCount += 3 + (act.getCoord() == null ? 0 : act.getCoord().hasZ() ? 3 : 2);
+			} else {
+				Route route = ((Leg) pe).getRoute();
+				intCount += 2;
+				doubleCount += 2;
+				if (route != null && route.getClass() == LINK_NETWORK_ROUTE) {
+					intCount += 4 + ((NetworkRoute) route).getLinkIds().size();
+					doubleCount += 3;
+				} else if (route != null) {
+					intCount++;
+					routeCount++;
+				}
+			}
+		}
+
+		int[] ints = new int[intCount];
+		double[] doubles = new double[doubleCount];
+		Route[] routes = routeCount == 0 ? null : new Route[routeCount];
+		int i = 0;
+		int d = 0;
+		int r = 0;
+		for (PlanElement pe : this.planElements) {
+			// other implementations of activities and legs may have additional state, and would be materialized as core ones
+			if (pe.getClass() == ActivityImpl.class) {
+				Activity act = (Activity) pe;
+				Coord coord = act.getCoord();
+				ints[i++] = coord == null ? ACTIVITY : coord.hasZ() ? ACTIVITY_WITH_COORD_AND_Z : ACTIVITY_WITH_COORD;
+				ints[i++] = indexOf(act.getType());
+				ints[i++] = indexOf(act.getLinkId());
+				ints[i++] = indexOf(act.getFacilityId());
+				if (coord != null) {
+					doubles[d++] = coord.getX();
+					doubles[d++] = coord.getY();
+					if (coord.hasZ()) {
+						doubles[d++] = coord.getZ();
+					}
+				}
+				doubles[d++] = act.getStartTime();
+				doubles[d++] = act.getEndTime();
+				doubles[d++] = act.getMaximumDuration();
+			} else {
+				Leg leg = (Leg) pe;
+				Route route = leg.getRoute();
+				ints[i++] = route == null ? LEG : route.getClass() == LINK_NETWORK_ROUTE ? LEG_WITH_LINKS : LEG_WITH_ROUTE;
+				ints[i++] = indexOf(leg.getMode());
+				doubles[d++] = leg.getDepartureTime();
+				doubles[d++] = leg.getTravelTime();
+				if (route != null && route.getClass() == LINK_NETWORK_ROUTE) {
+					NetworkRoute networkRoute = (NetworkRoute) route;
+					ints[i++] = indexOf(networkRoute.getStartLinkId());
+					ints[i++] = indexOf(networkRoute.getEndLinkId());
+					ints[i++] = indexOf(networkRoute.getVehicleId());
+					ints[i++] = networkRoute.getLinkIds().size();
+					for (Id<Link> linkId : networkRoute.getLinkIds()) {
+						ints[i++] = linkId.index();
+					}
+					doubles[d++] = networkRoute.getDistance();
+					doubles[d++] = networkRoute.getTravelTime();
+					doubles[d++] = networkRoute.getTravelCost();
+				} else if (route != null) {
+					ints[i++] = r;
+					routes[r++] = route;
+				}
+			}
+		}
+		this.ints = ints;
+		this.doubles = doubles;
+		this.routes = routes;
+		this.size = this.planElements.size();
+		this.planElements = null;
+		return true;
+	}
+
+	boolean isCompacted() {
+		return this.planElements == null;
+	}
+
+	private boolean isCompactable() {
+		for (PlanElement pe : this.planElements) {
+			// other implementations of activities and legs may have additional state, and would be materialized as core ones
+			if (pe.getClass() == ActivityImpl.class) {
+				Activity act = (Activity) pe;
+				if (act.getType() == null || !act.getAttributes().isEmpty() || !isIndexed(act.getLinkId(), Link.class)
+						|| !isIndexed(act.getFacilityId(), ActivityFacility.class)) {
+					return false;
+				}
+			} else if (pe.getClass() == LegImpl.class) {
+				Leg leg = (Leg) pe;
+				if (!leg.getAttributes().isEmpty()) {
+					return false;
+				}
+				Route route = leg.getRoute();
+				if (route != null && route.getClass() == LINK_NETWORK_ROUTE) {
+					NetworkRoute networkRoute = (NetworkRoute) route;
+					if (!isIndexed(networkRoute.getStartLinkId(), Link.class) || !isIndexed(networkRoute.getEndLinkId(), Link.class)
+							|| !isIndexed(networkRoute.getVehicleId(), Vehicle.class)) {
+						return false;
+					}
+					for (Id<Link> linkId : networkRoute.getLinkIds()) {
+						if (!isIndexed(linkId, Link.class)) {
+							return false;
+						}
+					}
+				}
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the id can be restored from its index, i.e. it was created with the given type.
+	 */
+	private static boolean isIndexed(final Id<?> id, final Class<?> type) {
+		return id == null || Id.get(id.index(), type) == id;
+	}
+
+	private List<PlanElement> materialize() {
+		if (this.planElements != null) {
+			return this.planElements;
+		}
+		String[] strings = CompactPlan.strings;
+		ArrayList<PlanElement> planElements = new ArrayList<>(this.size);
+		int i = 0;
+		int d = 0;
+		while (planElements.size() < this.size) {
+			int kind = this.ints[i++];
+			if (kind <= ACTIVITY_WITH_COORD_AND_Z) {
+				ActivityImpl act = new ActivityImpl(strings[this.ints[i++]]);
+				act.setLinkId(Id.get(this.ints[i++], Link.class));
+				act.setFacilityId(Id.get(this.ints[i++], ActivityFacility.class));
+				if (kind == ACTIVITY_WITH_COORD) {
+					act.setCoord(new Coord(this.doubles[d], this.doubles[d + 1]));
+					d += 2;
+				} else if (kind == ACTIVITY_WITH_COORD_AND_Z) {
+					act.setCoord(new Coord(this.doubles[d], this.doubles[d + 1], this.doubles[d + 2]));
+					d += 3;
+				}
+				act.setStartTime(this.doubles[d++]);
+				act.setEndTime(this.doubles[d++]);
+				act.setMaximumDuration(this.doubles[d++]);
+				planElements.add(act);
+			} else {
+				int mode = this.ints[i++];
+				LegImpl leg = new LegImpl(mode == NONE ? null : strings[mode]);
+				leg.setDepartureTime(this.doubles[d++]);
+				leg.setTravelTime(this.doubles[d++]);
+				if (kind == LEG_WITH_LINKS) {
+					Id<Link> startLinkId = Id.get(this.ints[i++], Link.class);
+					Id<Link> endLinkId = Id.get(this.ints[i++], Link.class);
+					Id<Vehicle> vehicleId = Id.get(this.ints[i++], Vehicle.class);
+					int n = this.ints[i++];
+					List<Id<Link>> linkIds = new ArrayList<>(n);
+					for (int k = 0; k < n; k++) {
+						linkIds.add(Id.get(this.ints[i++], Link.class));
+					}
+					NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(startLinkId, linkIds, endLinkId);
+					route.setVehicleId(vehicleId);
+					route.setDistance(this.doubles[d++]);
+					route.setTravelTime(this.doubles[d++]);
+					route.setTravelCost(this.doubles[d++]);
+					leg.setRoute(route);
+				} else if (kind == LEG_WITH_ROUTE) {
+					leg.setRoute(this.routes[this.ints[i++]]);
+				}
+				planElements.add(leg);
+			}
+		}
+		this.planElements = planElements;
+		this.ints = null;
+		this.doubles = null;
+		this.routes = null;
+		return planElements;
+	}
+
+	private static int indexOf(final Id<?> id) {
+		return id == null ? NONE : id.index();
+	}
+
+	private static int indexOf(final String string) {
+		if (string == null) {
+			return NONE;
+		}
+		synchronized (stringIndices) {
+			Integer index = stringIndices.get(string);
+			if (index == null) {
+				index = strings.length;
+				stringIndices.put(string, index);
+				String[] copy = Arrays.copyOf(strings, index + 1);
+				copy[index] = string.intern();
+				strings = copy;
+			}
+			return index;
+		}
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		return materialize();
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		materialize().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		materialize().add(act);
+	}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + (this.planElements == null ? this.size : this.planElements.size()) + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" +
+				"[compacted=" + isCompacted() + "]";
+	}
+
+}
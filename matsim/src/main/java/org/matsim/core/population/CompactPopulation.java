@@ -0,0 +1,156 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPopulation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A {@link Population} that stores the plans of its persons in packed arrays while they are not in use.
+ * <p></p>
+ * All plans of a person are replaced by {@link CompactPlan}s when the person is added, and compacted. A plan
+ * is materialized again as soon as its plan elements are accessed, so routers, the mobsim agents and the
+ * replanning modules see ordinary activities and legs. {@link #compact()} packs all plans that are not selected
+ * again; it is called after the replanning, when those plans are not referenced from anywhere else.
+ * Plans that are created later, e.g. by the replanning, are converted by {@link #compact()} as well.
+ */
+public final class CompactPopulation implements Population {
+	private static final Logger log = Logger.getLogger(CompactPopulation.class);
+
+	private final Population delegate;
+
+	public CompactPopulation(final Config config, final Network network) {
+		this.delegate = PopulationUtils.createPopulation(config, network);
+	}
+
+	@Override
+	public void addPerson(final Person p) {
+		convertPlans(p, true);
+		this.delegate.addPerson(p);
+	}
+
+	/**
+	 * Packs all plans that are not selected. Must only be called when nobody holds a reference to the plan
+	 * elements of these plans.
+	 */
+	public void compact() {
+		int plans = 0;
+		int compacted = 0;
+		for (Person person : this.delegate.getPersons().values()) {
+			compacted += convertPlans(person, false);
+			plans += person.getPlans().size();
+		}
+		log.info(compacted + " of " + plans + " plans are compacted.");
+	}
+
+	/**
+	 * @return the number of compacted plans of the person
+	 */
+	private static int convertPlans(final Person person, final boolean includingSelected) {
+		int compacted = 0;
+		boolean converted = false;
+		Plan selectedPlan = person.getSelectedPlan();
+		CompactPlan selectedCompactPlan = null;
+		List<Plan> plans = new ArrayList<>(person.getPlans());
+		List<CompactPlan> compactPlans = new ArrayList<>(plans.size());
+		for (Plan plan : plans) {
+			boolean selected = plan == selectedPlan;
+			CompactPlan compactPlan;
+			if (plan instanceof CompactPlan) {
+				compactPlan = (CompactPlan) plan;
+			} else {
+				compactPlan = CompactPlan.of(plan);
+				compactPlan.setPerson(person);
+				converted = true;
+			}
+			if (selected) {
+				selectedCompactPlan = compactPlan;
+			}
+			if (includingSelected || !selected) {
+				compactPlan.compact();
+			}
+			if (compactPlan.isCompacted()) {
+				compacted++;
+			}
+			compactPlans.add(compactPlan);
+		}
+		if (converted) {
+			// unselect first, so that removePlan does not select one of the remaining plans at random
+			person.setSelectedPlan(null);
+			for (Plan plan : plans) {
+				person.removePlan(plan);
+			}
+			for (CompactPlan compactPlan : compactPlans) {
+				person.addPlan(compactPlan);
+			}
+			person.setSelectedPlan(selectedCompactPlan);
+		}
+		return compacted;
+	}
+
+	@Override
+	public Person removePerson(final Id<Person> personId) {
+		return this.delegate.removePerson(personId);
+	}
+
+	@Override
+	public Map<Id<Person>, ? extends Person> getPersons() {
+		return this.delegate.getPersons();
+	}
+
+	@Override
+	public PopulationFactory getFactory() {
+		return this.delegate.getFactory();
+	}
+
+	@Override
+	public String getName() {
+		return this.delegate.getName();
+	}
+
+	@Override
+	public void setName(final String name) {
+		this.delegate.setName(name);
+	}
+
+	@Override
+	public ObjectAttributes getPersonAttributes() {
+		return this.delegate.getPersonAttributes();
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return this.delegate.getAttributes();
+	}
+
+}
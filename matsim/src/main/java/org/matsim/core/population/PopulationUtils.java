@@ -25,6 +25,7 @@ import java.io.InputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -32,6 +33,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -53,6 +55,7 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.io.DiskBackedPopulation;
 import org.matsim.core.population.io.PopulationWriter;
 import org.matsim.core.population.io.StreamingPopulationReader;
 import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
@@ -1008,6 +1011,20 @@ public final class PopulationUtils {
 		}
 	}
 
+	/**
+	 * Passes the persons of the population to the consumer. A {@link DiskBackedPopulation} is passed chunk by chunk,
+	 * and each chunk stays in memory until the consumer returns; all other populations are passed at once.
+	 * Use this instead of {@link Population#getPersons()} when references to the persons or their plans are kept
+	 * over the whole loop.
+	 */
+	public static void forEachChunk( Population population, Consumer<Collection<Person>> consumer ) {
+		if ( population instanceof DiskBackedPopulation ) {
+			((DiskBackedPopulation) population).forEachChunk( consumer );
+		} else {
+			consumer.accept( Collections.unmodifiableCollection( population.getPersons().values() ) );
+		}
+	}
+
 	public static void printPlansCount( Population population ) {
 		log.info(" person # " + population.getPersons().size() );
 	}
@@ -21,6 +21,7 @@
 package org.matsim.core.population.algorithms;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -28,6 +29,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.utils.misc.Counter;
 
 /**
@@ -66,12 +68,17 @@ public final class ParallelPersonAlgorithmUtils {
 	 * using up to <code>numberOfThreads</code> threads to speed things up. This method will request a new instance of the
 	 * AbstractPersonAlgorithm for each thread it allocates, thus enabling the parallel use of non-thread-safe algorithms.
 	 * For thread-safe algorithms, {@link #run(Population, int, AbstractPersonAlgorithm)} may be an easier method to use.
+	 * A population that is kept on disk is handled chunk by chunk.
 	 *
 	 * @param population
 	 * @param numberOfThreads
 	 * @param algoProvider
 	 */
 	public static void run(final Population population, final int numberOfThreads, final PersonAlgorithmProvider algoProvider) {
+		PopulationUtils.forEachChunk(population, persons -> run(persons, numberOfThreads, algoProvider));
+	}
+
+	private static void run(final Collection<Person> persons, final int numberOfThreads, final PersonAlgorithmProvider algoProvider) {
 		int numOfThreads = Math.max(numberOfThreads, 1); // it should be at least 1 here; we allow 0 in other places for "no threads"
 		PersonAlgoThread[] algoThreads = new PersonAlgoThread[numOfThreads];
 		Thread[] threads = new Thread[numOfThreads];
@@ -97,7 +104,7 @@ public final class ParallelPersonAlgorithmUtils {
 
 		// distribute workload between threads, as long as threads are not yet started, so we don't need synchronized data structures
 		int i = 0;
-		for (Person person : population.getPersons().values()) {
+		for (Person person : persons) {
 			algoThreads[i % numOfThreads].handlePerson(person);
 			i++;
 		}
@@ -0,0 +1,397 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DiskBackedPopulation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.MutableScenario;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.collections.IdMap;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A {@link Population} that keeps only a bounded number of persons in memory.
+ * <p></p>
+ * The persons are grouped into chunks of a fixed number of persons, in the order in which they were added.
+ * Each chunk is stored as a compressed plans file (format v6) in a spill directory and only loaded when one
+ * of its persons is accessed. At most <code>chunksInMemory</code> chunks are kept in memory; when another chunk
+ * is needed, the least recently used one is written back and dropped.
+ * <p></p>
+ * A person object is thus only valid as long as its chunk stays in memory: changes made to it after the chunk
+ * was dropped are lost, and a later lookup returns a new instance. Sequential loops over {@link #getPersons()}
+ * are fine, as the chunk that is iterated over is always the most recently used one. Code that keeps persons
+ * or plans over a whole pass, like the replanning strategies, has to use {@link #forEachChunk(Consumer)}
+ * (or {@link PopulationUtils#forEachChunk(Population, Consumer)}), which keeps the chunk in memory until the
+ * consumer returns.
+ * <p></p>
+ * Everything that is not written to a plans file, like the custom attributes of persons and plans, is lost when
+ * a chunk is dropped. Person attributes in {@link #getPersonAttributes()} are kept in memory.
+ */
+public final class DiskBackedPopulation implements Population {
+	private static final Logger log = Logger.getLogger(DiskBackedPopulation.class);
+
+	private final Population delegate;
+	private final MutableScenario scratchScenario;
+	private final PopulationWriterHandlerImplV6 writerHandler = new PopulationWriterHandlerImplV6(new IdentityTransformation());
+	private Map<Class<?>, AttributeConverter<?>> attributeConverters = Collections.emptyMap();
+
+	private final File directory;
+	private final int personsPerChunk;
+	private final int chunksInMemory;
+
+	private final List<Chunk> chunks = new ArrayList<>();
+	private final IdMap<Person, Chunk> chunkOfPerson = new IdMap<>(Person.class);
+	/** the chunks currently in memory, the least recently used first */
+	private final Set<Chunk> loadedChunks = new LinkedHashSet<>();
+	private final Map<Id<Person>, Person> personsView = new PersonsView();
+	private long chunkReads = 0;
+	private long chunkWrites = 0;
+
+	/**
+	 * @param directory where the chunks are stored. If <code>null</code>, a temporary directory is created. The
+	 * 		chunk files are deleted when the JVM exits.
+	 */
+	public DiskBackedPopulation(final Config config, final File directory, final int personsPerChunk, final int chunksInMemory) {
+		if (personsPerChunk < 1 || chunksInMemory < 1) {
+			throw new IllegalArgumentException("personsPerChunk and chunksInMemory must be positive, but are " + personsPerChunk + " and " + chunksInMemory);
+		}
+		this.delegate = PopulationUtils.createPopulation(config);
+		this.scratchScenario = ScenarioUtils.createMutableScenario(config);
+		this.personsPerChunk = personsPerChunk;
+		this.chunksInMemory = chunksInMemory;
+		try {
+			if (directory == null) {
+				this.directory = Files.createTempDirectory("matsim-population").toFile();
+			} else {
+				this.directory = directory;
+				Files.createDirectories(directory.toPath());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.directory.deleteOnExit();
+		log.info("keeping at most " + chunksInMemory + " chunks of " + personsPerChunk + " persons in memory, the others are stored in " + this.directory);
+	}
+
+	/**
+	 * Sets the converters used to write and read the attributes of the persons and their plans.
+	 */
+	public synchronized void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributeConverters = converters;
+		this.writerHandler.putAttributeConverters(converters);
+	}
+
+	@Override
+	public synchronized void addPerson(final Person p) {
+		if (this.chunkOfPerson.containsKey(p.getId())) {
+			throw new IllegalArgumentException("Person with id = " + p.getId() + " already exists.");
+		}
+		Chunk chunk = this.chunks.isEmpty() ? null : this.chunks.get(this.chunks.size() - 1);
+		if (chunk == null || chunk.size >= this.personsPerChunk) {
+			File file = new File(this.directory, "persons." + this.chunks.size() + ".xml.deflate");
+			file.deleteOnExit();
+			chunk = new Chunk(file);
+			chunk.persons = new LinkedHashMap<>();
+			this.chunks.add(chunk);
+		}
+		load(chunk).put(p.getId(), p);
+		chunk.size++;
+		this.chunkOfPerson.put(p.getId(), chunk);
+	}
+
+	@Override
+	public synchronized Person removePerson(final Id<Person> personId) {
+		Chunk chunk = this.chunkOfPerson.remove(personId);
+		if (chunk == null) {
+			return null;
+		}
+		chunk.size--;
+		return load(chunk).remove(personId);
+	}
+
+	/**
+	 * @return a view of the persons that loads the chunks as they are needed. The view cannot be modified,
+	 * 		use {@link #addPerson(Person)} and {@link #removePerson(Id)} instead.
+	 */
+	@Override
+	public Map<Id<Person>, ? extends Person> getPersons() {
+		return this.personsView;
+	}
+
+	/**
+	 * Passes the persons to the consumer chunk by chunk, in the order in which they were added. Each chunk is
+	 * kept in memory until the consumer returns, even if other chunks are loaded in the meantime.
+	 */
+	public void forEachChunk(final Consumer<Collection<Person>> consumer) {
+		for (int i = 0; i < numberOfChunks(); i++) {
+			Chunk chunk;
+			List<Person> persons;
+			synchronized (this) {
+				chunk = this.chunks.get(i);
+				if (chunk.size == 0) {
+					continue;
+				}
+				persons = new ArrayList<>(load(chunk).values());
+				chunk.pinned++;
+			}
+			try {
+				consumer.accept(Collections.unmodifiableList(persons));
+			} finally {
+				synchronized (this) {
+					chunk.pinned--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes all chunks that are in memory to disk and drops them.
+	 */
+	public synchronized void flush() {
+		for (Chunk chunk : new ArrayList<>(this.loadedChunks)) {
+			if (chunk.pinned == 0) {
+				drop(chunk);
+			}
+		}
+		log.info("read " + this.chunkReads + " and wrote " + this.chunkWrites + " chunks of " + this.chunks.size() + " so far");
+	}
+
+	@Override
+	public PopulationFactory getFactory() {
+		return this.delegate.getFactory();
+	}
+
+	@Override
+	public String getName() {
+		return this.delegate.getName();
+	}
+
+	@Override
+	public void setName(final String name) {
+		this.delegate.setName(name);
+	}
+
+	@Override
+	public ObjectAttributes getPersonAttributes() {
+		return this.delegate.getPersonAttributes();
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return this.delegate.getAttributes();
+	}
+
+	private synchronized int numberOfChunks() {
+		return this.chunks.size();
+	}
+
+	private Map<Id<Person>, Person> load(final Chunk chunk) {
+		// move the chunk to the end of the lru order
+		this.loadedChunks.remove(chunk);
+		this.loadedChunks.add(chunk);
+		if (chunk.persons == null) {
+			chunk.persons = read(chunk.file);
+			this.chunkReads++;
+		}
+		Iterator<Chunk> iter = this.loadedChunks.iterator();
+		int excess = this.loadedChunks.size() - this.chunksInMemory;
+		while (excess > 0 && iter.hasNext()) {
+			Chunk candidate = iter.next();
+			if (candidate != chunk && candidate.pinned == 0) {
+				iter.remove();
+				write(candidate);
+				excess--;
+			}
+		}
+		return chunk.persons;
+	}
+
+	private void drop(final Chunk chunk) {
+		this.loadedChunks.remove(chunk);
+		write(chunk);
+	}
+
+	private void write(final Chunk chunk) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new DeflaterOutputStream(
+				new BufferedOutputStream(new FileOutputStream(chunk.file)), deflater), StandardCharsets.UTF_8))) {
+			out.write("<population>\n\n");
+			for (Person person : chunk.persons.values()) {
+				this.writerHandler.writePerson(person, out);
+			}
+			this.writerHandler.endPlans(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			deflater.end();
+		}
+		chunk.persons = null;
+		this.chunkWrites++;
+	}
+
+	private Map<Id<Person>, Person> read(final File file) {
+		PopulationReaderMatsimV6 reader = new PopulationReaderMatsimV6(null, null, this.scratchScenario);
+		reader.putAttributeConverters(this.attributeConverters);
+		reader.setValidating(false);
+		Inflater inflater = new Inflater();
+		try (InputStream in = new InflaterInputStream(new BufferedInputStream(new FileInputStream(file)), inflater)) {
+			reader.parse(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			inflater.end();
+		}
+		Population scratch = this.scratchScenario.getPopulation();
+		Map<Id<Person>, Person> persons = new LinkedHashMap<>();
+		for (Person person : scratch.getPersons().values()) {
+			persons.put(person.getId(), person);
+		}
+		for (Id<Person> personId : persons.keySet()) {
+			scratch.removePerson(personId);
+		}
+		return persons;
+	}
+
+	private static final class Chunk {
+		private final File file;
+		/** the persons of this chunk if it is in memory, <code>null</code> otherwise */
+		private Map<Id<Person>, Person> persons = null;
+		private int size = 0;
+		private int pinned = 0;
+
+		Chunk(final File file) {
+			this.file = file;
+		}
+	}
+
+	private final class PersonsView extends AbstractMap<Id<Person>, Person> {
+
+		@Override
+		public int size() {
+			synchronized (DiskBackedPopulation.this) {
+				return DiskBackedPopulation.this.chunkOfPerson.size();
+			}
+		}
+
+		@Override
+		public boolean containsKey(final Object key) {
+			synchronized (DiskBackedPopulation.this) {
+				return DiskBackedPopulation.this.chunkOfPerson.containsKey(key);
+			}
+		}
+
+		@Override
+		public Person get(final Object key) {
+			synchronized (DiskBackedPopulation.this) {
+				Chunk chunk = DiskBackedPopulation.this.chunkOfPerson.get(key);
+				return chunk == null ? null : load(chunk).get(key);
+			}
+		}
+
+		@Override
+		public Set<Map.Entry<Id<Person>, Person>> entrySet() {
+			return new AbstractSet<Map.Entry<Id<Person>, Person>>() {
+				@Override
+				public Iterator<Map.Entry<Id<Person>, Person>> iterator() {
+					return new PersonsIterator();
+				}
+
+				@Override
+				public int size() {
+					return PersonsView.this.size();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Iterates over the persons chunk by chunk. The persons of the current chunk are copied, so loading other
+	 * chunks in between does not invalidate the iterator.
+	 */
+	private final class PersonsIterator implements Iterator<Map.Entry<Id<Person>, Person>> {
+		private int nextChunk = 0;
+		private Iterator<Person> current = Collections.emptyIterator();
+
+		@Override
+		public boolean hasNext() {
+			while (!this.current.hasNext()) {
+				synchronized (DiskBackedPopulation.this) {
+					if (this.nextChunk >= DiskBackedPopulation.this.chunks.size()) {
+						return false;
+					}
+					Chunk chunk = DiskBackedPopulation.this.chunks.get(this.nextChunk++);
+					if (chunk.size > 0) {
+						this.current = new ArrayList<>(load(chunk).values()).iterator();
+					}
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Map.Entry<Id<Person>, Person> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Person person = this.current.next();
+			return new AbstractMap.SimpleImmutableEntry<>(person.getId(), person);
+		}
+	}
+
+}
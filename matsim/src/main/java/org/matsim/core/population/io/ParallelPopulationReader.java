@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.ChunkedMatsimXmlParser;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A population reader that reads files of the format <code>population_v6.dtd</code> in parallel, see
+ * {@link ChunkedMatsimXmlParser}. The persons are parsed in chunks on several threads and added to the
+ * population in the order of the file. Files in other formats are read by a {@link PopulationReader}.
+ */
+public final class ParallelPopulationReader extends ChunkedMatsimXmlParser<List<Person>> {
+
+	private final static String POPULATION_V6 = "population_v6.dtd";
+	private final static String PERSON = "person";
+	private final static int PERSONS_PER_CHUNK = 1000;
+
+	private final String inputCRS;
+	private final String targetCRS;
+	private final Scenario scenario;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private PopulationReaderMatsimV6 mainParser = null;
+
+	public ParallelPopulationReader(final Scenario scenario, final int numberOfThreads) {
+		this(null, null, scenario, numberOfThreads);
+	}
+
+	public ParallelPopulationReader(final String inputCRS, final String targetCRS, final Scenario scenario, final int numberOfThreads) {
+		super(numberOfThreads, PERSONS_PER_CHUNK);
+		this.inputCRS = inputCRS;
+		this.targetCRS = targetCRS;
+		this.scenario = scenario;
+		// defaults from population_v6.dtd
+		setDefaultAttribute("plan", "selected", "no");
+	}
+
+	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
+		attributeConverters.put( clazz , converter );
+	}
+
+	public void putAttributeConverters( final Map<Class<?>, AttributeConverter<?>> converters ) {
+		attributeConverters.putAll( converters );
+	}
+
+	@Override
+	protected MatsimXmlParser createMainParser(final String doctype) {
+		if (!POPULATION_V6.equals(doctype)) {
+			return null;
+		}
+		this.mainParser = new PopulationReaderMatsimV6(this.inputCRS, this.targetCRS, this.scenario);
+		this.mainParser.putAttributeConverters(this.attributeConverters);
+		return this.mainParser;
+	}
+
+	@Override
+	protected MatsimXmlParser createSequentialParser() {
+		PopulationReader reader = new PopulationReader(this.inputCRS, this.targetCRS, this.scenario);
+		reader.putAttributeConverters(this.attributeConverters);
+		return reader;
+	}
+
+	@Override
+	protected boolean isChunkElement(final String name, final Stack<String> context) {
+		return PERSON.equals(name) && context.size() == 1;
+	}
+
+	@Override
+	protected Chunk<List<Person>> createChunk() {
+		final ChunkPopulation population = new ChunkPopulation(this.scenario.getPopulation());
+		Scenario chunkScenario = new ScenarioUtils.ScenarioBuilder(this.scenario.getConfig())
+				.setNetwork(this.scenario.getNetwork())
+				.setPopulation(population)
+				.build();
+		// the chunks have to use the coordinate transformation that is defined by now, possibly in the file
+		final PopulationReaderMatsimV6 parser = new PopulationReaderMatsimV6(this.mainParser.getTransformationInputCRS(), this.targetCRS, chunkScenario);
+		parser.putAttributeConverters(this.attributeConverters);
+		return new Chunk<List<Person>>() {
+			@Override
+			public MatsimXmlParser getParser() {
+				return parser;
+			}
+
+			@Override
+			public List<Person> getResult() {
+				return population.persons;
+			}
+		};
+	}
+
+	@Override
+	protected void mergeChunk(final List<Person> persons) {
+		for (Person person : persons) {
+			this.scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	@Override
+	protected void finish() {
+		if (this.targetCRS != null) {
+			ProjectionUtils.putCRS(this.scenario.getPopulation(), this.targetCRS);
+		}
+	}
+
+	/**
+	 * Collects the persons of a chunk, everything else is taken from the population that is read.
+	 */
+	private static class ChunkPopulation implements Population {
+
+		private final Population population;
+		private final List<Person> persons = new ArrayList<>(PERSONS_PER_CHUNK);
+
+		ChunkPopulation(final Population population) {
+			this.population = population;
+		}
+
+		@Override
+		public void addPerson(final Person p) {
+			this.persons.add(p);
+		}
+
+		@Override
+		public PopulationFactory getFactory() {
+			return this.population.getFactory();
+		}
+
+		@Override
+		public Attributes getAttributes() {
+			return this.population.getAttributes();
+		}
+
+		@Override
+		public ObjectAttributes getPersonAttributes() {
+			return this.population.getPersonAttributes();
+		}
+
+		@Override
+		public String getName() {
+			return this.population.getName();
+		}
+
+		@Override
+		public void setName(final String name) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Map<Id<Person>, ? extends Person> getPersons() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Person removePerson(final Id<Person> personId) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
@@ -110,6 +110,7 @@ import java.util.Stack;
 
 	private final String targetCRS;
 	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
+	private String transformationInputCRS = null;
 
 	private Activity prevAct = null;
 
@@ -124,6 +125,7 @@ import java.util.Stack;
 		this.plans = scenario.getPopulation();
 	    if (targetCRS != null && externalInputCRS !=null) {
 		    this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(externalInputCRS, targetCRS);
+		    this.transformationInputCRS = externalInputCRS;
 		    ProjectionUtils.putCRS(this.plans, targetCRS);
 	    }
 	}
@@ -137,6 +139,13 @@ import java.util.Stack;
 		attributesReader.putAttributeConverters( converters );
 	}
 
+	/**
+	 * @return the CRS the coordinates are currently transformed from, or <code>null</code> if they are not transformed
+	 */
+	/*package*/ String getTransformationInputCRS() {
+		return this.transformationInputCRS;
+	}
+
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
 		switch( name ) {
@@ -207,6 +216,7 @@ import java.util.Stack;
 							log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
 						}
 						coordinateTransformation = TransformationFactory.getCoordinateTransformation(inputCRS, targetCRS);
+						transformationInputCRS = inputCRS;
 						ProjectionUtils.putCRS(scenario.getPopulation(), targetCRS);
 					}
 				}
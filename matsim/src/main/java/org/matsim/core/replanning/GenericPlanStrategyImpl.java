@@ -24,6 +24,8 @@ import org.matsim.api.core.v01.population.HasPlansAndId;
 import org.matsim.core.replanning.modules.GenericPlanStrategyModule;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomUnscoredPlanSelector;
+import org.matsim.core.utils.metrics.Metrics;
+import org.matsim.core.utils.metrics.Timer;
 
 import java.util.ArrayList;
 
@@ -35,7 +37,10 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 
 	private PlanSelector<T, I> planSelector = null;
 	private GenericPlanStrategyModule<T> firstModule = null;
+	private Timer firstModuleTimer = null;
+	private long firstModuleNanos = 0;
 	private final ArrayList<GenericPlanStrategyModule<T>> modules = new ArrayList<>();
+	private final ArrayList<Timer> moduleTimers = new ArrayList<>();
 	private final ArrayList<T> plans = new ArrayList<>();
 	private long counter = 0;
 	private ReplanningContext replanningContext;
@@ -52,10 +57,20 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	public void addStrategyModule(final GenericPlanStrategyModule<T> module) {
 		if (this.firstModule == null) {
 			this.firstModule = module;
+			this.firstModuleTimer = getTimer(module);
 		} else {
 			this.modules.add(module);
+			this.moduleTimers.add(getTimer(module));
 		}
 	}
+
+	/*
+	 * All strategies using the same kind of module share the timer, so the time is measured per module class.
+	 */
+	private static Timer getTimer(final GenericPlanStrategyModule<?> module) {
+		String name = module.getClass().getSimpleName();
+		return Metrics.timer("replanning." + (name.isEmpty() ? module.getClass().getName() : name));
+	}
 	
 	public int getNumberOfStrategyModules() {
 		if (this.firstModule == null) {
@@ -94,7 +109,11 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 			this.plans.add(plan);
 
 			// start working on this new plan:
+			long start = this.firstModuleTimer.start();
 			this.firstModule.handlePlan(plan);
+			if (start != 0) {
+				this.firstModuleNanos += System.nanoTime() - start;
+			}
 		}
 
 	}
@@ -111,14 +130,23 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	public void finish() {
 		if (this.firstModule != null) {
 			// finish the first module
+			long start = this.firstModuleTimer.start();
 				this.firstModule.finishReplanning();
+			if (start != 0) {
+				// one record per iteration, including the time spent in handlePlan
+				this.firstModuleTimer.record(this.firstModuleNanos + System.nanoTime() - start);
+			}
+			this.firstModuleNanos = 0;
 			// now work through the others
-			for (GenericPlanStrategyModule<T> module : this.modules) {
+			for (int i = 0; i < this.modules.size(); i++) {
+				GenericPlanStrategyModule<T> module = this.modules.get(i);
+				start = this.moduleTimers.get(i).start();
 				module.prepareReplanning(replanningContext);
 				for (T plan : this.plans) {
 					module.handlePlan(plan);
 				}
 				module.finishReplanning();
+				this.moduleTimers.get(i).stop(start);
 			}
 		}
 		this.plans.clear();
@@ -28,6 +28,7 @@ import org.matsim.core.api.internal.MatsimManager;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.config.groups.StrategyConfigGroup;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.WorstPlanForRemovalSelector;
 
@@ -184,11 +185,13 @@ public class StrategyManager implements MatsimManager {
 	/**
 	 * Randomly chooses for each person of the population a strategy and uses that
 	 * strategy on the person.
-	 *
+	 * <p></p>
+	 * A population that is kept on disk is replanned chunk by chunk, since the strategies
+	 * hold on to the plans they handle until they are finished.
 	 */
 	public final void run(final Population population, final ReplanningContext replanningContext) {
 		beforePopulationRunHook(population, replanningContext);
-		delegate.run(population.getPersons().values(), population.getPersonAttributes(), replanningContext);
+		PopulationUtils.forEachChunk(population, persons -> delegate.run(persons, population.getPersonAttributes(), replanningContext));
 		afterRunHook(population);
 	}
 
@@ -0,0 +1,217 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.PreProcessContractionHierarchies.Hierarchy;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator based on contraction hierarchies, see {@link PreProcessContractionHierarchies}.
+ * <p></p>
+ * A query runs two Dijkstra searches on the hierarchy of the time slice of the departure time, one from
+ * the start node and one backwards from the destination node. Both only follow edges to nodes of higher
+ * rank, and thus settle only a small part of the network. The path is the one over the node where
+ * both searches meet with the smallest total cost; its shortcuts are then expanded to the original links.
+ * <p></p>
+ * The returned travel time and travel cost are calculated along the found path with the given
+ * {@link TravelTime} and {@link TravelDisutility}, so they include the time-dependency within the
+ * time slice and person-specific disutility components, while the path itself does not.
+ * <p></p>
+ * Instances are not thread-safe, but several instances can share the same pre-processed data.
+ *
+ * @see PreProcessContractionHierarchies
+ * @see ContractionHierarchiesFactory
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private final PreProcessContractionHierarchies preProcessData;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+
+	private final double[] forwardCost;
+	private final int[] forwardEdge;
+	private final int[] forwardStamp;
+	private final double[] backwardCost;
+	private final int[] backwardEdge;
+	private final int[] backwardStamp;
+	private int stamp = 0;
+	private final IntMinHeap forwardHeap = new IntMinHeap();
+	private final IntMinHeap backwardHeap = new IntMinHeap();
+
+	public ContractionHierarchies(final PreProcessContractionHierarchies preProcessData, final TravelDisutility costFunction,
+			final TravelTime timeFunction) {
+		this.preProcessData = preProcessData;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		int n = preProcessData.getNumberOfNodes();
+		this.forwardCost = new double[n];
+		this.forwardEdge = new int[n];
+		this.forwardStamp = new int[n];
+		this.backwardCost = new double[n];
+		this.backwardEdge = new int[n];
+		this.backwardStamp = new int[n];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int from = getNodeIndex(fromNode);
+		int to = getNodeIndex(toNode);
+		Hierarchy hierarchy = this.preProcessData.getHierarchy(starttime);
+
+		int meetingNode = search(hierarchy, from, to);
+		if (meetingNode < 0) {
+			return null;
+		}
+
+		List<Link> links = new ArrayList<>();
+		List<Integer> forwardEdges = new ArrayList<>();
+		for (int node = meetingNode; node != from; node = hierarchy.getEdgeFrom(this.forwardEdge[node])) {
+			forwardEdges.add(this.forwardEdge[node]);
+		}
+		Collections.reverse(forwardEdges);
+		for (int edge : forwardEdges) {
+			hierarchy.unpackEdge(edge, links);
+		}
+		for (int node = meetingNode; node != to; node = hierarchy.getEdgeTo(this.backwardEdge[node])) {
+			hierarchy.unpackEdge(this.backwardEdge[node], links);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(this.preProcessData.getNode(from));
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.costFunction.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.timeFunction.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	private int getNodeIndex(final Node node) {
+		int index = this.preProcessData.getNodeIndex(node);
+		if (index < 0) {
+			throw new IllegalArgumentException("The node " + node.getId() + " is not part of the network used by "
+					+ getClass().getSimpleName() + ". Aborting!");
+		}
+		return index;
+	}
+
+	/**
+	 * @return the node with the smallest sum of forward and backward cost, or <code>-1</code> if there is no path.
+	 */
+	private int search(final Hierarchy hierarchy, final int from, final int to) {
+		this.stamp++;
+		this.forwardHeap.clear();
+		this.backwardHeap.clear();
+		setForward(from, 0.0, -1);
+		setBackward(to, 0.0, -1);
+		this.forwardHeap.add(from, 0.0);
+		this.backwardHeap.add(to, 0.0);
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		while (true) {
+			// a direction is finished as soon as its smallest key reaches the best known cost
+			boolean forward = !this.forwardHeap.isEmpty() && this.forwardHeap.peekKey() < bestCost;
+			boolean backward = !this.backwardHeap.isEmpty() && this.backwardHeap.peekKey() < bestCost;
+			if (!forward && !backward) {
+				break;
+			}
+			if (forward && (!backward || this.forwardHeap.peekKey() <= this.backwardHeap.peekKey())) {
+				double cost = this.forwardHeap.peekKey();
+				int node = this.forwardHeap.poll();
+				if (cost > getForwardCost(node)) {
+					continue; // outdated entry
+				}
+				double total = cost + getBackwardCost(node);
+				if (total < bestCost) {
+					bestCost = total;
+					meetingNode = node;
+				}
+				for (int i = hierarchy.getForwardEdgesStart(node), end = hierarchy.getForwardEdgesEnd(node); i < end; i++) {
+					int edge = hierarchy.getForwardEdge(i);
+					int next = hierarchy.getEdgeTo(edge);
+					double newCost = cost + hierarchy.getEdgeWeight(edge);
+					if (newCost < getForwardCost(next)) {
+						setForward(next, newCost, edge);
+						this.forwardHeap.add(next, newCost);
+					}
+				}
+			} else {
+				double cost = this.backwardHeap.peekKey();
+				int node = this.backwardHeap.poll();
+				if (cost > getBackwardCost(node)) {
+					continue; // outdated entry
+				}
+				double total = cost + getForwardCost(node);
+				if (total < bestCost) {
+					bestCost = total;
+					meetingNode = node;
+				}
+				for (int i = hierarchy.getBackwardEdgesStart(node), end = hierarchy.getBackwardEdgesEnd(node); i < end; i++) {
+					int edge = hierarchy.getBackwardEdge(i);
+					int next = hierarchy.getEdgeFrom(edge);
+					double newCost = cost + hierarchy.getEdgeWeight(edge);
+					if (newCost < getBackwardCost(next)) {
+						setBackward(next, newCost, edge);
+						this.backwardHeap.add(next, newCost);
+					}
+				}
+			}
+		}
+		return meetingNode;
+	}
+
+	private double getForwardCost(final int node) {
+		return this.forwardStamp[node] == this.stamp ? this.forwardCost[node] : Double.POSITIVE_INFINITY;
+	}
+
+	private void setForward(final int node, final double cost, final int edge) {
+		this.forwardStamp[node] = this.stamp;
+		this.forwardCost[node] = cost;
+		this.forwardEdge[node] = edge;
+	}
+
+	private double getBackwardCost(final int node) {
+		return this.backwardStamp[node] == this.stamp ? this.backwardCost[node] : Double.POSITIVE_INFINITY;
+	}
+
+	private void setBackward(final int node, final double cost, final int edge) {
+		this.backwardStamp[node] = this.stamp;
+		this.backwardCost[node] = cost;
+		this.backwardEdge[node] = edge;
+	}
+
+}
@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.PreProcessContractionHierarchies;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link ContractionHierarchies} routers. The hierarchies are built once per network and
+ * {@link TravelDisutility} instance, and shared by all routers created afterwards for the same network
+ * and disutility. Routers for different disutilities (e.g. for different modes) get their own hierarchies.
+ * <p></p>
+ * The hierarchies are built with the disutilities of the links without person and vehicle, i.e.
+ * <code>getLinkTravelDisutility(link, time, null, null)</code>. Thus, the disutility must accept <code>null</code>
+ * there, and person- or vehicle-specific components of the disutility do not influence the found paths
+ * (only their reported costs).
+ * <p></p>
+ * As the travel times change from iteration to iteration, the hierarchies are discarded at the start of
+ * each iteration (when this factory is registered as controler listener, as {@link LeastCostPathCalculatorModule}
+ * does) and rebuilt on the next request.
+ * <p></p>
+ * One hierarchy is built per time slice of about one hour, i.e. per group of consecutive travel time bins.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private static final double TIME_SLICE_SIZE = 3600.0;
+
+	private final Map<Network, Map<TravelDisutility, PreProcessContractionHierarchies>> preProcessData = new HashMap<>();
+	private final int numberOfThreads;
+	private final double timeSliceSize;
+	private final double endTime;
+
+	@Inject
+	ContractionHierarchiesFactory(final GlobalConfigGroup globalConfig, final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfig) {
+		this(globalConfig.getNumberOfThreads(), getTimeSliceSize(travelTimeCalculatorConfig.getTraveltimeBinSize()),
+				travelTimeCalculatorConfig.getMaxTime());
+	}
+
+	/**
+	 * @param numberOfThreads the number of threads used to build the hierarchies
+	 * @param timeSliceSize the duration for which one hierarchy is valid
+	 * @param endTime routes starting after <code>endTime</code> use the hierarchy of the last time slice
+	 */
+	public ContractionHierarchiesFactory(final int numberOfThreads, final double timeSliceSize, final double endTime) {
+		this.numberOfThreads = numberOfThreads;
+		this.timeSliceSize = timeSliceSize;
+		this.endTime = endTime;
+	}
+
+	/**
+	 * @return a multiple of the bin size close to {@value #TIME_SLICE_SIZE} seconds
+	 */
+	private static double getTimeSliceSize(final int binSize) {
+		return binSize * Math.max(1, Math.round(TIME_SLICE_SIZE / binSize));
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		Map<TravelDisutility, PreProcessContractionHierarchies> preProcessDataOfNetwork = this.preProcessData.computeIfAbsent(network, n -> new HashMap<>());
+		PreProcessContractionHierarchies preProcessHierarchies = preProcessDataOfNetwork.get(travelCosts);
+		if (preProcessHierarchies == null) {
+			preProcessHierarchies = new PreProcessContractionHierarchies(travelCosts, this.timeSliceSize, this.endTime);
+			preProcessHierarchies.setNumberOfThreads(this.numberOfThreads);
+			preProcessHierarchies.run(network);
+			preProcessDataOfNetwork.put(travelCosts, preProcessHierarchies);
+		}
+		return new ContractionHierarchies(preProcessHierarchies, travelCosts, travelTimes);
+	}
+
+	@Override
+	public synchronized void notifyIterationStarts(final IterationStartsEvent event) {
+		this.preProcessData.clear();
+	}
+
+}
@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of <code>int</code> values (typically node indices) with <code>double</code> keys.
+ * <p></p>
+ * In contrast to {@link BinaryMinHeap}, there is no decrease-key operation: a value whose key
+ * decreases is simply added again, and the caller has to skip the outdated entries when they
+ * are polled. This avoids any per-element index bookkeeping and works without objects.
+ */
+public final class IntMinHeap {
+
+	private double[] keys;
+	private int[] values;
+	private int size = 0;
+
+	public IntMinHeap() {
+		this(64);
+	}
+
+	public IntMinHeap(final int initialCapacity) {
+		this.keys = new double[Math.max(initialCapacity, 1)];
+		this.values = new int[Math.max(initialCapacity, 1)];
+	}
+
+	public void add(final int value, final double key) {
+		if (this.size == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, this.size * 2);
+			this.values = Arrays.copyOf(this.values, this.size * 2);
+		}
+		int i = this.size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (this.keys[parent] <= key) {
+				break;
+			}
+			this.keys[i] = this.keys[parent];
+			this.values[i] = this.values[parent];
+			i = parent;
+		}
+		this.keys[i] = key;
+		this.values[i] = value;
+	}
+
+	/**
+	 * @return the key of the smallest entry, undefined if the heap is empty.
+	 */
+	public double peekKey() {
+		return this.keys[0];
+	}
+
+	/**
+	 * Removes the smallest entry.
+	 *
+	 * @return the value of the removed entry, undefined if the heap is empty.
+	 */
+	public int poll() {
+		int result = this.values[0];
+		int last = --this.size;
+		if (last > 0) {
+			double key = this.keys[last];
+			int value = this.values[last];
+			int i = 0;
+			int child;
+			while ((child = 2 * i + 1) < last) {
+				if (child + 1 < last && this.keys[child + 1] < this.keys[child]) {
+					child++;
+				}
+				if (key <= this.keys[child]) {
+					break;
+				}
+				this.keys[i] = this.keys[child];
+				this.values[i] = this.values[child];
+				i = child;
+			}
+			this.keys[i] = key;
+			this.values[i] = value;
+		}
+		return result;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public void clear() {
+		this.size = 0;
+	}
+
+}
@@ -0,0 +1,584 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PreProcessContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+
+/**
+ * Pre-processes a network for {@link org.matsim.core.router.ContractionHierarchies}.
+ * <p></p>
+ * The day is split into time slices. For every slice, the travel disutility of each link at the middle
+ * of the slice is used as static weight, and a contraction hierarchy is built: the nodes are contracted
+ * one after the other, and whenever the only shortest path between two neighbours of a contracted node
+ * leads over this node, a shortcut edge is inserted between the neighbours.
+ * <p></p>
+ * The nodes are contracted in the order of their edge difference (number of required shortcuts minus the number
+ * of removed edges) plus the number of already contracted neighbours, which is updated lazily. The time slices
+ * are independent of each other and are contracted in parallel.
+ * <p></p>
+ * The disutilities are calculated without person and vehicle, so person-specific components
+ * of the disutility are not considered when searching the path.
+ */
+public class PreProcessContractionHierarchies {
+
+	private static final Logger log = Logger.getLogger(PreProcessContractionHierarchies.class);
+
+	/** the maximal number of nodes settled by a witness search; if no witness is found until then, the shortcut is added. */
+	private static final int WITNESS_SEARCH_LIMIT = 500;
+	/** the same, when the shortcuts are only counted to compute the contraction order */
+	private static final int SIMULATION_WITNESS_SEARCH_LIMIT = 50;
+
+	private final TravelDisutility costFunction;
+	private final double timeSliceSize;
+	private final int numberOfSlices;
+	private int numberOfThreads = 8;
+
+	private Node[] nodes;
+	private Link[] links;
+	private int[] linkFromNodes;
+	private int[] linkToNodes;
+	/** node index by {@link org.matsim.api.core.v01.Id#index()} of the node id */
+	private int[] nodeIndices;
+	private Hierarchy[] hierarchies;
+
+	/**
+	 * @param costFunction called with <code>null</code> as person and vehicle
+	 * @param timeSliceSize the duration for which one hierarchy is valid
+	 * @param endTime queries starting after <code>endTime</code> use the hierarchy of the last time slice
+	 */
+	public PreProcessContractionHierarchies(final TravelDisutility costFunction, final double timeSliceSize, final double endTime) {
+		this.costFunction = costFunction;
+		this.timeSliceSize = timeSliceSize;
+		this.numberOfSlices = Math.max(1, (int) Math.ceil(endTime / timeSliceSize));
+	}
+
+	/**
+	 * Sets the number of threads that will be used to contract the time slices.
+	 * Default is 8.
+	 *
+	 * @param numberOfThreads
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public void run(final Network network) {
+		this.nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		int maxIdIndex = -1;
+		for (Node node : this.nodes) {
+			maxIdIndex = Math.max(maxIdIndex, node.getId().index());
+		}
+		this.nodeIndices = new int[maxIdIndex + 1];
+		Arrays.fill(this.nodeIndices, -1);
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodeIndices[this.nodes[i].getId().index()] = i;
+		}
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		this.linkFromNodes = new int[this.links.length];
+		this.linkToNodes = new int[this.links.length];
+		for (int i = 0; i < this.links.length; i++) {
+			this.linkFromNodes[i] = getNodeIndex(this.links[i].getFromNode());
+			this.linkToNodes[i] = getNodeIndex(this.links[i].getToNode());
+		}
+		this.hierarchies = new Hierarchy[this.numberOfSlices];
+
+		int nOfThreads = Math.max(1, Math.min(this.numberOfThreads, this.numberOfSlices));
+		log.info("Contracting " + this.nodes.length + " nodes for " + this.numberOfSlices + " time slices using " + nOfThreads + " threads...");
+		long now = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		List<Future<Hierarchy>> futures = new ArrayList<>();
+		for (int slice = 0; slice < this.numberOfSlices; slice++) {
+			final int s = slice;
+			futures.add(executor.submit(() -> new Contraction(s).run()));
+		}
+		executor.shutdown();
+		long edges = 0;
+		try {
+			for (int slice = 0; slice < this.numberOfSlices; slice++) {
+				this.hierarchies[slice] = futures.get(slice).get();
+				edges += this.hierarchies[slice].getNumberOfEdges();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			executor.shutdownNow();
+			throw new RuntimeException(e);
+		}
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms, " + (edges / this.numberOfSlices) + " edges incl. shortcuts per time slice");
+	}
+
+	/**
+	 * @return the index of the node in the hierarchies, or <code>-1</code> if the node is not part of the network.
+	 */
+	public int getNodeIndex(final Node node) {
+		int idIndex = node.getId().index();
+		return idIndex < this.nodeIndices.length ? this.nodeIndices[idIndex] : -1;
+	}
+
+	public Node getNode(final int index) {
+		return this.nodes[index];
+	}
+
+	public int getNumberOfNodes() {
+		return this.nodes.length;
+	}
+
+	/**
+	 * @return the hierarchy of the time slice containing <code>time</code>.
+	 */
+	public Hierarchy getHierarchy(final double time) {
+		int slice = (int) (time / this.timeSliceSize);
+		return this.hierarchies[Math.max(0, Math.min(slice, this.numberOfSlices - 1))];
+	}
+
+	/**
+	 * The contracted graph of one time slice. The edges leading to nodes of higher rank are stored
+	 * as <em>forward</em> edges of their from-node, the edges leading to nodes of lower rank as
+	 * <em>backward</em> edges of their to-node, so both the search from the start and the reverse
+	 * search from the destination only move upwards in the hierarchy.
+	 */
+	public static final class Hierarchy {
+
+		private final Link[] links;
+		private final int[] edgeFrom;
+		private final int[] edgeTo;
+		private final double[] edgeWeight;
+		/** index of the link for original edges, -1 for shortcuts */
+		private final int[] edgeLink;
+		private final int[] edgeFirstChild;
+		private final int[] edgeSecondChild;
+
+		private final int[] forwardOffsets;
+		private final int[] forwardEdges;
+		private final int[] backwardOffsets;
+		private final int[] backwardEdges;
+
+		private Hierarchy(final Link[] links, final int numberOfNodes, final int[] rank, final int edgeCount, final int[] edgeFrom,
+				final int[] edgeTo, final double[] edgeWeight, final int[] edgeLink, final int[] edgeFirstChild, final int[] edgeSecondChild) {
+			this.links = links;
+			this.edgeFrom = Arrays.copyOf(edgeFrom, edgeCount);
+			this.edgeTo = Arrays.copyOf(edgeTo, edgeCount);
+			this.edgeWeight = Arrays.copyOf(edgeWeight, edgeCount);
+			this.edgeLink = Arrays.copyOf(edgeLink, edgeCount);
+			this.edgeFirstChild = Arrays.copyOf(edgeFirstChild, edgeCount);
+			this.edgeSecondChild = Arrays.copyOf(edgeSecondChild, edgeCount);
+
+			this.forwardOffsets = new int[numberOfNodes + 1];
+			this.backwardOffsets = new int[numberOfNodes + 1];
+			for (int e = 0; e < edgeCount; e++) {
+				if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+					this.forwardOffsets[edgeFrom[e] + 1]++;
+				} else {
+					this.backwardOffsets[edgeTo[e] + 1]++;
+				}
+			}
+			for (int i = 0; i < numberOfNodes; i++) {
+				this.forwardOffsets[i + 1] += this.forwardOffsets[i];
+				this.backwardOffsets[i + 1] += this.backwardOffsets[i];
+			}
+			this.forwardEdges = new int[this.forwardOffsets[numberOfNodes]];
+			this.backwardEdges = new int[this.backwardOffsets[numberOfNodes]];
+			int[] forwardPositions = Arrays.copyOf(this.forwardOffsets, numberOfNodes);
+			int[] backwardPositions = Arrays.copyOf(this.backwardOffsets, numberOfNodes);
+			for (int e = 0; e < edgeCount; e++) {
+				if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+					this.forwardEdges[forwardPositions[edgeFrom[e]]++] = e;
+				} else {
+					this.backwardEdges[backwardPositions[edgeTo[e]]++] = e;
+				}
+			}
+		}
+
+		public int getNumberOfEdges() {
+			return this.edgeFrom.length;
+		}
+
+		public int getForwardEdgesStart(final int node) {
+			return this.forwardOffsets[node];
+		}
+
+		public int getForwardEdgesEnd(final int node) {
+			return this.forwardOffsets[node + 1];
+		}
+
+		public int getForwardEdge(final int i) {
+			return this.forwardEdges[i];
+		}
+
+		public int getBackwardEdgesStart(final int node) {
+			return this.backwardOffsets[node];
+		}
+
+		public int getBackwardEdgesEnd(final int node) {
+			return this.backwardOffsets[node + 1];
+		}
+
+		public int getBackwardEdge(final int i) {
+			return this.backwardEdges[i];
+		}
+
+		public int getEdgeFrom(final int edge) {
+			return this.edgeFrom[edge];
+		}
+
+		public int getEdgeTo(final int edge) {
+			return this.edgeTo[edge];
+		}
+
+		public double getEdgeWeight(final int edge) {
+			return this.edgeWeight[edge];
+		}
+
+		/**
+		 * Adds the links represented by the given edge to <code>path</code>, expanding all shortcuts.
+		 */
+		public void unpackEdge(final int edge, final List<Link> path) {
+			int[] stack = new int[16];
+			int size = 0;
+			stack[size++] = edge;
+			while (size > 0) {
+				int e = stack[--size];
+				if (this.edgeLink[e] >= 0) {
+					path.add(this.links[this.edgeLink[e]]);
+				} else {
+					if (size + 2 > stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					stack[size++] = this.edgeSecondChild[e];
+					stack[size++] = this.edgeFirstChild[e];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Contracts the network for one time slice.
+	 */
+	private final class Contraction {
+
+		private final double time;
+		private final int[] rank;
+
+		private int edgeCount = 0;
+		private int[] edgeFrom;
+		private int[] edgeTo;
+		private double[] edgeWeight;
+		private int[] edgeLink;
+		private int[] edgeFirstChild;
+		private int[] edgeSecondChild;
+
+		/** the edges between nodes that are not yet contracted */
+		private final int[][] outEdges;
+		private final int[] outDegree;
+		private final int[][] inEdges;
+		private final int[] inDegree;
+		private final boolean[] contracted;
+		private final int[] contractedNeighbours;
+
+		private final double[] witnessCost;
+		private final int[] witnessStamp;
+		private final int[] targetStamp;
+		private int stamp = 0;
+		private final IntMinHeap witnessHeap = new IntMinHeap();
+
+		Contraction(final int slice) {
+			int n = PreProcessContractionHierarchies.this.nodes.length;
+			this.time = (slice + 0.5) * PreProcessContractionHierarchies.this.timeSliceSize;
+			this.rank = new int[n];
+			int m = PreProcessContractionHierarchies.this.links.length;
+			int capacity = Math.max(16, 2 * m);
+			this.edgeFrom = new int[capacity];
+			this.edgeTo = new int[capacity];
+			this.edgeWeight = new double[capacity];
+			this.edgeLink = new int[capacity];
+			this.edgeFirstChild = new int[capacity];
+			this.edgeSecondChild = new int[capacity];
+			this.outEdges = new int[n][];
+			this.outDegree = new int[n];
+			this.inEdges = new int[n][];
+			this.inDegree = new int[n];
+			for (int i = 0; i < n; i++) {
+				this.outEdges[i] = new int[4];
+				this.inEdges[i] = new int[4];
+			}
+			this.contracted = new boolean[n];
+			this.contractedNeighbours = new int[n];
+			this.witnessCost = new double[n];
+			this.witnessStamp = new int[n];
+			this.targetStamp = new int[n];
+		}
+
+		Hierarchy run() {
+			addLinks();
+			int n = this.rank.length;
+			double[] priorities = new double[n];
+			IntMinHeap queue = new IntMinHeap(n);
+			for (int v = 0; v < n; v++) {
+				priorities[v] = priority(v);
+				queue.add(v, priorities[v]);
+			}
+			int r = 0;
+			int[] neighbours = new int[16];
+			while (!queue.isEmpty()) {
+				double key = queue.peekKey();
+				int v = queue.poll();
+				if (this.contracted[v] || key != priorities[v]) {
+					continue; // outdated entry
+				}
+				// lazy update: the priority may have changed since the neighbours were contracted
+				double p = priority(v);
+				if (!queue.isEmpty() && p > queue.peekKey()) {
+					priorities[v] = p;
+					queue.add(v, p);
+					continue;
+				}
+				int count = 0;
+				for (int i = 0; i < this.outDegree[v]; i++) {
+					neighbours = addTo(neighbours, count++, this.edgeTo[this.outEdges[v][i]]);
+				}
+				for (int i = 0; i < this.inDegree[v]; i++) {
+					neighbours = addTo(neighbours, count++, this.edgeFrom[this.inEdges[v][i]]);
+				}
+				contract(v, true);
+				this.rank[v] = r++;
+				for (int i = 0; i < count; i++) {
+					int u = neighbours[i];
+					if (!this.contracted[u]) {
+						this.contractedNeighbours[u]++;
+						priorities[u]++;
+						queue.add(u, priorities[u]);
+					}
+				}
+			}
+			return new Hierarchy(PreProcessContractionHierarchies.this.links, n, this.rank, this.edgeCount, this.edgeFrom, this.edgeTo,
+					this.edgeWeight, this.edgeLink, this.edgeFirstChild, this.edgeSecondChild);
+		}
+
+		private void addLinks() {
+			Link[] links = PreProcessContractionHierarchies.this.links;
+			for (int l = 0; l < links.length; l++) {
+				int from = PreProcessContractionHierarchies.this.linkFromNodes[l];
+				int to = PreProcessContractionHierarchies.this.linkToNodes[l];
+				if (from == to) {
+					continue; // loops are never part of a least cost path
+				}
+				double weight = PreProcessContractionHierarchies.this.costFunction.getLinkTravelDisutility(links[l], this.time, null, null);
+				int existing = findEdge(from, to);
+				if (existing >= 0) {
+					// parallel links: only the cheaper one can be part of a least cost path
+					if (weight < this.edgeWeight[existing]) {
+						this.edgeWeight[existing] = weight;
+						this.edgeLink[existing] = l;
+					}
+				} else {
+					addEdge(from, to, weight, l, -1, -1);
+				}
+			}
+		}
+
+		private double priority(final int v) {
+			int shortcuts = contract(v, false);
+			return shortcuts - this.outDegree[v] - this.inDegree[v] + this.contractedNeighbours[v];
+		}
+
+		/**
+		 * Adds the shortcuts required to remove <code>v</code> from the graph, and removes <code>v</code>
+		 * if <code>apply</code> is true. Otherwise, the shortcuts are only counted.
+		 *
+		 * @return the number of required shortcuts
+		 */
+		private int contract(final int v, final boolean apply) {
+			int shortcuts = 0;
+			for (int i = 0; i < this.inDegree[v]; i++) {
+				int in = this.inEdges[v][i];
+				int u = this.edgeFrom[in];
+				this.stamp++;
+				double maxOutWeight = -1;
+				int targets = 0;
+				for (int j = 0; j < this.outDegree[v]; j++) {
+					int out = this.outEdges[v][j];
+					int w = this.edgeTo[out];
+					if (w != u) {
+						maxOutWeight = Math.max(maxOutWeight, this.edgeWeight[out]);
+						this.targetStamp[w] = this.stamp;
+						targets++;
+					}
+				}
+				if (targets == 0) {
+					continue;
+				}
+				witnessSearch(u, v, this.edgeWeight[in] + maxOutWeight, targets,
+						apply ? WITNESS_SEARCH_LIMIT : SIMULATION_WITNESS_SEARCH_LIMIT);
+				for (int j = 0; j < this.outDegree[v]; j++) {
+					int out = this.outEdges[v][j];
+					int w = this.edgeTo[out];
+					if (w == u) {
+						continue;
+					}
+					double viaWeight = this.edgeWeight[in] + this.edgeWeight[out];
+					if (getWitnessCost(w) <= viaWeight) {
+						continue;
+					}
+					shortcuts++;
+					if (apply) {
+						addShortcut(u, w, viaWeight, in, out);
+					}
+				}
+			}
+			if (apply) {
+				for (int i = 0; i < this.inDegree[v]; i++) {
+					int in = this.inEdges[v][i];
+					removeEdge(this.outEdges, this.outDegree, this.edgeFrom[in], in);
+				}
+				for (int i = 0; i < this.outDegree[v]; i++) {
+					int out = this.outEdges[v][i];
+					removeEdge(this.inEdges, this.inDegree, this.edgeTo[out], out);
+				}
+				this.inDegree[v] = 0;
+				this.outDegree[v] = 0;
+				this.contracted[v] = true;
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * Runs a Dijkstra from <code>source</code> that ignores <code>avoid</code>, until either all targets
+		 * are settled, or <code>maxCost</code> or <code>settleLimit</code> settled nodes are reached.
+		 * The targets must be marked with the current stamp.
+		 */
+		private void witnessSearch(final int source, final int avoid, final double maxCost, int targets, final int settleLimit) {
+			this.witnessHeap.clear();
+			setWitnessCost(source, 0.0);
+			this.witnessHeap.add(source, 0.0);
+			int settled = 0;
+			while (!this.witnessHeap.isEmpty()) {
+				double cost = this.witnessHeap.peekKey();
+				int x = this.witnessHeap.poll();
+				if (cost > getWitnessCost(x)) {
+					continue; // outdated entry
+				}
+				if (cost > maxCost || ++settled > settleLimit) {
+					break;
+				}
+				if (this.targetStamp[x] == this.stamp && --targets == 0) {
+					break;
+				}
+				for (int i = 0; i < this.outDegree[x]; i++) {
+					int e = this.outEdges[x][i];
+					int y = this.edgeTo[e];
+					if (y == avoid) {
+						continue;
+					}
+					double newCost = cost + this.edgeWeight[e];
+					if (newCost < getWitnessCost(y)) {
+						setWitnessCost(y, newCost);
+						this.witnessHeap.add(y, newCost);
+					}
+				}
+			}
+		}
+
+		private double getWitnessCost(final int node) {
+			return this.witnessStamp[node] == this.stamp ? this.witnessCost[node] : Double.POSITIVE_INFINITY;
+		}
+
+		private void setWitnessCost(final int node, final double cost) {
+			this.witnessStamp[node] = this.stamp;
+			this.witnessCost[node] = cost;
+		}
+
+		private int findEdge(final int from, final int to) {
+			for (int i = 0; i < this.outDegree[from]; i++) {
+				int e = this.outEdges[from][i];
+				if (this.edgeTo[e] == to) {
+					return e;
+				}
+			}
+			return -1;
+		}
+
+		private void addShortcut(final int from, final int to, final double weight, final int firstChild, final int secondChild) {
+			int existing = findEdge(from, to);
+			if (existing >= 0) {
+				// both end nodes are not contracted yet, so the edge is not part of any shortcut and can be replaced
+				if (weight < this.edgeWeight[existing]) {
+					this.edgeWeight[existing] = weight;
+					this.edgeLink[existing] = -1;
+					this.edgeFirstChild[existing] = firstChild;
+					this.edgeSecondChild[existing] = secondChild;
+				}
+			} else {
+				addEdge(from, to, weight, -1, firstChild, secondChild);
+			}
+		}
+
+		private void addEdge(final int from, final int to, final double weight, final int link, final int firstChild, final int secondChild) {
+			if (this.edgeCount == this.edgeFrom.length) {
+				int capacity = this.edgeCount * 2;
+				this.edgeFrom = Arrays.copyOf(this.edgeFrom, capacity);
+				this.edgeTo = Arrays.copyOf(this.edgeTo, capacity);
+				this.edgeWeight = Arrays.copyOf(this.edgeWeight, capacity);
+				this.edgeLink = Arrays.copyOf(this.edgeLink, capacity);
+				this.edgeFirstChild = Arrays.copyOf(this.edgeFirstChild, capacity);
+				this.edgeSecondChild = Arrays.copyOf(this.edgeSecondChild, capacity);
+			}
+			int e = this.edgeCount++;
+			this.edgeFrom[e] = from;
+			this.edgeTo[e] = to;
+			this.edgeWeight[e] = weight;
+			this.edgeLink[e] = link;
+			this.edgeFirstChild[e] = firstChild;
+			this.edgeSecondChild[e] = secondChild;
+			this.outEdges[from] = addTo(this.outEdges[from], this.outDegree[from]++, e);
+			this.inEdges[to] = addTo(this.inEdges[to], this.inDegree[to]++, e);
+		}
+	}
+
+	private static int[] addTo(int[] array, final int position, final int value) {
+		if (position == array.length) {
+			array = Arrays.copyOf(array, array.length * 2);
+		}
+		array[position] = value;
+		return array;
+	}
+
+	private static void removeEdge(final int[][] edges, final int[] degree, final int node, final int edge) {
+		int[] nodeEdges = edges[node];
+		for (int i = 0; i < degree[node]; i++) {
+			if (nodeEdges[i] == edge) {
+				nodeEdges[i] = nodeEdges[--degree[node]];
+				return;
+			}
+		}
+	}
+
+}
@@ -34,8 +34,12 @@ import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.network.io.ParallelNetworkReader;
 import org.matsim.core.network.io.NetworkChangeEventsParser;
+import org.matsim.core.population.CompactPopulation;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.DiskBackedPopulation;
+import org.matsim.core.population.io.ParallelPopulationReader;
 import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
@@ -130,13 +134,24 @@ class ScenarioLoaderImpl {
 			log.info("loading network from " + networkUrl);
 			String inputCRS = config.network().getInputCRS();
 
-			MatsimNetworkReader reader =
-					new MatsimNetworkReader(
-							inputCRS,
-							config.global().getCoordinateSystem(),
-							this.scenario.getNetwork());
-            reader.putAttributeConverters( attributeConverters );
-            reader.parse(networkUrl);
+			if (this.config.global().isParallelXmlReading()) {
+				ParallelNetworkReader reader =
+						new ParallelNetworkReader(
+								inputCRS,
+								config.global().getCoordinateSystem(),
+								this.scenario.getNetwork(),
+								config.global().getNumberOfThreads());
+				reader.putAttributeConverters( attributeConverters );
+				reader.parse(networkUrl);
+			} else {
+				MatsimNetworkReader reader =
+						new MatsimNetworkReader(
+								inputCRS,
+								config.global().getCoordinateSystem(),
+								this.scenario.getNetwork());
+				reader.putAttributeConverters( attributeConverters );
+				reader.parse(networkUrl);
+			}
 
 			if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
 				log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
@@ -186,9 +201,26 @@ class ScenarioLoaderImpl {
             final String targetCRS = config.global().getCoordinateSystem();
 			final String internalCRS = config.global().getCoordinateSystem();
 
-            final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
-            reader.putAttributeConverters( attributeConverters );
-            reader.parse( populationFileName );
+            if (this.config.plans().getPersonsPerChunk() > 0) {
+                String chunkDirectory = this.config.plans().getChunkDirectory();
+                DiskBackedPopulation population = new DiskBackedPopulation(this.config, chunkDirectory == null ? null : new File(chunkDirectory),
+                        this.config.plans().getPersonsPerChunk(), this.config.plans().getChunksInMemory());
+                population.putAttributeConverters( attributeConverters );
+                this.scenario.setPopulation(population);
+            } else if (this.config.plans().isCompactPopulation()) {
+                this.scenario.setPopulation(new CompactPopulation(this.config, this.scenario.getNetwork()));
+            }
+
+            if (this.config.global().isParallelXmlReading()) {
+                final ParallelPopulationReader reader = new ParallelPopulationReader(targetCRS, internalCRS, this.scenario,
+                        this.config.global().getNumberOfThreads());
+                reader.putAttributeConverters( attributeConverters );
+                reader.parse( populationFileName );
+            } else {
+                final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
+                reader.putAttributeConverters( attributeConverters );
+                reader.parse( populationFileName );
+            }
 
 			PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
 		}
@@ -33,6 +33,8 @@ import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.ScoringEvent;
 import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.ScoringListener;
+import org.matsim.core.utils.metrics.Metrics;
+import org.matsim.core.utils.metrics.Timer;
 
 
 /**
@@ -46,6 +48,8 @@ import org.matsim.core.controler.listener.ScoringListener;
 @Singleton
 final class PlansScoringImpl implements PlansScoring, ScoringListener, IterationEndsListener {
 
+	private static final Timer SCORING_TIMER = Metrics.timer("scoring.finish");
+
 	@Inject private PlanCalcScoreConfigGroup planCalcScoreConfigGroup;
 	@Inject private ControlerConfigGroup controlerConfigGroup;
 	@Inject private Population population;
@@ -55,9 +59,12 @@ final class PlansScoringImpl implements PlansScoring, ScoringListener, Iteration
 
 	@Override
 	public void notifyScoring(final ScoringEvent event) {
+		// (the scoring functions handle the events during the mobsim, this is only the final part)
+		long start = SCORING_TIMER.start();
 		scoringFunctionsForPopulation.finishScoringFunctions();
 		NewScoreAssignerImpl newScoreAssigner = new NewScoreAssignerImpl(this.planCalcScoreConfigGroup, this.controlerConfigGroup);
 		newScoreAssigner.assignNewScores(event.getIteration(), this.scoringFunctionsForPopulation, this.population);
+		SCORING_TIMER.stop(start);
 	}
 
 	@Override
@@ -22,10 +22,15 @@ package org.matsim.core.scoring;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
@@ -42,11 +47,14 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.vehicles.Vehicle;
 
@@ -60,6 +68,13 @@ import gnu.trove.list.array.TDoubleArrayList;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * By default, all calls are serialized by one lock. If a number of shards is configured, the scoring functions are
+ * partitioned by person into shards, each with its own lock-free queue: the event handlers only add to the queues,
+ * and the queues are processed in parallel, either by the thread that finds a queue full, or at the latest in
+ * {@link #finishScoringFunctions()}. As each shard is only processed by one thread at a time, the scoring function
+ * of a person sees exactly the same sequence of calls as with the single lock. Scores read before
+ * {@link #finishScoringFunctions()} may thus not contain the latest events.
  * 
  * @author michaz
  *
@@ -69,8 +84,11 @@ import gnu.trove.list.array.TDoubleArrayList;
 	// can be changed there.  kai, sep'17
 	// I just removed that.  kai, apr'18
 	
-	@SuppressWarnings("unused")
 	private final static Logger log = Logger.getLogger(ScoringFunctionsForPopulation.class);
+
+	/** a shard is processed as soon as this many items are queued */
+	private static final int DRAIN_THRESHOLD = 1024;
+
 	private final Population population;
 	private final ScoringFunctionFactory scoringFunctionFactory;
 
@@ -83,9 +101,12 @@ import gnu.trove.list.array.TDoubleArrayList;
 	 * should be faster and reduce the memory overhead.
 	 *
 	 * cdobler, nov'15
+	 *
+	 * Replaced the (Linked)HashMaps with IdMaps, which use the index of the ids instead of hashing them, and also keep
+	 * the insertion order.
 	 */
-	private final Map<Id<Person>, ScoringFunction> agentScorers = new HashMap<>();
-	private final Map<Id<Person>, TDoubleCollection> partialScores = new LinkedHashMap<>();
+	private final Map<Id<Person>, ScoringFunction> agentScorers = new IdMap<>(Person.class);
+	private final Map<Id<Person>, TDoubleCollection> partialScores = new IdMap<>(Person.class);
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	
 //	/**
@@ -96,9 +117,37 @@ import gnu.trove.list.array.TDoubleArrayList;
 	
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
+	/** null if all calls are serialized by the lock on this instance */
+	private final Shard[] shards;
+	private final int numberOfThreads;
+
 	@Inject
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Population population, ScoringFunctionFactory scoringFunctionFactory, PlanCalcScoreConfigGroup scoreConfig, GlobalConfigGroup globalConfig) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory,
+				scoreConfig.getNumberOfScoringShards(), globalConfig.getNumberOfThreads());
+	}
+
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 								  Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 0, 1);
+	}
+
+	/**
+	 * @param numberOfShards 0 to serialize all calls by one lock
+	 * @param numberOfThreads the number of threads processing the shards in {@link #finishScoringFunctions()}
+	 */
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfShards, int numberOfThreads) {
+		if (numberOfShards > 0) {
+			this.shards = new Shard[numberOfShards];
+			for (int i = 0; i < numberOfShards; i++) {
+				this.shards[i] = new Shard();
+			}
+		} else {
+			this.shards = null;
+		}
+		this.numberOfThreads = Math.max(1, numberOfThreads);
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -124,27 +173,14 @@ import gnu.trove.list.array.TDoubleArrayList;
 	}
 
 	@Override
-	synchronized public void handleEvent(Event o) {
+	public void handleEvent(Event o) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
-			}
+			scoreEvent(((HasPersonId) o).getPersonId(), o);
 		}
 //		if ( passLinkEventsToPerson ) {
 			// Establish and end connection between driver and vehicle
@@ -158,11 +194,9 @@ import gnu.trove.list.array.TDoubleArrayList;
 			if ( o instanceof LinkEnterEvent ) {
 				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId() ;
 				Id<Person> driverId = vehicles2Drivers.getDriverOfVehicle(vehicleId) ;
-				ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
+				scoreEvent( driverId, o );
 				// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-				if (scoringFunction != null) {
-					scoringFunction.handleEvent(o) ;
-				}
+				// (the driver is looked up here, and not when the shard is processed, since vehicles2Drivers is shared by all persons.)
 			}
 			/*
 			 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
@@ -175,7 +209,55 @@ import gnu.trove.list.array.TDoubleArrayList;
 	}
 
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
+	public void handleLeg(PersonExperiencedLeg o) {
+		if (this.shards == null) {
+			synchronized (this) {
+				scoreLeg(o);
+			}
+		} else {
+			getShard(o.getAgentId()).add(o);
+		}
+	}
+
+	@Override
+	public void handleActivity(PersonExperiencedActivity o) {
+		if (this.shards == null) {
+			synchronized (this) {
+				scoreActivity(o);
+			}
+		} else {
+			getShard(o.getAgentId()).add(o);
+		}
+	}
+
+	private void scoreEvent(Id<Person> personId, Event o) {
+		if (this.shards == null) {
+			synchronized (this) {
+				scorePersonEvent(personId, o);
+			}
+		} else if (personId != null) {
+			getShard(personId).add(new PersonEvent(personId, o));
+		}
+	}
+
+	private void scorePersonEvent(Id<Person> personId, Event o) {
+		ScoringFunction scoringFunction = getScoringFunctionForAgent(personId);
+		if (scoringFunction != null) {
+			if (o instanceof PersonStuckEvent) {
+				scoringFunction.agentStuck(o.getTime());
+			} else if (o instanceof PersonMoneyEvent) {
+				scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+				// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+				// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+			}
+//			else {
+				scoringFunction.handleEvent(o);
+				// passing this on in any case, see comment above.  kai, mar'17
+//			}
+		}
+	}
+
+	private void scoreLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -186,8 +268,7 @@ import gnu.trove.list.array.TDoubleArrayList;
 		}
 	}
 
-	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	private void scoreActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -213,6 +294,7 @@ import gnu.trove.list.array.TDoubleArrayList;
 	}
 
 	public void finishScoringFunctions() {
+		processShards();
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = exception.get();
 		if (throwable != null) {
@@ -230,6 +312,87 @@ import gnu.trove.list.array.TDoubleArrayList;
 		}
 	}
 
+	/**
+	 * Processes the remaining items of all shards in parallel.
+	 */
+	private void processShards() {
+		if (this.shards == null) {
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.numberOfThreads, this.shards.length));
+		for (Shard shard : this.shards) {
+			executor.execute(() -> {
+				try {
+					shard.process();
+				} catch (Throwable e) {
+					this.exception.compareAndSet(null, e);
+				}
+			});
+		}
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				log.info("wait for scoring shards to finish...");
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private Shard getShard(Id<Person> personId) {
+		return this.shards[personId.index() % this.shards.length];
+	}
+
+	/**
+	 * The scoring functions of a part of the population, and the queue of events, legs and activities for them.
+	 */
+	private final class Shard {
+		private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger size = new AtomicInteger(0);
+		private final AtomicBoolean processing = new AtomicBoolean(false);
+
+		void add(Object item) {
+			this.queue.add(item);
+			if (this.size.incrementAndGet() >= DRAIN_THRESHOLD) {
+				process();
+			}
+		}
+
+		/**
+		 * Passes all queued items to the scoring functions, unless another thread is already doing so.
+		 */
+		void process() {
+			if (!this.processing.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				Object item;
+				while ((item = this.queue.poll()) != null) {
+					this.size.decrementAndGet();
+					if (item instanceof PersonEvent) {
+						scorePersonEvent(((PersonEvent) item).personId, ((PersonEvent) item).event);
+					} else if (item instanceof PersonExperiencedLeg) {
+						scoreLeg((PersonExperiencedLeg) item);
+					} else {
+						scoreActivity((PersonExperiencedActivity) item);
+					}
+				}
+			} finally {
+				this.processing.set(false);
+			}
+		}
+	}
+
+	private static final class PersonEvent {
+		private final Id<Person> personId;
+		private final Event event;
+
+		PersonEvent(Id<Person> personId, Event event) {
+			this.personId = personId;
+			this.event = event;
+		}
+	}
+
 	public void writePartialScores(String iterationFilename) {
 		try ( BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename) ) {
 			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
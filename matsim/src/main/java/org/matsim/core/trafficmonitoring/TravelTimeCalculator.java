@@ -19,7 +19,9 @@
  * *********************************************************************** */
 package org.matsim.core.trafficmonitoring;
 
-import java.util.HashSet;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -47,6 +49,8 @@ import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.core.utils.collections.IdMap;
+import org.matsim.core.utils.collections.IdSet;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 
@@ -98,6 +102,14 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	private final boolean calculateLinkToLinkTravelTimes;
 
 	private TravelTimeDataFactory ttDataFactory = null;
+
+	/*
+	 * Only set for TravelTimeCalculatorType.TravelTimeCalculatorDenseArray. Then, the link travel times are stored in
+	 * the dense arrays instead of linkData, and the link enter times in denseLinkEnterTimes instead of linkEnterEvents.
+	 */
+	private TravelTimeDataDense denseData = null;
+	private DataContainer[] denseLinkData = null;
+	private VehicleLinkEnterTimes denseLinkEnterTimes = null;
 	
 	@Inject private QSimConfigGroup qsimConfig ;
 
@@ -116,6 +128,11 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			case TravelTimeCalculatorHashMap:
 				calculator.setTravelTimeDataFactory(new TravelTimeDataHashMapFactory(network));
 				break;
+			case TravelTimeCalculatorDenseArray:
+				// (the factory is still used for the link to link travel times)
+				calculator.setTravelTimeDataFactory(new TravelTimeDataArrayFactory(network, calculator.numSlots));
+				calculator.useDenseLinkData(network);
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -194,23 +211,46 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		this.linkEnterEvents = new IdMap<>(Vehicle.class);
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.vehiclesToIgnore = new IdSet<>(Vehicle.class);
 
 
 		this.reset(0);
 
 	}
 
+	/*package*/ void useDenseLinkData(final Network network) {
+		this.denseData = new TravelTimeDataDense(network, this.numSlots);
+		this.denseLinkData = new DataContainer[this.denseData.getNumberOfLinks()];
+		for (int i = 0; i < this.denseLinkData.length; i++) {
+			this.denseLinkData[i] = new DataContainer(this.denseData.getTravelTimeData(i));
+		}
+		this.denseLinkEnterTimes = new VehicleLinkEnterTimes();
+	}
+
 	@Override
 	public void handleEvent(final LinkEnterEvent e) {
 		/* if only some modes are analyzed, we check whether the vehicles
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
 
+		if (this.denseData != null) {
+			if (this.calculateLinkToLinkTravelTimes) {
+				int slot = this.denseLinkEnterTimes.find(e.getVehicleId());
+				if (slot != VehicleLinkEnterTimes.NOT_FOUND && this.denseLinkEnterTimes.getLinkIndex(slot) != TravelTimeDataDense.NO_INDEX) {
+					Id<Link> fromLinkId = this.denseData.getLink(this.denseLinkEnterTimes.getLinkIndex(slot)).getId();
+					DataContainer data = getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, e.getLinkId()), true);
+					this.aggregator.addTravelTime(data.ttData, this.denseLinkEnterTimes.getTime(slot), e.getTime());
+					data.needsConsolidation = true;
+				}
+			}
+			this.denseLinkEnterTimes.put(e.getVehicleId(), e.getTime(), this.denseData.getLinkIndex(e.getLinkId()));
+			return;
+		}
+
 		LinkEnterEvent oldEvent = this.linkEnterEvents.remove(e.getVehicleId());
 		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
 			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
@@ -223,7 +263,20 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
-		if (this.calculateLinkTravelTimes) {
+		if (this.calculateLinkTravelTimes && this.denseData != null) {
+			int slot = this.denseLinkEnterTimes.find(e.getVehicleId());
+			if (slot != VehicleLinkEnterTimes.NOT_FOUND) {
+				// the vehicle leaves the link it entered before, so there is no need to look up the link again
+				int linkIndex = this.denseLinkEnterTimes.getLinkIndex(slot);
+				if (linkIndex != TravelTimeDataDense.NO_INDEX) {
+					DataContainer data = this.denseLinkData[linkIndex];
+					this.aggregator.addTravelTime(data.ttData, this.denseLinkEnterTimes.getTime(slot), e.getTime());
+					data.needsConsolidation = true;
+				} else {
+					addTravelTime(e.getLinkId(), this.denseLinkEnterTimes.getTime(slot), e.getTime());
+				}
+			}
+		} else if (this.calculateLinkTravelTimes) {
 			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
 			if (oldEvent != null) {
 				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
@@ -248,7 +301,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		removeLinkEnterTime(event.getVehicleId());
 
 		// try to remove vehicles from set with filtered vehicles
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
@@ -259,16 +312,49 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		removeLinkEnterTime(event.getVehicleId());
+	}
+
+	private void removeLinkEnterTime(Id<Vehicle> vehicleId) {
+		if (this.denseData != null) {
+			this.denseLinkEnterTimes.remove(vehicleId);
+		} else {
+			this.linkEnterEvents.remove(vehicleId);
+		}
+	}
+
+	/*
+	 * Fallback for links that are not part of the network the dense data was created for.
+	 */
+	private void addTravelTime(Id<Link> linkId, double enterTime, double leaveTime) {
+		DataContainer data = this.dataContainerProvider.getTravelTimeData(linkId, true);
+		this.aggregator.addTravelTime(data.ttData, enterTime, leaveTime);
+		data.needsConsolidation = true;
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		DataContainer data = null;
+		double enterTime = 0.0;
+		if (this.denseData != null) {
+			int slot = this.denseLinkEnterTimes.find(event.getVehicleId());
+			if (slot != VehicleLinkEnterTimes.NOT_FOUND) {
+				int linkIndex = this.denseLinkEnterTimes.getLinkIndex(slot);
+				enterTime = this.denseLinkEnterTimes.getTime(slot);
+				data = linkIndex != TravelTimeDataDense.NO_INDEX ? this.denseLinkData[linkIndex]
+						: this.dataContainerProvider.getTravelTimeData(event.getLinkId(), true);
+				this.denseLinkEnterTimes.remove(event.getVehicleId());
+			}
+		} else {
+			LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
+			if (e != null) {
+				data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+				enterTime = e.getTime();
+			}
+		}
+		if (data != null) {
 			data.needsConsolidation = true;
-			this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
+			this.aggregator.addStuckEventTravelTime(data.ttData, enterTime, event.getTime());
 			if (this.calculateLinkToLinkTravelTimes 
 					&& event.getTime() < qsimConfig.getEndTime() 
 					// (we think that this only makes problems when the abort is not just because of mobsim end time. kai & theresa, jan'17) 
@@ -300,7 +386,16 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	public double getLinkTravelTime(final Link link, final double time) {
 		if (this.calculateLinkTravelTimes) {
 			
-			DataContainer data = this.dataContainerProvider.getTravelTimeData(link, true);
+			DataContainer data = null;
+			if (this.denseData != null) {
+				int linkIndex = this.denseData.getLinkIndex(link.getId());
+				if (linkIndex != TravelTimeDataDense.NO_INDEX) {
+					data = this.denseLinkData[linkIndex];
+				}
+			}
+			if (data == null) {
+				data = this.dataContainerProvider.getTravelTimeData(link, true);
+			}
 			if (data.needsConsolidation) {
 				consolidateData(data);
 			}
@@ -364,6 +459,13 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 				data.needsConsolidation = false;
 			}
 		}
+		if (this.denseData != null) {
+			this.denseData.resetTravelTimes();
+			for (DataContainer data : this.denseLinkData) {
+				data.needsConsolidation = false;
+			}
+			this.denseLinkEnterTimes.clear();
+		}
 		this.linkEnterEvents.clear();
 		this.vehiclesToIgnore.clear();
 	}
@@ -440,6 +542,109 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		return this.timeSlice;
 	}
 
+	/**
+	 * @return whether the travel times can be written with {@link #writeCheckpoint(DataOutput)}, which is not the case
+	 * if a custom {@link TravelTimeDataFactory} is set
+	 */
+	public boolean isCheckpointSupported() {
+		Class<?> factoryClass = this.ttDataFactory.getClass();
+		return factoryClass == TravelTimeDataArrayFactory.class || factoryClass == TravelTimeDataHashMapFactory.class;
+	}
+
+	/**
+	 * Writes the collected travel times in a binary format, such that {@link #readCheckpoint(DataInput)} restores
+	 * them exactly, including already cached and consolidated values. Only the data structures created by
+	 * {@link #configure(TravelTimeCalculator, TravelTimeCalculatorConfigGroup, Network)} are supported, see
+	 * {@link #isCheckpointSupported()}.
+	 */
+	public void writeCheckpoint(final DataOutput out) throws IOException {
+		out.writeInt(this.numSlots);
+		out.writeBoolean(this.calculateLinkTravelTimes);
+		if (this.calculateLinkTravelTimes) {
+			out.writeInt(this.linkData.size());
+			for (Map.Entry<Id<Link>, DataContainer> e : this.linkData.entrySet()) {
+				out.writeUTF(e.getKey().toString());
+				writeDataContainer(e.getValue(), out);
+			}
+		}
+		out.writeBoolean(this.calculateLinkToLinkTravelTimes);
+		if (this.calculateLinkToLinkTravelTimes) {
+			out.writeInt(this.linkToLinkData.size());
+			for (Map.Entry<Tuple<Id<Link>, Id<Link>>, DataContainer> e : this.linkToLinkData.entrySet()) {
+				out.writeUTF(e.getKey().getFirst().toString());
+				out.writeUTF(e.getKey().getSecond().toString());
+				writeDataContainer(e.getValue(), out);
+			}
+		}
+		out.writeBoolean(this.denseData != null);
+		if (this.denseData != null) {
+			this.denseData.writeState(out);
+			for (DataContainer data : this.denseLinkData) {
+				out.writeBoolean(data.needsConsolidation);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the collected travel times by the ones written with {@link #writeCheckpoint(DataOutput)}. The calculator
+	 * must be set up the same way as the one that wrote the data.
+	 */
+	public void readCheckpoint(final DataInput in) throws IOException {
+		if (in.readInt() != this.numSlots || in.readBoolean() != this.calculateLinkTravelTimes) {
+			throw new IllegalStateException("The travel time data was written with a different configuration.");
+		}
+		reset(0);
+		if (this.calculateLinkTravelTimes) {
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				Id<Link> linkId = Id.create(in.readUTF(), Link.class);
+				readDataContainer(this.dataContainerProvider.getTravelTimeData(linkId, true), in);
+			}
+		}
+		if (in.readBoolean() != this.calculateLinkToLinkTravelTimes) {
+			throw new IllegalStateException("The travel time data was written with a different configuration.");
+		}
+		if (this.calculateLinkToLinkTravelTimes) {
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				Id<Link> fromLinkId = Id.create(in.readUTF(), Link.class);
+				Id<Link> toLinkId = Id.create(in.readUTF(), Link.class);
+				readDataContainer(getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId), true), in);
+			}
+		}
+		if (in.readBoolean() != (this.denseData != null)) {
+			throw new IllegalStateException("The travel time data was written with a different configuration.");
+		}
+		if (this.denseData != null) {
+			this.denseData.readState(in);
+			for (DataContainer data : this.denseLinkData) {
+				data.needsConsolidation = in.readBoolean();
+			}
+		}
+	}
+
+	private static void writeDataContainer(final DataContainer data, final DataOutput out) throws IOException {
+		out.writeBoolean(data.needsConsolidation);
+		if (data.ttData instanceof TravelTimeDataArray) {
+			((TravelTimeDataArray) data.ttData).writeState(out);
+		} else if (data.ttData instanceof TravelTimeDataHashMap) {
+			((TravelTimeDataHashMap) data.ttData).writeState(out);
+		} else {
+			throw new UnsupportedOperationException("Cannot write travel time data of type " + data.ttData.getClass().getName());
+		}
+	}
+
+	private static void readDataContainer(final DataContainer data, final DataInput in) throws IOException {
+		data.needsConsolidation = in.readBoolean();
+		if (data.ttData instanceof TravelTimeDataArray) {
+			((TravelTimeDataArray) data.ttData).readState(in);
+		} else if (data.ttData instanceof TravelTimeDataHashMap) {
+			((TravelTimeDataHashMap) data.ttData).readState(in);
+		} else {
+			throw new UnsupportedOperationException("Cannot read travel time data of type " + data.ttData.getClass().getName());
+		}
+	}
+
 	/*package*/ static class DataContainer {
 		/*package*/ final TravelTimeData ttData;
 		/*package*/ volatile boolean needsConsolidation = false;
@@ -20,6 +20,10 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.matsim.api.core.v01.network.Link;
 
 /**
@@ -93,6 +97,26 @@ public class TravelTimeDataArray implements TravelTimeData {
 		this.travelTimes[timeSlot] = sum / cnt;
 		return this.travelTimes[timeSlot];
 	}
+
+	/*package*/ void writeState(final DataOutput out) throws IOException {
+		out.writeInt(this.timeSum.length);
+		for (int i = 0; i < this.timeSum.length; i++) {
+			out.writeDouble(this.timeSum[i]);
+			out.writeInt(this.timeCnt[i]);
+			out.writeDouble(this.travelTimes[i]);
+		}
+	}
+
+	/*package*/ void readState(final DataInput in) throws IOException {
+		if (in.readInt() != this.timeSum.length) {
+			throw new IllegalStateException("The travel time data was written with a different number of time slots.");
+		}
+		for (int i = 0; i < this.timeSum.length; i++) {
+			this.timeSum[i] = in.readDouble();
+			this.timeCnt[i] = in.readInt();
+			this.travelTimes[i] = in.readDouble();
+		}
+	}
 	
 
 }
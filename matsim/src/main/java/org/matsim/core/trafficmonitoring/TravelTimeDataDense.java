@@ -0,0 +1,174 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataDense.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.trafficmonitoring;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Stores the travel times of all links of a network in three flat arrays, indexed by <code>linkIndex * numSlots + timeSlot</code>.
+ * The links are numbered in the iteration order of the network. The index of a link is looked up in an array which is
+ * indexed by {@link Id#index()}, so no hashing or {@link String#equals(Object)} is necessary.
+ * <p></p>
+ * {@link #getTravelTimeData(int)} returns a light-weight {@link TravelTimeData} view per link for the aggregators and getters.
+ */
+final class TravelTimeDataDense {
+
+	/*package*/ static final int NO_INDEX = -1;
+
+	private final int numSlots;
+	private final Link[] links;
+	private final double[] timeSum;
+	private final int[] timeCnt;
+	private final double[] travelTimes;
+	private final TravelTimeData[] views;
+
+	// the link index by the index of the link id
+	private final int[] linkIndices;
+
+	TravelTimeDataDense(final Network network, final int numSlots) {
+		this.numSlots = numSlots;
+		this.links = network.getLinks().values().toArray(new Link[0]);
+		int size = this.links.length * numSlots;
+		this.timeSum = new double[size];
+		this.timeCnt = new int[size];
+		this.travelTimes = new double[size];
+		this.views = new TravelTimeData[this.links.length];
+
+		this.linkIndices = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(this.linkIndices, NO_INDEX);
+		for (int i = 0; i < this.links.length; i++) {
+			this.linkIndices[this.links[i].getId().index()] = i;
+			this.views[i] = new View(i);
+		}
+		resetTravelTimes();
+	}
+
+	/**
+	 * @return the index of the link, or {@value #NO_INDEX} if the link is not part of the network.
+	 */
+	/*package*/ int getLinkIndex(final Id<Link> linkId) {
+		int index = linkId.index();
+		// ids which have been created after this object cannot belong to a link of the network
+		return index < this.linkIndices.length ? this.linkIndices[index] : NO_INDEX;
+	}
+
+	/*package*/ int getNumberOfLinks() {
+		return this.links.length;
+	}
+
+	/*package*/ Link getLink(final int linkIndex) {
+		return this.links[linkIndex];
+	}
+
+	/*package*/ TravelTimeData getTravelTimeData(final int linkIndex) {
+		return this.views[linkIndex];
+	}
+
+	/*package*/ void resetTravelTimes() {
+		Arrays.fill(this.timeSum, 0.0);
+		Arrays.fill(this.timeCnt, 0);
+		Arrays.fill(this.travelTimes, -1.0);
+	}
+
+	/**
+	 * Writes the data of all links in network order, which is why {@link #readState(DataInput)} expects the same network.
+	 */
+	/*package*/ void writeState(final DataOutput out) throws IOException {
+		out.writeInt(this.links.length);
+		out.writeInt(this.numSlots);
+		for (int i = 0; i < this.timeSum.length; i++) {
+			out.writeDouble(this.timeSum[i]);
+			out.writeInt(this.timeCnt[i]);
+			out.writeDouble(this.travelTimes[i]);
+		}
+	}
+
+	/*package*/ void readState(final DataInput in) throws IOException {
+		if (in.readInt() != this.links.length || in.readInt() != this.numSlots) {
+			throw new IllegalStateException("The travel time data was written for a different network or number of time slots.");
+		}
+		for (int i = 0; i < this.timeSum.length; i++) {
+			this.timeSum[i] = in.readDouble();
+			this.timeCnt[i] = in.readInt();
+			this.travelTimes[i] = in.readDouble();
+		}
+	}
+
+	private final class View implements TravelTimeData {
+		private final int linkIndex;
+		private final int offset;
+
+		View(final int linkIndex) {
+			this.linkIndex = linkIndex;
+			this.offset = linkIndex * TravelTimeDataDense.this.numSlots;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			int to = this.offset + TravelTimeDataDense.this.numSlots;
+			Arrays.fill(TravelTimeDataDense.this.timeSum, this.offset, to, 0.0);
+			Arrays.fill(TravelTimeDataDense.this.timeCnt, this.offset, to, 0);
+			Arrays.fill(TravelTimeDataDense.this.travelTimes, this.offset, to, -1.0);
+		}
+
+		@Override
+		public void addTravelTime(final int timeSlot, final double traveltime) {
+			int i = this.offset + timeSlot;
+			TravelTimeDataDense.this.timeSum[i] += traveltime;
+			TravelTimeDataDense.this.timeCnt[i]++;
+			TravelTimeDataDense.this.travelTimes[i] = -1.0; // invalidate the cached value
+		}
+
+		@Override
+		public void setTravelTime(final int timeSlot, final double traveltime) {
+			int i = this.offset + timeSlot;
+			TravelTimeDataDense.this.timeSum[i] = traveltime;
+			TravelTimeDataDense.this.timeCnt[i] = 1;
+			TravelTimeDataDense.this.travelTimes[i] = traveltime;
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			int i = this.offset + timeSlot;
+			double ttime = TravelTimeDataDense.this.travelTimes[i];
+			if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+			int cnt = TravelTimeDataDense.this.timeCnt[i];
+			if (cnt == 0) {
+				Link link = TravelTimeDataDense.this.links[this.linkIndex];
+				ttime = link.getLength() / link.getFreespeed(now);
+			} else {
+				ttime = TravelTimeDataDense.this.timeSum[i] / cnt;
+			}
+			TravelTimeDataDense.this.travelTimes[i] = ttime;
+			return ttime;
+		}
+	}
+
+}
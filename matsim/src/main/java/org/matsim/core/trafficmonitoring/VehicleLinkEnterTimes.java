@@ -0,0 +1,158 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehicleLinkEnterTimes.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Remembers when and on which link (by its index in {@link TravelTimeDataDense}) each vehicle entered its current link.
+ * Open addressing with linear probing and primitive values, so no objects are created per event.
+ */
+final class VehicleLinkEnterTimes {
+
+	/*package*/ static final int NOT_FOUND = -1;
+
+	private static final double MAX_LOAD = 0.5;
+
+	private Object[] keys;
+	private double[] times;
+	private int[] linkIndices;
+	private int mask;
+	private int size = 0;
+
+	VehicleLinkEnterTimes() {
+		allocate(1024);
+	}
+
+	private void allocate(final int capacity) {
+		this.keys = new Object[capacity];
+		this.times = new double[capacity];
+		this.linkIndices = new int[capacity];
+		this.mask = capacity - 1;
+	}
+
+	private static int hash(final Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return the slot of the vehicle, to be used with {@link #getTime(int)} and {@link #getLinkIndex(int)},
+	 * or {@value #NOT_FOUND}.
+	 */
+	/*package*/ int find(final Id<Vehicle> vehicleId) {
+		int slot = hash(vehicleId) & this.mask;
+		Object key;
+		while ((key = this.keys[slot]) != null) {
+			if (key == vehicleId || key.equals(vehicleId)) {
+				return slot;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		return NOT_FOUND;
+	}
+
+	/*package*/ double getTime(final int slot) {
+		return this.times[slot];
+	}
+
+	/*package*/ int getLinkIndex(final int slot) {
+		return this.linkIndices[slot];
+	}
+
+	/*package*/ void put(final Id<Vehicle> vehicleId, final double time, final int linkIndex) {
+		int slot = hash(vehicleId) & this.mask;
+		Object key;
+		while ((key = this.keys[slot]) != null) {
+			if (key == vehicleId || key.equals(vehicleId)) {
+				break;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		if (key == null) {
+			this.keys[slot] = vehicleId;
+			this.size++;
+		}
+		this.times[slot] = time;
+		this.linkIndices[slot] = linkIndex;
+		if (this.size > this.keys.length * MAX_LOAD) {
+			rehash();
+		}
+	}
+
+	/*package*/ void remove(final Id<Vehicle> vehicleId) {
+		int slot = find(vehicleId);
+		if (slot == NOT_FOUND) {
+			return;
+		}
+		this.size--;
+		// backward shift deletion, so that no tombstones are needed
+		int next = slot;
+		while (true) {
+			next = (next + 1) & this.mask;
+			Object key = this.keys[next];
+			if (key == null) {
+				break;
+			}
+			int home = hash(key) & this.mask;
+			// move the entry if its home slot is not within (slot, next]
+			if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+				this.keys[slot] = key;
+				this.times[slot] = this.times[next];
+				this.linkIndices[slot] = this.linkIndices[next];
+				slot = next;
+			}
+		}
+		this.keys[slot] = null;
+	}
+
+	/*package*/ void clear() {
+		Arrays.fill(this.keys, null);
+		this.size = 0;
+	}
+
+	/*package*/ int size() {
+		return this.size;
+	}
+
+	private void rehash() {
+		Object[] oldKeys = this.keys;
+		double[] oldTimes = this.times;
+		int[] oldLinkIndices = this.linkIndices;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = hash(oldKeys[i]) & this.mask;
+				while (this.keys[slot] != null) {
+					slot = (slot + 1) & this.mask;
+				}
+				this.keys[slot] = oldKeys[i];
+				this.times[slot] = oldTimes[i];
+				this.linkIndices[slot] = oldLinkIndices[i];
+			}
+		}
+	}
+
+}
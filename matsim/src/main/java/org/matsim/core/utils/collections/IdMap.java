@@ -0,0 +1,402 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * A map with {@link Id}s as keys, backed by arrays that are indexed by {@link Id#index()}. Lookups are thus an array access
+ * instead of hashing the id's string. Like a {@link java.util.LinkedHashMap}, the entries are iterated in the order they
+ * were inserted.
+ * <p></p>
+ * The arrays grow up to the largest index of the contained ids, so this map is meant for cases where a large part of all
+ * ids of a type is stored, e.g. all links of the network or all persons of the population.
+ * <p></p>
+ * <code>null</code> values are not supported. The map is not thread-safe.
+ *
+ * @param <T> the type of the ids
+ * @param <V> the type of the values
+ */
+public final class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private static final int NONE = -1;
+
+	private final Class<T> idClass;
+	private Id<T>[] keys;
+	private Object[] values;
+	// doubly linked list of the used indices, in insertion order
+	private int[] next;
+	private int[] previous;
+	private int first = NONE;
+	private int last = NONE;
+	private int size = 0;
+	private int modCount = 0;
+
+	private Set<Id<T>> keySet = null;
+	private Collection<V> valuesCollection = null;
+	private Set<Map.Entry<Id<T>, V>> entrySet = null;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(16, Id.getNumberOfIds(idClass)));
+	}
+
+	@SuppressWarnings("unchecked")
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		int capacity = Math.max(1, initialCapacity);
+		this.keys = new Id[capacity];
+		this.values = new Object[capacity];
+		this.next = new int[capacity];
+		this.previous = new int[capacity];
+	}
+
+	/**
+	 * @return the index of the key within this map, or {@value #NONE} if the key cannot be contained.
+	 */
+	private int indexOf(final Object key) {
+		if (!(key instanceof Id)) {
+			return NONE;
+		}
+		Id<?> id = (Id<?>) key;
+		int index = id.index();
+		if (index < this.keys.length && this.keys[index] == id) {
+			return index;
+		}
+		// not contained, or an id of another type. Ids of different types with the same string are equal.
+		Id<T> sameId = Id.get(id.toString(), this.idClass);
+		return sameId == null ? NONE : sameId.index();
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		int index = indexOf(key);
+		return index != NONE && index < this.keys.length && this.keys[index] != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(final Object key) {
+		if (key instanceof Id) {
+			// fast path, avoids indexOf() for the common case
+			int index = ((Id<?>) key).index();
+			if (index < this.keys.length && this.keys[index] == key) {
+				return (V) this.values[index];
+			}
+		}
+		int index = indexOf(key);
+		return index != NONE && index < this.values.length ? (V) this.values[index] : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(final Id<T> key, final V value) {
+		if (value == null) {
+			throw new NullPointerException("IdMap does not support null values.");
+		}
+		int index = indexOf(key);
+		if (index == NONE) {
+			// an id that was not created for this type
+			index = Id.create(key.toString(), this.idClass).index();
+		}
+		ensureCapacity(index + 1);
+		if (this.keys[index] != null) {
+			V old = (V) this.values[index];
+			this.values[index] = value;
+			return old;
+		}
+		this.keys[index] = Id.get(index, this.idClass);
+		this.values[index] = value;
+		this.previous[index] = this.last;
+		this.next[index] = NONE;
+		if (this.last == NONE) {
+			this.first = index;
+		} else {
+			this.next[this.last] = index;
+		}
+		this.last = index;
+		this.size++;
+		this.modCount++;
+		return null;
+	}
+
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		if (index == NONE || index >= this.keys.length || this.keys[index] == null) {
+			return null;
+		}
+		return removeIndex(index);
+	}
+
+	@SuppressWarnings("unchecked")
+	private V removeIndex(final int index) {
+		V old = (V) this.values[index];
+		int previousIndex = this.previous[index];
+		int nextIndex = this.next[index];
+		if (previousIndex == NONE) {
+			this.first = nextIndex;
+		} else {
+			this.next[previousIndex] = nextIndex;
+		}
+		if (nextIndex == NONE) {
+			this.last = previousIndex;
+		} else {
+			this.previous[nextIndex] = previousIndex;
+		}
+		this.keys[index] = null;
+		this.values[index] = null;
+		this.size--;
+		this.modCount++;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.keys, null);
+		Arrays.fill(this.values, null);
+		this.first = NONE;
+		this.last = NONE;
+		this.size = 0;
+		this.modCount++;
+	}
+
+	private void ensureCapacity(final int capacity) {
+		if (capacity > this.keys.length) {
+			int newCapacity = Math.max(capacity, Math.max(Id.getNumberOfIds(this.idClass), this.keys.length * 3 / 2));
+			this.keys = Arrays.copyOf(this.keys, newCapacity);
+			this.values = Arrays.copyOf(this.values, newCapacity);
+			this.next = Arrays.copyOf(this.next, newCapacity);
+			this.previous = Arrays.copyOf(this.previous, newCapacity);
+		}
+	}
+
+	@Override
+	public Set<Id<T>> keySet() {
+		if (this.keySet == null) {
+			this.keySet = new AbstractSet<Id<T>>() {
+				@Override
+				public Iterator<Id<T>> iterator() {
+					return new IdMapIterator<Id<T>>() {
+						@Override
+						Id<T> get(int index) {
+							return IdMap.this.keys[index];
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return IdMap.this.size;
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return containsKey(o);
+				}
+
+				@Override
+				public boolean remove(Object o) {
+					int sizeBefore = IdMap.this.size;
+					IdMap.this.remove(o);
+					return IdMap.this.size != sizeBefore;
+				}
+
+				@Override
+				public void clear() {
+					IdMap.this.clear();
+				}
+			};
+		}
+		return this.keySet;
+	}
+
+	@Override
+	public Collection<V> values() {
+		if (this.valuesCollection == null) {
+			this.valuesCollection = new AbstractCollection<V>() {
+				@Override
+				public Iterator<V> iterator() {
+					return new IdMapIterator<V>() {
+						@SuppressWarnings("unchecked")
+						@Override
+						V get(int index) {
+							return (V) IdMap.this.values[index];
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return IdMap.this.size;
+				}
+
+				@Override
+				public void clear() {
+					IdMap.this.clear();
+				}
+			};
+		}
+		return this.valuesCollection;
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		if (this.entrySet == null) {
+			this.entrySet = new AbstractSet<Map.Entry<Id<T>, V>>() {
+				@Override
+				public Iterator<Map.Entry<Id<T>, V>> iterator() {
+					return new IdMapIterator<Map.Entry<Id<T>, V>>() {
+						@Override
+						Map.Entry<Id<T>, V> get(int index) {
+							return new IdMapEntry(index);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return IdMap.this.size;
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					if (!(o instanceof Map.Entry)) {
+						return false;
+					}
+					Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+					V value = IdMap.this.get(entry.getKey());
+					return value != null && value.equals(entry.getValue());
+				}
+
+				@Override
+				public void clear() {
+					IdMap.this.clear();
+				}
+			};
+		}
+		return this.entrySet;
+	}
+
+	private abstract class IdMapIterator<E> implements Iterator<E> {
+		private int nextIndex = IdMap.this.first;
+		private int lastIndex = NONE;
+		private int expectedModCount = IdMap.this.modCount;
+
+		abstract E get(int index);
+
+		@Override
+		public boolean hasNext() {
+			return this.nextIndex != NONE;
+		}
+
+		@Override
+		public E next() {
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (this.nextIndex == NONE) {
+				throw new NoSuchElementException();
+			}
+			this.lastIndex = this.nextIndex;
+			this.nextIndex = IdMap.this.next[this.lastIndex];
+			return get(this.lastIndex);
+		}
+
+		@Override
+		public void remove() {
+			if (this.lastIndex == NONE) {
+				throw new IllegalStateException();
+			}
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeIndex(this.lastIndex);
+			this.lastIndex = NONE;
+			this.expectedModCount = IdMap.this.modCount;
+		}
+	}
+
+	private final class IdMapEntry implements Map.Entry<Id<T>, V> {
+		private final int index;
+
+		IdMapEntry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return IdMap.this.keys[this.index];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V getValue() {
+			return (V) IdMap.this.values[this.index];
+		}
+
+		@Override
+		public V setValue(final V value) {
+			return put(getKey(), value);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			return getKey().equals(entry.getKey()) && getValue().equals(entry.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return getKey().hashCode() ^ getValue().hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
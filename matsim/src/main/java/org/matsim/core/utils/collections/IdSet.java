@@ -0,0 +1,77 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSet.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * A set of {@link Id}s, backed by an {@link IdMap}. Contains-checks are thus an array access, and the ids are iterated in
+ * the order they were added.
+ *
+ * @param <T> the type of the ids
+ */
+public final class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final IdMap<T, Boolean> map;
+
+	public IdSet(final Class<T> idClass) {
+		this.map = new IdMap<>(idClass);
+	}
+
+	public IdSet(final Class<T> idClass, final int initialCapacity) {
+		this.map = new IdMap<>(idClass, initialCapacity);
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		return this.map.put(id, Boolean.TRUE) == null;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		return this.map.containsKey(o);
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		return this.map.remove(o) != null;
+	}
+
+	@Override
+	public void clear() {
+		this.map.clear();
+	}
+
+	@Override
+	public int size() {
+		return this.map.size();
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return this.map.keySet().iterator();
+	}
+
+}
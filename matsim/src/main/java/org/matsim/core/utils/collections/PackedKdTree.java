@@ -0,0 +1,612 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedKdTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.core.utils.collections.QuadTree.Executor;
+import org.matsim.core.utils.collections.QuadTree.Rect;
+
+/**
+ * A static spatial index with the same query methods as {@link QuadTree}, for data that does not change
+ * after it was loaded (network nodes and links, facilities, transit stops).
+ * <p></p>
+ * All entries are added to a {@link Builder} first and are then bulk-loaded into a balanced kd-tree.
+ * The tree is implicit: the coordinates are stored interleaved in a single <code>double[]</code>, the
+ * values in an <code>Object[]</code> in the same order, and every sub-tree is a contiguous range of
+ * these arrays with its splitting entry in the middle. Ranges of at most {@value #NODE_SIZE} entries are
+ * not split any further but scanned linearly. There are no node objects to follow, so queries touch
+ * far fewer cache lines than in the {@link QuadTree}.
+ * <p></p>
+ * The queries do not allocate any memory besides the returned collections. The variants that take a
+ * collection or an array to store the results in do not allocate at all. All queries are thread-safe.
+ *
+ * @param <T> The type of data to be stored in the tree.
+ */
+public final class PackedKdTree<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** the maximal number of entries in a range that is scanned linearly instead of being split */
+	private static final int NODE_SIZE = 16;
+
+	/** x0, y0, x1, y1, ... */
+	private final double[] coords;
+	private final Object[] values;
+	private final double minX;
+	private final double minY;
+	private final double maxX;
+	private final double maxY;
+
+	private transient volatile List<T> valuesView = null;
+
+	private PackedKdTree(final double[] coords, final Object[] values) {
+		this.coords = coords;
+		this.values = values;
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < values.length; i++) {
+			minX = Math.min(minX, coords[2 * i]);
+			minY = Math.min(minY, coords[2 * i + 1]);
+			maxX = Math.max(maxX, coords[2 * i]);
+			maxY = Math.max(maxY, coords[2 * i + 1]);
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		sort(0, values.length - 1, 0);
+	}
+
+	/**
+	 * Gets the object closest to x/y
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @return the object found closest to x/y, or <code>null</code> if the tree is empty
+	 */
+	public T getClosest(final double x, final double y) {
+		int index = nearest(x, y, 0, this.values.length - 1, 0, -1);
+		return index < 0 ? null : getValue(index);
+	}
+
+	/**
+	 * Gets the <code>k</code> objects closest to x/y, ordered by increasing distance.
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @param k the number of objects to find
+	 * @return the (at most <code>k</code>) objects found closest to x/y
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> getKNearest(final double x, final double y, final int k) {
+		T[] result = (T[]) new Object[k];
+		int count = getKNearest(x, y, k, result, new double[k]);
+		return Arrays.asList(Arrays.copyOf(result, count));
+	}
+
+	/**
+	 * Gets the <code>k</code> objects closest to x/y, ordered by increasing distance, and stores them
+	 * together with their distances to x/y in the given arrays. This method does not allocate any memory.
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @param k the number of objects to find
+	 * @param values1 an array of at least length <code>k</code> to store the found objects in
+	 * @param distances an array of at least length <code>k</code> to store the distances of the found objects in
+	 * @return the number of objects found, which is smaller than <code>k</code> only if the tree contains less than <code>k</code> entries
+	 */
+	public int getKNearest(final double x, final double y, final int k, final T[] values1, final double[] distances) {
+		if (values1.length < k || distances.length < k) {
+			throw new IllegalArgumentException("the result arrays must have at least length k=" + k);
+		}
+		if (k <= 0) {
+			return 0;
+		}
+		int count = nearest(x, y, k, 0, this.values.length - 1, 0, values1, distances, 0);
+		for (int i = 0; i < count; i++) {
+			distances[i] = Math.sqrt(distances[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Gets all objects within a certain distance around x/y
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param distance the maximal distance returned objects can be away from x/y
+	 * @return the objects found within distance to x/y
+	 */
+	public Collection<T> getDisk(final double x, final double y, final double distance) {
+		return getDisk(x, y, distance, new ArrayList<T>());
+	}
+
+	/**
+	 * Gets all objects within a certain distance around x/y
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param distance the maximal distance returned objects can be away from x/y
+	 * @param values1 A collection to store the found objects in.
+	 * @return the objects found within distance to x/y
+	 */
+	public Collection<T> getDisk(final double x, final double y, final double distance, final Collection<T> values1) {
+		ring(x, y, Double.NEGATIVE_INFINITY, distance * distance, distance, 0, this.values.length - 1, 0, values1);
+		return values1;
+	}
+
+	/**
+	 * Gets all objects within a linear ring (including borders).
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param r_min inner ring radius
+	 * @param r_max outer rind radius
+	 * @return objects within the ring
+	 */
+	public Collection<T> getRing(final double x, final double y, final double r_min, final double r_max) {
+		return getRing(x, y, r_min, r_max, new ArrayList<T>());
+	}
+
+	/**
+	 * Gets all objects within a linear ring (including borders).
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param r_min inner ring radius
+	 * @param r_max outer rind radius
+	 * @param values1 A collection to store the found objects in.
+	 * @return objects within the ring
+	 */
+	public Collection<T> getRing(final double x, final double y, final double r_min, final double r_max, final Collection<T> values1) {
+		ring(x, y, r_min * r_min, r_max * r_max, r_max, 0, this.values.length - 1, 0, values1);
+		return values1;
+	}
+
+	/**
+	 * Gets all objects within an elliptical region.
+	 *
+	 * @param x1 first focus, longitude
+	 * @param y1 first focus, latitude
+	 * @param x2 second focus, longitude
+	 * @param y2 second focus, latitude
+	 * @param distance the maximal sum of the distances between an object and the two foci
+	 * @return the objects found in the elliptical region
+	 * @throws IllegalArgumentException if the distance is shorter than the distance between the foci
+	 */
+	public Collection<T> getElliptical(
+			final double x1,
+			final double y1,
+			final double x2,
+			final double y2,
+			final double distance) {
+		if ( Math.pow( distance , 2 ) < Math.pow( (x1 - x2), 2 ) + Math.pow( (y1 - y2) , 2 ) ) {
+			throw new IllegalArgumentException( "wrong ellipse specification: distance must be greater than distance between foci."
+					+" x1="+x1
+					+" y1="+y1
+					+" x2="+x2
+					+" y2="+y2
+					+" distance="+distance );
+		}
+		List<T> values1 = new ArrayList<>();
+		elliptical(x1, y1, x2, y2, distance, 0, this.values.length - 1, 0, values1);
+		return values1;
+	}
+
+	/**
+	 * Gets all objects inside or on the border of the specified boundary.
+	 *
+	 * @param bounds The bounds of the area of interest.
+	 * @param values1 A collection to store the found objects in.
+	 * @return The objects found within the area.
+	 */
+	public Collection<T> getRectangle(final Rect bounds, final Collection<T> values1) {
+		return getRectangle(bounds.minX, bounds.minY, bounds.maxX, bounds.maxY, values1);
+	}
+
+	/**
+	 * Gets all objects inside or on the border of the specified area.
+	 *
+	 * @param minX The minimum left-right location, longitude
+	 * @param minY The minimum up-down location, latitude
+	 * @param maxX The maximum left-right location, longitude
+	 * @param maxY The maximum up-down location, latitude
+	 * @param values1 A collection to store the found objects in.
+	 * @return The objects found within the area.
+	 */
+	public Collection<T> getRectangle(final double minX, final double minY, final double maxX, final double maxY, final Collection<T> values1) {
+		rectangle(minX, minY, maxX, maxY, true, 0, this.values.length - 1, 0, values1, null);
+		return values1;
+	}
+
+	/**
+	 * Executes executor on all objects inside a certain boundary. Like in the {@link QuadTree}, objects on the
+	 * upper and right border of the boundary are not included.
+	 *
+	 * @param bounds The boundary in which the executor will be applied, <code>null</code> for all objects.
+	 * @param executor is executed on the fitting objects
+	 * @return the count of objects found within the bounds.
+	 */
+	public int execute(final Rect bounds, final Executor<T> executor) {
+		if (bounds == null) {
+			for (int i = 0; i < this.values.length; i++) {
+				executor.execute(this.coords[2 * i], this.coords[2 * i + 1], getValue(i));
+			}
+			return this.values.length;
+		}
+		return execute(bounds.minX, bounds.minY, bounds.maxX, bounds.maxY, executor);
+	}
+
+	/**
+	 * Executes executor on all objects inside the rectangle (minX,minY):(maxX,maxY)
+	 *
+	 * @param minX The minimum left-right location, longitude
+	 * @param minY The minimum up-down location, latitude
+	 * @param maxX The maximum left-right location, longitude
+	 * @param maxY The maximum up-down location, latitude
+	 * @param executor is executed on the fitting objects
+	 * @return the count of objects found within the rectangle.
+	 */
+	public int execute(final double minX, final double minY, final double maxX, final double maxY, final Executor<T> executor) {
+		return rectangle(minX, minY, maxX, maxY, false, 0, this.values.length - 1, 0, null, executor);
+	}
+
+	/**
+	 * Returns the number of entries in this tree.
+	 *
+	 * @return the number of entries in this tree.
+	 */
+	public int size() {
+		return this.values.length;
+	}
+
+	/** @return the minimum x coordinate (left-right, longitude, easting) of all entries. */
+	public double getMinEasting() {
+		return this.minX;
+	}
+
+	/** @return the maximum x coordinate (left-right, longitude, easting) of all entries. */
+	public double getMaxEasting() {
+		return this.maxX;
+	}
+
+	/** @return the minimum y coordinate (up-down, latitude, northing) of all entries. */
+	public double getMinNorthing() {
+		return this.minY;
+	}
+
+	/** @return the maximum y coordinate (up-down, latitude, northing) of all entries. */
+	public double getMaxNorthing() {
+		return this.maxY;
+	}
+
+	/**
+	 * @return an unmodifiable collection of all values, in the order in which they are stored in the tree.
+	 */
+	@SuppressWarnings("unchecked")
+	public Collection<T> values() {
+		if (this.valuesView == null) {
+			this.valuesView = Collections.unmodifiableList((List<T>) Arrays.asList(this.values));
+		}
+		return this.valuesView;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T getValue(final int index) {
+		return (T) this.values[index];
+	}
+
+	private double distance2(final int index, final double x, final double y) {
+		double dx = this.coords[2 * index] - x;
+		double dy = this.coords[2 * index + 1] - y;
+		return dx * dx + dy * dy;
+	}
+
+	/* bulk loading */
+
+	private void sort(final int left, final int right, final int axis) {
+		if (right - left < NODE_SIZE) {
+			return;
+		}
+		int m = (left + right) >>> 1;
+		select(m, left, right, axis);
+		sort(left, m - 1, 1 - axis);
+		sort(m + 1, right, 1 - axis);
+	}
+
+	/**
+	 * Rearranges the range so that the entry at index k is the one that would be there if the range
+	 * was sorted along the given axis, with no larger entries before and no smaller entries after it.
+	 */
+	private void select(final int k, int left, int right, final int axis) {
+		while (right > left) {
+			double t = this.coords[2 * k + axis];
+			int i = left;
+			int j = right;
+			swap(left, k);
+			if (this.coords[2 * right + axis] > t) {
+				swap(left, right);
+			}
+			while (i < j) {
+				swap(i, j);
+				i++;
+				j--;
+				while (this.coords[2 * i + axis] < t) {
+					i++;
+				}
+				while (this.coords[2 * j + axis] > t) {
+					j--;
+				}
+			}
+			if (this.coords[2 * left + axis] == t) {
+				swap(left, j);
+			} else {
+				j++;
+				swap(j, right);
+			}
+			if (j <= k) {
+				left = j + 1;
+			}
+			if (k <= j) {
+				right = j - 1;
+			}
+		}
+	}
+
+	private void swap(final int i, final int j) {
+		double x = this.coords[2 * i];
+		double y = this.coords[2 * i + 1];
+		this.coords[2 * i] = this.coords[2 * j];
+		this.coords[2 * i + 1] = this.coords[2 * j + 1];
+		this.coords[2 * j] = x;
+		this.coords[2 * j + 1] = y;
+		Object value = this.values[i];
+		this.values[i] = this.values[j];
+		this.values[j] = value;
+	}
+
+	/* queries, all recursive so they do not need an explicit stack */
+
+	private int nearest(final double x, final double y, final int left, final int right, final int axis, int best) {
+		double bestDistance = best < 0 ? Double.POSITIVE_INFINITY : distance2(best, x, y);
+		if (right - left < NODE_SIZE) {
+			for (int i = left; i <= right; i++) {
+				double d = distance2(i, x, y);
+				if (d < bestDistance) {
+					bestDistance = d;
+					best = i;
+				}
+			}
+			return best;
+		}
+		int m = (left + right) >>> 1;
+		double d = distance2(m, x, y);
+		if (d < bestDistance) {
+			best = m;
+		}
+		double delta = (axis == 0 ? x : y) - this.coords[2 * m + axis];
+		if (delta <= 0) {
+			best = nearest(x, y, left, m - 1, 1 - axis, best);
+			if (delta * delta < distance2(best, x, y)) {
+				best = nearest(x, y, m + 1, right, 1 - axis, best);
+			}
+		} else {
+			best = nearest(x, y, m + 1, right, 1 - axis, best);
+			if (delta * delta < distance2(best, x, y)) {
+				best = nearest(x, y, left, m - 1, 1 - axis, best);
+			}
+		}
+		return best;
+	}
+
+	/** keeps the <code>count</code> nearest entries found so far sorted by their squared distance */
+	private int nearest(final double x, final double y, final int k, final int left, final int right, final int axis,
+			final T[] result, final double[] distances, int count) {
+		if (right - left < NODE_SIZE) {
+			for (int i = left; i <= right; i++) {
+				count = insert(i, distance2(i, x, y), k, result, distances, count);
+			}
+			return count;
+		}
+		int m = (left + right) >>> 1;
+		count = insert(m, distance2(m, x, y), k, result, distances, count);
+		double delta = (axis == 0 ? x : y) - this.coords[2 * m + axis];
+		int nearLeft = delta <= 0 ? left : m + 1;
+		int nearRight = delta <= 0 ? m - 1 : right;
+		int farLeft = delta <= 0 ? m + 1 : left;
+		int farRight = delta <= 0 ? right : m - 1;
+		count = nearest(x, y, k, nearLeft, nearRight, 1 - axis, result, distances, count);
+		if (count < k || delta * delta < distances[k - 1]) {
+			count = nearest(x, y, k, farLeft, farRight, 1 - axis, result, distances, count);
+		}
+		return count;
+	}
+
+	private int insert(final int index, final double distance, final int k, final T[] result, final double[] distances, int count) {
+		if (count == k) {
+			if (distance >= distances[k - 1]) {
+				return count;
+			}
+			count--;
+		}
+		int pos = count;
+		while (pos > 0 && distances[pos - 1] > distance) {
+			result[pos] = result[pos - 1];
+			distances[pos] = distances[pos - 1];
+			pos--;
+		}
+		result[pos] = getValue(index);
+		distances[pos] = distance;
+		return count + 1;
+	}
+
+	private void ring(final double x, final double y, final double rMin2, final double rMax2, final double rMax,
+			final int left, final int right, final int axis, final Collection<T> result) {
+		if (right - left < NODE_SIZE) {
+			for (int i = left; i <= right; i++) {
+				double d = distance2(i, x, y);
+				if (d <= rMax2 && d >= rMin2) {
+					result.add(getValue(i));
+				}
+			}
+			return;
+		}
+		int m = (left + right) >>> 1;
+		double d = distance2(m, x, y);
+		if (d <= rMax2 && d >= rMin2) {
+			result.add(getValue(m));
+		}
+		double center = axis == 0 ? x : y;
+		double split = this.coords[2 * m + axis];
+		if (center - rMax <= split) {
+			ring(x, y, rMin2, rMax2, rMax, left, m - 1, 1 - axis, result);
+		}
+		if (center + rMax >= split) {
+			ring(x, y, rMin2, rMax2, rMax, m + 1, right, 1 - axis, result);
+		}
+	}
+
+	private void elliptical(final double x1, final double y1, final double x2, final double y2, final double distance,
+			final int left, final int right, final int axis, final Collection<T> result) {
+		if (right - left < NODE_SIZE) {
+			for (int i = left; i <= right; i++) {
+				if (Math.sqrt(distance2(i, x1, y1)) + Math.sqrt(distance2(i, x2, y2)) <= distance) {
+					result.add(getValue(i));
+				}
+			}
+			return;
+		}
+		int m = (left + right) >>> 1;
+		if (Math.sqrt(distance2(m, x1, y1)) + Math.sqrt(distance2(m, x2, y2)) <= distance) {
+			result.add(getValue(m));
+		}
+		// the ellipse lies within the square around its center with half the distance as radius
+		double center = axis == 0 ? (x1 + x2) / 2 : (y1 + y2) / 2;
+		double split = this.coords[2 * m + axis];
+		if (center - distance / 2 <= split) {
+			elliptical(x1, y1, x2, y2, distance, left, m - 1, 1 - axis, result);
+		}
+		if (center + distance / 2 >= split) {
+			elliptical(x1, y1, x2, y2, distance, m + 1, right, 1 - axis, result);
+		}
+	}
+
+	/**
+	 * Either adds the found objects to <code>result</code> or applies <code>executor</code> on them.
+	 */
+	private int rectangle(final double minX, final double minY, final double maxX, final double maxY, final boolean includeMax,
+			final int left, final int right, final int axis, final Collection<T> result, final Executor<T> executor) {
+		int count = 0;
+		if (right - left < NODE_SIZE) {
+			for (int i = left; i <= right; i++) {
+				count += visit(i, minX, minY, maxX, maxY, includeMax, result, executor);
+			}
+			return count;
+		}
+		int m = (left + right) >>> 1;
+		count += visit(m, minX, minY, maxX, maxY, includeMax, result, executor);
+		double split = this.coords[2 * m + axis];
+		if ((axis == 0 ? minX : minY) <= split) {
+			count += rectangle(minX, minY, maxX, maxY, includeMax, left, m - 1, 1 - axis, result, executor);
+		}
+		if ((axis == 0 ? maxX : maxY) >= split) {
+			count += rectangle(minX, minY, maxX, maxY, includeMax, m + 1, right, 1 - axis, result, executor);
+		}
+		return count;
+	}
+
+	private int visit(final int index, final double minX, final double minY, final double maxX, final double maxY, final boolean includeMax,
+			final Collection<T> result, final Executor<T> executor) {
+		double x = this.coords[2 * index];
+		double y = this.coords[2 * index + 1];
+		boolean inside = x >= minX && y >= minY && (includeMax ? (x <= maxX && y <= maxY) : (x < maxX && y < maxY));
+		if (!inside) {
+			return 0;
+		}
+		if (executor != null) {
+			executor.execute(x, y, getValue(index));
+		} else {
+			result.add(getValue(index));
+		}
+		return 1;
+	}
+
+	/**
+	 * Collects the entries of a {@link PackedKdTree}. Unlike {@link QuadTree#put(double, double, Object)},
+	 * the bounds do not need to be known in advance, and the same object may be put several times
+	 * at the same location.
+	 *
+	 * @param <T> The type of data to be stored in the tree.
+	 */
+	public static final class Builder<T> {
+
+		private double[] coords = new double[32];
+		private Object[] values = new Object[16];
+		private int size = 0;
+
+		public Builder<T> put(final double x, final double y, final T value) {
+			if (this.size == this.values.length) {
+				this.coords = Arrays.copyOf(this.coords, 4 * this.size);
+				this.values = Arrays.copyOf(this.values, 2 * this.size);
+			}
+			this.coords[2 * this.size] = x;
+			this.coords[2 * this.size + 1] = y;
+			this.values[this.size] = value;
+			this.size++;
+			return this;
+		}
+
+		/**
+		 * Adds all entries of the given QuadTree, e.g. to replace an existing QuadTree by a packed one.
+		 */
+		public Builder<T> putAll(final QuadTree<T> quadTree) {
+			quadTree.execute(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+					new Executor<T>() {
+						@Override
+						public void execute(final double x, final double y, final T object) {
+							put(x, y, object);
+						}
+					});
+			return this;
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * Bulk-loads all entries put so far into a new tree. The builder can be used further afterwards.
+		 */
+		public PackedKdTree<T> build() {
+			return new PackedKdTree<>(Arrays.copyOf(this.coords, 2 * this.size), Arrays.copyOf(this.values, this.size));
+		}
+
+	}
+
+}
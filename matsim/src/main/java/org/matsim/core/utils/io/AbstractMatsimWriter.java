@@ -46,6 +46,9 @@ public abstract class AbstractMatsimWriter {
 	 * or not). */
 	protected Boolean useCompression = null;
 
+	/** The number of threads compressing the output, <code>0</code> to compress it on the writing thread. */
+	private int compressionThreads = 0;
+
 	/**
 	 * Sets whether the file should be gzip-compressed or not. Must be set before
 	 * the file is opened for writing. If not set explicitly, the usage of
@@ -57,6 +60,21 @@ public abstract class AbstractMatsimWriter {
 		this.useCompression = Boolean.valueOf(useCompression1);
 	}
 
+	/**
+	 * Sets the number of threads compressing the written data, if the file is gzip- or zstd-compressed.
+	 * Must be set before the file is opened for writing. With the default of <code>0</code>, the data
+	 * is compressed on the writing thread.
+	 * <p></p>
+	 * With compression threads, flushing the {@link #writer} does not compress the current block, as e.g. the
+	 * population writer flushes after every person. The data written since the last full block only reaches
+	 * the file when the writer is closed.
+	 *
+	 * @see ParallelCompressingOutputStream
+	 */
+	public final void setCompressionThreads(final int compressionThreads) {
+		this.compressionThreads = compressionThreads;
+	}
+
 	/**
 	 * Opens the specified file for writing.
 	 *
@@ -66,7 +84,7 @@ public abstract class AbstractMatsimWriter {
 	protected final void openFile(final String filename) throws UncheckedIOException {
 		assertNotAlreadyOpen();
 		if (this.useCompression == null) {
-			this.writer = IOUtils.getBufferedWriter(filename);
+			this.writer = IOUtils.getBufferedWriter(filename, this.compressionThreads, false);
 		} else {
 			this.writer = IOUtils.getBufferedWriter(filename, this.useCompression.booleanValue());
 		}
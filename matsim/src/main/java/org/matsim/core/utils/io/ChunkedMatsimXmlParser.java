@@ -0,0 +1,335 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ChunkedMatsimXmlParser.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.api.internal.MatsimReader;
+
+/**
+ * An XML parser that reads large files with many similar elements (persons, nodes, links) in parallel.
+ * <p></p>
+ * The main thread reads the decompressed file and only looks for the boundaries of these elements, see
+ * {@link #isChunkElement(String, Stack)}. Consecutive such elements are collected in chunks and are handed
+ * over to worker threads, where they are tokenized and interpreted by a separate {@link MatsimXmlParser} per
+ * chunk ({@link #createChunk()}). All other elements are passed to the main parser on the main thread
+ * ({@link #createMainParser(String)}). The results of the chunks are passed to {@link #mergeChunk(Object)} on
+ * the main thread in the order of the file, and all chunks before an element outside of chunks are merged
+ * before this element is passed to the main parser. So the result does not depend on the number of threads.
+ * <p></p>
+ * The XML is tokenized by a simple, non-validating tokenizer instead of a SAX parser. Files with a doctype
+ * that is not supported by the implementation are read with a conventional parser ({@link #createSequentialParser()}).
+ * The characters are decoded with the encoding given in the XML declaration, UTF-8 if there is none. Files in an
+ * encoding that is not supported by the JVM are read with the conventional parser as well.
+ *
+ * @param <R> the type of the result of a chunk
+ */
+public abstract class ChunkedMatsimXmlParser<R> implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(ChunkedMatsimXmlParser.class);
+
+	private static final int XML_DECLARATION_LENGTH = 1024;
+	private static final Pattern XML_DECLARATION_ENCODING = Pattern.compile("^<\\?xml\\s[^>]*?encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+
+	private final int numberOfThreads;
+	private final int elementsPerChunk;
+	private final Map<String, Map<String, String>> defaultAttributes = new HashMap<>();
+
+	/**
+	 * @param numberOfThreads the number of threads parsing chunks, in addition to the main thread
+	 * @param elementsPerChunk the maximum number of elements in a chunk
+	 */
+	protected ChunkedMatsimXmlParser(final int numberOfThreads, final int elementsPerChunk) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.elementsPerChunk = elementsPerChunk;
+	}
+
+	/**
+	 * Declares the default value of an attribute, which a validating parser would take from the DTD.
+	 */
+	protected final void setDefaultAttribute(final String element, final String attribute, final String value) {
+		this.defaultAttributes.computeIfAbsent(element, k -> new HashMap<>()).put(attribute, value);
+	}
+
+	/**
+	 * @param doctype the last part of the system identifier of the DOCTYPE, e.g. <code>population_v6.dtd</code>
+	 * @return the parser for all elements outside of chunks, or <code>null</code> if files of this doctype
+	 * cannot be read in chunks
+	 */
+	protected abstract MatsimXmlParser createMainParser(String doctype);
+
+	/**
+	 * @return a parser for the whole file, used if the doctype of the file is not supported
+	 */
+	protected abstract MatsimXmlParser createSequentialParser();
+
+	/**
+	 * Decides whether an element is read as part of a chunk. This element must not depend on any other
+	 * element in the same chunk.
+	 *
+	 * @param name the name of the element
+	 * @param context the names of the enclosing elements
+	 */
+	protected abstract boolean isChunkElement(String name, Stack<String> context);
+
+	/**
+	 * Creates the parser for a chunk. Called on the main thread, so the state of the main parser can be
+	 * used to set it up.
+	 */
+	protected abstract Chunk<R> createChunk();
+
+	/**
+	 * Called on the main thread with the result of each chunk, in the order of the file.
+	 */
+	protected abstract void mergeChunk(R result);
+
+	/**
+	 * Called on the main thread after the file was read in chunks and all chunks were merged.
+	 */
+	protected void finish() {
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		log.info("starting to parse xml from file " + filename + " ...");
+		if (!parse(IOUtils.getInputStream(filename))) {
+			createSequentialParser().readFile(filename);
+		}
+	}
+
+	public void parse(final URL url) {
+		log.info("starting to parse xml from url " + url + " ...");
+		if (!parse(IOUtils.getInputStream(url))) {
+			createSequentialParser().parse(url);
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the doctype is not supported and the stream was not read
+	 */
+	private boolean parse(final InputStream stream) {
+		try (InputStream in = new BufferedInputStream(stream)) {
+			Charset charset = getEncoding(in);
+			if (charset == null) {
+				return false;
+			}
+			return parse(new InputStreamReader(in, charset));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Determines the encoding from the byte order mark or the XML declaration at the beginning of the stream,
+	 * without consuming it.
+	 *
+	 * @return the encoding of the file, or <code>null</code> if it is not supported
+	 */
+	private static Charset getEncoding(final InputStream stream) throws IOException {
+		byte[] header = new byte[XML_DECLARATION_LENGTH];
+		stream.mark(header.length);
+		int length = 0;
+		int read;
+		while (length < header.length && (read = stream.read(header, length, header.length - length)) > 0) {
+			length += read;
+		}
+		stream.reset();
+		if (length >= 2 && ((header[0] == (byte) 0xFE && header[1] == (byte) 0xFF) || (header[0] == (byte) 0xFF && header[1] == (byte) 0xFE))) {
+			return StandardCharsets.UTF_16;
+		}
+		int start = 0;
+		if (length >= 3 && header[0] == (byte) 0xEF && header[1] == (byte) 0xBB && header[2] == (byte) 0xBF) {
+			start = 3;
+		}
+		// the declaration itself only contains ASCII characters in all ASCII compatible encodings
+		Matcher matcher = XML_DECLARATION_ENCODING.matcher(new String(header, start, length - start, StandardCharsets.ISO_8859_1));
+		if (!matcher.find()) {
+			return StandardCharsets.UTF_8;
+		}
+		String encoding = matcher.group(1);
+		try {
+			if (Charset.isSupported(encoding)) {
+				return Charset.forName(encoding);
+			}
+		} catch (IllegalCharsetNameException e) {
+			// handled below
+		}
+		log.info("encoding " + encoding + " cannot be read in chunks, using a sequential parser.");
+		return null;
+	}
+
+	private boolean parse(final Reader reader) {
+		try {
+			MatsimXmlTokenizer tokenizer = new MatsimXmlTokenizer(reader);
+			MatsimXmlParser mainParser = null;
+			String doctype = null;
+			while (mainParser == null) {
+				int token = tokenizer.next();
+				if (token == MatsimXmlTokenizer.DOCTYPE) {
+					doctype = tokenizer.getDoctype();
+					mainParser = doctype == null ? null : createMainParser(doctype);
+					if (mainParser == null) {
+						log.info("doctype " + doctype + " cannot be read in chunks, using a sequential parser.");
+						return false;
+					}
+				} else if (token != MatsimXmlTokenizer.TEXT && token != MatsimXmlTokenizer.IGNORABLE) {
+					log.info("no doctype found, using a sequential parser.");
+					return false;
+				}
+			}
+			mainParser.setDoctype(doctype);
+			parse(tokenizer, mainParser);
+			finish();
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void parse(final MatsimXmlTokenizer tokenizer, final MatsimXmlParser mainParser) {
+		final AtomicInteger threadCounter = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, runnable -> {
+			Thread thread = new Thread(runnable, "ChunkedXmlParser-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			Stack<String> context = new Stack<>();
+			MatsimXmlTokenizer.Dispatcher dispatcher = new MatsimXmlTokenizer.Dispatcher(mainParser, context, this.defaultAttributes);
+			Deque<Future<R>> pending = new ArrayDeque<>();
+			int elementsInChunk = 0;
+			int chunks = 0;
+			int token;
+			while ((token = tokenizer.next()) != MatsimXmlTokenizer.EOF) {
+				boolean isTag = token == MatsimXmlTokenizer.START_TAG || token == MatsimXmlTokenizer.EMPTY_TAG || token == MatsimXmlTokenizer.END_TAG;
+				if (token != MatsimXmlTokenizer.END_TAG && isTag && isChunkElement(tokenizer.getName(), context)) {
+					if (elementsInChunk == 0) {
+						tokenizer.mark();
+					}
+					if (token == MatsimXmlTokenizer.START_TAG) {
+						tokenizer.skipElement();
+					}
+					elementsInChunk++;
+					if (elementsInChunk == this.elementsPerChunk) {
+						pending.add(submit(executor, tokenizer.copyMarked(true), context));
+						elementsInChunk = 0;
+						chunks++;
+					}
+				} else if (elementsInChunk == 0 || isTag) {
+					if (elementsInChunk > 0) {
+						pending.add(submit(executor, tokenizer.copyMarked(false), context));
+						elementsInChunk = 0;
+						chunks++;
+					}
+					if (isTag) {
+						while (!pending.isEmpty()) {
+							mergeChunk(getResult(pending.poll()));
+						}
+					}
+					dispatcher.dispatch(tokenizer, token);
+				}
+				// limit the memory used by chunks waiting to be parsed or merged
+				while (pending.size() > 2 * this.numberOfThreads) {
+					mergeChunk(getResult(pending.poll()));
+				}
+			}
+			if (elementsInChunk > 0) {
+				pending.add(submit(executor, tokenizer.copyMarked(true), context));
+				chunks++;
+			}
+			while (!pending.isEmpty()) {
+				mergeChunk(getResult(pending.poll()));
+			}
+			if (!context.isEmpty()) {
+				throw new UncheckedIOException("unexpected end of file, context: " + context);
+			}
+			log.info("parsed " + chunks + " chunks with " + this.numberOfThreads + " threads.");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Future<R> submit(final ExecutorService executor, final char[] chars, final Stack<String> context) {
+		final Chunk<R> chunk = createChunk();
+		final Stack<String> chunkContext = new Stack<>();
+		chunkContext.addAll(context);
+		return executor.submit(() -> {
+			MatsimXmlTokenizer tokenizer = new MatsimXmlTokenizer(chars);
+			MatsimXmlTokenizer.Dispatcher dispatcher = new MatsimXmlTokenizer.Dispatcher(chunk.getParser(), chunkContext, this.defaultAttributes);
+			int token;
+			while ((token = tokenizer.next()) != MatsimXmlTokenizer.EOF) {
+				dispatcher.dispatch(tokenizer, token);
+			}
+			return chunk.getResult();
+		});
+	}
+
+	private static <R> R getResult(final Future<R> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * The parser of a single chunk, and the result it produced.
+	 *
+	 * @param <R> the type of the result
+	 */
+	public interface Chunk<R> {
+
+		MatsimXmlParser getParser();
+
+		/**
+		 * Called on the worker thread after all elements of the chunk were passed to the parser.
+		 */
+		R getResult();
+
+	}
+
+}
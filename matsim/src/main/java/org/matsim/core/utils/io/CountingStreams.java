@@ -0,0 +1,89 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CountingStreams.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.matsim.core.utils.metrics.Counter;
+
+/**
+ * Streams that add the number of bytes passing through them to a {@link Counter}. They are only
+ * put around the streams of {@link IOUtils} while the metrics are enabled.
+ */
+final class CountingStreams {
+
+	private CountingStreams() {
+	}
+
+	static final class CountingInputStream extends FilterInputStream {
+		private final Counter counter;
+
+		CountingInputStream(final InputStream in, final Counter counter) {
+			super(in);
+			this.counter = counter;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				this.counter.increment();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				this.counter.add(n);
+			}
+			return n;
+		}
+	}
+
+	static final class CountingOutputStream extends FilterOutputStream {
+		private final Counter counter;
+
+		CountingOutputStream(final OutputStream out, final Counter counter) {
+			super(out);
+			this.counter = counter;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			this.out.write(b);
+			this.counter.increment();
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			// FilterOutputStream would write the bytes one by one
+			this.out.write(b, off, len);
+			this.counter.add(len);
+		}
+	}
+
+}
@@ -47,6 +47,14 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.log4j.Logger;
+import org.matsim.core.utils.io.CountingStreams.CountingInputStream;
+import org.matsim.core.utils.io.CountingStreams.CountingOutputStream;
+import org.matsim.core.utils.io.ParallelCompressingOutputStream.Format;
+import org.matsim.core.utils.metrics.Counter;
+import org.matsim.core.utils.metrics.Metrics;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
 
 import net.jpountz.lz4.LZ4BlockInputStream;
 import net.jpountz.lz4.LZ4BlockOutputStream;
@@ -56,6 +64,10 @@ public class IOUtils {
 
 	private static final String GZ = ".gz";
 	private static final String LZ4 = ".lz4";
+	private static final String ZST = ".zst";
+
+	private static final Counter BYTES_READ = Metrics.counter("io.bytesRead");
+	private static final Counter BYTES_WRITTEN = Metrics.counter("io.bytesWritten");
 
 	public static final Charset CHARSET_UTF8 = Charset.forName("UTF8");
 	public static final Charset CHARSET_WINDOWS_ISO88591 = Charset.forName("ISO-8859-1");
@@ -277,6 +289,30 @@ public class IOUtils {
 		}
 	}
 
+	/**
+	 * Tries to open the specified file for writing and returns a BufferedWriter for it.
+	 * If the filename ends with ".gz" or ".zst", data will be automatically gzip- or
+	 * zstd-compressed by the given number of threads, see {@link ParallelCompressingOutputStream}.
+	 * The data written will be encoded as UTF-8.
+	 *
+	 * @param filename The filename where to write the data.
+	 * @param compressionThreads the number of threads compressing the data, <code>0</code>
+	 * to compress it on the calling thread.
+	 * @return BufferedWriter for the specified file.
+	 * @throws UncheckedIOException
+	 */
+	public static BufferedWriter getBufferedWriter(final String filename, final int compressionThreads) throws UncheckedIOException {
+		return getBufferedWriter(filename, compressionThreads, true);
+	}
+
+	/**
+	 * @param endingBlockOnFlush whether a flush of the writer compresses and writes all data written so far, see
+	 * {@link ParallelCompressingOutputStream#ParallelCompressingOutputStream(OutputStream, Format, int, int, boolean)}.
+	 */
+	/*package*/ static BufferedWriter getBufferedWriter(final String filename, final int compressionThreads, final boolean endingBlockOnFlush) throws UncheckedIOException {
+		return new BufferedWriter(new OutputStreamWriter(getOutputStream(filename, false, compressionThreads, endingBlockOnFlush), CHARSET_UTF8));
+	}
+
 	/**
 	 * Copies the content from one stream to another stream.
 	 *
@@ -343,6 +379,8 @@ public class IOUtils {
 			if (new File(filename).exists()) {
 				if (filename.endsWith(GZ)) {
 					inputStream = new GZIPInputStream(new FileInputStream(filename));
+				} else if (filename.endsWith(ZST)) {
+					inputStream = new ZstdInputStream(new FileInputStream(filename));
 				}else if (filename.endsWith(LZ4)) {
 					inputStream = new UnicodeInputStream(new LZ4BlockInputStream(new FileInputStream(filename)));
 				} else {
@@ -373,7 +411,7 @@ public class IOUtils {
 			if (inputStream == null) {
 				throw new FileNotFoundException(filename);
 			}
-			return new BufferedInputStream(new UnicodeInputStream(inputStream));
+			return countBytes(new BufferedInputStream(new UnicodeInputStream(inputStream)));
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
@@ -382,9 +420,11 @@ public class IOUtils {
 	public static InputStream getInputStream(URL url) throws UncheckedIOException {
 		try {
 			if (url.getFile().endsWith(".gz")) {
-				return new GZIPInputStream(url.openStream());
+				return countBytes(new GZIPInputStream(url.openStream()));
+			} else if (url.getFile().endsWith(ZST)) {
+				return countBytes(new ZstdInputStream(url.openStream()));
 			} else {
-				return url.openStream();
+				return countBytes(url.openStream());
 			}
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
@@ -405,6 +445,23 @@ public class IOUtils {
 	 * <br> author mrieser
 	 */
 	public static OutputStream getOutputStream(final String filename, boolean append) throws UncheckedIOException {
+		return getOutputStream(filename, append, 0);
+	}
+
+	/**
+	 * Returns a buffered and optionally compressed output stream to the specified file.
+	 * If the given filename ends with ".gz", ".zst" or ".lz4", the written file content will
+	 * be automatically compressed with the gzip-, zstd- or lz4-algorithm. With
+	 * <code>compressionThreads &gt; 0</code>, gzip and zstd compression is done on that many
+	 * separate threads, see {@link ParallelCompressingOutputStream}.
+	 *
+	 * @throws UncheckedIOException if the file cannot be created.
+	 */
+	public static OutputStream getOutputStream(final String filename, boolean append, int compressionThreads) throws UncheckedIOException {
+		return getOutputStream(filename, append, compressionThreads, true);
+	}
+
+	private static OutputStream getOutputStream(final String filename, boolean append, int compressionThreads, boolean endingBlockOnFlush) throws UncheckedIOException {
 		if (filename == null) {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
@@ -414,21 +471,46 @@ public class IOUtils {
 				if (append && f.exists() && (f.length() > 0)) {
 					throw new IllegalArgumentException("Appending to an existing gzip-compressed file is not supported.");
 				}
-				return new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(filename, append)));
+				if (compressionThreads > 0) {
+					return countBytes(new ParallelCompressingOutputStream(new FileOutputStream(filename, append), Format.gzip, compressionThreads,
+							ParallelCompressingOutputStream.DEFAULT_BLOCK_SIZE, endingBlockOnFlush));
+				}
+				return countBytes(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(filename, append))));
+			} else if (filename.toLowerCase(Locale.ROOT).endsWith(ZST)) {
+				File f = new File(filename);
+				if (append && f.exists() && (f.length() > 0)) {
+					throw new IllegalArgumentException("Appending to an existing zstd-compressed file is not supported.");
+				}
+				if (compressionThreads > 0) {
+					return countBytes(new ParallelCompressingOutputStream(new FileOutputStream(filename, append), Format.zstd, compressionThreads,
+							ParallelCompressingOutputStream.DEFAULT_BLOCK_SIZE, endingBlockOnFlush));
+				}
+				return countBytes(new BufferedOutputStream(new ZstdOutputStream(new FileOutputStream(filename, append))));
 			} else if (filename.toLowerCase(Locale.ROOT).endsWith(LZ4)) {
 				File f = new File(filename);
 				if (append && f.exists() && (f.length() > 0)) {
 					throw new IllegalArgumentException("Appending to an existing lz4-compressed file is not supported.");
 				}
-				return new BufferedOutputStream(new LZ4BlockOutputStream(new FileOutputStream(filename)));
+				return countBytes(new BufferedOutputStream(new LZ4BlockOutputStream(new FileOutputStream(filename))));
 			}else {
-				return new BufferedOutputStream(new FileOutputStream (filename, append));
+				return countBytes(new BufferedOutputStream(new FileOutputStream (filename, append)));
 			}
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
 	}
 
+	/*
+	 * The uncompressed bytes are counted, i.e. what MATSim reads and writes, not what is stored on disk.
+	 */
+	private static InputStream countBytes(final InputStream stream) {
+		return Metrics.isEnabled() ? new CountingInputStream(stream, BYTES_READ) : stream;
+	}
+
+	private static OutputStream countBytes(final OutputStream stream) {
+		return Metrics.isEnabled() ? new CountingOutputStream(stream, BYTES_WRITTEN) : stream;
+	}
+
 	/**
 	 * Copy of getOutputStream and then changed to correspond to the PrintStream signature.  Device to hopefully reduce FindBugs warnings.  kai, may'17
 	 * 
@@ -0,0 +1,510 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MatsimXmlTokenizer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * A minimal, non-validating XML tokenizer used by {@link ChunkedMatsimXmlParser}. It reads either from a
+ * {@link Reader}, keeping only the current token (or everything after a {@link #mark()}) in memory, or
+ * from a fixed array of characters.
+ * <p></p>
+ * Supported are elements, attributes, character data, CDATA sections, comments, processing instructions,
+ * the predefined entities and character references. A DOCTYPE declaration is only used to determine the
+ * doctype; entities declared in it are not supported.
+ */
+final class MatsimXmlTokenizer {
+
+	static final int EOF = 0;
+	static final int START_TAG = 1;
+	static final int EMPTY_TAG = 2;
+	static final int END_TAG = 3;
+	static final int TEXT = 4;
+	static final int CDATA = 5;
+	static final int DOCTYPE = 6;
+	static final int IGNORABLE = 7;
+
+	private final Reader reader;
+	private char[] buffer;
+	private int limit;
+	private int pos = 0;
+	private int tokenStart = 0;
+	private int mark = -1;
+
+	private final String[] names = new String[256];
+	private final AttributesImpl atts = new AttributesImpl();
+	private final StringBuilder value = new StringBuilder();
+
+	MatsimXmlTokenizer(final Reader reader) {
+		this.reader = reader;
+		this.buffer = new char[65536];
+		this.limit = 0;
+	}
+
+	MatsimXmlTokenizer(final char[] chars) {
+		this.reader = null;
+		this.buffer = chars;
+		this.limit = chars.length;
+	}
+
+	/**
+	 * Reads the next token.
+	 *
+	 * @return the type of the token
+	 */
+	int next() {
+		this.tokenStart = this.pos;
+		if (!ensure(1)) {
+			return EOF;
+		}
+		if (this.buffer[this.pos] != '<') {
+			while (true) {
+				while (this.pos < this.limit && this.buffer[this.pos] != '<') {
+					this.pos++;
+				}
+				if (this.pos < this.limit || !fill()) {
+					return TEXT;
+				}
+			}
+		}
+		if (startsWith("<?")) {
+			skipPast("?>");
+			return IGNORABLE;
+		}
+		if (startsWith("<!--")) {
+			skipPast("-->");
+			return IGNORABLE;
+		}
+		if (startsWith("<![CDATA[")) {
+			skipPast("]]>");
+			return CDATA;
+		}
+		if (startsWith("<!")) {
+			skipMarkup(true);
+			return DOCTYPE;
+		}
+		if (startsWith("</")) {
+			skipPast(">");
+			return END_TAG;
+		}
+		skipMarkup(false);
+		return this.buffer[this.pos - 2] == '/' ? EMPTY_TAG : START_TAG;
+	}
+
+	/**
+	 * Skips the remaining content of the element whose start tag was just read, including its end tag.
+	 */
+	void skipElement() {
+		int depth = 1;
+		while (depth > 0) {
+			switch (next()) {
+				case START_TAG:
+					depth++;
+					break;
+				case END_TAG:
+					depth--;
+					break;
+				case EOF:
+					throw new UncheckedIOException("unexpected end of file in element");
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Keeps all characters from the start of the current token on in memory, until {@link #copyMarked(boolean)} is called.
+	 */
+	void mark() {
+		this.mark = this.tokenStart;
+	}
+
+	/**
+	 * @param includeCurrentToken whether the current token should be part of the copy
+	 * @return a copy of the characters from the mark on, and clears the mark
+	 */
+	char[] copyMarked(final boolean includeCurrentToken) {
+		char[] chars = Arrays.copyOfRange(this.buffer, this.mark, includeCurrentToken ? this.pos : this.tokenStart);
+		this.mark = -1;
+		return chars;
+	}
+
+	/**
+	 * @return the name of the current start, empty or end tag
+	 */
+	String getName() {
+		int start = this.tokenStart + (this.buffer[this.tokenStart + 1] == '/' ? 2 : 1);
+		int end = start;
+		while (end < this.pos && !isNameEnd(this.buffer[end])) {
+			end++;
+		}
+		return getName(start, end);
+	}
+
+	/**
+	 * @return the attributes of the current start or empty tag. The object is re-used for the next tag.
+	 */
+	AttributesImpl getAttributes() {
+		this.atts.clear();
+		int i = this.tokenStart + 1;
+		while (!isNameEnd(this.buffer[i])) {
+			i++;
+		}
+		int end = this.pos - 1;
+		while (true) {
+			while (i < end && isWhitespace(this.buffer[i])) {
+				i++;
+			}
+			if (i >= end || this.buffer[i] == '/') {
+				return this.atts;
+			}
+			int nameStart = i;
+			while (this.buffer[i] != '=' && !isWhitespace(this.buffer[i])) {
+				i++;
+			}
+			String name = getName(nameStart, i);
+			while (this.buffer[i] != '"' && this.buffer[i] != '\'') {
+				i++;
+			}
+			char quote = this.buffer[i++];
+			int valueStart = i;
+			while (this.buffer[i] != quote) {
+				i++;
+			}
+			this.value.setLength(0);
+			appendDecoded(valueStart, i, true, this.value);
+			this.atts.addAttribute("", name, name, "CDATA", this.value.toString());
+			i++;
+		}
+	}
+
+	/**
+	 * Appends the decoded character data of the current text or CDATA token.
+	 */
+	void appendText(final int token, final StringBuilder content) {
+		if (token == CDATA) {
+			content.append(this.buffer, this.tokenStart + 9, this.pos - this.tokenStart - 12);
+		} else {
+			appendDecoded(this.tokenStart, this.pos, false, content);
+		}
+	}
+
+	/**
+	 * @return the last part of the system identifier of the current DOCTYPE declaration, or <code>null</code> if it has none
+	 */
+	String getDoctype() {
+		String declaration = new String(this.buffer, this.tokenStart, this.pos - this.tokenStart);
+		int internalSubset = declaration.indexOf('[');
+		if (internalSubset >= 0) {
+			declaration = declaration.substring(0, internalSubset);
+		}
+		int end = Math.max(declaration.lastIndexOf('"'), declaration.lastIndexOf('\''));
+		if (end < 0) {
+			return null;
+		}
+		int start = declaration.lastIndexOf(declaration.charAt(end), end - 1);
+		String systemId = declaration.substring(start + 1, end).replace('\\', '/');
+		return systemId.substring(systemId.lastIndexOf('/') + 1);
+	}
+
+	private boolean ensure(final int length) {
+		while (this.limit - this.pos < length) {
+			if (!fill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads more characters, moving the ones still needed to the beginning of the buffer.
+	 *
+	 * @return <code>false</code> at the end of the input
+	 */
+	private boolean fill() {
+		if (this.reader == null) {
+			return false;
+		}
+		int keep = this.mark >= 0 ? this.mark : this.tokenStart;
+		if (keep > 0) {
+			System.arraycopy(this.buffer, keep, this.buffer, 0, this.limit - keep);
+			this.limit -= keep;
+			this.pos -= keep;
+			this.tokenStart -= keep;
+			if (this.mark >= 0) {
+				this.mark -= keep;
+			}
+		}
+		if (this.limit == this.buffer.length) {
+			this.buffer = Arrays.copyOf(this.buffer, 2 * this.buffer.length);
+		}
+		try {
+			int read = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+			if (read < 0) {
+				return false;
+			}
+			this.limit += read;
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private boolean startsWith(final String prefix) {
+		if (!ensure(prefix.length())) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (this.buffer[this.pos + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void skipPast(final String end) {
+		this.pos += 2;
+		char last = end.charAt(end.length() - 1);
+		while (true) {
+			if (this.pos == this.limit && !fill()) {
+				throw new UncheckedIOException("unexpected end of file, expected " + end);
+			}
+			if (this.buffer[this.pos++] == last && this.pos - this.tokenStart >= end.length() + 2) {
+				boolean matches = true;
+				for (int i = 0; i < end.length() - 1 && matches; i++) {
+					matches = this.buffer[this.pos - end.length() + i] == end.charAt(i);
+				}
+				if (matches) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Skips a tag or declaration up to the closing '&gt;', ignoring '&gt;' in quoted values and, for
+	 * declarations, in an internal subset.
+	 */
+	private void skipMarkup(final boolean isDeclaration) {
+		this.pos++;
+		char quote = 0;
+		int brackets = 0;
+		while (true) {
+			if (this.pos == this.limit && !fill()) {
+				throw new UncheckedIOException("unexpected end of file in tag");
+			}
+			char c = this.buffer[this.pos++];
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (isDeclaration && c == '[') {
+				brackets++;
+			} else if (isDeclaration && c == ']') {
+				brackets--;
+			} else if (c == '>' && brackets == 0) {
+				return;
+			}
+		}
+	}
+
+	private void appendDecoded(final int start, final int end, final boolean isAttribute, final StringBuilder result) {
+		for (int i = start; i < end; i++) {
+			char c = this.buffer[i];
+			if (c == '&') {
+				int semicolon = i + 1;
+				while (semicolon < end && this.buffer[semicolon] != ';') {
+					semicolon++;
+				}
+				if (semicolon == end) {
+					throw new UncheckedIOException("unterminated entity reference: " + new String(this.buffer, i, end - i));
+				}
+				appendEntity(new String(this.buffer, i + 1, semicolon - i - 1), result);
+				i = semicolon;
+			} else if (c == '\r') {
+				// line endings are normalized to \n
+				if (i + 1 < end && this.buffer[i + 1] == '\n') {
+					i++;
+				}
+				result.append(isAttribute ? ' ' : '\n');
+			} else if (isAttribute && (c == '\n' || c == '\t')) {
+				result.append(' ');
+			} else {
+				result.append(c);
+			}
+		}
+	}
+
+	private static void appendEntity(final String entity, final StringBuilder result) {
+		switch (entity) {
+			case "lt":
+				result.append('<');
+				break;
+			case "gt":
+				result.append('>');
+				break;
+			case "amp":
+				result.append('&');
+				break;
+			case "quot":
+				result.append('"');
+				break;
+			case "apos":
+				result.append('\'');
+				break;
+			default:
+				if (entity.startsWith("#x")) {
+					result.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+				} else if (entity.startsWith("#")) {
+					result.appendCodePoint(Integer.parseInt(entity.substring(1)));
+				} else {
+					throw new UncheckedIOException("entity &" + entity + "; is not supported.");
+				}
+		}
+	}
+
+	/**
+	 * Returns the name in the given range of the buffer, re-using the String instance if the name was seen before.
+	 */
+	private String getName(final int start, final int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + this.buffer[i];
+		}
+		int slot = hash & (this.names.length - 1);
+		String name = this.names[slot];
+		if (name != null && name.length() == end - start) {
+			boolean equal = true;
+			for (int i = 0; i < name.length() && equal; i++) {
+				equal = name.charAt(i) == this.buffer[start + i];
+			}
+			if (equal) {
+				return name;
+			}
+		}
+		name = new String(this.buffer, start, end - start);
+		this.names[slot] = name;
+		return name;
+	}
+
+	private static boolean isNameEnd(final char c) {
+		return isWhitespace(c) || c == '/' || c == '>';
+	}
+
+	private static boolean isWhitespace(final char c) {
+		return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+	}
+
+	private static boolean isWhitespace(final CharSequence chars) {
+		for (int i = 0; i < chars.length(); i++) {
+			if (!isWhitespace(chars.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Passes the tokens of a document (or of a part of it) to a {@link MatsimXmlParser}, collecting the character
+	 * content of each element like {@link MatsimXmlParser} does. As the DTD is not read, its default attribute values
+	 * have to be given explicitly, and content consisting of whitespace only is treated as ignorable whitespace
+	 * (the MATSim DTDs do not use mixed content).
+	 */
+	static final class Dispatcher {
+
+		private final MatsimXmlParser parser;
+		private final Stack<String> context;
+		private final Map<String, Map<String, String>> defaultAttributes;
+		private final List<StringBuilder> contents = new ArrayList<>();
+		private int depth = 0;
+
+		/**
+		 * @param context the elements enclosing the part of the document that is dispatched, will be modified
+		 * @param defaultAttributes the default attribute values per element name
+		 */
+		Dispatcher(final MatsimXmlParser parser, final Stack<String> context, final Map<String, Map<String, String>> defaultAttributes) {
+			this.parser = parser;
+			this.context = context;
+			this.defaultAttributes = defaultAttributes;
+		}
+
+		void dispatch(final MatsimXmlTokenizer tokenizer, final int token) {
+			switch (token) {
+				case START_TAG:
+				case EMPTY_TAG:
+					String name = tokenizer.getName();
+					if (this.contents.size() == this.depth) {
+						this.contents.add(new StringBuilder());
+					}
+					this.contents.get(this.depth).setLength(0);
+					this.depth++;
+					AttributesImpl atts = tokenizer.getAttributes();
+					Map<String, String> defaults = this.defaultAttributes.get(name);
+					if (defaults != null) {
+						for (Map.Entry<String, String> e : defaults.entrySet()) {
+							if (atts.getIndex(e.getKey()) < 0) {
+								atts.addAttribute("", e.getKey(), e.getKey(), "CDATA", e.getValue());
+							}
+						}
+					}
+					this.parser.startTag(name, atts, this.context);
+					this.context.push(name);
+					if (token == EMPTY_TAG) {
+						endTag(name);
+					}
+					break;
+				case END_TAG:
+					endTag(tokenizer.getName());
+					break;
+				case TEXT:
+				case CDATA:
+					if (this.depth > 0) {
+						tokenizer.appendText(token, this.contents.get(this.depth - 1));
+					}
+					break;
+				default:
+					break;
+			}
+		}
+
+		private void endTag(final String name) {
+			if (this.depth == 0 || !this.context.peek().equals(name)) {
+				throw new UncheckedIOException("unexpected end tag </" + name + ">, context: " + this.context);
+			}
+			this.depth--;
+			this.context.pop();
+			StringBuilder content = this.contents.get(this.depth);
+			this.parser.endTag(name, isWhitespace(content) ? "" : content.toString(), this.context);
+		}
+
+	}
+
+}
@@ -0,0 +1,212 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelCompressingOutputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.luben.zstd.Zstd;
+
+/**
+ * An output stream that compresses the written data on several threads, so that the serialization of the
+ * data (e.g. of a population or of events) and its compression overlap.
+ * <p></p>
+ * The data is cut into blocks of fixed size, and each block is compressed independently into a complete
+ * gzip member (like <code>pigz --independent</code>) or a complete zstd frame. The compressed blocks are
+ * written in order, so the file is a concatenation of members or frames, which can be read by any gzip
+ * or zstd decompressor (including {@link java.util.zip.GZIPInputStream}). Compared to a single stream,
+ * the compression ratio is slightly worse, as no dictionary is shared between the blocks.
+ * <p></p>
+ * The compressed blocks are written to the underlying stream by the thread writing to this stream. At
+ * most two blocks per thread are held in memory, writing blocks if the compression cannot keep up.
+ * <p></p>
+ * By default, {@link #flush()} ends the current block and waits until all blocks are written. Writers which
+ * flush very often, like the population writer after every person, can choose to only write the blocks that
+ * are already compressed on a flush, see {@link #ParallelCompressingOutputStream(OutputStream, Format, int, int, boolean)}.
+ */
+public final class ParallelCompressingOutputStream extends OutputStream {
+
+	public enum Format { gzip, zstd }
+
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+	private static final int ZSTD_LEVEL = 3;
+
+	private final OutputStream out;
+	private final Format format;
+	private final int maxPendingBlocks;
+	private final ExecutorService executor;
+	private final boolean endingBlockOnFlush;
+	private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+	private byte[] block;
+	private int blockLength = 0;
+	private boolean closed = false;
+
+	public ParallelCompressingOutputStream(final OutputStream out, final Format format, final int numberOfThreads) {
+		this(out, format, numberOfThreads, DEFAULT_BLOCK_SIZE);
+	}
+
+	public ParallelCompressingOutputStream(final OutputStream out, final Format format, final int numberOfThreads, final int blockSize) {
+		this(out, format, numberOfThreads, blockSize, true);
+	}
+
+	/**
+	 * @param endingBlockOnFlush if <code>false</code>, {@link #flush()} does not end the current block, so
+	 * data written since the last full block only reaches the underlying stream when this stream is closed.
+	 */
+	public ParallelCompressingOutputStream(final OutputStream out, final Format format, final int numberOfThreads, final int blockSize,
+			final boolean endingBlockOnFlush) {
+		this.out = out;
+		this.endingBlockOnFlush = endingBlockOnFlush;
+		this.format = format;
+		this.block = new byte[blockSize];
+		int threads = Math.max(1, numberOfThreads);
+		this.maxPendingBlocks = 2 * threads;
+		final AtomicInteger threadCounter = new AtomicInteger(0);
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "CompressingOutputStream-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (this.blockLength == this.block.length) {
+			submitBlock();
+		}
+		this.block[this.blockLength++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (this.blockLength == this.block.length) {
+				submitBlock();
+			}
+			int n = Math.min(len, this.block.length - this.blockLength);
+			System.arraycopy(b, off, this.block, this.blockLength, n);
+			this.blockLength += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Compresses the current block, writes all pending blocks and flushes the underlying stream. If this
+	 * stream does not end the block on a flush, only the blocks that are already compressed are written,
+	 * as writers like the population writer flush after every element, which would otherwise result in a
+	 * tiny block per element.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.endingBlockOnFlush) {
+			if (this.blockLength > 0) {
+				submitBlock();
+			}
+			while (!this.pending.isEmpty()) {
+				writeBlock(this.pending.poll());
+			}
+		} else {
+			while (!this.pending.isEmpty() && this.pending.peek().isDone()) {
+				writeBlock(this.pending.poll());
+			}
+		}
+		this.out.flush();
+	}
+
+	/**
+	 * Compresses the last block and writes all pending blocks.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		try {
+			if (this.blockLength > 0) {
+				submitBlock();
+			}
+			while (!this.pending.isEmpty()) {
+				writeBlock(this.pending.poll());
+			}
+			this.out.flush();
+		} finally {
+			this.closed = true;
+			this.executor.shutdownNow();
+			this.out.close();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed.");
+		}
+		final byte[] data = this.block;
+		final int length = this.blockLength;
+		this.pending.add(this.executor.submit(() -> compress(this.format, data, length)));
+		this.block = new byte[data.length];
+		this.blockLength = 0;
+		// write all blocks that are already compressed, wait only if too many blocks are pending
+		while (!this.pending.isEmpty() && (this.pending.peek().isDone() || this.pending.size() > this.maxPendingBlocks)) {
+			writeBlock(this.pending.poll());
+		}
+	}
+
+	private void writeBlock(final Future<byte[]> future) throws IOException {
+		try {
+			this.out.write(future.get());
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static byte[] compress(final Format format, final byte[] data, final int length) throws IOException {
+		switch (format) {
+			case gzip:
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 4 + 64);
+				try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+					gzip.write(data, 0, length);
+				}
+				return bytes.toByteArray();
+			case zstd:
+				return Zstd.compress(length == data.length ? data : Arrays.copyOf(data, length), ZSTD_LEVEL);
+			default:
+				throw new IllegalArgumentException("Unknown format " + format);
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Counter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts occurrences, e.g. events or bytes. Can be incremented concurrently.
+ */
+public final class Counter implements Metrics.Metric {
+
+	private final String name;
+	private final LongAdder count = new LongAdder();
+
+	Counter(final String name) {
+		this.name = name;
+	}
+
+	public void increment() {
+		if (Metrics.isEnabled()) {
+			this.count.increment();
+		}
+	}
+
+	public void add(final long value) {
+		if (Metrics.isEnabled()) {
+			this.count.add(value);
+		}
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public Map<String, Double> getValues() {
+		Map<String, Double> values = new LinkedHashMap<>();
+		values.put("count", (double) getCount());
+		return values;
+	}
+
+	@Override
+	public void reset() {
+		this.count.reset();
+	}
+
+}
@@ -0,0 +1,65 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Gauge.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single value that is set from time to time, e.g. a rate computed at the end of the mobsim.
+ */
+public final class Gauge implements Metrics.Metric {
+
+	private final String name;
+	private volatile double value = 0.0;
+
+	Gauge(final String name) {
+		this.name = name;
+	}
+
+	public void set(final double value) {
+		if (Metrics.isEnabled()) {
+			this.value = value;
+		}
+	}
+
+	public double getValue() {
+		return this.value;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public Map<String, Double> getValues() {
+		Map<String, Double> values = new LinkedHashMap<>();
+		values.put("value", this.value);
+		return values;
+	}
+
+	@Override
+	public void reset() {
+		this.value = 0.0;
+	}
+
+}
@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Histogram.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distribution of non-negative values, e.g. durations or sizes. Values are counted in buckets that
+ * grow exponentially, four buckets per power of two, so the reported quantiles are at most 25% too high,
+ * while recording a value needs no locking and no allocation.
+ */
+public final class Histogram implements Metrics.Metric {
+
+	private static final int SUB_BUCKETS = 4;
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int NUMBER_OF_BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final String name;
+	private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong(0);
+
+	Histogram(final String name) {
+		this.name = name;
+	}
+
+	public void record(final long value) {
+		if (Metrics.isEnabled()) {
+			long v = Math.max(0, value);
+			this.buckets.incrementAndGet(getBucket(v));
+			this.count.increment();
+			this.sum.add(v);
+			long m = this.max.get();
+			while (v > m && !this.max.compareAndSet(m, v)) {
+				m = this.max.get();
+			}
+		}
+	}
+
+	/*package*/ static int getBucket(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return the largest value that falls into the given bucket
+	 */
+	/*package*/ static long getUpperBound(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+		int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long lowerBound = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+		return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	public long getSum() {
+		return this.sum.sum();
+	}
+
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * @param quantile between 0 and 1
+	 * @return an upper bound of the given quantile of the recorded values, or 0 if no values were recorded
+	 */
+	public long getQuantile(final double quantile) {
+		long total = 0;
+		long[] counts = new long[NUMBER_OF_BUCKETS];
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			counts[i] = this.buckets.get(i);
+			total += counts[i];
+		}
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				return Math.min(getUpperBound(i), getMax());
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public Map<String, Double> getValues() {
+		return getValues(1.0);
+	}
+
+	/**
+	 * @param unit the values are divided by this before they are reported, except for the count
+	 */
+	/*package*/ Map<String, Double> getValues(final double unit) {
+		Map<String, Double> values = new LinkedHashMap<>();
+		long n = getCount();
+		values.put("count", (double) n);
+		values.put("sum", getSum() / unit);
+		values.put("mean", n == 0 ? 0.0 : getSum() / unit / n);
+		values.put("p50", getQuantile(0.5) / unit);
+		values.put("p90", getQuantile(0.9) / unit);
+		values.put("p99", getQuantile(0.99) / unit);
+		values.put("max", getMax() / unit);
+		return values;
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			this.buckets.set(i, 0);
+		}
+		this.count.reset();
+		this.sum.reset();
+		this.max.set(0);
+	}
+
+}
@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Metrics.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of named measurements of the hot paths of MATSim, e.g. the duration of mobsim steps or
+ * the time spent in each replanning module. The measurements can be exported once per iteration,
+ * see {@link MetricsWriter}, or polled over HTTP, see {@link PrometheusEndpoint}.
+ * <p></p>
+ * Code that wants to be measured keeps a reference to its {@link Counter}, {@link Gauge}, {@link Histogram}
+ * or {@link Timer}, typically in a static field. As long as the metrics are not enabled, recording a value
+ * costs one read of a volatile field and nothing else, so the calls may be placed in tight loops.
+ * <p></p>
+ * Names consist of dot-separated parts, from general to specific, e.g. <code>mobsim.simStep</code>.
+ */
+public final class Metrics {
+
+	private static volatile boolean enabled = false;
+
+	private static final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+	private Metrics() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(final boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	public static Counter counter(final String name) {
+		return get(name, Counter.class);
+	}
+
+	public static Gauge gauge(final String name) {
+		return get(name, Gauge.class);
+	}
+
+	public static Histogram histogram(final String name) {
+		return get(name, Histogram.class);
+	}
+
+	public static Timer timer(final String name) {
+		return get(name, Timer.class);
+	}
+
+	/**
+	 * @return all metrics, sorted by their name
+	 */
+	public static SortedMap<String, Metric> getMetrics() {
+		return new TreeMap<>(metrics);
+	}
+
+	/**
+	 * Sets all metrics back to zero, e.g. at the end of an iteration. The metrics stay registered.
+	 */
+	public static void reset() {
+		for (Metric metric : metrics.values()) {
+			metric.reset();
+		}
+	}
+
+	private static <T extends Metric> T get(final String name, final Class<T> type) {
+		Metric metric = metrics.computeIfAbsent(name, n -> create(n, type));
+		if (!type.isInstance(metric)) {
+			throw new IllegalArgumentException("metric " + name + " is already registered as " + metric.getClass().getSimpleName()
+					+ ", cannot use it as " + type.getSimpleName());
+		}
+		return type.cast(metric);
+	}
+
+	private static Metric create(final String name, final Class<? extends Metric> type) {
+		if (type == Counter.class) {
+			return new Counter(name);
+		} else if (type == Gauge.class) {
+			return new Gauge(name);
+		} else if (type == Histogram.class) {
+			return new Histogram(name);
+		} else if (type == Timer.class) {
+			return new Timer(name);
+		}
+		throw new IllegalArgumentException("unknown metric type " + type.getName());
+	}
+
+	/**
+	 * A named measurement.
+	 */
+	public interface Metric {
+
+		String getName();
+
+		/**
+		 * @return the current values of this metric by statistic, e.g. <code>count</code> or <code>mean</code>, in a fixed order
+		 */
+		Map<String, Double> getValues();
+
+		void reset();
+
+	}
+
+}
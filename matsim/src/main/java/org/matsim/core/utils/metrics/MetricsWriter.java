@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MetricsWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Writes the current values of all {@link Metrics} to a file, one line per metric and statistic.
+ */
+public final class MetricsWriter {
+
+	private MetricsWriter() {
+	}
+
+	/**
+	 * Writes a semicolon-separated file with the columns <code>iteration;metric;statistic;value</code>.
+	 */
+	public static void writeCsv(final String filename, final int iteration) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("iteration;metric;statistic;value");
+			writer.newLine();
+			for (Metrics.Metric metric : Metrics.getMetrics().values()) {
+				for (Map.Entry<String, Double> e : metric.getValues().entrySet()) {
+					writer.write(iteration + ";" + metric.getName() + ";" + e.getKey() + ";" + format(e.getValue()));
+					writer.newLine();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes a JSON object of the form <code>{"iteration": 3, "metrics": {"mobsim.simStep": {"count": 108000, ...}, ...}}</code>.
+	 */
+	public static void writeJson(final String filename, final int iteration) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("{\n\t\"iteration\": " + iteration + ",\n\t\"metrics\": {");
+			boolean firstMetric = true;
+			for (Metrics.Metric metric : Metrics.getMetrics().values()) {
+				writer.write(firstMetric ? "\n" : ",\n");
+				firstMetric = false;
+				writer.write("\t\t\"" + escapeJson(metric.getName()) + "\": {");
+				boolean firstValue = true;
+				for (Map.Entry<String, Double> e : metric.getValues().entrySet()) {
+					writer.write(firstValue ? "" : ", ");
+					firstValue = false;
+					writer.write("\"" + e.getKey() + "\": " + format(e.getValue()));
+				}
+				writer.write("}");
+			}
+			writer.write("\n\t}\n}\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*package*/ static String format(final double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+	private static String escapeJson(final String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+}
@@ -0,0 +1,91 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PrometheusEndpoint.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the current values of all {@link Metrics} in the text format of Prometheus on
+ * <code>http://localhost:port/metrics</code>. Only the loopback interface is bound, so the endpoint is not
+ * reachable from other machines.
+ * <p></p>
+ * The metric names are prefixed with <code>matsim_</code>, the dots are replaced by underscores and the statistic
+ * is appended, e.g. <code>mobsim.simStep</code> becomes <code>matsim_mobsim_simStep_p99_ms</code>.
+ */
+public final class PrometheusEndpoint {
+
+	private static final Logger log = Logger.getLogger(PrometheusEndpoint.class);
+
+	private final HttpServer server;
+
+	public PrometheusEndpoint(final int port) {
+		try {
+			this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.server.createContext("/metrics", this::handle);
+		this.server.start();
+		log.info("serving metrics on http://localhost:" + port + "/metrics");
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+		byte[] body = getText().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/*package*/ static String getText() {
+		StringBuilder text = new StringBuilder();
+		for (Metrics.Metric metric : Metrics.getMetrics().values()) {
+			String name = "matsim_" + metric.getName().replaceAll("[^a-zA-Z0-9_]", "_");
+			boolean single = metric instanceof Counter || metric instanceof Gauge;
+			for (Map.Entry<String, Double> e : metric.getValues().entrySet()) {
+				String fullName = single ? name : name + "_" + e.getKey();
+				if (metric instanceof Timer && !"count".equals(e.getKey())) {
+					fullName += "_ms";
+				}
+				text.append("# TYPE ").append(fullName).append(metric instanceof Counter ? " counter\n" : " gauge\n");
+				text.append(fullName).append(' ').append(MetricsWriter.format(e.getValue())).append('\n');
+			}
+		}
+		return text.toString();
+	}
+
+	public void stop() {
+		this.server.stop(0);
+	}
+
+}
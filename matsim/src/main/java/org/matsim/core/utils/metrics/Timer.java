@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Timer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.util.Map;
+
+/**
+ * Measures durations, e.g. of a mobsim step. Typical usage:
+ * <pre>
+ * long start = timer.start();
+ * doWork();
+ * timer.stop(start);
+ * </pre>
+ * When the metrics are disabled, {@link #start()} does not even read the clock. The durations are
+ * recorded in nanoseconds and reported in milliseconds.
+ */
+public final class Timer implements Metrics.Metric {
+
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	private final Histogram durations;
+
+	Timer(final String name) {
+		this.durations = new Histogram(name);
+	}
+
+	/**
+	 * @return the start time to be passed to {@link #stop(long)}
+	 */
+	public long start() {
+		return Metrics.isEnabled() ? System.nanoTime() : 0;
+	}
+
+	public void stop(final long start) {
+		if (start != 0) {
+			record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Records a duration that was measured elsewhere.
+	 */
+	public void record(final long nanos) {
+		this.durations.record(nanos);
+	}
+
+	public long getCount() {
+		return this.durations.getCount();
+	}
+
+	public long getTotalNanos() {
+		return this.durations.getSum();
+	}
+
+	@Override
+	public String getName() {
+		return this.durations.getName();
+	}
+
+	@Override
+	public Map<String, Double> getValues() {
+		return this.durations.getValues(NANOS_PER_MILLI);
+	}
+
+	@Override
+	public void reset() {
+		this.durations.reset();
+	}
+
+}
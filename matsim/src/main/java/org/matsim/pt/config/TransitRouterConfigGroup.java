@@ -27,15 +27,19 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 
 	public static final String GROUP_NAME = "transitRouter";
 
+	public enum RoutingAlgorithmType {Dijkstra, Raptor}
+
 	/*package*/ static final String SEARCH_RADIUS = "searchRadius";
 	/*package*/ static final String EXTENSION_RADIUS = "extensionRadius";
 	/*package*/ static final String MAX_BEELINE_WALK_CONNECTION_DISTANCE = "maxBeelineWalkConnectionDistance";
 	/*package*/ static final String ADDITIONAL_TRANSFER_TIME = "additionalTransferTime";
+	/*package*/ static final String ROUTING_ALGORITHM_TYPE = "routingAlgorithmType";
 
 	private double searchRadius = 1000.0;
 	private double extensionRadius = 200.0;
 	private double maxBeelineWalkConnectionDistance = 100.0;
 	private double additionalTransferTime = 0.0;
+	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.Dijkstra;
 
 	private double directWalkFactor = 1. ;
 	
@@ -56,6 +60,9 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		comments.put(MAX_BEELINE_WALK_CONNECTION_DISTANCE, "maximum beeline distance between stops that agents could transfer to by walking");
 		comments.put(ADDITIONAL_TRANSFER_TIME, "additional time the router allocates when a line switch happens. Can be interpreted as a 'safety' time that agents need to safely transfer from one line to another");
 		comments.put(DIRECT_WALK_FACTOR, DIRECT_WALK_FACTOR_CMT);
+		comments.put(ROUTING_ALGORITHM_TYPE, "The algorithm used to route pt trips, may have the values: " + RoutingAlgorithmType.Dijkstra + " or "
+				+ RoutingAlgorithmType.Raptor + ". " + RoutingAlgorithmType.Raptor + " works on an array-based index of the schedule "
+				+ "instead of the transit router network and is usually much faster on large schedules.");
 		return comments;
 	}
 
@@ -103,6 +110,17 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		return this.additionalTransferTime;
 	}
 
+	@StringSetter( ROUTING_ALGORITHM_TYPE )
+	public void setRoutingAlgorithmType(final RoutingAlgorithmType routingAlgorithmType) {
+		testForLocked() ;
+		this.routingAlgorithmType = routingAlgorithmType;
+	}
+
+	@StringGetter( ROUTING_ALGORITHM_TYPE )
+	public RoutingAlgorithmType getRoutingAlgorithmType() {
+		return this.routingAlgorithmType;
+	}
+
 	/**
 	 * {@value #DIRECT_WALK_FACTOR_CMT}
 	 */
@@ -118,10 +136,19 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		this.directWalkFactor = directWalkFactor;
 	}
 	
+	/**
+	 * @deprecated the cached tree is only valid for a single departure time. Use
+	 * {@link org.matsim.pt.router.ProfileTransitRouter#calcTree} to route from one origin to many destinations.
+	 */
+	@Deprecated
 	public boolean isCacheTree() {
 		return cacheTree;
 	}
 
+	/**
+	 * @deprecated see {@link #isCacheTree()}
+	 */
+	@Deprecated
 	public void setCacheTree(boolean cacheTree) {
 		this.cacheTree = cacheTree;
 	}
@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ProfileRoute.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.population.Leg;
+
+/**
+ * One of the Pareto-optimal routes returned by
+ * {@link ProfileTransitRouter#calcRoutes(org.matsim.facilities.Facility, org.matsim.facilities.Facility, double, double, org.matsim.api.core.v01.population.Person)}.
+ */
+public final class ProfileRoute {
+
+	private final double departureTime;
+	private final double arrivalTime;
+	private final List<Leg> legs;
+
+	public ProfileRoute(final double departureTime, final double arrivalTime, final List<Leg> legs) {
+		this.departureTime = departureTime;
+		this.arrivalTime = arrivalTime;
+		this.legs = legs;
+	}
+
+	public double getDepartureTime() {
+		return this.departureTime;
+	}
+
+	public double getArrivalTime() {
+		return this.arrivalTime;
+	}
+
+	public List<Leg> getLegs() {
+		return this.legs;
+	}
+
+	@Override
+	public String toString() {
+		return "[departureTime=" + this.departureTime + "][arrivalTime=" + this.arrivalTime + "][legs=" + this.legs.size() + "]";
+	}
+
+}
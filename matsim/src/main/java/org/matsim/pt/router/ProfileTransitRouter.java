@@ -0,0 +1,50 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ProfileTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.facilities.Facility;
+
+/**
+ * A {@link TransitRouter} that also answers the queries of accessibility computations and location choice, which
+ * route many times from the same origin: to many destinations, or across a window of departure times.
+ */
+public interface ProfileTransitRouter extends TransitRouter {
+
+	/**
+	 * Calculates the routes from the facility to all stops for one departure time. The returned tree can be
+	 * queried for any number of destinations, which is much cheaper than calling {@link #calcRoute} for each of them.
+	 */
+	TransitRouterTree calcTree(Facility fromFacility, double departureTime, Person person);
+
+	/**
+	 * Calculates the routes for all departure times within <code>[earliestDepartureTime, latestDepartureTime]</code>.
+	 * Only the Pareto-optimal routes are returned, i.e. the routes for which there is no other route departing later
+	 * and arriving at the same time or earlier.
+	 *
+	 * @return the Pareto-optimal routes, sorted by departure time
+	 */
+	List<ProfileRoute> calcRoutes(Facility fromFacility, Facility toFacility, double earliestDepartureTime,
+			double latestDepartureTime, Person person);
+
+}
@@ -0,0 +1,263 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorSchedule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.PackedKdTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Array-based index of a {@link TransitSchedule} as required by the {@link RaptorTransitRouter}.
+ * <p></p>
+ * Stops, route stops, departures and transfers are numbered consecutively and stored in plain arrays:
+ * the route stops of a route are stored one after the other, the (sorted) departures of a route as well.
+ * For every stop, the route stops serving it and the stops within walking distance (the stop itself
+ * included) are stored the same way. Only stops that are served by at least one route with at least one
+ * departure are part of the index, like in the {@link TransitRouterNetwork}.
+ * <p></p>
+ * The index is immutable once built and can thus be shared by all routers, also by routers used
+ * concurrently. It does not expect the schedule to change; create a new index if it does.
+ */
+public final class RaptorSchedule {
+
+	private final static Logger log = Logger.getLogger(RaptorSchedule.class);
+
+	/*package*/ final TransitSchedule schedule;
+
+	/*package*/ final TransitStopFacility[] stops;
+	/*package*/ final TransitLine[] lines;
+	/*package*/ final TransitRoute[] routes;
+
+	/** route stops of route r are <code>routeFirstRouteStop[r] .. routeFirstRouteStop[r + 1] - 1</code> */
+	/*package*/ final int[] routeFirstRouteStop;
+	/** departures (at the first stop) of route r are <code>routeFirstDeparture[r] .. routeFirstDeparture[r + 1] - 1</code> */
+	/*package*/ final int[] routeFirstDeparture;
+	/*package*/ final double[] departures;
+
+	/*package*/ final int[] routeStopStop;
+	/*package*/ final int[] routeStopRoute;
+	/*package*/ final double[] routeStopArrivalOffset;
+	/*package*/ final double[] routeStopDepartureOffset;
+	/** distance along the route from its first stop, measured as beeline distance between consecutive stops */
+	/*package*/ final double[] routeStopDistance;
+
+	/** route stops at stop s are <code>stopRouteStops[stopFirstRouteStop[s] .. stopFirstRouteStop[s + 1] - 1]</code> */
+	/*package*/ final int[] stopFirstRouteStop;
+	/*package*/ final int[] stopRouteStops;
+
+	/** transfers from stop s are <code>stopFirstTransfer[s] .. stopFirstTransfer[s + 1] - 1</code> */
+	/*package*/ final int[] stopFirstTransfer;
+	/*package*/ final int[] transferToStop;
+	/*package*/ final double[] transferDistance;
+
+	private final PackedKdTree<Integer> stopsIndex;
+
+	public RaptorSchedule(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
+		log.info("start creating raptor schedule");
+		this.schedule = schedule;
+
+		List<TransitLine> lineList = new ArrayList<>();
+		List<TransitRoute> routeList = new ArrayList<>();
+		int numberOfRouteStops = 0;
+		int numberOfDepartures = 0;
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getDepartures().isEmpty() || route.getStops().size() < 2) {
+					continue;
+				}
+				lineList.add(line);
+				routeList.add(route);
+				numberOfRouteStops += route.getStops().size();
+				numberOfDepartures += route.getDepartures().size();
+			}
+		}
+
+		this.lines = lineList.toArray(new TransitLine[lineList.size()]);
+		this.routes = routeList.toArray(new TransitRoute[routeList.size()]);
+		this.routeFirstRouteStop = new int[this.routes.length + 1];
+		this.routeFirstDeparture = new int[this.routes.length + 1];
+		this.departures = new double[numberOfDepartures];
+		this.routeStopStop = new int[numberOfRouteStops];
+		this.routeStopRoute = new int[numberOfRouteStops];
+		this.routeStopArrivalOffset = new double[numberOfRouteStops];
+		this.routeStopDepartureOffset = new double[numberOfRouteStops];
+		this.routeStopDistance = new double[numberOfRouteStops];
+
+		Map<TransitStopFacility, Integer> stopIndices = new IdentityHashMap<>();
+		List<TransitStopFacility> stopList = new ArrayList<>();
+		int routeStop = 0;
+		int departure = 0;
+		for (int r = 0; r < this.routes.length; r++) {
+			TransitRoute route = this.routes[r];
+			this.routeFirstRouteStop[r] = routeStop;
+			Coord previousCoord = null;
+			double distance = 0.0;
+			for (TransitRouteStop stop : route.getStops()) {
+				TransitStopFacility facility = stop.getStopFacility();
+				Integer stopIndex = stopIndices.get(facility);
+				if (stopIndex == null) {
+					stopIndex = stopList.size();
+					stopIndices.put(facility, stopIndex);
+					stopList.add(facility);
+				}
+				if (previousCoord != null) {
+					distance += CoordUtils.calcEuclideanDistance(previousCoord, facility.getCoord());
+				}
+				previousCoord = facility.getCoord();
+				// the arrival offset is often only given for the last stop, the departure offset for all others
+				double arrivalOffset = !Time.isUndefinedTime(stop.getArrivalOffset()) ? stop.getArrivalOffset() : stop.getDepartureOffset();
+				double departureOffset = !Time.isUndefinedTime(stop.getDepartureOffset()) ? stop.getDepartureOffset() : arrivalOffset;
+				this.routeStopStop[routeStop] = stopIndex;
+				this.routeStopRoute[routeStop] = r;
+				this.routeStopArrivalOffset[routeStop] = arrivalOffset;
+				this.routeStopDepartureOffset[routeStop] = departureOffset;
+				this.routeStopDistance[routeStop] = distance;
+				routeStop++;
+			}
+			this.routeFirstDeparture[r] = departure;
+			for (Departure dep : route.getDepartures().values()) {
+				this.departures[departure++] = dep.getDepartureTime();
+			}
+			Arrays.sort(this.departures, this.routeFirstDeparture[r], departure);
+		}
+		this.routeFirstRouteStop[this.routes.length] = routeStop;
+		this.routeFirstDeparture[this.routes.length] = departure;
+		this.stops = stopList.toArray(new TransitStopFacility[stopList.size()]);
+
+		// route stops per stop
+		this.stopFirstRouteStop = new int[this.stops.length + 1];
+		for (int rs = 0; rs < numberOfRouteStops; rs++) {
+			this.stopFirstRouteStop[this.routeStopStop[rs] + 1]++;
+		}
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopFirstRouteStop[s + 1] += this.stopFirstRouteStop[s];
+		}
+		this.stopRouteStops = new int[numberOfRouteStops];
+		int[] fill = Arrays.copyOf(this.stopFirstRouteStop, this.stops.length);
+		for (int rs = 0; rs < numberOfRouteStops; rs++) {
+			this.stopRouteStops[fill[this.routeStopStop[rs]]++] = rs;
+		}
+
+		// spatial index
+		PackedKdTree.Builder<Integer> stopsIndexBuilder = new PackedKdTree.Builder<>();
+		for (int s = 0; s < this.stops.length; s++) {
+			Coord c = this.stops[s].getCoord();
+			stopsIndexBuilder.put(c.getX(), c.getY(), s);
+		}
+		this.stopsIndex = stopsIndexBuilder.build();
+
+		// transfers
+		this.stopFirstTransfer = new int[this.stops.length + 1];
+		int[] toStops = new int[this.stops.length];
+		double[] distances = new double[this.stops.length];
+		int transfer = 0;
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopFirstTransfer[s] = transfer;
+			Coord c = this.stops[s].getCoord();
+			for (Integer toStop : this.stopsIndex.getDisk(c.getX(), c.getY(), maxBeelineWalkConnectionDistance)) {
+				if (transfer == toStops.length) {
+					toStops = Arrays.copyOf(toStops, 2 * toStops.length);
+					distances = Arrays.copyOf(distances, 2 * distances.length);
+				}
+				toStops[transfer] = toStop;
+				distances[transfer] = CoordUtils.calcEuclideanDistance(c, this.stops[toStop].getCoord());
+				transfer++;
+			}
+		}
+		this.stopFirstTransfer[this.stops.length] = transfer;
+		this.transferToStop = Arrays.copyOf(toStops, transfer);
+		this.transferDistance = Arrays.copyOf(distances, transfer);
+
+		log.info("raptor schedule statistics:");
+		log.info(" # stops:       " + this.stops.length);
+		log.info(" # routes:      " + this.routes.length);
+		log.info(" # route stops: " + numberOfRouteStops);
+		log.info(" # departures:  " + numberOfDepartures);
+		log.info(" # transfers:   " + transfer);
+	}
+
+	/**
+	 * @return the indices of the stops within the given distance of the coordinate
+	 */
+	/*package*/ Collection<Integer> getNearestStops(final Coord coord, final double distance) {
+		return this.stopsIndex.getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	/**
+	 * @return the index of the stop nearest to the coordinate, or <code>-1</code> if the schedule is empty
+	 */
+	/*package*/ int getNearestStop(final Coord coord) {
+		Integer stop = this.stopsIndex.getClosest(coord.getX(), coord.getY());
+		return stop == null ? -1 : stop;
+	}
+
+	/*package*/ int getNumberOfStops() {
+		return this.stops.length;
+	}
+
+	/**
+	 * Same as {@link PreparedTransitSchedule#getNextDepartureTime(TransitRoute, TransitRouteStop, double)}, but for
+	 * a route stop of this index.
+	 *
+	 * @return the next departure time of a vehicle of the route at the route stop, not earlier than <code>time</code>
+	 */
+	/*package*/ double getNextDepartureTime(final int routeStop, final double time) {
+		int route = this.routeStopRoute[routeStop];
+		double departureOffset = this.routeStopDepartureOffset[routeStop];
+		double earliestDepartureTimeAtTerminus = time - departureOffset;
+		if (earliestDepartureTimeAtTerminus >= TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) {
+			earliestDepartureTimeAtTerminus = earliestDepartureTimeAtTerminus % TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		if (earliestDepartureTimeAtTerminus < 0) {
+			earliestDepartureTimeAtTerminus += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		int from = this.routeFirstDeparture[route];
+		int to = this.routeFirstDeparture[route + 1];
+		int pos = Arrays.binarySearch(this.departures, from, to, earliestDepartureTimeAtTerminus);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		}
+		if (pos >= to) {
+			pos = from; // there is no later departure time, take the first in the morning
+		}
+		double bestDepartureTime = this.departures[pos] + departureOffset;
+		while (bestDepartureTime < time) {
+			bestDepartureTime += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		return bestDepartureTime;
+	}
+
+}
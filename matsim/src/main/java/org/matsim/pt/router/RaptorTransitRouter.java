@@ -0,0 +1,522 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+/**
+ * A {@link TransitRouter} based on the round-based RAPTOR algorithm, operating on the arrays of a
+ * {@link RaptorSchedule} instead of a {@link TransitRouterNetwork}.
+ * <p></p>
+ * Every round scans the routes serving the stops that were improved in the previous round, and afterwards
+ * relaxes the walk transfers from the stops reached by these routes. Instead of minimizing the arrival time, labels
+ * are compared by their generalized cost, calculated with the same utility parameters from the
+ * {@link TransitRouterConfig} as in {@link TransitRouterNetworkTravelTimeAndDisutility}: in-vehicle time,
+ * off-vehicle waiting time and distance for pt, walk time, walk distance, additional transfer time and the utility
+ * of line switch for transfers. The config is read for every query, so changes to it are respected.
+ * <p></p>
+ * Besides single routes, the router calculates one-to-all trees and the Pareto-optimal routes within a departure time
+ * window, see {@link ProfileTransitRouter}.
+ * <p></p>
+ * The {@link RaptorSchedule} is immutable and the per-query state is kept per thread, so instances of this router
+ * can be used concurrently.
+ */
+public class RaptorTransitRouter extends AbstractTransitRouter implements ProfileTransitRouter {
+
+	private static final int ACCESS = -2;
+	private static final int TRANSFER = -1;
+
+	private final RaptorSchedule raptorSchedule;
+	private final ThreadLocal<QueryState> queryStates;
+
+	public RaptorTransitRouter(final TransitRouterConfig trConfig, final TransitSchedule schedule) {
+		this(trConfig, new RaptorSchedule(schedule, trConfig.getBeelineWalkConnectionDistance()));
+	}
+
+	public RaptorTransitRouter(final TransitRouterConfig trConfig, final RaptorSchedule raptorSchedule) {
+		super(trConfig, new TransitRouterNetworkTravelTimeAndDisutility(trConfig,
+				new PreparedTransitSchedule(raptorSchedule.schedule)));
+		this.raptorSchedule = raptorSchedule;
+		this.queryStates = ThreadLocal.withInitial(() -> new QueryState(raptorSchedule));
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility fromFacility, final Facility toFacility, final double departureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		QueryState state = search(fromCoord, toCoord, departureTime, person);
+		return createLegs(state.bestLabel, state.bestCost, fromCoord, toCoord, departureTime, person);
+	}
+
+	@Override
+	public TransitRouterTree calcTree(final Facility fromFacility, final double departureTime, final Person person) {
+		QueryState state = search(fromFacility.getCoord(), null, departureTime, person);
+		return new Tree(fromFacility.getCoord(), departureTime, person, state);
+	}
+
+	/**
+	 * Runs one query for every departure time within the window at which a vehicle can be reached from one of the
+	 * access stops, starting with the latest one. As labels are compared by cost and not by arrival time, the labels
+	 * of a later query cannot be reused for an earlier one as in rRAPTOR, but every single query is pruned by the
+	 * best route to the destination.
+	 */
+	@Override
+	public List<ProfileRoute> calcRoutes(final Facility fromFacility, final Facility toFacility, final double earliestDepartureTime,
+			final double latestDepartureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		RaptorSchedule s = this.raptorSchedule;
+
+		TreeSet<Double> departureTimes = new TreeSet<>();
+		departureTimes.add(latestDepartureTime);
+		for (int stop : findNearestStops(fromCoord)) {
+			double walkTime = getWalkTime(person, fromCoord, s.stops[stop].getCoord());
+			for (int j = s.stopFirstRouteStop[stop]; j < s.stopFirstRouteStop[stop + 1]; j++) {
+				int routeStop = s.stopRouteStops[j];
+				if (routeStop == s.routeFirstRouteStop[s.routeStopRoute[routeStop] + 1] - 1) {
+					continue; // cannot board at the last stop of a route
+				}
+				double time = earliestDepartureTime + walkTime;
+				while (true) {
+					double vehicleDepartureTime = s.getNextDepartureTime(routeStop, time);
+					if (vehicleDepartureTime - walkTime > latestDepartureTime) {
+						break;
+					}
+					departureTimes.add(vehicleDepartureTime - walkTime);
+					time = Math.nextUp(vehicleDepartureTime);
+				}
+			}
+		}
+
+		LinkedList<ProfileRoute> routes = new LinkedList<>();
+		double earliestArrivalTime = Double.POSITIVE_INFINITY;
+		for (double departureTime : departureTimes.descendingSet()) {
+			QueryState state = search(fromCoord, toCoord, departureTime, person);
+			List<Leg> legs = createLegs(state.bestLabel, state.bestCost, fromCoord, toCoord, departureTime, person);
+			double arrivalTime = departureTime;
+			for (Leg leg : legs) {
+				arrivalTime += leg.getTravelTime();
+			}
+			if (arrivalTime < earliestArrivalTime) {
+				// not dominated by any route departing later
+				routes.addFirst(new ProfileRoute(departureTime, arrivalTime, legs));
+				earliestArrivalTime = arrivalTime;
+			}
+		}
+		return routes;
+	}
+
+	/**
+	 * @param toCoord the destination, or <code>null</code> to search the routes to all stops
+	 */
+	private QueryState search(final Coord fromCoord, final Coord toCoord, final double departureTime, final Person person) {
+		QueryState state = this.queryStates.get();
+		state.reset(getConfig());
+
+		for (int stop : findNearestStops(fromCoord)) {
+			Coord stopCoord = this.raptorSchedule.stops[stop].getCoord();
+			Label label = new Label(stop, departureTime + getWalkTime(person, fromCoord, stopCoord),
+					getWalkDisutility(person, fromCoord, stopCoord), ACCESS, null);
+			if (state.boardLabels[stop] == null || label.cost < state.boardLabels[stop].cost) {
+				state.boardLabels[stop] = label;
+				state.markStop(stop);
+			}
+		}
+		if (toCoord != null) {
+			for (int stop : findNearestStops(toCoord)) {
+				Coord stopCoord = this.raptorSchedule.stops[stop].getCoord();
+				state.egressCosts[stop] = getWalkDisutility(person, stopCoord, toCoord);
+			}
+		}
+
+		while (state.markedStopCount > 0) {
+			scanRoutes(state);
+			relaxTransfers(state);
+		}
+		return state;
+	}
+
+	private List<Leg> createLegs(final Label bestLabel, final double bestCost, final Coord fromCoord, final Coord toCoord,
+			final double departureTime, final Person person) {
+		if (bestLabel == null) {
+			return this.createDirectWalkLegList(null, fromCoord, toCoord);
+		}
+		TransitPassengerRoute transitPassengerRoute = createPassengerRoute(bestLabel, bestCost);
+
+		double directWalkCost = getWalkDisutility(person, fromCoord, toCoord);
+		if (directWalkCost * getConfig().getDirectWalkFactor() < transitPassengerRoute.getTravelCost()) {
+			return this.createDirectWalkLegList(null, fromCoord, toCoord);
+		}
+
+		return convertPassengerRouteToLegList(departureTime, transitPassengerRoute, fromCoord, toCoord, person);
+	}
+
+	/**
+	 * Same search for access and egress stops as in {@link TransitRouterImpl}.
+	 */
+	private Collection<Integer> findNearestStops(final Coord coord) {
+		Collection<Integer> stops = this.raptorSchedule.getNearestStops(coord, getConfig().getSearchRadius());
+		if (countRouteStops(stops) < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			int nearestStop = this.raptorSchedule.getNearestStop(coord);
+			if (nearestStop >= 0) { // transit schedule might be completely empty!
+				double distance = CoordUtils.calcEuclideanDistance(coord, this.raptorSchedule.stops[nearestStop].getCoord());
+				stops = this.raptorSchedule.getNearestStops(coord, distance + getConfig().getExtensionRadius());
+			}
+		}
+		return stops;
+	}
+
+	private int countRouteStops(final Collection<Integer> stops) {
+		int count = 0;
+		for (int stop : stops) {
+			count += this.raptorSchedule.stopFirstRouteStop[stop + 1] - this.raptorSchedule.stopFirstRouteStop[stop];
+		}
+		return count;
+	}
+
+	/**
+	 * Scans all routes serving a marked stop, starting at the first marked stop along the route. At every stop, the
+	 * vehicle that can be reached with the lowest cost is chosen, which is either the vehicle already boarded at an
+	 * upstream stop, or the next departure at this stop.
+	 */
+	private void scanRoutes(final QueryState state) {
+		RaptorSchedule s = this.raptorSchedule;
+		int[] markedRoutes = state.collectMarkedRoutes();
+		for (int route : markedRoutes) {
+			int lastRouteStop = s.routeFirstRouteStop[route + 1] - 1;
+
+			Label boardLabel = null;
+			int boardRouteStop = -1;
+			double boardDepartureTime = 0.0;
+			double boardCostOffset = 0.0;
+
+			for (int routeStop = state.routeMarkedFrom[route]; routeStop <= lastRouteStop; routeStop++) {
+				int stop = s.routeStopStop[routeStop];
+
+				if (boardLabel != null) {
+					double arrivalTime = boardDepartureTime + s.routeStopArrivalOffset[routeStop] - s.routeStopDepartureOffset[boardRouteStop];
+					double cost = boardCostOffset + arrivalTime * state.inVehicleTimeCost + s.routeStopDistance[routeStop] * state.inVehicleDistanceCost;
+					state.improveArrival(new Label(stop, arrivalTime, cost, route, boardLabel), stop);
+				}
+
+				Label label = state.boardLabels[stop];
+				if (label == null || routeStop == lastRouteStop) {
+					continue;
+				}
+				double departureTime = s.getNextDepartureTime(routeStop, label.time);
+				double vehicleArrivalTime = departureTime - (s.routeStopDepartureOffset[routeStop] - s.routeStopArrivalOffset[routeStop]);
+				double offVehicleWaitTime = Math.max(0.0, vehicleArrivalTime - label.time);
+				// cost at any downstream stop is costOffset + arrivalTime * inVehicleTimeCost + routeStopDistance * inVehicleDistanceCost
+				double costOffset = label.cost + offVehicleWaitTime * state.waitingCost
+						- (label.time + offVehicleWaitTime) * state.inVehicleTimeCost
+						- s.routeStopDistance[routeStop] * state.inVehicleDistanceCost;
+				if (boardLabel != null) {
+					double currentDepartureTime = boardDepartureTime + s.routeStopDepartureOffset[routeStop] - s.routeStopDepartureOffset[boardRouteStop];
+					if (boardCostOffset + currentDepartureTime * state.inVehicleTimeCost <= costOffset + departureTime * state.inVehicleTimeCost) {
+						continue;
+					}
+				}
+				boardLabel = label;
+				boardRouteStop = routeStop;
+				boardDepartureTime = departureTime;
+				boardCostOffset = costOffset;
+			}
+		}
+	}
+
+	/**
+	 * Walks from all stops reached in this round to the stops within walking distance. Walks may be chained, so one
+	 * can also transfer between two stops further apart than the beeline walk connection distance, as in the
+	 * {@link TransitRouterNetwork}.
+	 */
+	private void relaxTransfers(final QueryState state) {
+		RaptorSchedule s = this.raptorSchedule;
+		ArrayDeque<Label> queue = state.transferQueue;
+		while (!queue.isEmpty()) {
+			Label label = queue.poll();
+			if (label.route == TRANSFER ? state.boardLabels[label.stop] != label : state.arrivalLabels[label.stop] != label) {
+				continue; // improved in the meantime
+			}
+			for (int t = s.stopFirstTransfer[label.stop]; t < s.stopFirstTransfer[label.stop + 1]; t++) {
+				int toStop = s.transferToStop[t];
+				if (label.route == TRANSFER && isOnWalk(label, toStop)) {
+					continue; // do not walk in circles
+				}
+				double distance = s.transferDistance[t];
+				double walkTime = distance / state.walkSpeed;
+				double time = label.time + walkTime + state.additionalTransferTime;
+				double cost = label.cost + walkTime * state.walkTimeCost + distance * state.walkDistanceCost + state.transferCost;
+				Label transfer = new Label(toStop, time, cost, TRANSFER, label);
+				if (state.improveBoarding(transfer, toStop)) {
+					queue.add(transfer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if the stop was already visited by the chain of walks ending with the given transfer label
+	 */
+	private static boolean isOnWalk(final Label transferLabel, final int stop) {
+		Label label = transferLabel;
+		while (label.route == TRANSFER) {
+			if (label.stop == stop) {
+				return true;
+			}
+			label = label.previous;
+		}
+		return label.stop == stop;
+	}
+
+	private TransitPassengerRoute createPassengerRoute(final Label bestLabel, final double cost) {
+		RaptorSchedule s = this.raptorSchedule;
+		List<RouteSegment> routeSegments = new ArrayList<>();
+		Label label = bestLabel;
+		while (label.route != ACCESS) {
+			Label previous = label.previous;
+			if (label.route == TRANSFER) {
+				// chained walks are reported as a single transfer
+				Label first = label;
+				while (first.previous.route == TRANSFER) {
+					first = first.previous;
+				}
+				previous = first.previous;
+				routeSegments.add(0, new RouteSegment(s.stops[previous.stop], s.stops[label.stop], label.time - previous.time, null, null));
+			} else {
+				routeSegments.add(0, new RouteSegment(s.stops[previous.stop], s.stops[label.stop], label.time - previous.time,
+						s.lines[label.route].getId(), s.routes[label.route].getId()));
+			}
+			label = previous;
+		}
+		return new TransitPassengerRoute(cost, routeSegments);
+	}
+
+	/**
+	 * The labels of a search without destination. Queries for destinations only look at the labels at the egress stops.
+	 */
+	private final class Tree implements TransitRouterTree {
+		private final Coord fromCoord;
+		private final double departureTime;
+		private final Person person;
+		private final Label[] boardLabels;
+		private final Label[] arrivalLabels;
+
+		Tree(final Coord fromCoord, final double departureTime, final Person person, final QueryState state) {
+			this.fromCoord = fromCoord;
+			this.departureTime = departureTime;
+			this.person = person;
+			// the query state is reused by the next search of this thread
+			this.boardLabels = state.boardLabels.clone();
+			this.arrivalLabels = state.arrivalLabels.clone();
+		}
+
+		@Override
+		public double getDepartureTime() {
+			return this.departureTime;
+		}
+
+		@Override
+		public List<Leg> calcRoute(final Facility toFacility) {
+			Coord toCoord = toFacility.getCoord();
+			Label bestLabel = null;
+			double bestCost = Double.POSITIVE_INFINITY;
+			for (int stop : findNearestStops(toCoord)) {
+				double egressCost = getWalkDisutility(this.person, raptorSchedule.stops[stop].getCoord(), toCoord);
+				Label arrival = this.arrivalLabels[stop];
+				if (arrival != null && arrival.cost + egressCost < bestCost) {
+					bestLabel = arrival;
+					bestCost = arrival.cost + egressCost;
+				}
+				Label transfer = this.boardLabels[stop];
+				if (transfer != null && transfer.route == TRANSFER && transfer.cost + egressCost < bestCost) {
+					bestLabel = transfer;
+					bestCost = transfer.cost + egressCost;
+				}
+			}
+			return createLegs(bestLabel, bestCost, this.fromCoord, toCoord, this.departureTime, this.person);
+		}
+	}
+
+	/**
+	 * Immutable, so a path stays valid when the labels of the stops along it are improved later on.
+	 */
+	private static final class Label {
+		final int stop;
+		final double time;
+		final double cost;
+		/** the index of the route in the raptor schedule, or {@link #TRANSFER} or {@link #ACCESS} */
+		final int route;
+		final Label previous;
+
+		Label(final int stop, final double time, final double cost, final int route, final Label previous) {
+			this.stop = stop;
+			this.time = time;
+			this.cost = cost;
+			this.route = route;
+			this.previous = previous;
+		}
+	}
+
+	private static final class QueryState {
+		/** labels from which a vehicle can be boarded: access walks and transfers */
+		final Label[] boardLabels;
+		/** labels of passengers leaving a vehicle */
+		final Label[] arrivalLabels;
+		final double[] egressCosts;
+		final boolean[] markedStops;
+		final int[] markedStopList;
+		int markedStopCount = 0;
+		final int[] routeMarkedFrom;
+		final ArrayDeque<Label> transferQueue = new ArrayDeque<>();
+		private final RaptorSchedule raptorSchedule;
+
+		Label bestLabel;
+		double bestCost;
+		/** whether all cost components are non-negative, such that labels more expensive than the best path can be pruned */
+		boolean pruning;
+
+		double inVehicleTimeCost;
+		double inVehicleDistanceCost;
+		double waitingCost;
+		double walkTimeCost;
+		double walkDistanceCost;
+		double walkSpeed;
+		double additionalTransferTime;
+		double transferCost;
+
+		QueryState(final RaptorSchedule raptorSchedule) {
+			this.raptorSchedule = raptorSchedule;
+			int numberOfStops = raptorSchedule.getNumberOfStops();
+			this.boardLabels = new Label[numberOfStops];
+			this.arrivalLabels = new Label[numberOfStops];
+			this.egressCosts = new double[numberOfStops];
+			this.markedStops = new boolean[numberOfStops];
+			this.markedStopList = new int[numberOfStops];
+			this.routeMarkedFrom = new int[raptorSchedule.routes.length];
+		}
+
+		void reset(final TransitRouterConfig config) {
+			Arrays.fill(this.boardLabels, null);
+			Arrays.fill(this.arrivalLabels, null);
+			Arrays.fill(this.egressCosts, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.markedStops, false);
+			Arrays.fill(this.routeMarkedFrom, Integer.MAX_VALUE);
+			this.markedStopCount = 0;
+			this.transferQueue.clear();
+			this.bestLabel = null;
+			this.bestCost = Double.POSITIVE_INFINITY;
+
+			this.inVehicleTimeCost = -config.getMarginalUtilityOfTravelTimePt_utl_s();
+			this.inVehicleDistanceCost = -config.getMarginalUtilityOfTravelDistancePt_utl_m();
+			this.waitingCost = -config.getMarginalUtilityOfWaitingPt_utl_s();
+			this.walkTimeCost = -config.getMarginalUtilityOfTravelTimeWalk_utl_s();
+			this.walkDistanceCost = -config.getMarginalUtilityOfTravelDistanceWalk_utl_m();
+			this.walkSpeed = config.getBeelineWalkSpeed();
+			this.additionalTransferTime = config.getAdditionalTransferTime();
+			// same as TransitRouterNetworkTravelTimeAndDisutility.defaultTransferCost, without the walk
+			this.transferCost = this.additionalTransferTime * this.waitingCost - config.getUtilityOfLineSwitch_utl();
+			this.pruning = this.inVehicleTimeCost >= 0 && this.inVehicleDistanceCost >= 0 && this.waitingCost >= 0
+					&& this.walkTimeCost >= 0 && this.walkDistanceCost >= 0 && this.transferCost >= 0;
+		}
+
+		void markStop(final int stop) {
+			if (!this.markedStops[stop]) {
+				this.markedStops[stop] = true;
+				this.markedStopList[this.markedStopCount++] = stop;
+			}
+		}
+
+		/**
+		 * Resets the marked stops.
+		 *
+		 * @return the routes serving a marked stop, {@link #routeMarkedFrom} contains the first marked route stop of these routes
+		 */
+		int[] collectMarkedRoutes() {
+			RaptorSchedule s = this.raptorSchedule;
+			Arrays.fill(this.routeMarkedFrom, Integer.MAX_VALUE);
+			int[] routes = new int[16];
+			int routeCount = 0;
+			for (int i = 0; i < this.markedStopCount; i++) {
+				int stop = this.markedStopList[i];
+				this.markedStops[stop] = false;
+				for (int j = s.stopFirstRouteStop[stop]; j < s.stopFirstRouteStop[stop + 1]; j++) {
+					int routeStop = s.stopRouteStops[j];
+					int route = s.routeStopRoute[routeStop];
+					if (this.routeMarkedFrom[route] == Integer.MAX_VALUE) {
+						if (routeCount == routes.length) {
+							routes = Arrays.copyOf(routes, 2 * routes.length);
+						}
+						routes[routeCount++] = route;
+					}
+					this.routeMarkedFrom[route] = Math.min(this.routeMarkedFrom[route], routeStop);
+				}
+			}
+			this.markedStopCount = 0;
+			return Arrays.copyOf(routes, routeCount);
+		}
+
+		void improveArrival(final Label label, final int stop) {
+			if (isPruned(label) || (this.arrivalLabels[stop] != null && this.arrivalLabels[stop].cost <= label.cost)) {
+				return;
+			}
+			this.arrivalLabels[stop] = label;
+			this.transferQueue.add(label);
+			checkEgress(label, stop);
+		}
+
+		boolean improveBoarding(final Label label, final int stop) {
+			if (isPruned(label) || (this.boardLabels[stop] != null && this.boardLabels[stop].cost <= label.cost)) {
+				return false;
+			}
+			this.boardLabels[stop] = label;
+			markStop(stop);
+			checkEgress(label, stop);
+			return true;
+		}
+
+		private boolean isPruned(final Label label) {
+			return this.pruning && label.cost >= this.bestCost;
+		}
+
+		private void checkEgress(final Label label, final int stop) {
+			double cost = label.cost + this.egressCosts[stop];
+			if (cost < this.bestCost) {
+				this.bestCost = cost;
+				this.bestLabel = label;
+			}
+		}
+	}
+
+}
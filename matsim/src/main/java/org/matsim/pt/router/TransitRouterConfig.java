@@ -102,6 +102,7 @@ public class TransitRouterConfig implements MatsimParameters {
 		this(config.planCalcScore(), config.plansCalcRoute(), config.transitRouter(), config.vspExperimental());
 	}
 	
+	@SuppressWarnings("deprecation") // the cache tree setting is still copied from the config group
 	public TransitRouterConfig(final PlanCalcScoreConfigGroup pcsConfig, final PlansCalcRouteConfigGroup pcrConfig, 
 			final TransitRouterConfigGroup trConfig, final VspExperimentalConfigGroup vspConfig ) 
 	{
@@ -256,10 +257,18 @@ public class TransitRouterConfig implements MatsimParameters {
 		return this.directWalkFactor ;
 	}
 
+	/**
+	 * @deprecated see {@link TransitRouterConfigGroup#isCacheTree()}
+	 */
+	@Deprecated
 	public boolean isCacheTree() {
 		return cacheTree;
 	}
 
+	/**
+	 * @deprecated see {@link TransitRouterConfigGroup#isCacheTree()}
+	 */
+	@Deprecated
 	public void setCacheTree(boolean cacheTree) {
 		this.cacheTree = cacheTree;
 	}
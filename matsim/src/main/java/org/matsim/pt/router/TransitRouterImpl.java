@@ -50,7 +50,9 @@ public class TransitRouterImpl extends AbstractTransitRouter implements TransitR
     private boolean cacheTree;
     private TransitLeastCostPathTree tree;
 	private Facility previousFromFacility;
+	private double previousDepartureTime;
 
+    @SuppressWarnings("deprecation") // cached trees are still supported
     public TransitRouterImpl(final TransitRouterConfig trConfig, final TransitSchedule schedule) {
         super(trConfig);
         this.transitNetwork = TransitRouterNetwork.createFromSchedule(schedule,
@@ -66,6 +68,7 @@ public class TransitRouterImpl extends AbstractTransitRouter implements TransitR
         this.cacheTree = trConfig.isCacheTree();
     }
 
+    @SuppressWarnings("deprecation") // cached trees are still supported
     public TransitRouterImpl(
             final TransitRouterConfig trConfig,
             final PreparedTransitSchedule preparedTransitSchedule,
@@ -124,7 +127,9 @@ public class TransitRouterImpl extends AbstractTransitRouter implements TransitR
         TransitPassengerRoute transitPassengerRoute = null;
 
         if (cacheTree) {
-        	if (fromFacility != previousFromFacility) { // Compute tree only if the fromFacility is other than that of the last request.
+        	// Compute tree only if the fromFacility or the departure time is other than that of the last request.
+        	// For repeated queries from the same origin, rather use ProfileTransitRouter.calcTree().
+        	if (fromFacility != previousFromFacility || departureTime != previousDepartureTime) {
     			tree = new TransitLeastCostPathTree(getTransitRouterNetwork(),
     					getTravelDisutility(),
     					getTravelTime(),
@@ -158,6 +163,7 @@ public class TransitRouterImpl extends AbstractTransitRouter implements TransitR
         }
         
         previousFromFacility = fromFacility;        
+        previousDepartureTime = departureTime;
         
         return convertPassengerRouteToLegList(departureTime,
                 transitPassengerRoute,
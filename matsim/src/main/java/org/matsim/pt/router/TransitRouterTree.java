@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.facilities.Facility;
+
+/**
+ * The routes from one origin at one departure time to all destinations, as calculated by
+ * {@link ProfileTransitRouter#calcTree(Facility, double, org.matsim.api.core.v01.population.Person)}.
+ * Contrary to the cached tree of the {@link TransitRouterImpl}, the tree is bound to its departure time.
+ */
+public interface TransitRouterTree {
+
+	double getDepartureTime();
+
+	/**
+	 * @return the legs from the origin of the tree to the facility, as {@link TransitRouter#calcRoute} would return them
+	 */
+	List<Leg> calcRoute(Facility toFacility);
+
+}
@@ -39,6 +39,7 @@ import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.misc.ArgumentParser;
 import org.matsim.vis.snapshotwriters.KmlSnapshotWriter;
+import org.matsim.vis.snapshotwriters.ParallelSnapshotWriter;
 import org.matsim.vis.snapshotwriters.SnapshotWriter;
 import org.matsim.vis.snapshotwriters.TransimsSnapshotWriter;
 
@@ -207,15 +208,17 @@ public class Events2Snapshot {
 
 		Collection<String> snapshotFormat = this.config.controler().getSnapshotFormat();
 
+		// the file formats are written on separate threads, while the snapshots are generated from the events
+
 		if (snapshotFormat.contains("transims")) {
 			String snapshotFile = outputDir + "T.veh";
-			this.visualizer.addSnapshotWriter(new TransimsSnapshotWriter(snapshotFile));
+			this.visualizer.addSnapshotWriter(new ParallelSnapshotWriter(new TransimsSnapshotWriter(snapshotFile)));
 		}
 		if (snapshotFormat.contains("googleearth")) {
 			String snapshotFile = outputDir + "googleearth.kmz";
 			String coordSystem = this.config.global().getCoordinateSystem();
-			this.visualizer.addSnapshotWriter(new KmlSnapshotWriter(snapshotFile,
-					TransformationFactory.getCoordinateTransformation(coordSystem, TransformationFactory.WGS84)));
+			this.visualizer.addSnapshotWriter(new ParallelSnapshotWriter(new KmlSnapshotWriter(snapshotFile,
+					TransformationFactory.getCoordinateTransformation(coordSystem, TransformationFactory.WGS84))));
 		}
 	}
 
@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelSnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes snapshots on a separate thread. The agents of a snapshot are collected on the calling thread and
+ * handed over to a background thread as a whole, which passes them on to the delegate writer. At most
+ * {@link #DEFAULT_PENDING_SNAPSHOTS} snapshots are waiting to be written, after that the calling thread blocks.
+ * <p></p>
+ * Use one instance per writer to write several formats in parallel. The delegate is only ever called from
+ * the background thread, including {@link SnapshotWriter#finish()}.
+ */
+public final class ParallelSnapshotWriter implements SnapshotWriter {
+
+	private final static Logger log = Logger.getLogger(ParallelSnapshotWriter.class);
+
+	public static final int DEFAULT_PENDING_SNAPSHOTS = 4;
+
+	private static final Snapshot FINISH = new Snapshot(Double.NaN, null);
+
+	private final SnapshotWriter delegate;
+	private final BlockingQueue<Snapshot> queue;
+	private final Thread thread;
+	private volatile Throwable exception = null;
+
+	private double time = Double.NaN;
+	private List<AgentSnapshotInfo> agents = null;
+
+	public ParallelSnapshotWriter(final SnapshotWriter delegate) {
+		this(delegate, DEFAULT_PENDING_SNAPSHOTS);
+	}
+
+	public ParallelSnapshotWriter(final SnapshotWriter delegate, final int pendingSnapshots) {
+		this.delegate = delegate;
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, pendingSnapshots));
+		this.thread = new Thread(this::writeSnapshots, "SnapshotWriter-" + delegate.getClass().getSimpleName());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public void beginSnapshot(final double time) {
+		this.time = time;
+		this.agents = new ArrayList<>();
+	}
+
+	@Override
+	public void addAgent(final AgentSnapshotInfo position) {
+		this.agents.add(position);
+	}
+
+	@Override
+	public void endSnapshot() {
+		checkException();
+		put(new Snapshot(this.time, this.agents));
+		this.agents = null;
+	}
+
+	@Override
+	public void finish() {
+		put(FINISH);
+		try {
+			this.thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		checkException();
+	}
+
+	private void put(final Snapshot snapshot) {
+		try {
+			this.queue.put(snapshot);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void checkException() {
+		Throwable t = this.exception;
+		if (t != null) {
+			throw new RuntimeException("Exception while writing snapshots with " + this.delegate.getClass().getName(), t);
+		}
+	}
+
+	private void writeSnapshots() {
+		try {
+			while (true) {
+				Snapshot snapshot = this.queue.take();
+				if (snapshot == FINISH) {
+					this.delegate.finish();
+					return;
+				}
+				this.delegate.beginSnapshot(snapshot.time);
+				for (AgentSnapshotInfo agent : snapshot.agents) {
+					this.delegate.addAgent(agent);
+				}
+				this.delegate.endSnapshot();
+			}
+		} catch (Throwable t) {
+			log.error("Exception while writing snapshots.", t);
+			this.exception = t;
+			// keep taking snapshots so the producer does not block, they are discarded
+			drain();
+		}
+	}
+
+	private void drain() {
+		try {
+			while (this.queue.take() != FINISH) {
+				// discard
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static final class Snapshot {
+		private final double time;
+		private final List<AgentSnapshotInfo> agents;
+
+		private Snapshot(final double time, final List<AgentSnapshotInfo> agents) {
+			this.time = time;
+			this.agents = agents;
+		}
+	}
+}
@@ -32,6 +32,7 @@ import org.matsim.core.utils.misc.Time;
 import org.matsim.withinday.replanning.parallel.ParallelDuringActivityReplanner;
 import org.matsim.withinday.replanning.parallel.ParallelDuringLegReplanner;
 import org.matsim.withinday.replanning.parallel.ParallelInitialReplanner;
+import org.matsim.withinday.replanning.parallel.ParallelReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringActivityReplannerFactory;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringLegReplannerFactory;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayInitialReplannerFactory;
@@ -41,6 +42,7 @@ import javax.inject.Singleton;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This Class implements the MobsimEngine interface. If added to a
@@ -86,9 +88,14 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		this.duringLegReplannerFactory = new LinkedHashMap<>();
 
 		log.info("Initialize Parallel Replanning Modules");
-		this.parallelInitialReplanner = new ParallelInitialReplanner(globalConfigGroup.getNumberOfThreads(), eventsManager);
-		this.parallelDuringActivityReplanner = new ParallelDuringActivityReplanner(globalConfigGroup.getNumberOfThreads(), eventsManager);
-		this.parallelDuringLegReplanner = new ParallelDuringLegReplanner(globalConfigGroup.getNumberOfThreads(), eventsManager);
+		/*
+		 * All replanners share one pool of threads. They are not run at the same time,
+		 * so each of them can use all threads.
+		 */
+		ForkJoinPool pool = ParallelReplanner.createPool(Math.max(globalConfigGroup.getNumberOfThreads(), 1));
+		this.parallelInitialReplanner = new ParallelInitialReplanner(pool, eventsManager);
+		this.parallelDuringActivityReplanner = new ParallelDuringActivityReplanner(pool, eventsManager);
+		this.parallelDuringLegReplanner = new ParallelDuringLegReplanner(pool, eventsManager);
 
 		log.info("Initialize Replanning Modules");
 		this.initialReplanningModule = new InitialReplanningModule(parallelInitialReplanner);
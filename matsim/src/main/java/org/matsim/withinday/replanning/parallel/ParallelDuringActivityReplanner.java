@@ -20,12 +20,15 @@
 
 package org.matsim.withinday.replanning.parallel;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringActivityReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringActivityReplannerFactory;
 
 /**
  * A class for running {@link WithinDayDuringActivityReplanner} in parallel using threads.
+ * The threads may be shared with other replanners, see {@link ParallelReplanner#createPool(int)}.
  *
  * @author Christoph Dobler
  */
@@ -36,4 +39,9 @@ public class ParallelDuringActivityReplanner extends ParallelReplanner<WithinDay
 		this.init("ParallelDuringActivityReplanner");
 	}
 	
-}
\ No newline at end of file
+	public ParallelDuringActivityReplanner(ForkJoinPool pool, EventsManager eventsManager) {
+		super(pool, eventsManager);
+		this.init("ParallelDuringActivityReplanner");
+	}
+	
+}
\ No newline at end of file
@@ -20,12 +20,15 @@
 
 package org.matsim.withinday.replanning.parallel;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringLegReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringLegReplannerFactory;
 
 /**
  * A class for running {@link WithinDayDuringLegReplanner} in parallel using threads.
+ * The threads may be shared with other replanners, see {@link ParallelReplanner#createPool(int)}.
  *
  * @author Christoph Dobler
  */
@@ -36,4 +39,9 @@ public class ParallelDuringLegReplanner extends ParallelReplanner<WithinDayDurin
 		this.init("ParallelDuringLegReplanner");
 	}
 	
-}
\ No newline at end of file
+	public ParallelDuringLegReplanner(ForkJoinPool pool, EventsManager eventsManager) {
+		super(pool, eventsManager);
+		this.init("ParallelDuringLegReplanner");
+	}
+	
+}
\ No newline at end of file
@@ -20,12 +20,15 @@
 
 package org.matsim.withinday.replanning.parallel;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayInitialReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayInitialReplannerFactory;
 
 /**
  * A class for running {@link WithinDayInitialReplanner} in parallel using threads.
+ * The threads may be shared with other replanners, see {@link ParallelReplanner#createPool(int)}.
  *
  * @author Christoph Dobler
  */
@@ -35,5 +38,10 @@ public class ParallelInitialReplanner extends ParallelReplanner<WithinDayInitial
 		super(numOfThreads, eventsManager);
 		this.init("ParallelInitialReplanner");
 	}
+	
+	public ParallelInitialReplanner(ForkJoinPool pool, EventsManager eventsManager) {
+		super(pool, eventsManager);
+		this.init("ParallelInitialReplanner");
+	}
 		
 }
@@ -20,19 +20,26 @@
 
 package org.matsim.withinday.replanning.parallel;
 
-import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.withinday.events.ReplanningEvent;
 import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
 import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplannerFactory;
@@ -42,65 +49,66 @@ import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
  * Abstract class that contains the basic elements that are needed
  * to do parallel replanning within the QSim.
  *
- * Features like the creation of parallel running threads and the
- * split up of the replanning actions have to be implemented in
- * the subclasses.
+ * The replanning is done by a ForkJoinPool, which can be shared by
+ * several ParallelReplanners (see WithinDayEngine). The agents of a
+ * replanner are cut into batches; idle threads steal batches from busy
+ * ones, so a few agents with expensive replanning (e.g. long routes)
+ * do not stall the others.
  */
 public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? extends AgentSelector>> { 
 
 	private final static Logger log = Logger.getLogger(ParallelReplanner.class);
 
-	/*
-	 * All replanners from the same type can either share one queue that contains all 
-	 * ReplanningTasks or use a separate queue per replanner object. A shared queue
-	 * should result in a better load balancing but also might become a bottleneck when
-	 * many threads are accessing it at the same time. When using a shared queue, a 
-	 * LinkedBlockingQueue is used. Otherwise, each replanner uses a LinkedList.
-	 * Both approaches should produce the same simulation results.
-	 */
-	private final boolean shareReplannerQueue = true;
-	
+	/*package*/ static final int MAX_BATCH_SIZE = 64;
+	/*package*/ static final int BATCHES_PER_THREAD = 8;
+
 	protected final EventsManager eventsManager;
+	protected final ForkJoinPool pool;
 	protected int numOfThreads;
 	
 	protected Set<T> replannerFactories = new LinkedHashSet<T>();
-	protected ReplanningRunnable[] replanningRunnables;
 	protected String replannerName;
-	protected int roundRobin = 0;
-	private int lastRoundRobin = 0;
-	protected AtomicBoolean hadException;
-	protected ExceptionHandler uncaughtExceptionHandler;
-	protected CyclicBarrier timeStepStartBarrier;
-	protected CyclicBarrier betweenReplannerBarrier;
-	protected CyclicBarrier timeStepEndBarrier;
+	private Counter counter;
+
+	/*
+	 * One entry per WithinDayReplanner, ordered by their ids. The replanners are
+	 * run one after another. By doing so, it can be ensured that only instances
+	 * of the same WithinDayReplanner are run in parallel. Otherwise two
+	 * different Replanners on different Threads could try to replan the
+	 * same Agent.
+	 */
+	private final Map<Id<WithinDayReplanner>, ReplannerInstances> replanners = new TreeMap<>();
 	
 	protected boolean simIsRunning = false;
 	
 	public ParallelReplanner(int numOfThreads, EventsManager eventsManager) {
-		this.setNumberOfThreads(numOfThreads);
+		this(createPool(Math.max(numOfThreads, 1)), eventsManager);
+	}
+	
+	/**
+	 * @param pool the threads which do the replanning; may be shared with other ParallelReplanners 
+	 */
+	public ParallelReplanner(ForkJoinPool pool, EventsManager eventsManager) {
+		this.pool = pool;
+		this.setNumberOfThreads(pool.getParallelism());
 		this.eventsManager = eventsManager;
 	}
 	
+	/**
+	 * Creates a pool for within-day replanning. Its threads are daemon threads
+	 * that terminate when they are not used for a while.
+	 */
+	public static ForkJoinPool createPool(int numOfThreads) {
+		return new ForkJoinPool(numOfThreads, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("WithinDayReplanningThread" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+	}
+	
 	public final void init(String replannerName) {
-		
 		this.replannerName = replannerName;
-		
-		replanningRunnables = new InternalReplanningRunnable[numOfThreads];
-
-		this.timeStepStartBarrier = new CyclicBarrier(numOfThreads + 1);
-		this.betweenReplannerBarrier = new CyclicBarrier(numOfThreads);
-		this.timeStepEndBarrier = new CyclicBarrier(numOfThreads + 1);
-
-		// Do initial Setup of the Runnables
-		for (int i = 0; i < numOfThreads; i++) {
-			ReplanningRunnable replanningRunnable = new InternalReplanningRunnable(replannerName + " Thread" + i + " replanned plans: ");
-			replanningRunnable.setCyclicTimeStepStartBarrier(this.timeStepStartBarrier);
-			replanningRunnable.setBetweenReplannerBarrier(betweenReplannerBarrier);
-			replanningRunnable.setCyclicTimeStepEndBarrier(this.timeStepEndBarrier);
-			replanningRunnable.setEventsManager(eventsManager);
-			
-			replanningRunnables[i] = replanningRunnable;
-		}
+		this.counter = new Counter(replannerName + " replanned plans: ");
 	}
 
 	public final void onPrepareSim() {
@@ -112,57 +120,10 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		 * cdobler, jul'13
 		 */
 		for (T factory : this.replannerFactories) {
-			if (shareReplannerQueue) {
-				Queue<ReplanningTask> queue = new LinkedBlockingQueue<ReplanningTask>();
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, queue);
-				}
-			} else {
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, new LinkedList<ReplanningTask>());
-				}
-			}			
-		}
-		
-		this.hadException = new AtomicBoolean(false);
-		this.uncaughtExceptionHandler = new ExceptionHandler(this.hadException, this.timeStepStartBarrier, 
-				this.betweenReplannerBarrier, this.timeStepEndBarrier);
-		
-		Thread[] replanningThreads = new Thread[numOfThreads];
-		
-		// initialize threads
-		for (int i = 0; i < numOfThreads; i++) {
-			Thread replanningThread = new Thread(replanningRunnables[i]);
-			Thread.setDefaultUncaughtExceptionHandler(this.uncaughtExceptionHandler);
-			replanningThread.setName(replannerName + i);
-			replanningThreads[i] = replanningThread;
-		}
-		
-		// finalize thread setup and start them
-		for (int i = 0; i < numOfThreads; i++) {
-			replanningRunnables[i].beforeSim();
-			Thread replanningThread = replanningThreads[i];
-			replanningThread.setDaemon(true);
-			replanningThread.start();
+			this.replanners.put(factory.getId(), new ReplannerInstances(factory, this.numOfThreads));
 		}
 
 		this.simIsRunning = true;
-		
-		/*
-		 * After initialization the threads are waiting at the
-		 * TimeStepEndBarrier. We trigger this Barrier once so
-		 * they wait at the TimeStepStartBarrier what has to be
-		 * their state if the run() method is called.
-		 */
-		try {
-			this.timeStepEndBarrier.await();
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} catch (BrokenBarrierException e) {
-			throw new RuntimeException(e);
-		}
 	}
 	
 	/*
@@ -170,33 +131,20 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 	 * "as it is"...
 	 */
 	public final void run(double time) {
-		// no Agents to Replan
-		if (lastRoundRobin == roundRobin) return;
-		else lastRoundRobin = roundRobin;
-
-		/*
-		 * If an exception occurred, at least one of the events replanning threads
-		 * has crashed. Therefore the remaining threads would get stuck at the
-		 * CyclicBarrier.
-		 */
-		if (hadException.get()) {
-			return;
-		}
-		
-		try {
-			// set current time
-			for (ReplanningRunnable replanningRunnable : replanningRunnables) {
-				replanningRunnable.setTime(time);
+		for (ReplannerInstances instances : this.replanners.values()) {
+			List<ReplanningTask> tasks = instances.tasks;
+			if (tasks.isEmpty()) continue;
+			
+			int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, tasks.size() / (BATCHES_PER_THREAD * this.numOfThreads)));
+			try {
+				this.pool.invoke(new ReplanningBatch(instances, time, 0, tasks.size(), batchSize));
+			} catch (RuntimeException e) {
+				log.error("Exception while replanning in " + this.replannerName + ".", e);
+				throw new RuntimeException("Exception while replanning. " +
+						"Cannot guarantee that all replanning operations have been fully processed.", e);
+			} finally {
+				tasks.clear();
 			}
-
-			this.timeStepStartBarrier.await();
-
-			this.timeStepEndBarrier.await();
-
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} catch (BrokenBarrierException e) {
-	      	throw new RuntimeException(e);
 		}
 	}
 
@@ -204,44 +152,12 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 
 		this.simIsRunning = false;
 		
-		if (this.hadException.get()) {
-			throw new RuntimeException("Exception while replanning. " +
-					"Cannot guarantee that all replanning operations have been fully processed.");
-		}
-		
-		// reset counters
-		roundRobin = 0;
-		lastRoundRobin = 0;
-		
 		/*
-		 * Calling the afterSim Method of the QSimEngineThreads
-		 * will set their simulationRunning flag to false.
-		 */
-		for (ReplanningRunnable runnable : this.replanningRunnables) {
-			runnable.afterSim();
-			
-			/*
-			 * Remove replanners from the runnables - now they are re-created from scratch
-			 * for each iteration.
-			 * cdobler, jul'13
-			 */
-			for (T factory : this.replannerFactories) {
-				runnable.removeWithinDayReplanner(factory.getId());
-			}
-		}
-
-		/*
-		 * Triggering the startBarrier of the QSimEngineThreads.
-		 * They will check whether the Simulation is still running.
-		 * It is not, so the Threads will stop running.
+		 * Remove replanners - now they are re-created from scratch
+		 * for each iteration.
+		 * cdobler, jul'13
 		 */
-		try {
-			this.timeStepStartBarrier.await();
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		} catch (BrokenBarrierException e) {
-			throw new RuntimeException(e);
-		}
+		this.replanners.clear();
 	}
 	
 	public final void addWithinDayReplannerFactory(T factory) {
@@ -254,32 +170,19 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		 * cdobler, dec'13
 		 */
 		if (simIsRunning) {
-			if (shareReplannerQueue) {
-				Queue<ReplanningTask> queue = new LinkedBlockingQueue<ReplanningTask>();
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, queue);
-				}
-			} else {
-				for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-					WithinDayReplanner<? extends AgentSelector> newInstance = factory.createReplanner();
-					replanningRunnable.addWithinDayReplanner(newInstance, new LinkedList<ReplanningTask>());
-				}
-			}						
+			this.replanners.put(factory.getId(), new ReplannerInstances(factory, this.numOfThreads));
 		}
 	}
 
 	public final void removeWithinDayReplannerFactory(T factory) {
 		this.replannerFactories.remove(factory);
-		
-		for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-			replanningRunnable.removeWithinDayReplanner(factory.getId());
-		}
+		this.replanners.remove(factory.getId());
 	}
 	
 	public final void resetReplanners() {
-		for (ReplanningRunnable replanningRunnable : this.replanningRunnables) {
-			replanningRunnable.resetReplanners();
+		this.counter.reset();
+		for (ReplannerInstances instances : this.replanners.values()) {
+			instances.reset();
 		}
 	}
 	
@@ -287,9 +190,13 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 		return Collections.unmodifiableSet(this.replannerFactories);
 	}
 
-	public final void addReplanningTask(ReplanningTask replanningTask) {	
-		this.replanningRunnables[this.roundRobin % this.numOfThreads].addReplanningTask(replanningTask);
-		this.roundRobin++;
+	public final void addReplanningTask(ReplanningTask replanningTask) {
+		ReplannerInstances instances = this.replanners.get(replanningTask.getWithinDayReplannerId());
+		if (instances == null) {
+			throw new RuntimeException("No WithinDayReplanner with id " + replanningTask.getWithinDayReplannerId() + 
+					" found in " + this.replannerName + ".");
+		}
+		instances.tasks.add(replanningTask);
 	}
 
 	private final void setNumberOfThreads(int numberOfThreads) {
@@ -305,49 +212,124 @@ public abstract class ParallelReplanner<T extends WithinDayReplannerFactory<? ex
 			log.warn("The number of parallel running replanning threads is bigger than the number of available CPUs/Cores!");
 		}
 	}
-		
+	
 	/*
-	 * The thread class that really handles the replanning.
+	 * The instances of one WithinDayReplanner and the tasks it has to do in the current
+	 * time step. Replanners are not thread-safe, so each batch takes an idle instance
+	 * and returns it afterwards.
 	 */
-	/*package*/ static final class InternalReplanningRunnable extends ReplanningRunnable {		
+	private static final class ReplannerInstances {
 		
-		public InternalReplanningRunnable(String counterText) {
-			super(counterText);
+		private final WithinDayReplannerFactory<? extends AgentSelector> factory;
+		private final Queue<WithinDayReplanner<? extends AgentSelector>> idle = new ConcurrentLinkedQueue<>();
+		private final List<WithinDayReplanner<? extends AgentSelector>> all = new ArrayList<>();
+		private final List<ReplanningTask> tasks = new ArrayList<>();
+		
+		ReplannerInstances(WithinDayReplannerFactory<? extends AgentSelector> factory, int numOfInstances) {
+			this.factory = factory;
+			for (int i = 0; i < numOfInstances; i++) {
+				WithinDayReplanner<? extends AgentSelector> replanner = factory.createReplanner();
+				this.all.add(replanner);
+				this.idle.add(replanner);
+			}
 		}
-				
-	}	// InternalReplanningThread
+		
+		WithinDayReplanner<? extends AgentSelector> acquire() {
+			WithinDayReplanner<? extends AgentSelector> replanner = this.idle.poll();
+			if (replanner == null) {
+				// more threads than expected, e.g. when the pool compensates a blocked thread
+				synchronized (this) {
+					replanner = this.factory.createReplanner();
+					this.all.add(replanner);
+				}
+			}
+			return replanner;
+		}
+		
+		void release(WithinDayReplanner<? extends AgentSelector> replanner) {
+			this.idle.add(replanner);
+		}
+		
+		synchronized void reset() {
+			for (WithinDayReplanner<? extends AgentSelector> replanner : this.all) {
+				replanner.reset();
+			}
+		}
+	}
 	
-	/**
-	 * @author mrieser
+	/*
+	 * Replans the agents of a range of tasks. Large ranges are split into two
+	 * halves, which can be taken over by other threads.
 	 */
-	private static class ExceptionHandler implements UncaughtExceptionHandler {
-
-		private final AtomicBoolean hadException;
-		private final CyclicBarrier timeStepStartBarrier;
-		private final CyclicBarrier betweenReplannerBarrier;
-		private final CyclicBarrier timeStepEndBarrier;
-
-		public ExceptionHandler(final AtomicBoolean hadException, CyclicBarrier timeStepStartBarrier,
-				CyclicBarrier betweenReplannerBarrier, CyclicBarrier timeStepEndBarrier) {
-			this.hadException = hadException;
-			this.timeStepStartBarrier = timeStepStartBarrier;
-			this.betweenReplannerBarrier = betweenReplannerBarrier;
-			this.timeStepEndBarrier = timeStepEndBarrier;
+	private final class ReplanningBatch extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final ReplannerInstances instances;
+		private final double time;
+		private final int from;
+		private final int to;
+		private final int batchSize;
+		
+		ReplanningBatch(ReplannerInstances instances, double time, int from, int to, int batchSize) {
+			this.instances = instances;
+			this.time = time;
+			this.from = from;
+			this.to = to;
+			this.batchSize = batchSize;
 		}
-
+		
 		@Override
-		public void uncaughtException(Thread t, Throwable e) {
-			this.hadException.set(true);
-			log.error("Thread " + t.getName() + " died with exception while replanning.", e);
-
-			/*
-			 * By reseting the barriers, they will throw a BrokenBarrierException
-			 * which again will stop the events processing threads.
-			 */
-			this.timeStepStartBarrier.reset();
-			this.betweenReplannerBarrier.reset();
-			this.timeStepEndBarrier.reset();
+		protected void compute() {
+			if (this.to - this.from > this.batchSize) {
+				int middle = (this.from + this.to) >>> 1;
+				ReplanningBatch second = new ReplanningBatch(this.instances, this.time, middle, this.to, this.batchSize);
+				second.fork();
+				try {
+					new ReplanningBatch(this.instances, this.time, this.from, middle, this.batchSize).compute();
+				} finally {
+					// unlike invokeAll, wait for the other half also if this one failed, so no replanning
+					// is still running when run(...) returns
+					second.join();
+				}
+				return;
+			}
+			
+			WithinDayReplanner<? extends AgentSelector> withinDayReplanner = this.instances.acquire();
+			try {
+				// set time once per replanner and batch
+				withinDayReplanner.setTime(this.time);
+				
+				for (int i = this.from; i < this.to; i++) {
+					MobsimAgent withinDayAgent = this.instances.tasks.get(i).getAgentToReplan();
+					
+					if (withinDayAgent == null) {
+						log.error("WithinDayAgent is null!");
+						continue;
+					}
+					
+					boolean replanningSuccessful = withinDayReplanner.doReplanning(withinDayAgent);
+					
+					if (!replanningSuccessful) {
+						log.error("Replanning was not successful! Replanner " + withinDayReplanner.getClass().toString() + 
+								", time " + Time.writeTime(this.time) + ", agent " + withinDayAgent.getId());
+					}
+					else {
+						/*
+						 * If the EventsManager is not null, we create an entry for the events log file.
+						 */
+						if (eventsManager != null) {
+							ReplanningEvent replanningEvent = new ReplanningEvent(this.time, withinDayAgent.getId(), 
+									withinDayReplanner.getClass().getSimpleName());
+							eventsManager.processEvent(replanningEvent);
+						}
+						
+						counter.incCounter();
+					}
+				}
+			} finally {
+				this.instances.release(withinDayReplanner);
+			}
 		}
-
 	}
 }
@@ -17,15 +17,14 @@
  *   See also COPYING, LICENSE and WARRANTY file                           *
  *                                                                         *
  * *********************************************************************** */
-
 package org.matsim.withinday.trafficmonitoring;
 
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.priorityqueue.HasIndex;
 import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime.TravelTimeInfo;
 
 public class ArrayBasedTravelTimeInfoProvider implements TravelTimeInfoProvider {
@@ -35,35 +34,41 @@ public class ArrayBasedTravelTimeInfoProvider implements TravelTimeInfoProvider
 	
 	public ArrayBasedTravelTimeInfoProvider(Map<Id<Link>, TravelTimeInfo> linkData, Network network) {
 		this.delegate = new MapBasedTravelTimeInfoProvider(linkData);
-		this.arrayLinkData = new TravelTimeInfo[linkData.size()];
+		
+		int maxIndex = -1;
+		for (Id<Link> linkId : linkData.keySet()) {
+			maxIndex = Math.max(maxIndex, linkId.index());
+		}
+		this.arrayLinkData = new TravelTimeInfo[maxIndex + 1];
+		for (Entry<Id<Link>, TravelTimeInfo> entry : linkData.entrySet()) {
+			this.arrayLinkData[entry.getKey().index()] = entry.getValue();
+		}
 	}
 	
 	/*
 	 * This method is called from the EventHandler part of the WithinDayTravelTime.
-	 * There, only link ids are available. We cannot optimize this. 
+	 * There, only link ids are available. Their index is used to look up the data
+	 * in an array instead of a map. Ids which have been created after the data
+	 * are looked up in the map. 
 	 */
 	@Override
 	public TravelTimeInfo getTravelTimeInfo(final Id<Link> linkId) {
+		int index = linkId.index();
+		if (index < this.arrayLinkData.length) {
+			TravelTimeInfo data = this.arrayLinkData[index];
+			if (data != null) {
+				return data;
+			}
+		}
 		return this.delegate.getTravelTimeInfo(linkId);
 	}
 	
 	/*
 	 * This method is called from the TravelTime part of the WithinDayTravelTime.
-	 * There, link are available. we can optimize this by using an array instead of a map.
 	 */
 	@Override
 	public TravelTimeInfo getTravelTimeInfo(Link link) {
-		if (link instanceof HasIndex) {
-			int index = ((HasIndex) link).getArrayIndex();
-			TravelTimeInfo data = this.arrayLinkData[index];
-			if (data == null) {
-				data = this.delegate.getTravelTimeInfo(link);
-				this.arrayLinkData[index] = data;
-			}
-			return data;
-		} else {
-			return this.delegate.getTravelTimeInfo(link);
-		}
+		return this.getTravelTimeInfo(link.getId());
 	}
 	
-}
\ No newline at end of file
+}
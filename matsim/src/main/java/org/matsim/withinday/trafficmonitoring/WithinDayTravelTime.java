@@ -79,6 +79,20 @@ public class WithinDayTravelTime implements TravelTime,
 	
 	private TravelTimeInfoProvider travelTimeInfoProvider;
 
+	/*
+	 * The travel times that are returned to the routers, indexed by the index of the link ids.
+	 * There are two buffers: the updates of a time step are written into the one that is not
+	 * published, which is then published as a whole. Thus, routers see the travel times of
+	 * exactly one update without having to lock, as long as they do not keep a snapshot
+	 * longer than until the next update starts. Only the travel times of the active links
+	 * are updated, and then caught up in the other buffer.
+	 */
+	private double[][] travelTimeBuffers;
+	private volatile double[] travelTimes;
+	private volatile int snapshotVersion = 0;
+	
+	private volatile double smoothingFactor = 1.0;
+
 	// Links that are changed by network change events
 	private TreeMap<Double, Map<Link,Double>> changedLinksByTime;
 	// yy better a priority queue.  kai, dec'17
@@ -136,11 +150,21 @@ public class WithinDayTravelTime implements TravelTime,
 		this.vehiclesToFilter = new HashSet<>();
 		
 		// one TravelTimeInfo per link:
+		int maxIndex = -1;
 		for (Link link : this.network.getLinks().values()) {
 			TravelTimeInfo travelTimeInfo = new TravelTimeInfo();
+			travelTimeInfo.index = link.getId().index();
 			this.travelTimeInfos.put(link.getId(), travelTimeInfo);
+			maxIndex = Math.max(maxIndex, travelTimeInfo.index);
 		}
 		
+		this.travelTimeBuffers = new double[2][maxIndex + 1];
+		for (double[] buffer : this.travelTimeBuffers) {
+			Arrays.fill(buffer, Double.MAX_VALUE);
+		}
+		this.travelTimes = this.travelTimeBuffers[0];
+		this.snapshotVersion = 0;
+		
 		/*
 		 * If no RoutingNetwork is used, ArrayBasedTravelTimeInfoProvider uses 
 		 * a MapBasedTravelTimeInfoProvider as fall back solution. This increases 
@@ -208,10 +232,39 @@ public class WithinDayTravelTime implements TravelTime,
 		this.addNetworkChangeEventToLocalDataStructure(networkChangeEvent);
 	}
 
+	/**
+	 * Sets the weight of the current mean travel time of a link in its estimated travel time. With a
+	 * factor below 1.0, the estimates are exponentially smoothed over the time steps, i.e. they react
+	 * less to single vehicles. The default is 1.0, i.e. the current mean travel time is used as it is.
+	 * Can also be changed while the mobsim is running, and is then used from the next update on.
+	 */
+	public final void setSmoothingFactor(double smoothingFactor) {
+		if (smoothingFactor <= 0.0 || smoothingFactor > 1.0) {
+			throw new IllegalArgumentException("The smoothing factor must be in (0.0, 1.0], but is " + smoothingFactor);
+		}
+		this.smoothingFactor = smoothingFactor;
+	}
+	
+	public final double getSmoothingFactor() {
+		return this.smoothingFactor;
+	}
+	
+	/**
+	 * @return the number of updates of the travel times that have been published in the current iteration.
+	 * Can be used to find out whether travel times that were read before are still up to date.
+	 */
+	public final int getSnapshotVersion() {
+		return this.snapshotVersion;
+	}
+
 	@Override
 	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
-		final double travelTime = this.travelTimeInfoProvider.getTravelTimeInfo(link).travelTime;
-		return travelTime;
+		final double[] travelTimes = this.travelTimes;
+		final int index = link.getId().index();
+		if (index < travelTimes.length) {
+			return travelTimes[index];
+		}
+		return this.travelTimeInfoProvider.getTravelTimeInfo(link).travelTime;
 	}
 	
 	@Override
@@ -323,6 +376,9 @@ public class WithinDayTravelTime implements TravelTime,
 			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(link);
 			travelTimeInfo.travelTime = freeSpeedTravelTime;
 			travelTimeInfo.init(freeSpeedTravelTime);
+			for (double[] buffer : this.travelTimeBuffers) {
+				buffer[travelTimeInfo.index] = freeSpeedTravelTime;
+			}
 		}
 
 		// Now initialize the Parallel Update Threads
@@ -434,6 +490,7 @@ public class WithinDayTravelTime implements TravelTime,
 
 		UpdateMeanTravelTimesRunnable runnable;
 		List<TripBin> tripBins = new ArrayList<>();
+		int index; // the index of the link id
 
 		boolean isActive = false;
 		// int numActiveTrips = 0;
@@ -488,10 +545,15 @@ public class WithinDayTravelTime implements TravelTime,
 	 */
 	private void run(double time) {
 
+		// the buffer which is not published
+		double[] travelTimes = this.travelTimes == this.travelTimeBuffers[0] ? this.travelTimeBuffers[1] : this.travelTimeBuffers[0];
+		
 		try {
 			// set current Time
 			for (UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable : updateMeanTravelTimesRunnables) {
 				updateMeanTravelTimesRunnable.setTime(time);
+				updateMeanTravelTimesRunnable.setTravelTimes(travelTimes);
+				updateMeanTravelTimesRunnable.setSmoothingFactor(this.smoothingFactor);
 			}
 
 			this.startBarrier.await();
@@ -500,6 +562,10 @@ public class WithinDayTravelTime implements TravelTime,
 		} catch (InterruptedException | BrokenBarrierException e) {
 			throw new RuntimeException(e);
 		}
+		
+		// publish the updated travel times
+		this.travelTimes = travelTimes;
+		this.snapshotVersion++;
 	}
 
 	private void initParallelThreads() {
@@ -557,7 +623,11 @@ public class WithinDayTravelTime implements TravelTime,
 		private CyclicBarrier endBarrier = null;
 		
 		private double time = Time.UNDEFINED_TIME;
+		private double[] travelTimes = null;
+		private double smoothingFactor = 1.0;
 		private Collection<TravelTimeInfo> activeTravelTimeInfos;
+		// the TravelTimeInfos whose travel times have been published in the last update
+		private final List<TravelTimeInfo> updatedTravelTimeInfos = new ArrayList<>();
 
 		public UpdateMeanTravelTimesRunnable() {
 			activeTravelTimeInfos = new ArrayList<>();
@@ -575,6 +645,14 @@ public class WithinDayTravelTime implements TravelTime,
 			time = t;
 		}
 
+		public void setTravelTimes(final double[] travelTimes) {
+			this.travelTimes = travelTimes;
+		}
+
+		public void setSmoothingFactor(final double smoothingFactor) {
+			this.smoothingFactor = smoothingFactor;
+		}
+
 		public void addTravelTimeInfo(TravelTimeInfo travelTimeInfo) {
 			this.activeTravelTimeInfos.add(travelTimeInfo);
 		}
@@ -614,10 +692,20 @@ public class WithinDayTravelTime implements TravelTime,
 						return;
 					}
 					
+					/*
+					 * The buffer was published two updates ago. Catch up the
+					 * travel times that have been published in the last update.
+					 */
+					for (TravelTimeInfo travelTimeInfo : updatedTravelTimeInfos) {
+						travelTimes[travelTimeInfo.index] = travelTimeInfo.travelTime;
+					}
+					updatedTravelTimeInfos.clear();
+					
 					Iterator<TravelTimeInfo> iter = activeTravelTimeInfos.iterator();
 					while (iter.hasNext()) {
 						TravelTimeInfo travelTimeInfo = iter.next();
 						calcBinTravelTime(this.time, travelTimeInfo);
+						updatedTravelTimeInfos.add(travelTimeInfo);
 
 						/*
 						 * If no further trips are stored in the TravelTimeInfo,
@@ -629,6 +717,7 @@ public class WithinDayTravelTime implements TravelTime,
 							travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
 							iter.remove();
 						}
+						travelTimes[travelTimeInfo.index] = travelTimeInfo.travelTime;
 					}
 
 				} catch (InterruptedException | BrokenBarrierException e) {
@@ -671,6 +760,14 @@ public class WithinDayTravelTime implements TravelTime,
 			 */
 			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
 			if (!tripBins.isEmpty()) meanTravelTime = travelTimeInfo.sumTravelTimes / tripBins.size();
+			
+			/*
+			 * Exponential smoothing with the previous estimate. Links without trips are not
+			 * smoothed, so that network change events are taken into account immediately.
+			 */
+			if (this.smoothingFactor < 1.0 && !tripBins.isEmpty() && travelTimeInfo.travelTime < Double.MAX_VALUE) {
+				meanTravelTime = this.smoothingFactor * meanTravelTime + (1.0 - this.smoothingFactor) * travelTimeInfo.travelTime;
+			}
 
 			if (meanTravelTime < travelTimeInfo.freeSpeedTravelTime) {
 //				log.warn("Mean TravelTime too short?");
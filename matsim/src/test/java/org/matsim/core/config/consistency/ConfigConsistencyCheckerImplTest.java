@@ -150,5 +150,20 @@ public class ConfigConsistencyCheckerImplTest {
 		
 	}
 
+	@Test
+	public void testCheckTransit_WorkStealing() {
+		Config config = new Config();
+		config.addCoreModules();
+		config.qsim().setUsingWorkStealing(true);
+		ConfigConsistencyCheckerImpl.checkTransit(config);
+
+		config.transit().setUseTransit(true);
+		try {
+			ConfigConsistencyCheckerImpl.checkTransit(config);
+			Assert.fail("expected an exception, transit is not supported together with work stealing.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
 
 }
@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointIT.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.controler;
+
+import java.io.File;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.CRCChecksum;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Runs the equil scenario without interruption, and once interrupted after a checkpoint and resumed from it, and
+ * compares the resulting plans.
+ */
+public class CheckpointIT {
+
+	private static final int LAST_ITERATION = 6;
+	private static final int CHECKPOINT_ITERATION = 3;
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testResumedRunSameAsUninterruptedRun() {
+		String outputDirectory = this.utils.getOutputDirectory();
+
+		Config config = createConfig(outputDirectory + "uninterrupted", LAST_ITERATION);
+		Controler uninterrupted = new Controler(config);
+		uninterrupted.run();
+
+		config = createConfig(outputDirectory + "interrupted", CHECKPOINT_ITERATION);
+		config.controler().setWriteCheckpointsInterval(1);
+		config.controler().setCheckpointsToKeep(1);
+		new Controler(config).run();
+		String checkpoint = outputDirectory + "interrupted/checkpoints/" + CHECKPOINT_ITERATION + ".checkpoint.zst";
+		Assert.assertFalse("only the last checkpoint should be kept",
+				new File(outputDirectory + "interrupted/checkpoints/" + (CHECKPOINT_ITERATION - 1) + ".checkpoint.zst").exists());
+
+		config = createConfig(outputDirectory + "resumed", LAST_ITERATION);
+		config.controler().setRestartFromCheckpoint(checkpoint);
+		Controler resumed = new Controler(config);
+		resumed.run();
+
+		Assert.assertTrue("the iterations after the checkpoint should be run",
+				new File(outputDirectory + "resumed/ITERS/it." + (CHECKPOINT_ITERATION + 1)).exists());
+		Assert.assertFalse("no iteration before the checkpoint should be run",
+				new File(outputDirectory + "resumed/ITERS/it." + CHECKPOINT_ITERATION).exists());
+
+		assertSamePlans(uninterrupted.getScenario().getPopulation(), resumed.getScenario().getPopulation());
+		Assert.assertEquals("different output plans",
+				CRCChecksum.getCRCFromFile(outputDirectory + "uninterrupted/output_plans.xml.gz"),
+				CRCChecksum.getCRCFromFile(outputDirectory + "resumed/output_plans.xml.gz"));
+	}
+
+	private Config createConfig(final String outputDirectory, final int lastIteration) {
+		Config config = this.utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setOutputDirectory(outputDirectory);
+		config.controler().setLastIteration(lastIteration);
+		config.controler().setCreateGraphs(false);
+		return config;
+	}
+
+	private static void assertSamePlans(final Population expected, final Population actual) {
+		Assert.assertEquals(expected.getPersons().size(), actual.getPersons().size());
+		for (Person expectedPerson : expected.getPersons().values()) {
+			Person actualPerson = actual.getPersons().get(expectedPerson.getId());
+			Assert.assertEquals("different number of plans of person " + expectedPerson.getId(),
+					expectedPerson.getPlans().size(), actualPerson.getPlans().size());
+			Assert.assertEquals("different selected plan of person " + expectedPerson.getId(),
+					expectedPerson.getPlans().indexOf(expectedPerson.getSelectedPlan()),
+					actualPerson.getPlans().indexOf(actualPerson.getSelectedPlan()));
+			for (int i = 0; i < expectedPerson.getPlans().size(); i++) {
+				Plan expectedPlan = expectedPerson.getPlans().get(i);
+				Plan actualPlan = actualPerson.getPlans().get(i);
+				Assert.assertEquals("different score of person " + expectedPerson.getId(), expectedPlan.getScore(), actualPlan.getScore());
+				Assert.assertEquals(expectedPlan.getPlanElements().size(), actualPlan.getPlanElements().size());
+				Iterator<PlanElement> actualElements = actualPlan.getPlanElements().iterator();
+				for (PlanElement expectedElement : expectedPlan.getPlanElements()) {
+					PlanElement actualElement = actualElements.next();
+					if (expectedElement instanceof Activity) {
+						Activity expectedActivity = (Activity) expectedElement;
+						Activity actualActivity = (Activity) actualElement;
+						Assert.assertEquals(expectedActivity.getType(), actualActivity.getType());
+						Assert.assertEquals(expectedActivity.getLinkId(), actualActivity.getLinkId());
+						Assert.assertEquals(expectedActivity.getEndTime(), actualActivity.getEndTime(), 0.0);
+					} else {
+						Leg expectedLeg = (Leg) expectedElement;
+						Leg actualLeg = (Leg) actualElement;
+						Assert.assertEquals(expectedLeg.getMode(), actualLeg.getMode());
+						Assert.assertEquals(expectedLeg.getDepartureTime(), actualLeg.getDepartureTime(), 0.0);
+						Assert.assertEquals(expectedLeg.getTravelTime(), actualLeg.getTravelTime(), 0.0);
+						Assert.assertEquals(expectedLeg.getRoute().getRouteDescription(), actualLeg.getRoute().getRouteDescription());
+					}
+				}
+			}
+		}
+	}
+
+}
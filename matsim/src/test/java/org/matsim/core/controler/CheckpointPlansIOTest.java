@@ -0,0 +1,178 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.vehicles.Vehicle;
+
+public class CheckpointPlansIOTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Population population = createPopulation();
+		PopulationFactory factory = population.getFactory();
+		Person person = population.getPersons().get(Id.create("1", Person.class));
+
+		Plan plan1 = factory.createPlan();
+		plan1.setScore(0.1 + 0.2);
+		Activity home = factory.createActivityFromCoord("home", new Coord(1.5, 2.5));
+		home.setLinkId(Id.create("1", Link.class));
+		home.setEndTime(7.0 * 3600 + 0.3);
+		home.getAttributes().putAttribute("visited", 3);
+		plan1.addActivity(home);
+		Leg car = factory.createLeg("car");
+		car.setDepartureTime(home.getEndTime());
+		car.setTravelTime(600.1);
+		NetworkRoute networkRoute = factory.getRouteFactories().createRoute(NetworkRoute.class, Id.create("1", Link.class), Id.create("3", Link.class));
+		networkRoute.setLinkIds(Id.create("1", Link.class), Arrays.asList(Id.create("2", Link.class)), Id.create("3", Link.class));
+		networkRoute.setDistance(1234.5);
+		networkRoute.setTravelCost(17.25);
+		networkRoute.setVehicleId(Id.create("v1", Vehicle.class));
+		car.setRoute(networkRoute);
+		plan1.addLeg(car);
+		Activity work = factory.createActivityFromLinkId("work", Id.create("3", Link.class));
+		work.setMaximumDuration(8.0 * 3600);
+		plan1.addActivity(work);
+		person.addPlan(plan1);
+
+		Plan plan2 = factory.createPlan();
+		plan2.setType("other");
+		plan2.getAttributes().putAttribute("innovated", true);
+		plan2.addActivity(factory.createActivityFromCoord("home", new Coord(1.5, 2.5, 3.5)));
+		Leg walk = factory.createLeg("walk");
+		Route route = factory.getRouteFactories().createRoute(Route.class, Id.create("1", Link.class), Id.create("3", Link.class));
+		route.setTravelTime(900.0);
+		route.setDistance(1100.0);
+		walk.setRoute(route);
+		plan2.addLeg(walk);
+		plan2.addActivity(factory.createActivityFromLinkId("work", Id.create("3", Link.class)));
+		person.addPlan(plan2);
+		person.setSelectedPlan(plan2);
+
+		byte[] bytes = write(population);
+
+		Population restored = createPopulation();
+		Person restoredPerson = restored.getPersons().get(person.getId());
+		restoredPerson.addPlan(factory.createPlan());
+		new CheckpointPlansIO().read(restored, new DataInputStream(new ByteArrayInputStream(bytes)));
+
+		Assert.assertEquals(2, restoredPerson.getPlans().size());
+		Assert.assertSame(restoredPerson.getPlans().get(1), restoredPerson.getSelectedPlan());
+		Assert.assertEquals(0, restored.getPersons().get(Id.create("2", Person.class)).getPlans().size());
+
+		Plan restoredPlan1 = restoredPerson.getPlans().get(0);
+		Assert.assertEquals(0.1 + 0.2, restoredPlan1.getScore(), 0.0);
+		Assert.assertNull(restoredPerson.getPlans().get(1).getScore());
+		Assert.assertEquals("other", restoredPerson.getPlans().get(1).getType());
+		Assert.assertEquals(true, restoredPerson.getPlans().get(1).getAttributes().getAttribute("innovated"));
+
+		Activity restoredHome = (Activity) restoredPlan1.getPlanElements().get(0);
+		Assert.assertEquals(new Coord(1.5, 2.5), restoredHome.getCoord());
+		Assert.assertEquals(home.getEndTime(), restoredHome.getEndTime(), 0.0);
+		Assert.assertEquals(3, restoredHome.getAttributes().getAttribute("visited"));
+
+		NetworkRoute restoredRoute = (NetworkRoute) ((Leg) restoredPlan1.getPlanElements().get(1)).getRoute();
+		Assert.assertEquals(networkRoute.getLinkIds(), restoredRoute.getLinkIds());
+		Assert.assertEquals(Id.create("3", Link.class), restoredRoute.getEndLinkId());
+		Assert.assertEquals(1234.5, restoredRoute.getDistance(), 0.0);
+		Assert.assertEquals(17.25, restoredRoute.getTravelCost(), 0.0);
+		Assert.assertEquals(Id.create("v1", Vehicle.class), restoredRoute.getVehicleId());
+
+		Assert.assertEquals(8.0 * 3600, ((Activity) restoredPlan1.getPlanElements().get(2)).getMaximumDuration(), 0.0);
+
+		// everything else should be the same, too
+		Assert.assertArrayEquals(bytes, write(restored));
+	}
+
+	@Test
+	public void testLongStrings() throws IOException {
+		Population population = createPopulation();
+		PopulationFactory factory = population.getFactory();
+		Person person = population.getPersons().get(Id.create("1", Person.class));
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 30000; i++) {
+			// (two bytes per character in UTF-8)
+			builder.append('\u00e4').append(i % 10);
+		}
+		String longString = builder.toString();
+
+		Plan plan = factory.createPlan();
+		plan.addActivity(factory.createActivityFromLinkId("home", Id.create("1", Link.class)));
+		Leg leg = factory.createLeg("pt");
+		leg.getAttributes().putAttribute("comment", longString);
+		Route route = factory.getRouteFactories().createRoute(Route.class, Id.create("1", Link.class), Id.create("3", Link.class));
+		route.setRouteDescription(longString);
+		leg.setRoute(route);
+		plan.addLeg(leg);
+		person.addPlan(plan);
+
+		Population restored = createPopulation();
+		new CheckpointPlansIO().read(restored, new DataInputStream(new ByteArrayInputStream(write(population))));
+
+		Leg restoredLeg = (Leg) restored.getPersons().get(person.getId()).getPlans().get(0).getPlanElements().get(1);
+		Assert.assertEquals(longString, restoredLeg.getAttributes().getAttribute("comment"));
+		Assert.assertEquals(longString, restoredLeg.getRoute().getRouteDescription());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDifferentPopulation() throws IOException {
+		Population population = createPopulation();
+		byte[] bytes = write(population);
+		population.removePerson(Id.create("2", Person.class));
+		new CheckpointPlansIO().read(population, new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.addPerson(population.getFactory().createPerson(Id.create("1", Person.class)));
+		population.addPerson(population.getFactory().createPerson(Id.create("2", Person.class)));
+		return population;
+	}
+
+	private static byte[] write(final Population population) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			new CheckpointPlansIO().write(population, out);
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -139,4 +139,33 @@ public class OutputDirectoryHierarchyTest {
 				new File( outputDirectory+"/some_file" ).exists() );
 
 	}
+
+	@Test
+	public void testCheckpointRetention() throws IOException {
+		final String outputDirectory = utils.getOutputDirectory();
+		IOUtils.deleteDirectoryRecursively(new File( outputDirectory ).toPath());
+
+		final OutputDirectoryHierarchy controlerIO = new OutputDirectoryHierarchy(
+				outputDirectory,
+				"run1",
+				OutputDirectoryHierarchy.OverwriteFileSetting.failIfDirectoryExists );
+
+		Assert.assertNull( controlerIO.getLatestCheckpointFilename() );
+
+		for ( int iteration : new int[] { 5, 10, 15, 20 } ) {
+			new File( controlerIO.getCheckpointFilename( iteration ) ).createNewFile();
+		}
+		// not a checkpoint of this run
+		new File( controlerIO.getCheckpointPath()+"/run2.25.checkpoint.zst" ).createNewFile();
+
+		Assert.assertEquals( controlerIO.getCheckpointFilename( 20 ), controlerIO.getLatestCheckpointFilename() );
+
+		controlerIO.deleteOldCheckpoints( 2 );
+
+		Assert.assertFalse( new File( controlerIO.getCheckpointFilename( 5 ) ).exists() );
+		Assert.assertFalse( new File( controlerIO.getCheckpointFilename( 10 ) ).exists() );
+		Assert.assertTrue( new File( controlerIO.getCheckpointFilename( 15 ) ).exists() );
+		Assert.assertTrue( new File( controlerIO.getCheckpointFilename( 20 ) ).exists() );
+		Assert.assertTrue( new File( controlerIO.getCheckpointPath()+"/run2.25.checkpoint.zst" ).exists() );
+	}
 }
@@ -0,0 +1,117 @@
+package org.matsim.core.events;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferEventsManagerTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(8);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	/**
+	 * Uses a buffer that is much smaller than the number of events, so the slots are reused
+	 * many times, also over several iterations.
+	 */
+	@Test
+	public void testAllEventsProcessedInOrder_smallBuffer() {
+		RingBufferEventsManager events = new RingBufferEventsManager(3, 16);
+		EventsCollector[] collectors = new EventsCollector[5];
+		for (int i = 0; i < collectors.length; i++) {
+			collectors[i] = new EventsCollector();
+			events.addHandler(collectors[i]);
+		}
+
+		for (int iteration = 0; iteration < 2; iteration++) {
+			events.resetHandlers(iteration);
+			events.initProcessing();
+			for (int time = 0; time < 100; time++) {
+				for (int i = 0; i < 37; i++) {
+					events.processEvent(new LinkEnterEvent(time, Id.createVehicleId(i), Id.createLinkId(i)));
+				}
+				events.afterSimStep(time);
+			}
+			events.finishProcessing();
+
+			for (EventsCollector collector : collectors) {
+				Assert.assertEquals(100 * 37, collector.getEvents().size());
+				int index = 0;
+				for (int time = 0; time < 100; time++) {
+					for (int i = 0; i < 37; i++) {
+						Event event = collector.getEvents().get(index++);
+						Assert.assertEquals(time, event.getTime(), 0.0);
+						Assert.assertEquals(Id.createLinkId(i), ((LinkEnterEvent) event).getLinkId());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testProcessEvent_ExceptionInEventHandler() {
+		RingBufferEventsManager events = new RingBufferEventsManager(2);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				throw new ArithmeticException();
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			Assert.assertNotNull(e.getCause());
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			double time = 3600.0 + i;
+			events.add(new ActivityEndEvent(time, Id.createPersonId(i), Id.createLinkId(i % 7), null, "home"));
+			events.add(new PersonDepartureEvent(time, Id.createPersonId(i), Id.createLinkId(i % 7), "car"));
+			events.add(new LinkLeaveEvent(time + 1, Id.createVehicleId(i), Id.createLinkId(i % 7)));
+			events.add(new LinkEnterEvent(time + 1, Id.createVehicleId(i), Id.createLinkId(i % 5)));
+			events.add(new PersonMoneyEvent(time + 2, Id.createPersonId(i), -1.5));
+		}
+		GenericEvent generic = new GenericEvent("custom<type>", 4000.0);
+		generic.getAttributes().put("dummy", null);
+		generic.getAttributes().put("name", "a \"special\" value");
+		events.add(generic);
+		return events;
+	}
+
+	@Test
+	public void testWriteAndRead() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		List<Event> expected = createEvents();
+		// use a small block size so that several blocks are written
+		EventWriterBinary writer = new EventWriterBinary(filename, 64);
+		for (Event event : expected) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		Assert.assertTrue(EventsReaderBinary.isBinaryEventsFile(filename));
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		Assert.assertEquals(expected.size(), collector.getEvents().size());
+		for (int i = 0; i < expected.size() - 1; i++) {
+			Assert.assertEquals(expected.get(i), collector.getEvents().get(i));
+		}
+		Event generic = collector.getEvents().get(expected.size() - 1);
+		Assert.assertEquals("custom<type>", generic.getEventType());
+		Assert.assertEquals("a \"special\" value", generic.getAttributes().get("name"));
+	}
+
+	@Test
+	public void testFilterByTimeAndType() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename, 64);
+		for (Event event : createEvents()) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		EventsReaderBinary reader = new EventsReaderBinary(events);
+		reader.setTimeWindow(3610.0, 3619.0);
+		reader.setEventTypes(Collections.singleton(LinkEnterEvent.EVENT_TYPE));
+		reader.readFile(filename);
+
+		// link enter events are at 3601 .. 3700
+		Assert.assertEquals(10, collector.getEvents().size());
+		for (Event event : collector.getEvents()) {
+			Assert.assertTrue(event instanceof LinkEnterEvent);
+			Assert.assertTrue(event.getTime() >= 3610.0 && event.getTime() <= 3619.0);
+		}
+	}
+
+	@Test
+	public void testEmptyFile() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		new EventWriterBinary(filename).closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+		Assert.assertEquals(0, collector.getEvents().size());
+	}
+
+}
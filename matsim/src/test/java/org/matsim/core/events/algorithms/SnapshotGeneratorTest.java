@@ -0,0 +1,222 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SnapshotGeneratorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events.algorithms;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+import org.matsim.vis.snapshotwriters.SnapshotWriter;
+
+/**
+ * Feeds a fixed stream of events on two consecutive links into the {@link SnapshotGenerator} and checks the positions of
+ * every snapshot. The expected positions are those of the implementation before the link state was kept incrementally,
+ * except for the teleported agent, which was also still drawn at its departure link after arriving.
+ */
+public class SnapshotGeneratorTest {
+
+	private static final double EPSILON = 1e-8;
+
+	// links of 1000 m at 10 m/s, so the free speed travel time of the generator is ceil(1000 / 10) + 1
+	private static final double FREESPEED_TRAVEL_TIME = 101.0;
+
+	private final Id<Link> linkId1 = Id.createLinkId("sg1");
+	private final Id<Link> linkId2 = Id.createLinkId("sg2");
+	private final Id<Person> personId1 = Id.createPersonId("sg1");
+	private final Id<Person> personId2 = Id.createPersonId("sg2");
+	private final Id<Person> personId3 = Id.createPersonId("sg3");
+
+	@Test
+	public void testQueueStyle() {
+		Map<Double, Map<Id<Person>, AgentSnapshotInfo>> snapshots = generateSnapshots(SnapshotStyle.queue);
+		Assert.assertArrayEquals(new Double[] {10.0, 20.0, 30.0, 40.0, 50.0, 60.0, 70.0}, snapshots.keySet().toArray());
+
+		// buffer at the end of the link, waiting and parked agents one cell from the start
+		assertPositions(snapshots.get(10.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1000.0,
+				this.personId2, AgentState.PERSON_AT_ACTIVITY, 7.5);
+		assertPositions(snapshots.get(20.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1000.0 + drivenDistance(20.0, 12.0),
+				this.personId2, AgentState.PERSON_AT_ACTIVITY, 7.5);
+		assertPositions(snapshots.get(30.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1000.0 + drivenDistance(30.0, 12.0),
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 1000.0);
+		assertPositions(snapshots.get(40.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1000.0 + drivenDistance(40.0, 12.0),
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 1000.0 + drivenDistance(40.0, 33.0));
+		assertPositions(snapshots.get(50.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1000.0 + drivenDistance(50.0, 12.0),
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 1000.0 + drivenDistance(50.0, 33.0),
+				this.personId3, AgentState.PERSON_AT_ACTIVITY, 7.5);
+		assertPositions(snapshots.get(60.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1000.0 + drivenDistance(60.0, 12.0),
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 1000.0 + drivenDistance(60.0, 33.0),
+				this.personId3, AgentState.PERSON_AT_ACTIVITY, 7.5);
+		assertPositions(snapshots.get(70.0),
+				this.personId1, AgentState.PERSON_AT_ACTIVITY, 1007.5,
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 1000.0 + drivenDistance(70.0, 33.0),
+				this.personId3, AgentState.PERSON_AT_ACTIVITY, 1007.5);
+	}
+
+	@Test
+	public void testEquiDistStyle() {
+		Map<Double, Map<Id<Person>, AgentSnapshotInfo>> snapshots = generateSnapshots(SnapshotStyle.equiDist);
+		Assert.assertArrayEquals(new Double[] {10.0, 20.0, 30.0, 40.0, 50.0, 60.0, 70.0}, snapshots.keySet().toArray());
+
+		// driving agents evenly spread over the link, waiting agents half a cell before the end of the link
+		assertPositions(snapshots.get(10.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 500.0,
+				this.personId2, AgentState.PERSON_AT_ACTIVITY, 996.25);
+		assertPositions(snapshots.get(20.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1500.0,
+				this.personId2, AgentState.PERSON_AT_ACTIVITY, 996.25);
+		assertPositions(snapshots.get(30.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1500.0,
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 500.0);
+		assertPositions(snapshots.get(40.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1750.0,
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 1250.0);
+		assertPositions(snapshots.get(50.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1750.0,
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 1250.0,
+				this.personId3, AgentState.PERSON_AT_ACTIVITY, 996.25);
+		assertPositions(snapshots.get(60.0),
+				this.personId1, AgentState.PERSON_DRIVING_CAR, 1750.0,
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 1250.0,
+				this.personId3, AgentState.PERSON_AT_ACTIVITY, 996.25);
+		assertPositions(snapshots.get(70.0),
+				this.personId1, AgentState.PERSON_AT_ACTIVITY, 1750.0,
+				this.personId2, AgentState.PERSON_DRIVING_CAR, 1500.0,
+				this.personId3, AgentState.PERSON_AT_ACTIVITY, 1250.0);
+	}
+
+	/**
+	 * Two agents drive over both links, the second one waits 20 seconds before entering traffic. A third agent walks from
+	 * the first to the second link.
+	 */
+	private Map<Double, Map<Id<Person>, AgentSnapshotInfo>> generateSnapshots(final SnapshotStyle snapshotStyle) {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("sg1"), new Coord(0.0, 0.0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("sg2"), new Coord(1000.0, 0.0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId("sg3"), new Coord(2000.0, 0.0));
+		NetworkUtils.createAndAddLink(network, this.linkId1, node1, node2, 1000.0, 10.0, 3600.0, 1.0);
+		NetworkUtils.createAndAddLink(network, this.linkId2, node2, node3, 1000.0, 10.0, 3600.0, 1.0);
+
+		QSimConfigGroup config = new QSimConfigGroup();
+		config.setSnapshotStyle(snapshotStyle);
+		SnapshotGenerator generator = new SnapshotGenerator(network, 10.0, config);
+		SnapshotCollector collector = new SnapshotCollector();
+		generator.addSnapshotWriter(collector);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(generator);
+		Id<Vehicle> vehicleId1 = Id.createVehicleId("sg1");
+		Id<Vehicle> vehicleId2 = Id.createVehicleId("sg2");
+		events.processEvent(new PersonDepartureEvent(0.0, this.personId1, this.linkId1, TransportMode.car));
+		events.processEvent(new VehicleEntersTrafficEvent(0.0, this.personId1, this.linkId1, vehicleId1, TransportMode.car, 1.0));
+		events.processEvent(new PersonDepartureEvent(5.0, this.personId2, this.linkId1, TransportMode.car));
+		events.processEvent(new LinkLeaveEvent(12.0, vehicleId1, this.linkId1));
+		events.processEvent(new LinkEnterEvent(12.0, vehicleId1, this.linkId2));
+		events.processEvent(new VehicleEntersTrafficEvent(25.0, this.personId2, this.linkId1, vehicleId2, TransportMode.car, 1.0));
+		events.processEvent(new LinkLeaveEvent(33.0, vehicleId2, this.linkId1));
+		events.processEvent(new LinkEnterEvent(33.0, vehicleId2, this.linkId2));
+		events.processEvent(new PersonDepartureEvent(45.0, this.personId3, this.linkId1, TransportMode.walk));
+		events.processEvent(new VehicleLeavesTrafficEvent(60.0, this.personId1, this.linkId2, vehicleId1, TransportMode.car, 1.0));
+		events.processEvent(new PersonArrivalEvent(60.0, this.personId1, this.linkId2, TransportMode.car));
+		events.processEvent(new PersonArrivalEvent(65.0, this.personId3, this.linkId2, TransportMode.walk));
+		// only triggers the snapshot at 70
+		events.processEvent(new PersonDepartureEvent(75.0, this.personId1, this.linkId2, TransportMode.walk));
+		generator.finish();
+
+		Assert.assertTrue(collector.finished);
+		return collector.snapshots;
+	}
+
+	private static double drivenDistance(final double time, final double linkEnterTime) {
+		return (time - linkEnterTime) / FREESPEED_TRAVEL_TIME * 1000.0;
+	}
+
+	/**
+	 * @param expected triples of person id, agent state and easting of all agents in the snapshot
+	 */
+	private static void assertPositions(final Map<Id<Person>, AgentSnapshotInfo> positions, final Object... expected) {
+		Assert.assertEquals("unexpected agents " + positions.keySet(), expected.length / 3, positions.size());
+		for (int i = 0; i < expected.length; i += 3) {
+			AgentSnapshotInfo position = positions.get(expected[i]);
+			Assert.assertNotNull("missing agent " + expected[i], position);
+			Assert.assertEquals("wrong state of agent " + expected[i], expected[i + 1], position.getAgentState());
+			Assert.assertEquals("wrong position of agent " + expected[i], (Double) expected[i + 2], position.getEasting(), EPSILON);
+		}
+	}
+
+	private static final class SnapshotCollector implements SnapshotWriter {
+
+		private final Map<Double, Map<Id<Person>, AgentSnapshotInfo>> snapshots = new LinkedHashMap<>();
+		private Map<Id<Person>, AgentSnapshotInfo> current = null;
+		private boolean finished = false;
+
+		@Override
+		public void beginSnapshot(final double time) {
+			this.current = new LinkedHashMap<>();
+			this.snapshots.put(time, this.current);
+		}
+
+		@Override
+		public void endSnapshot() {
+			this.current = null;
+		}
+
+		@Override
+		public void addAgent(final AgentSnapshotInfo position) {
+			Assert.assertNull("agent " + position.getId() + " drawn twice", this.current.put(position.getId(), position));
+		}
+
+		@Override
+		public void finish() {
+			this.finished = true;
+		}
+
+	}
+
+}
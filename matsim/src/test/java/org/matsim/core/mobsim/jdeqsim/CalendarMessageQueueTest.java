@@ -0,0 +1,109 @@
+package org.matsim.core.mobsim.jdeqsim;
+
+import org.junit.Test;
+import org.matsim.core.mobsim.jdeqsim.util.DummyMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CalendarMessageQueueTest {
+
+	@Test
+	public void testOrder() {
+		MessageQueue mq = new CalendarMessageQueue();
+		Message m1 = createMessage(100000.5, 0);
+		Message m2 = createMessage(3.2, 0);
+		Message m3 = createMessage(3.2, 100);
+		Message m4 = createMessage(3.7, 200);
+		Message m5 = createMessage(-5, 0);
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.putMessage(m3);
+		mq.putMessage(m4);
+		mq.putMessage(m5);
+		assertEquals(5, mq.getQueueSize());
+
+		assertSame(m5, mq.getNextMessage());
+		assertSame(m3, mq.peekMessage());
+		assertSame(m3, mq.getNextMessage());
+		assertSame(m2, mq.getNextMessage());
+		// a message in the current bucket
+		Message m6 = createMessage(3.5, 0);
+		mq.putMessage(m6);
+		assertSame(m6, mq.getNextMessage());
+		assertSame(m4, mq.getNextMessage());
+		assertSame(m1, mq.getNextMessage());
+		assertTrue(mq.isEmpty());
+		assertNull(mq.getNextMessage());
+		assertNull(mq.peekMessage());
+	}
+
+	@Test
+	public void testRemoveMessage() {
+		MessageQueue mq = new CalendarMessageQueue();
+		Message m1 = createMessage(1, 0);
+		Message m2 = createMessage(1800, 0);
+		Message m3 = createMessage(1800, 0);
+		Message m4 = createMessage(200000, 0);
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		mq.putMessage(m3);
+		mq.putMessage(m4);
+		mq.removeMessage(m2);
+		mq.removeMessage(m4);
+		assertEquals(2, mq.getQueueSize());
+		assertSame(m1, mq.getNextMessage());
+		assertSame(m3, mq.getNextMessage());
+		assertTrue(mq.isEmpty());
+		assertNull(mq.getNextMessage());
+	}
+
+	@Test
+	public void testSameOrderAsMessageQueue() {
+		Random random = new Random(4711);
+		MessageQueue expected = new MessageQueue();
+		MessageQueue actual = new CalendarMessageQueue();
+		List<Message> queued = new ArrayList<>();
+		double time = 0;
+		for (int i = 0; i < 10000; i++) {
+			Message m = createMessage(time + (random.nextBoolean() ? random.nextDouble() * 5 : random.nextDouble() * 200000), 100 * random.nextInt(3));
+			expected.putMessage(m);
+			actual.putMessage(m);
+			queued.add(m);
+			if (random.nextInt(10) == 0 && !queued.isEmpty()) {
+				Message removed = queued.remove(random.nextInt(queued.size()));
+				expected.removeMessage(removed);
+				actual.removeMessage(removed);
+			}
+			if (random.nextBoolean()) {
+				Message next = expected.getNextMessage();
+				assertSame(next, actual.getNextMessage());
+				if (next != null) {
+					queued.remove(next);
+					time = next.getMessageArrivalTime();
+				}
+			}
+			assertEquals(expected.getQueueSize(), actual.getQueueSize());
+		}
+		Message next;
+		while ((next = expected.getNextMessage()) != null) {
+			assertSame(next, actual.getNextMessage());
+		}
+		assertTrue(actual.isEmpty());
+		assertNull(actual.getNextMessage());
+	}
+
+	private static Message createMessage(double time, int priority) {
+		Message m = new DummyMessage();
+		m.setMessageArrivalTime(time);
+		m.setPriority(priority);
+		return m;
+	}
+
+}
@@ -0,0 +1,53 @@
+package org.matsim.core.mobsim.jdeqsim;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.scenario.ScenarioUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelJDEQSimulationTest extends AbstractJDEQSimTest {
+
+	@Test
+	public void testSameEventsAsSequential() {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		ScenarioUtils.loadScenario(scenario);
+		JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class);
+
+		List<String> expected = collectEvents(scenario, jdeqSimConfig, 1);
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, collectEvents(scenario, jdeqSimConfig, 2));
+		assertEquals(expected, collectEvents(scenario, jdeqSimConfig, 4));
+	}
+
+	private static List<String> collectEvents(Scenario scenario, JDEQSimConfigGroup config, int numberOfThreads) {
+		final List<String> events = new ArrayList<>();
+		EventsManagerImpl eventsManager = new EventsManagerImpl();
+		eventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event.toString());
+			}
+		});
+		config.setNumberOfThreads(numberOfThreads);
+		if (numberOfThreads > 1) {
+			new ParallelJDEQSimulation(config, scenario, eventsManager).run();
+		} else {
+			new JDEQSimulation(config, scenario, eventsManager).run();
+		}
+		return events;
+	}
+
+}
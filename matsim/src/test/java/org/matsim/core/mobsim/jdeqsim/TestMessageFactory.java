@@ -118,5 +118,42 @@ public class TestMessageFactory extends MatsimTestCase{
 		assertEquals(true,MessageFactory.getDeadlockPreventionMessage(scheduler, vehicle).vehicle==vehicle);
 	}
 	
+	// check reuse of processed messages
+	public void testDisposeMessage(){
+		MessageFactory.GC_ALL_MESSAGES();
+		JDEQSimConfigGroup.setGC_MESSAGES(false);
+		LeaveRoadMessage message=new LeaveRoadMessage(null,null);
+		message.killMessage();
+		MessageFactory.disposeMessage(message);
+		
+		assertEquals(1, MessageFactory.getLeaveRoadMessageQueue().size());
+		assertEquals(0, MessageFactory.getEndRoadMessageQueue().size());
+		
+		Scheduler scheduler=new Scheduler(new MessageQueue());
+		LeaveRoadMessage reused=MessageFactory.getLeaveRoadMessage(scheduler, null);
+		assertEquals(true, reused==message);
+		assertEquals(true, reused.isAlive());
+		assertEquals(true, reused.scheduler==scheduler);
+		assertEquals(0, MessageFactory.getLeaveRoadMessageQueue().size());
+	}
+
+	// check that the processed messages of a scheduler are only reused by that scheduler
+	public void testSchedulerMessagePool(){
+		MessageFactory.GC_ALL_MESSAGES();
+		JDEQSimConfigGroup.setGC_MESSAGES(false);
+		Scheduler scheduler=new Scheduler(new MessageQueue());
+		Scheduler otherScheduler=new Scheduler(new MessageQueue());
+		LeaveRoadMessage message=new LeaveRoadMessage(scheduler,null);
+		message.killMessage();
+		scheduler.messagePool.dispose(message);
+		
+		assertEquals(0, MessageFactory.getLeaveRoadMessageQueue().size());
+		assertEquals(false, MessageFactory.getLeaveRoadMessage(otherScheduler, null)==message);
+		LeaveRoadMessage reused=MessageFactory.getLeaveRoadMessage(scheduler, null);
+		assertEquals(true, reused==message);
+		assertEquals(true, reused.isAlive());
+		assertEquals(false, MessageFactory.getLeaveRoadMessage(scheduler, null)==message);
+	}
+	
 	
 }
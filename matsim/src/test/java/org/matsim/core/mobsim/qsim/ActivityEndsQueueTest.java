@@ -0,0 +1,155 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+public class ActivityEndsQueueTest {
+
+	private static MobsimAgent createAgent(final String id) {
+		return (MobsimAgent) Proxy.newProxyInstance(MobsimAgent.class.getClassLoader(), new Class<?>[] { MobsimAgent.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getId":
+							return Id.createPersonId(id);
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "equals":
+							return proxy == args[0];
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static List<MobsimAgent> pollAll(final ActivityEndsQueue queue, final double time) {
+		List<MobsimAgent> agents = new ArrayList<>();
+		MobsimAgent agent;
+		while ((agent = queue.poll(time)) != null) {
+			agents.add(agent);
+		}
+		return agents;
+	}
+
+	@Test
+	public void testOrder() {
+		ActivityEndsQueue queue = new ActivityEndsQueue();
+		MobsimAgent a1 = createAgent("1");
+		MobsimAgent a2 = createAgent("2");
+		MobsimAgent a3 = createAgent("3");
+		MobsimAgent a4 = createAgent("4");
+		queue.add(a1, 7.0 * 3600);
+		queue.add(a2, 6.0 * 3600);
+		queue.add(a3, 7.0 * 3600);
+		queue.add(a4, 6.0 * 3600 - 0.5);
+		Assert.assertEquals(4, queue.size());
+
+		Assert.assertTrue(pollAll(queue, 0.0).isEmpty());
+		List<MobsimAgent> agents = pollAll(queue, 6.0 * 3600);
+		Assert.assertEquals(2, agents.size());
+		Assert.assertSame(a4, agents.get(0));
+		Assert.assertSame(a2, agents.get(1));
+		Assert.assertTrue(pollAll(queue, 6.0 * 3600 + 1).isEmpty());
+		agents = pollAll(queue, 8.0 * 3600);
+		// same time: the larger id first
+		Assert.assertEquals(2, agents.size());
+		Assert.assertSame(a3, agents.get(0));
+		Assert.assertSame(a1, agents.get(1));
+		Assert.assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testReschedule() {
+		ActivityEndsQueue queue = new ActivityEndsQueue();
+		MobsimAgent a1 = createAgent("1");
+		MobsimAgent a2 = createAgent("2");
+		queue.add(a1, 100.0);
+		queue.add(a2, 200.0);
+		Assert.assertTrue(pollAll(queue, 50.0).isEmpty());
+
+		Assert.assertTrue(queue.remove(a2));
+		Assert.assertFalse(queue.remove(a2));
+		queue.add(a2, 80.0);
+		// far beyond the range of the calendar
+		Assert.assertTrue(queue.remove(a1));
+		queue.add(a1, 50.0 + 10 * 24 * 3600);
+
+		List<MobsimAgent> agents = pollAll(queue, 100.0);
+		Assert.assertEquals(1, agents.size());
+		Assert.assertSame(a2, agents.get(0));
+		Assert.assertTrue(pollAll(queue, 9 * 24 * 3600).isEmpty());
+		agents = pollAll(queue, 50.0 + 10 * 24 * 3600);
+		Assert.assertEquals(1, agents.size());
+		Assert.assertSame(a1, agents.get(0));
+	}
+
+	@Test
+	public void testSameAsPriorityQueue() {
+		Random random = new Random(4711);
+		List<MobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			agents.add(createAgent(Integer.toString(i)));
+		}
+		Map<MobsimAgent, Double> endTimes = new IdentityHashMap<>();
+		PriorityQueue<MobsimAgent> expected = new PriorityQueue<>((a0, a1) -> {
+			int cmp = Double.compare(endTimes.get(a0), endTimes.get(a1));
+			return cmp == 0 ? a1.getId().compareTo(a0.getId()) : cmp;
+		});
+		ActivityEndsQueue queue = new ActivityEndsQueue();
+		for (MobsimAgent agent : agents) {
+			double endTime = random.nextInt(4) == 0 ? Math.floor(random.nextDouble() * 200) : random.nextDouble() * 40000;
+			endTimes.put(agent, endTime);
+			expected.add(agent);
+			queue.add(agent, endTime);
+		}
+		for (double time = 0; time < 100000; time += random.nextInt(3) == 0 ? 0.5 : 7) {
+			// reschedule some agents, as within-day replanning would
+			for (int i = 0; i < 3; i++) {
+				MobsimAgent agent = agents.get(random.nextInt(agents.size()));
+				boolean queued = expected.remove(agent);
+				Assert.assertEquals(queued, queue.remove(agent));
+				if (queued || random.nextBoolean()) {
+					double endTime = time + 1 + random.nextDouble() * (random.nextBoolean() ? 100 : 80000);
+					endTimes.put(agent, endTime);
+					expected.add(agent);
+					queue.add(agent, endTime);
+				}
+			}
+			List<MobsimAgent> expectedAgents = new ArrayList<>();
+			while (!expected.isEmpty() && endTimes.get(expected.peek()) <= time) {
+				expectedAgents.add(expected.poll());
+			}
+			Assert.assertEquals("at time " + time, expectedAgents, pollAll(queue, time));
+			Assert.assertEquals(expected.size(), queue.size());
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CoordinateBisectionQNetworkPartitionerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class CoordinateBisectionQNetworkPartitionerTest {
+
+	private static final int GRID_SIZE = 20;
+
+	/**
+	 * Creates a grid with bidirectional links. The links in the lower half have twice the capacity.
+	 */
+	private static Network createGridNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100.0, y * 100.0));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				double capacity = y < GRID_SIZE / 2 ? 2000.0 : 1000.0;
+				if (x + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), nodes[x][y], nodes[x + 1][y], 100.0, 10.0, capacity, 1.0);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), nodes[x + 1][y], nodes[x][y], 100.0, 10.0, capacity, 1.0);
+				}
+				if (y + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), nodes[x][y], nodes[x][y + 1], 100.0, 10.0, capacity, 1.0);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkId++), nodes[x][y + 1], nodes[x][y], 100.0, 10.0, capacity, 1.0);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static int countCutLinks(Network network, Map<Id<Node>, Integer> partition) {
+		int cut = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!partition.get(link.getFromNode().getId()).equals(partition.get(link.getToNode().getId()))) {
+				cut++;
+			}
+		}
+		return cut;
+	}
+
+	@Test
+	public void testEqualWeights() {
+		Network network = createGridNetwork();
+		int runners = 4;
+		Map<Id<Node>, Integer> partition = new CoordinateBisectionQNetworkPartitioner(node -> 1.0).partition(network, runners);
+
+		Assert.assertEquals(network.getNodes().size(), partition.size());
+		int[] counts = new int[runners];
+		for (int part : partition.values()) {
+			counts[part]++;
+		}
+		for (int count : counts) {
+			Assert.assertEquals(GRID_SIZE * GRID_SIZE / runners, count);
+		}
+
+		// four quadrants of the grid: only the links crossing the two cut lines connect different parts,
+		// i.e. GRID_SIZE node pairs per cut line, each connected by a link in both directions
+		Assert.assertEquals(2 * 2 * GRID_SIZE, countCutLinks(network, partition));
+		Assert.assertTrue(countCutLinks(network, partition) < countCutLinks(network, new RoundRobinQNetworkPartitioner().partition(network, runners)));
+	}
+
+	@Test
+	public void testCapacityWeighted() {
+		Network network = createGridNetwork();
+		int runners = 3;
+		CoordinateBisectionQNetworkPartitioner partitioner = CoordinateBisectionQNetworkPartitioner.createCapacityWeighted();
+		Map<Id<Node>, Integer> partition = partitioner.partition(network, runners);
+
+		double[] weights = new double[runners];
+		double total = 0.0;
+		for (Node node : network.getNodes().values()) {
+			double weight = 0.0;
+			for (Link link : node.getInLinks().values()) weight += link.getCapacity();
+			for (Link link : node.getOutLinks().values()) weight += link.getCapacity();
+			weights[partition.get(node.getId())] += weight;
+			total += weight;
+		}
+		for (double weight : weights) {
+			Assert.assertEquals(total / runners, weight, 0.05 * total / runners);
+		}
+	}
+
+	@Test
+	public void testMoreRunnersThanNodes() {
+		Network network = NetworkUtils.createNetwork();
+		NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0.0, 0.0));
+		NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(100.0, 0.0));
+		Map<Id<Node>, Integer> partition = CoordinateBisectionQNetworkPartitioner.createCapacityWeighted().partition(network, 4);
+		Assert.assertEquals(2, partition.size());
+		Assert.assertNotEquals(partition.get(Id.createNodeId(1)), partition.get(Id.createNodeId(2)));
+	}
+
+}
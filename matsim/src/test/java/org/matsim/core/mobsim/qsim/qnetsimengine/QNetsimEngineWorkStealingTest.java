@@ -0,0 +1,103 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWorkStealingTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class QNetsimEngineWorkStealingTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private Config createConfig(int numberOfThreads) {
+		Config config = utils.loadConfig("test/scenarios/equil/config.xml");
+		config.plans().setInputFile("plans100.xml");
+		config.qsim().setUsingWorkStealing(true);
+		// equil has only a few links, so use small chunks to get several chunks per phase which can be stolen
+		config.qsim().setWorkStealingChunkSize(2);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		return config;
+	}
+
+	private List<Event> runQSim(int numberOfThreads) {
+		Config config = createConfig(numberOfThreads);
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+		return collector.getEvents();
+	}
+
+	@Test
+	public void testEventsDoNotDependOnNumberOfThreads() {
+		List<Event> expected = runQSim(1);
+		Assert.assertTrue(expected.stream().anyMatch(event -> event instanceof LinkEnterEvent));
+
+		for (int numberOfThreads : new int[] { 2, 4, 4, 8 }) {
+			List<Event> actual = runQSim(numberOfThreads);
+			Assert.assertEquals("different number of events with " + numberOfThreads + " threads.", expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				Assert.assertEquals("different event with " + numberOfThreads + " threads.", expected.get(i), actual.get(i));
+				Assert.assertEquals("different event with " + numberOfThreads + " threads.", expected.get(i).toString(), actual.get(i).toString());
+			}
+		}
+	}
+
+	/**
+	 * Boarding at stops served by vehicles in different chunks would depend on the threads, so transit is rejected.
+	 */
+	@Test
+	public void testTransitIsNotSupported() {
+		Config config = createConfig(2);
+		config.transit().setUseTransit(true);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		try {
+			new QSimBuilder(config).useDefaults().build(scenario, EventsUtils.createEventsManager()).run();
+			Assert.fail("expected an exception, transit is not supported together with work stealing.");
+		} catch (RuntimeException e) {
+			Throwable cause = e;
+			while (!(cause instanceof IllegalStateException) && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			Assert.assertTrue("unexpected exception " + e, cause instanceof IllegalStateException);
+		}
+	}
+
+}
@@ -31,6 +31,9 @@ import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.testcases.MatsimTestCase;
 
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * @author mrieser
  * @author laemmel
@@ -352,6 +355,92 @@ public class TimeVariantLinkImplTest extends MatsimTestCase {
 	}
 
 
+	/**
+	 * Tests that the values are the same for increasing, decreasing and random query times, with many change events.
+	 */
+	public void testManyFreespeedChanges() {
+		final Network network = NetworkUtils.createNetwork();
+		NetworkFactory nf = network.getFactory();
+		nf.setLinkFactory(new VariableIntervalTimeVariantLinkFactory());
+		((NetworkImpl)network).setFactory(nf);
+
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord((double) 0, (double) 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord((double) 100, (double) 0));
+		TimeVariantLinkImpl link = (TimeVariantLinkImpl)NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), node1, node2, (double) 100, (double) 10, (double) 3600, (double) 1 );
+
+		// a change every 10 seconds, the freespeed is the number of the change
+		for (int i = 1; i <= 1000; i++) {
+			NetworkChangeEvent change = new NetworkChangeEvent(i * 10.0);
+			change.addLink(link);
+			change.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, i));
+			link.applyEvent(change);
+		}
+
+		for (double time = 0.0; time < 10020.0; time += 0.5) {
+			assertEquals(expectedFreespeed(time), link.getFreespeed(time), EPSILON);
+		}
+		for (double time = 10020.0; time >= 0.0; time -= 3.0) {
+			assertEquals(expectedFreespeed(time), link.getFreespeed(time), EPSILON);
+		}
+		Random random = new Random(4711);
+		for (int i = 0; i < 1000; i++) {
+			double time = random.nextDouble() * 10020.0;
+			assertEquals(expectedFreespeed(time), link.getFreespeed(time), EPSILON);
+		}
+		assertEquals(10.0, link.getFreespeed(Time.UNDEFINED_TIME), EPSILON);
+
+		// a change in between is seen by the next query
+		NetworkChangeEvent change = new NetworkChangeEvent(5005.0);
+		change.addLink(link);
+		change.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 0.5));
+		link.applyEvent(change);
+		assertEquals(500.0, link.getFreespeed(5004.0), EPSILON);
+		assertEquals(0.5, link.getFreespeed(5005.0), EPSILON);
+		assertEquals(501.0, link.getFreespeed(5010.0), EPSILON);
+	}
+
+	/**
+	 * Tests that the values can be read while change events are applied and cleared by another thread.
+	 */
+	public void testReadWhileApplyingEvents() throws InterruptedException {
+		for (LinkFactory lf : linkFactories(15 * 60, 30 * 3600)) {
+			final Network network = NetworkUtils.createNetwork();
+			NetworkFactory nf = network.getFactory();
+			nf.setLinkFactory(lf);
+			((NetworkImpl)network).setFactory(nf);
+
+			Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord((double) 0, (double) 0));
+			Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord((double) 100, (double) 0));
+			final TimeVariantLinkImpl link = (TimeVariantLinkImpl)NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), node1, node2, (double) 100, (double) 10, (double) 3600, (double) 1 );
+			assertEquals(10.0, link.getFreespeed(8*3600.0), EPSILON);
+
+			final AtomicBoolean done = new AtomicBoolean(false);
+			Thread writer = new Thread(() -> {
+				for (int i = 0; i < 20000; i++) {
+					NetworkChangeEvent change = new NetworkChangeEvent(7*3600.0);
+					change.addLink(link);
+					change.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 20));
+					link.applyEvent(change);
+					link.clearEvents();
+				}
+				done.set(true);
+			});
+			writer.start();
+			try {
+				while (!done.get()) {
+					double freespeed = link.getFreespeed(8*3600.0);
+					assertTrue("unexpected freespeed " + freespeed, freespeed == 10.0 || freespeed == 20.0);
+				}
+			} finally {
+				writer.join();
+			}
+		}
+	}
+
+	private static double expectedFreespeed(double time) {
+		return time < 10.0 ? 10.0 : Math.min(1000, Math.floor(time / 10.0));
+	}
+
     static LinkFactory[] linkFactories(int interval, int maxTime)
     {
         return new LinkFactory[] {
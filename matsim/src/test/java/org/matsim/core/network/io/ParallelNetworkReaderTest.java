@@ -0,0 +1,209 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelNetworkReaderTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Compares networks read by the {@link ParallelNetworkReader} with those read by the {@link MatsimNetworkReader}.
+ * The chunks are kept small, so that the nodes and links are spread over many chunks.
+ */
+public class ParallelNetworkReaderTest {
+
+	private static final int THREADS = 4;
+	private static final int ELEMENTS_PER_CHUNK = 3;
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameNetworkAsSequentialReader() {
+		String filename = this.utils.getOutputDirectory() + "network.xml";
+		Network network = createNetwork(20);
+		network.setCapacityPeriod(7200.0);
+		network.setEffectiveCellSize(8.0);
+		network.setEffectiveLaneWidth(3.5);
+		network.getAttributes().putAttribute("name", "grid");
+		new NetworkWriter(network).write(filename);
+
+		Network sequential = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(sequential).readFile(filename);
+		Network parallel = NetworkUtils.createNetwork();
+		new ParallelNetworkReader(null, null, parallel, THREADS, ELEMENTS_PER_CHUNK).readFile(filename);
+
+		assertSameNetwork(sequential, parallel);
+		Assert.assertEquals(network.getNodes().size(), parallel.getNodes().size());
+		Assert.assertEquals(network.getLinks().size(), parallel.getLinks().size());
+		Assert.assertEquals(7200.0, parallel.getCapacityPeriod(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(8.0, parallel.getEffectiveCellSize(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(3.5, parallel.getEffectiveLaneWidth(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals("grid", parallel.getAttributes().getAttribute("name"));
+	}
+
+	@Test
+	public void testDefaultsFromDtd() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "network.xml";
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			writer.write("<!DOCTYPE network SYSTEM \"http://www.matsim.org/files/dtd/network_v2.dtd\">\n");
+			writer.write("<network>\n");
+			writer.write("\t<nodes>\n");
+			for (int i = 0; i < 10; i++) {
+				writer.write("\t\t<node id=\"" + i + "\" x=\"" + (100 * i) + "\" y=\"0\" />\n");
+			}
+			writer.write("\t</nodes>\n");
+			writer.write("\t<links>\n");
+			for (int i = 0; i < 9; i++) {
+				writer.write("\t\t<link id=\"" + i + "\" from=\"" + i + "\" to=\"" + (i + 1)
+						+ "\" length=\"100\" freespeed=\"10\" capacity=\"1000\" permlanes=\"1\" />\n");
+			}
+			writer.write("\t</links>\n");
+			writer.write("</network>\n");
+		}
+
+		Network sequential = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(sequential).readFile(filename);
+		Network parallel = NetworkUtils.createNetwork();
+		new ParallelNetworkReader(null, null, parallel, THREADS, ELEMENTS_PER_CHUNK).readFile(filename);
+
+		assertSameNetwork(sequential, parallel);
+		Assert.assertEquals(9, parallel.getLinks().size());
+		Assert.assertEquals(3600.0, parallel.getCapacityPeriod(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(7.5, parallel.getEffectiveCellSize(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(3.75, parallel.getEffectiveLaneWidth(), MatsimTestUtils.EPSILON);
+		for (Link link : parallel.getLinks().values()) {
+			Assert.assertEquals(Collections.singleton("car"), link.getAllowedModes());
+		}
+	}
+
+	@Test
+	public void testCoordinateTransformationFromFile() {
+		String filename = this.utils.getOutputDirectory() + "network.xml";
+		Network network = createNetwork(10);
+		// the input CRS is only known after the network attributes were read, before the first node chunk
+		ProjectionUtils.putCRS(network, "EPSG:3857");
+		new NetworkWriter(network).write(filename);
+
+		Network sequential = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(null, "WGS84", sequential).readFile(filename);
+		Network parallel = NetworkUtils.createNetwork();
+		new ParallelNetworkReader(null, "WGS84", parallel, THREADS, ELEMENTS_PER_CHUNK).readFile(filename);
+
+		assertSameNetwork(sequential, parallel);
+		Assert.assertEquals("WGS84", ProjectionUtils.getCRS(parallel));
+		Node node = parallel.getNodes().get(Id.createNodeId("n9"));
+		Assert.assertNotEquals("no coordinate transformation performed",
+				network.getNodes().get(node.getId()).getCoord().getX(), node.getCoord().getX(), MatsimTestUtils.EPSILON);
+	}
+
+	@Test
+	public void testCoordinateTransformationFromArguments() {
+		String filename = this.utils.getOutputDirectory() + "network.xml";
+		new NetworkWriter(createNetwork(10)).write(filename);
+
+		Network sequential = NetworkUtils.createNetwork();
+		new MatsimNetworkReader("EPSG:3857", "WGS84", sequential).readFile(filename);
+		Network parallel = NetworkUtils.createNetwork();
+		new ParallelNetworkReader("EPSG:3857", "WGS84", parallel, THREADS, ELEMENTS_PER_CHUNK).readFile(filename);
+
+		assertSameNetwork(sequential, parallel);
+		Assert.assertEquals("WGS84", ProjectionUtils.getCRS(parallel));
+	}
+
+	/**
+	 * Creates a chain of nodes with links in both directions. Every second element has attributes, and the
+	 * links have different modes.
+	 */
+	private static Network createNetwork(final int numberOfNodes) {
+		Network network = NetworkUtils.createNetwork();
+		Node previous = null;
+		for (int i = 0; i < numberOfNodes; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.createNodeId("n" + i), new Coord(1000.0 * i, 500.0 * (i % 3)));
+			if (i % 2 == 0) {
+				node.getAttributes().putAttribute("signal", i % 4 == 0);
+			}
+			if (previous != null) {
+				Link forward = NetworkUtils.createAndAddLink(network, Id.createLinkId("l" + i + "f"), previous, node, 1000.0 + i, 10.0 + i, 600.0 * i, 1.0 + i % 3);
+				Link backward = NetworkUtils.createAndAddLink(network, Id.createLinkId("l" + i + "b"), node, previous, 1000.0 + i, 10.0 + i, 600.0 * i, 1.0 + i % 2);
+				forward.setAllowedModes(new HashSet<>(Arrays.asList("car", "bike")));
+				backward.setAllowedModes(Collections.singleton(i % 2 == 0 ? "pt" : "car"));
+				if (i % 2 == 0) {
+					forward.getAttributes().putAttribute("surface", "asphalt");
+					backward.getAttributes().putAttribute("toll", 1.5 * i);
+				}
+			}
+			previous = node;
+		}
+		return network;
+	}
+
+	private static void assertSameNetwork(final Network expected, final Network actual) {
+		Assert.assertEquals(expected.getCapacityPeriod(), actual.getCapacityPeriod(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(expected.getEffectiveCellSize(), actual.getEffectiveCellSize(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(expected.getEffectiveLaneWidth(), actual.getEffectiveLaneWidth(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(expected.getAttributes().toString(), actual.getAttributes().toString());
+
+		Assert.assertEquals(expected.getNodes().size(), actual.getNodes().size());
+		Iterator<? extends Node> actualNodes = actual.getNodes().values().iterator();
+		for (Node expectedNode : expected.getNodes().values()) {
+			Node actualNode = actualNodes.next();
+			Assert.assertEquals("nodes are not in the order of the file", expectedNode.getId(), actualNode.getId());
+			Assert.assertEquals(expectedNode.getCoord(), actualNode.getCoord());
+			Assert.assertEquals(expectedNode.getAttributes().toString(), actualNode.getAttributes().toString());
+		}
+
+		Assert.assertEquals(expected.getLinks().size(), actual.getLinks().size());
+		Iterator<? extends Link> actualLinks = actual.getLinks().values().iterator();
+		for (Link expectedLink : expected.getLinks().values()) {
+			Link actualLink = actualLinks.next();
+			Assert.assertEquals("links are not in the order of the file", expectedLink.getId(), actualLink.getId());
+			Assert.assertSame(actual.getNodes().get(expectedLink.getFromNode().getId()), actualLink.getFromNode());
+			Assert.assertSame(actual.getNodes().get(expectedLink.getToNode().getId()), actualLink.getToNode());
+			Assert.assertTrue(actualLink.getFromNode().getOutLinks().containsKey(actualLink.getId()));
+			Assert.assertTrue(actualLink.getToNode().getInLinks().containsKey(actualLink.getId()));
+			Assert.assertEquals(expectedLink.getLength(), actualLink.getLength(), MatsimTestUtils.EPSILON);
+			Assert.assertEquals(expectedLink.getFreespeed(), actualLink.getFreespeed(), MatsimTestUtils.EPSILON);
+			Assert.assertEquals(expectedLink.getCapacity(), actualLink.getCapacity(), MatsimTestUtils.EPSILON);
+			Assert.assertEquals(expectedLink.getNumberOfLanes(), actualLink.getNumberOfLanes(), MatsimTestUtils.EPSILON);
+			Assert.assertEquals(expectedLink.getAllowedModes(), actualLink.getAllowedModes());
+			Assert.assertEquals(expectedLink.getAttributes().toString(), actualLink.getAttributes().toString());
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+public class CompactPopulationTest {
+
+	private static Plan createPlan(PopulationFactory factory, double score) {
+		Plan plan = factory.createPlan();
+		plan.setScore(score);
+		Activity home = factory.createActivityFromCoord("home", new Coord(1.0, 2.0, 3.0));
+		home.setLinkId(Id.createLinkId("1"));
+		home.setFacilityId(Id.create("f1", ActivityFacility.class));
+		home.setEndTime(7.5 * 3600);
+		plan.addActivity(home);
+
+		Leg car = factory.createLeg("car");
+		car.setDepartureTime(7.5 * 3600);
+		NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"),
+				Arrays.asList(Id.createLinkId("2"), Id.createLinkId("3")), Id.createLinkId("4"));
+		networkRoute.setVehicleId(Id.createVehicleId("v1"));
+		networkRoute.setDistance(1234.0);
+		networkRoute.setTravelTime(600.0);
+		car.setRoute(networkRoute);
+		plan.addLeg(car);
+
+		Activity work = factory.createActivityFromLinkId("work", Id.createLinkId("4"));
+		work.setMaximumDuration(8 * 3600);
+		plan.addActivity(work);
+
+		Leg walk = factory.createLeg("walk");
+		Route genericRoute = RouteUtils.createGenericRouteImpl(Id.createLinkId("4"), Id.createLinkId("1"));
+		genericRoute.setDistance(500.0);
+		walk.setRoute(genericRoute);
+		plan.addLeg(walk);
+
+		plan.addActivity(factory.createActivityFromCoord("home", new Coord(1.0, 2.0)));
+		return plan;
+	}
+
+	@Test
+	public void testPlansAreCompactedAndRestored() {
+		CompactPopulation population = new CompactPopulation(ConfigUtils.createConfig(), null);
+		PopulationFactory factory = population.getFactory();
+		Person person = factory.createPerson(Id.createPersonId("1"));
+		Plan original = createPlan(factory, 12.0);
+		Route genericRoute = ((Leg) original.getPlanElements().get(3)).getRoute();
+		person.addPlan(original);
+		person.addPlan(createPlan(factory, 11.0));
+		population.addPerson(person);
+
+		Assert.assertEquals(2, person.getPlans().size());
+		for (Plan plan : person.getPlans()) {
+			Assert.assertTrue(plan instanceof CompactPlan);
+			Assert.assertTrue(((CompactPlan) plan).isCompacted());
+			Assert.assertSame(person, plan.getPerson());
+		}
+		Plan plan = person.getSelectedPlan();
+		Assert.assertSame(person.getPlans().get(0), plan);
+		Assert.assertEquals(12.0, plan.getScore(), 0.0);
+
+		Assert.assertEquals(5, plan.getPlanElements().size());
+		Assert.assertFalse(((CompactPlan) plan).isCompacted());
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		Assert.assertEquals("home", home.getType());
+		Assert.assertEquals(new Coord(1.0, 2.0, 3.0), home.getCoord());
+		Assert.assertEquals(Id.createLinkId("1"), home.getLinkId());
+		Assert.assertEquals(Id.create("f1", ActivityFacility.class), home.getFacilityId());
+		Assert.assertEquals(7.5 * 3600, home.getEndTime(), 0.0);
+
+		Leg car = (Leg) plan.getPlanElements().get(1);
+		Assert.assertEquals("car", car.getMode());
+		Assert.assertEquals(7.5 * 3600, car.getDepartureTime(), 0.0);
+		NetworkRoute networkRoute = (NetworkRoute) car.getRoute();
+		Assert.assertEquals(Id.createLinkId("1"), networkRoute.getStartLinkId());
+		Assert.assertEquals(Arrays.asList(Id.createLinkId("2"), Id.createLinkId("3")), networkRoute.getLinkIds());
+		Assert.assertEquals(Id.createLinkId("4"), networkRoute.getEndLinkId());
+		Assert.assertEquals(Id.createVehicleId("v1"), networkRoute.getVehicleId());
+		Assert.assertEquals(1234.0, networkRoute.getDistance(), 0.0);
+		Assert.assertEquals(600.0, networkRoute.getTravelTime(), 0.0);
+
+		Activity work = (Activity) plan.getPlanElements().get(2);
+		Assert.assertNull(work.getCoord());
+		Assert.assertNull(work.getFacilityId());
+		Assert.assertEquals(8 * 3600, work.getMaximumDuration(), 0.0);
+
+		Assert.assertSame(genericRoute, ((Leg) plan.getPlanElements().get(3)).getRoute());
+		Assert.assertFalse(((Activity) plan.getPlanElements().get(4)).getCoord().hasZ());
+	}
+
+	@Test
+	public void testCompactKeepsSelectedPlan() {
+		CompactPopulation population = new CompactPopulation(ConfigUtils.createConfig(), null);
+		PopulationFactory factory = population.getFactory();
+		Person person = factory.createPerson(Id.createPersonId("1"));
+		person.addPlan(createPlan(factory, 1.0));
+		population.addPerson(person);
+
+		// as done by the replanning
+		Plan oldPlan = person.getSelectedPlan();
+		Plan newPlan = person.createCopyOfSelectedPlanAndMakeSelected();
+		Activity home = (Activity) newPlan.getPlanElements().get(0);
+		home.setEndTime(8 * 3600);
+		population.compact();
+
+		Assert.assertTrue(((CompactPlan) oldPlan).isCompacted());
+		Plan selectedPlan = person.getSelectedPlan();
+		Assert.assertTrue(selectedPlan instanceof CompactPlan);
+		Assert.assertFalse(((CompactPlan) selectedPlan).isCompacted());
+		Assert.assertSame("the plan elements must not be replaced", home, selectedPlan.getPlanElements().get(0));
+		Assert.assertEquals(2, person.getPlans().size());
+		Assert.assertTrue(person.getPlans().contains(selectedPlan));
+	}
+
+	@Test
+	public void testPlansWithElementAttributesAreNotCompacted() {
+		CompactPopulation population = new CompactPopulation(ConfigUtils.createConfig(), null);
+		PopulationFactory factory = population.getFactory();
+		Person person = factory.createPerson(Id.createPersonId("1"));
+		Plan plan = createPlan(factory, 1.0);
+		plan.getPlanElements().get(1).getAttributes().putAttribute("tolled", true);
+		person.addPlan(plan);
+		population.addPerson(person);
+
+		Assert.assertFalse(((CompactPlan) person.getSelectedPlan()).isCompacted());
+		Assert.assertEquals(true, person.getSelectedPlan().getPlanElements().get(1).getAttributes().getAttribute("tolled"));
+	}
+
+	@Test
+	public void testPlansWithOtherElementTypesAreNotCompacted() {
+		CompactPopulation population = new CompactPopulation(ConfigUtils.createConfig(), null);
+		PopulationFactory factory = population.getFactory();
+		Person person = factory.createPerson(Id.createPersonId("1"));
+		Plan plan = createPlan(factory, 1.0);
+		Activity work = new DelegatingActivity((Activity) plan.getPlanElements().get(2));
+		plan.getPlanElements().set(2, work);
+		person.addPlan(plan);
+		population.addPerson(person);
+		population.compact();
+
+		Assert.assertFalse(((CompactPlan) person.getSelectedPlan()).isCompacted());
+		Assert.assertSame(work, person.getSelectedPlan().getPlanElements().get(2));
+	}
+
+	/**
+	 * An activity implementation other than the core one, as e.g. created by contribs.
+	 */
+	private static final class DelegatingActivity implements Activity {
+		private final Activity delegate;
+
+		DelegatingActivity(Activity delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override public double getEndTime() { return this.delegate.getEndTime(); }
+		@Override public void setEndTime(double seconds) { this.delegate.setEndTime(seconds); }
+		@Override public String getType() { return this.delegate.getType(); }
+		@Override public void setType(String type) { this.delegate.setType(type); }
+		@Override public Coord getCoord() { return this.delegate.getCoord(); }
+		@Override public void setCoord(Coord coord) { this.delegate.setCoord(coord); }
+		@Override public double getStartTime() { return this.delegate.getStartTime(); }
+		@Override public void setStartTime(double seconds) { this.delegate.setStartTime(seconds); }
+		@Override public double getMaximumDuration() { return this.delegate.getMaximumDuration(); }
+		@Override public void setMaximumDuration(double seconds) { this.delegate.setMaximumDuration(seconds); }
+		@Override public Id<Link> getLinkId() { return this.delegate.getLinkId(); }
+		@Override public void setLinkId(Id<Link> id) { this.delegate.setLinkId(id); }
+		@Override public Id<ActivityFacility> getFacilityId() { return this.delegate.getFacilityId(); }
+		@Override public void setFacilityId(Id<ActivityFacility> id) { this.delegate.setFacilityId(id); }
+		@Override public Attributes getAttributes() { return this.delegate.getAttributes(); }
+	}
+
+}
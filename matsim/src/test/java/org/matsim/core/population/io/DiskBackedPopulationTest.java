@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class DiskBackedPopulationTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	private DiskBackedPopulation createPopulation(int numberOfPersons) {
+		DiskBackedPopulation population = new DiskBackedPopulation(ConfigUtils.createConfig(), new File(this.utils.getOutputDirectory()), 3, 2);
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", i);
+			Plan plan = factory.createPlan();
+			plan.setScore(-1.0 * i);
+			Activity home = factory.createActivityFromLinkId("home", Id.createLinkId(i));
+			home.setCoord(new Coord(i, 2 * i));
+			home.setEndTime(7 * 3600);
+			plan.addActivity(home);
+			Leg leg = factory.createLeg("car");
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(i), Collections.singletonList(Id.createLinkId("x")), Id.createLinkId("work")));
+			plan.addLeg(leg);
+			plan.addActivity(factory.createActivityFromLinkId("work", Id.createLinkId("work")));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	@Test
+	public void testPersonsAreWrittenAndReadAgain() {
+		DiskBackedPopulation population = createPopulation(20);
+		population.flush();
+
+		Assert.assertEquals(20, population.getPersons().size());
+		int i = 0;
+		for (Person person : population.getPersons().values()) {
+			Assert.assertEquals("persons must be iterated in the order they were added.", Id.createPersonId(i), person.getId());
+			Assert.assertEquals(i, person.getAttributes().getAttribute("age"));
+			Plan plan = person.getSelectedPlan();
+			Assert.assertEquals(-1.0 * i, plan.getScore(), 0.0);
+			Assert.assertEquals(3, plan.getPlanElements().size());
+			Activity home = (Activity) plan.getPlanElements().get(0);
+			Assert.assertEquals(Id.createLinkId(i), home.getLinkId());
+			Assert.assertEquals(2.0 * i, home.getCoord().getY(), 0.0);
+			Assert.assertEquals(7 * 3600, home.getEndTime(), 0.0);
+			Leg leg = (Leg) plan.getPlanElements().get(1);
+			Assert.assertEquals(Id.createLinkId("work"), leg.getRoute().getEndLinkId());
+			i++;
+		}
+		Assert.assertEquals(20, i);
+		Assert.assertNull(population.getPersons().get(Id.createPersonId("unknown")));
+	}
+
+	@Test
+	public void testChangesSurviveUnloading() {
+		DiskBackedPopulation population = createPopulation(20);
+		population.getPersons().get(Id.createPersonId(1)).getSelectedPlan().setScore(42.0);
+		// load all other chunks, so the one of person 1 must be written to disk in between
+		for (Person person : population.getPersons().values()) {
+			person.getSelectedPlan().setScore(person.getSelectedPlan().getScore() + 1.0);
+		}
+		population.flush();
+
+		Assert.assertEquals(43.0, population.getPersons().get(Id.createPersonId(1)).getSelectedPlan().getScore(), 0.0);
+		Assert.assertEquals(-18.0, population.getPersons().get(Id.createPersonId(19)).getSelectedPlan().getScore(), 0.0);
+	}
+
+	@Test
+	public void testForEachChunk() {
+		DiskBackedPopulation population = createPopulation(20);
+		final List<Person> seen = new ArrayList<>();
+		population.forEachChunk(persons -> {
+			Assert.assertTrue(persons.size() <= 3);
+			// loading other chunks must not drop the chunk that is currently handled
+			for (Person other : population.getPersons().values()) {
+				Assert.assertNotNull(other);
+			}
+			for (Person person : persons) {
+				person.getSelectedPlan().setScore(100.0);
+				seen.add(person);
+			}
+		});
+		Assert.assertEquals(20, seen.size());
+		for (Person person : population.getPersons().values()) {
+			Assert.assertEquals(100.0, person.getSelectedPlan().getScore(), 0.0);
+		}
+	}
+
+	@Test
+	public void testAddAndRemovePerson() {
+		DiskBackedPopulation population = createPopulation(7);
+		Person removed = population.removePerson(Id.createPersonId(4));
+		Assert.assertEquals(Id.createPersonId(4), removed.getId());
+		Assert.assertNull(population.removePerson(Id.createPersonId(4)));
+		Assert.assertEquals(6, population.getPersons().size());
+		Assert.assertFalse(population.getPersons().containsKey(Id.createPersonId(4)));
+
+		population.addPerson(population.getFactory().createPerson(Id.createPersonId(4)));
+		Assert.assertTrue(population.getPersons().containsKey(Id.createPersonId(4)));
+		try {
+			population.addPerson(population.getFactory().createPerson(Id.createPersonId(4)));
+			Assert.fail("expected exception, but got none.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		int count = 0;
+		for (Person person : population.getPersons().values()) {
+			Assert.assertNotNull(person);
+			count++;
+		}
+		Assert.assertEquals(7, count);
+	}
+
+}
@@ -0,0 +1,160 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static Population createPopulation(final int numberOfPersons) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", i % 90);
+			for (int p = 0; p < 2; p++) {
+				Plan plan = factory.createPlan();
+				plan.setScore((double) p);
+				Activity home = factory.createActivityFromCoord("home", new Coord(i, p));
+				home.setEndTime(6 * 3600 + i);
+				plan.addActivity(home);
+				Leg leg = factory.createLeg(p == 0 ? TransportMode.car : TransportMode.walk);
+				// attribute values are written unescaped, so use a value which is valid XML
+				leg.getAttributes().putAttribute("name", "leg " + i + " of plan " + p);
+				plan.addLeg(leg);
+				plan.addActivity(factory.createActivityFromLinkId("work", Id.createLinkId(i % 7)));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(i % 2));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	@Test
+	public void testReadSameAsSequential() {
+		String filename = this.utils.getOutputDirectory() + "population.xml.gz";
+		// more persons than fit into a single chunk
+		new PopulationWriter(createPopulation(2500)).writeV6(filename);
+
+		Scenario expected = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(expected).readFile(filename);
+		Scenario actual = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new ParallelPopulationReader(actual, 4).readFile(filename);
+
+		assertSamePopulation(expected.getPopulation(), actual.getPopulation());
+	}
+
+	@Test
+	public void testFallbackForOtherVersions() {
+		String filename = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(createPopulation(10)).writeV5(filename);
+
+		Scenario expected = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(expected).readFile(filename);
+		Scenario actual = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new ParallelPopulationReader(actual, 2).readFile(filename);
+
+		assertSamePopulation(expected.getPopulation(), actual.getPopulation());
+	}
+
+	@Test
+	public void testReadDeclaredEncoding() throws IOException {
+		String utf8Filename = this.utils.getOutputDirectory() + "population_utf8.xml";
+		String latin1Filename = this.utils.getOutputDirectory() + "population_latin1.xml";
+		Population population = createPopulation(10);
+		for (Person person : population.getPersons().values()) {
+			person.getAttributes().putAttribute("city", "Z\u00fcrich");
+		}
+		new PopulationWriter(population).writeV6(utf8Filename);
+		String xml = new String(Files.readAllBytes(Paths.get(utf8Filename)), StandardCharsets.UTF_8);
+		xml = xml.replace("encoding=\"UTF-8\"", "encoding=\"ISO-8859-1\"");
+		Files.write(Paths.get(latin1Filename), xml.getBytes(StandardCharsets.ISO_8859_1));
+
+		Scenario actual = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new ParallelPopulationReader(actual, 2).readFile(latin1Filename);
+
+		assertSamePopulation(population, actual.getPopulation());
+		for (Person person : actual.getPopulation().getPersons().values()) {
+			Assert.assertEquals("Z\u00fcrich", person.getAttributes().getAttribute("city"));
+		}
+	}
+
+	private static void assertSamePopulation(final Population expected, final Population actual) {
+		Assert.assertEquals(expected.getPersons().size(), actual.getPersons().size());
+		Iterator<? extends Person> actualPersons = actual.getPersons().values().iterator();
+		for (Person person : expected.getPersons().values()) {
+			Person actualPerson = actualPersons.next();
+			Assert.assertEquals("persons are not in the order of the file", person.getId(), actualPerson.getId());
+			Assert.assertEquals(person.getAttributes().getAttribute("age"), actualPerson.getAttributes().getAttribute("age"));
+			Assert.assertEquals(person.getPlans().size(), actualPerson.getPlans().size());
+			Assert.assertEquals(person.getPlans().indexOf(person.getSelectedPlan()), actualPerson.getPlans().indexOf(actualPerson.getSelectedPlan()));
+			for (int p = 0; p < person.getPlans().size(); p++) {
+				Plan plan = person.getPlans().get(p);
+				Plan actualPlan = actualPerson.getPlans().get(p);
+				Assert.assertEquals(plan.getScore(), actualPlan.getScore());
+				Assert.assertEquals(plan.getPlanElements().size(), actualPlan.getPlanElements().size());
+				for (int e = 0; e < plan.getPlanElements().size(); e++) {
+					PlanElement element = plan.getPlanElements().get(e);
+					PlanElement actualElement = actualPlan.getPlanElements().get(e);
+					if (element instanceof Activity) {
+						Activity act = (Activity) element;
+						Activity actualAct = (Activity) actualElement;
+						Assert.assertEquals(act.getType(), actualAct.getType());
+						Assert.assertEquals(act.getCoord(), actualAct.getCoord());
+						Assert.assertEquals(act.getLinkId(), actualAct.getLinkId());
+						Assert.assertEquals(act.getEndTime(), actualAct.getEndTime(), MatsimTestUtils.EPSILON);
+					} else {
+						Leg leg = (Leg) element;
+						Leg actualLeg = (Leg) actualElement;
+						Assert.assertEquals(leg.getMode(), actualLeg.getMode());
+						Assert.assertEquals(leg.getAttributes().getAttribute("name"), actualLeg.getAttributes().getAttribute("name"));
+					}
+				}
+			}
+		}
+	}
+
+}
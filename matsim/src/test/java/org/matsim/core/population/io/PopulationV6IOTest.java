@@ -1,5 +1,14 @@
 package org.matsim.core.population.io;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -10,6 +19,7 @@ import org.matsim.api.core.v01.population.*;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.ParallelCompressingOutputStream;
 import org.matsim.testcases.MatsimTestUtils;
 
 /**
@@ -208,4 +218,89 @@ public class PopulationV6IOTest {
 				population.getAttributes().getAttribute( "type" ) ,
 				readScenario.getPopulation().getAttributes().getAttribute( "type" ) );
 	}
+
+	@Test
+	public void testCompressionThreadsIO() throws IOException, DataFormatException {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		final PopulationFactory factory = population.getFactory();
+		for ( int i = 0 ; i < 20000 ; i++ ) {
+			final Person person = factory.createPerson( Id.createPersonId( i ) );
+			person.getAttributes().putAttribute( "age" , i % 90 );
+			final Plan plan = factory.createPlan();
+			plan.setScore( (double) i );
+			final Activity home = factory.createActivityFromCoord( "home" , new Coord( i , -i ) );
+			home.setEndTime( 6 * 3600 + i );
+			plan.addActivity( home );
+			plan.addLeg( factory.createLeg( "car" ) );
+			plan.addActivity( factory.createActivityFromLinkId( "work" , Id.createLinkId( i % 7 ) ) );
+			person.addPlan( plan );
+			population.addPerson( person );
+		}
+
+		final String file = utils.getOutputDirectory()+"/population.xml.gz";
+		final PopulationWriter writer = new PopulationWriter( population );
+		writer.setCompressionThreads( 2 );
+		writer.writeV6( file );
+
+		final Scenario readScenario = ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		new PopulationReader( readScenario ).readFile( file );
+
+		Assert.assertEquals( "unexpected number of persons" ,
+				population.getPersons().size(),
+				readScenario.getPopulation().getPersons().size() );
+		for ( Person person : population.getPersons().values() ) {
+			final Person readPerson = readScenario.getPopulation().getPersons().get( person.getId() );
+			Assert.assertEquals( person.getAttributes().getAttribute( "age" ) , readPerson.getAttributes().getAttribute( "age" ) );
+			Assert.assertEquals( person.getSelectedPlan().getScore() , readPerson.getSelectedPlan().getScore() );
+			final Activity home = (Activity) person.getSelectedPlan().getPlanElements().get( 0 );
+			final Activity readHome = (Activity) readPerson.getSelectedPlan().getPlanElements().get( 0 );
+			Assert.assertEquals( home.getCoord() , readHome.getCoord() );
+			Assert.assertEquals( home.getEndTime() , readHome.getEndTime() , MatsimTestUtils.EPSILON );
+		}
+
+		// the writer flushes after every person, which must not end the compressed blocks
+		final long uncompressedLength = getUncompressedLength( file );
+		final int members = countGzipMembers( file );
+		Assert.assertTrue( "expected more than one block, got " + members , members > 1 );
+		Assert.assertTrue( "too many gzip members for " + uncompressedLength + " bytes: " + members ,
+				members <= uncompressedLength / ParallelCompressingOutputStream.DEFAULT_BLOCK_SIZE + 1 );
+	}
+
+	private static long getUncompressedLength( final String file ) throws IOException {
+		long length = 0;
+		final byte[] buffer = new byte[ 64 * 1024 ];
+		try ( InputStream in = new GZIPInputStream( Files.newInputStream( new File( file ).toPath() ) ) ) {
+			int n;
+			while ( ( n = in.read( buffer ) ) >= 0 ) {
+				length += n;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Counts the concatenated gzip members, assuming the plain 10 byte header written by {@link java.util.zip.GZIPOutputStream}.
+	 */
+	private static int countGzipMembers( final String file ) throws IOException, DataFormatException {
+		final byte[] data = Files.readAllBytes( new File( file ).toPath() );
+		final byte[] buffer = new byte[ 64 * 1024 ];
+		int members = 0;
+		int offset = 0;
+		while ( offset < data.length ) {
+			Assert.assertEquals( "no gzip header at " + offset , (byte) 0x1f , data[ offset ] );
+			Assert.assertEquals( "no gzip header at " + offset , (byte) 0x8b , data[ offset + 1 ] );
+			final Inflater inflater = new Inflater( true );
+			inflater.setInput( data , offset + 10 , data.length - offset - 10 );
+			while ( !inflater.finished() ) {
+				if ( inflater.inflate( buffer ) == 0 && inflater.needsInput() ) {
+					Assert.fail( "truncated gzip member at " + offset );
+				}
+			}
+			// the remaining input starts with the 8 byte trailer of the member
+			offset = data.length - inflater.getRemaining() + 8;
+			inflater.end();
+			members++;
+		}
+		return members;
+	}
 }
@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	private static final int GRID_SIZE = 15;
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory(2, 3600.0, 30 * 3600.0).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Compares the costs of the paths with the ones found by Dijkstra on a grid with random costs that differ
+	 * between the morning and the rest of the day, i.e. between the time slices.
+	 */
+	public void testCompareWithDijkstra() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId("ch" + x + "_" + y), new Coord(x * 100.0, y * 100.0));
+			}
+		}
+		Random random = new Random(4711);
+		int linkId = 0;
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				// some links are missing, some are one-way only
+				if (x + 1 < GRID_SIZE && random.nextInt(10) > 0) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId("ch" + linkId++), nodes[x][y], nodes[x + 1][y], 50 + random.nextInt(100), 10.0, 1000.0, 1.0);
+					if (random.nextInt(5) > 0) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId("ch" + linkId++), nodes[x + 1][y], nodes[x][y], 50 + random.nextInt(100), 10.0, 1000.0, 1.0);
+					}
+				}
+				if (y + 1 < GRID_SIZE && random.nextInt(10) > 0) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId("ch" + linkId++), nodes[x][y], nodes[x][y + 1], 50 + random.nextInt(100), 10.0, 1000.0, 1.0);
+					if (random.nextInt(5) > 0) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId("ch" + linkId++), nodes[x][y + 1], nodes[x][y], 50 + random.nextInt(100), 10.0, 1000.0, 1.0);
+					}
+				}
+			}
+		}
+		SlicedCosts costs = new SlicedCosts();
+
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, costs, costs);
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory(2, 3600.0, 24 * 3600.0).createPathCalculator(network, costs, costs);
+
+		Node[] allNodes = network.getNodes().values().toArray(new Node[0]);
+		int found = 0;
+		for (int i = 0; i < 500; i++) {
+			Node from = allNodes[random.nextInt(allNodes.length)];
+			Node to = allNodes[random.nextInt(allNodes.length)];
+			double departureTime = random.nextBoolean() ? 100.0 : 8 * 3600.0 + 100.0;
+			Path expected = dijkstra.calcLeastCostPath(from, to, departureTime, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, departureTime, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			found++;
+			assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+			assertEquals(actual.links.size() + 1, actual.nodes.size());
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+		assertTrue(found > 100);
+	}
+
+	/**
+	 * Two disutilities on the same network must not share their hierarchies, as they lead to different paths.
+	 */
+	public void testDifferentDisutilitiesOnSameNetwork() {
+		// a short route 1-2-4 and a long route 1-3-4, the links of the short route are slow
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("chd1"), new Coord(0.0, 0.0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("chd2"), new Coord(100.0, 100.0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId("chd3"), new Coord(100.0, -100.0));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.createNodeId("chd4"), new Coord(200.0, 0.0));
+		Link link12 = NetworkUtils.createAndAddLink(network, Id.createLinkId("chd12"), node1, node2, 100.0, 1.0, 1000.0, 1.0);
+		Link link24 = NetworkUtils.createAndAddLink(network, Id.createLinkId("chd24"), node2, node4, 100.0, 1.0, 1000.0, 1.0);
+		Link link13 = NetworkUtils.createAndAddLink(network, Id.createLinkId("chd13"), node1, node3, 300.0, 30.0, 1000.0, 1.0);
+		Link link34 = NetworkUtils.createAndAddLink(network, Id.createLinkId("chd34"), node3, node4, 300.0, 30.0, 1000.0, 1.0);
+
+		LengthCosts distance = new LengthCosts();
+		FreespeedTravelTimeAndDisutility time = new FreespeedTravelTimeAndDisutility(-6.0, 0.0, 0.0);
+
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(1, 3600.0, 24 * 3600.0);
+		Path shortest = factory.createPathCalculator(network, distance, time).calcLeastCostPath(node1, node4, 0.0, null, null);
+		Path fastest = factory.createPathCalculator(network, time, time).calcLeastCostPath(node1, node4, 0.0, null, null);
+
+		assertEquals(2, shortest.links.size());
+		assertEquals(link12, shortest.links.get(0));
+		assertEquals(link24, shortest.links.get(1));
+		assertEquals(2, fastest.links.size());
+		assertEquals(link13, fastest.links.get(0));
+		assertEquals(link34, fastest.links.get(1));
+	}
+
+	private static class LengthCosts implements TravelDisutility {
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return link.getLength();
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength();
+		}
+	}
+
+	/**
+	 * Costs that are the link length before 7am, and depend on the link id afterwards.
+	 * Every link takes one second, so all test routes stay within their time slice.
+	 */
+	private static class SlicedCosts implements TravelDisutility, TravelTime {
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return 1.0;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			if (time < 7 * 3600) {
+				return link.getLength();
+			}
+			return link.getLength() * (1 + Math.abs(link.getId().toString().hashCode() % 7));
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength();
+		}
+	}
+
+}
@@ -20,8 +20,13 @@
 
 package org.matsim.core.scoring;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
@@ -29,12 +34,16 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
 import org.matsim.testcases.MatsimTestCase;
+import org.matsim.testcases.utils.EventsCollector;
 
 /**
  * @author mrieser
@@ -58,6 +67,46 @@ public class EventsToScoreTest extends MatsimTestCase {
 		assertEquals(3.4, e2s.getAgentScore(person.getId()));
 	}
 
+	/**
+	 * Tests that the scores are the same with and without sharding the scoring functions, also when the
+	 * legs, activities and events are passed to the scoring from different threads.
+	 */
+	public void testScoresIndependentOfShards() {
+		Config config = loadConfig("test/scenarios/equil/config.xml");
+		config.plans().setInputFile("plans100.xml");
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		EventsManager qsimEvents = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		qsimEvents.addHandler(collector);
+		new QSimBuilder(config).useDefaults().build(scenario, qsimEvents).run();
+
+		Map<Id<Person>, Double> expected = calcScores(scenario, collector.getEvents(), 0);
+		assertEquals(100, expected.size());
+		for (int numberOfShards : new int[] { 1, 7 }) {
+			Map<Id<Person>, Double> actual = calcScores(scenario, collector.getEvents(), numberOfShards);
+			assertEquals("different scores with " + numberOfShards + " shards.", expected, actual);
+		}
+	}
+
+	private static Map<Id<Person>, Double> calcScores(Scenario scenario, List<Event> events, int numberOfShards) {
+		scenario.getConfig().planCalcScore().setNumberOfScoringShards(numberOfShards);
+		EventsManager eventsManager = new ParallelEventsManager(false, 3);
+		EventsToScore e2s = EventsToScore.createWithoutScoreUpdating(scenario, new CharyparNagelScoringFunctionFactory(scenario), eventsManager);
+		e2s.beginIteration(0);
+		eventsManager.initProcessing();
+		for (Event event : events) {
+			eventsManager.processEvent(event);
+		}
+		eventsManager.finishProcessing();
+		e2s.finish();
+		Map<Id<Person>, Double> scores = new HashMap<>();
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			scores.put(person.getId(), e2s.getAgentScore(person.getId()));
+		}
+		return scores;
+	}
+
 	public void testMsaAveraging() {
 		Config config = ConfigUtils.createConfig() ;
 		
@@ -175,9 +175,40 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 				aggregator, binSize, endTime, compareFile, false);
 	}
 
+	public final void testTravelTimeCalculator_DenseArray_Optimistic() throws IOException {
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		AbstractTravelTimeAggregator aggregator = new OptimisticTravelTimeAggregator(numSlots, binSize);
+		doTravelTimeCalculatorTest(scenario, new TravelTimeDataArrayFactory(scenario.getNetwork(), numSlots),
+				aggregator, binSize, endTime, compareFile, false, true);
+	}
+
+	public final void testTravelTimeCalculator_DenseArray_Optimistic_LinearInterpolation() throws IOException {
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		String compareFile = getClassInputDirectory() + "link10_ttimes_linearinterpolation.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		AbstractTravelTimeAggregator aggregator = new OptimisticTravelTimeAggregator(numSlots, binSize);
+		aggregator.connectTravelTimeGetter(new LinearInterpolatingTravelTimeGetter(numSlots, binSize));
+		doTravelTimeCalculatorTest(scenario, new TravelTimeDataArrayFactory(scenario.getNetwork(), numSlots),
+				aggregator, binSize, endTime, compareFile, false, true);
+	}
+
 	private final void doTravelTimeCalculatorTest(final MutableScenario scenario, final TravelTimeDataFactory ttDataFactory,
 			final AbstractTravelTimeAggregator aggregator, final int timeBinSize, final int endTime,
 			final String compareFile, final boolean generateNewData) throws IOException {
+		doTravelTimeCalculatorTest(scenario, ttDataFactory, aggregator, timeBinSize, endTime, compareFile, generateNewData, false);
+	}
+
+	private final void doTravelTimeCalculatorTest(final MutableScenario scenario, final TravelTimeDataFactory ttDataFactory,
+			final AbstractTravelTimeAggregator aggregator, final int timeBinSize, final int endTime,
+			final String compareFile, final boolean generateNewData, final boolean useDenseLinkData) throws IOException {
 		String networkFile = getClassInputDirectory() + "link10_network.xml";
 		String eventsFile = getClassInputDirectory() + "link10_events.xml";
 
@@ -194,6 +225,9 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, endTime, scenario.getConfig().travelTimeCalculator());
 		ttcalc.setTravelTimeAggregator(aggregator);
 		ttcalc.setTravelTimeDataFactory(ttDataFactory);
+		if (useDenseLinkData) {
+			ttcalc.useDenseLinkData(network);
+		}
 		events2.addHandler(ttcalc);
 		for (Event e : collector.getEvents()) {
 			events2.processEvent(e);
@@ -284,6 +318,19 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals(freeSpeedTT, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, firstTimeBinStart + 5*timeBinSize + offset, null, null), EPSILON);
 	}
 	
+	public void testIsCheckpointSupported() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		final Node fromNode = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		final Node toNode = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), fromNode, toNode, 1000.0, 100.0, 3600.0, 1.0);
+
+		TravelTimeCalculator ttcalc = TravelTimeCalculator.create(network, scenario.getConfig().travelTimeCalculator());
+		assertTrue(ttcalc.isCheckpointSupported());
+		ttcalc.setTravelTimeDataFactory(linkId -> null);
+		assertFalse(ttcalc.isCheckpointSupported());
+	}
+
 	/**
 	 * Test linear interpolation of aggregated travel times at different positions of a time bin. (Previous tests only test the midpoint of each time bin.)
 	 * 
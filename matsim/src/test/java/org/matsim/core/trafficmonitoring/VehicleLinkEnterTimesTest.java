@@ -0,0 +1,92 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehicleLinkEnterTimesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.vehicles.Vehicle;
+
+public class VehicleLinkEnterTimesTest {
+
+	@Test
+	public void testPutFindRemove() {
+		VehicleLinkEnterTimes enterTimes = new VehicleLinkEnterTimes();
+		Id<Vehicle> vehicle1 = Id.create("1", Vehicle.class);
+		Id<Vehicle> vehicle2 = Id.create("2", Vehicle.class);
+
+		Assert.assertEquals(VehicleLinkEnterTimes.NOT_FOUND, enterTimes.find(vehicle1));
+		enterTimes.put(vehicle1, 10.0, 3);
+		enterTimes.put(vehicle2, 20.0, 4);
+		enterTimes.put(vehicle1, 30.0, 5);
+		Assert.assertEquals(2, enterTimes.size());
+
+		int slot = enterTimes.find(vehicle1);
+		Assert.assertEquals(30.0, enterTimes.getTime(slot), 0.0);
+		Assert.assertEquals(5, enterTimes.getLinkIndex(slot));
+
+		enterTimes.remove(vehicle1);
+		Assert.assertEquals(VehicleLinkEnterTimes.NOT_FOUND, enterTimes.find(vehicle1));
+		Assert.assertEquals(20.0, enterTimes.getTime(enterTimes.find(vehicle2)), 0.0);
+
+		enterTimes.clear();
+		Assert.assertEquals(0, enterTimes.size());
+		Assert.assertEquals(VehicleLinkEnterTimes.NOT_FOUND, enterTimes.find(vehicle2));
+	}
+
+	/**
+	 * Compares many random operations with a HashMap, so that growing and the removal of colliding entries are covered.
+	 */
+	@Test
+	public void testRandomOperations() {
+		VehicleLinkEnterTimes enterTimes = new VehicleLinkEnterTimes();
+		Map<Id<Vehicle>, Double> expected = new HashMap<>();
+		Random random = new Random(4711);
+		for (int i = 0; i < 100000; i++) {
+			Id<Vehicle> vehicleId = Id.create(random.nextInt(5000), Vehicle.class);
+			if (random.nextBoolean()) {
+				enterTimes.put(vehicleId, i, i % 100);
+				expected.put(vehicleId, (double) i);
+			} else {
+				enterTimes.remove(vehicleId);
+				expected.remove(vehicleId);
+			}
+		}
+		Assert.assertEquals(expected.size(), enterTimes.size());
+		for (int i = 0; i < 5000; i++) {
+			Id<Vehicle> vehicleId = Id.create(i, Vehicle.class);
+			int slot = enterTimes.find(vehicleId);
+			Double time = expected.get(vehicleId);
+			if (time == null) {
+				Assert.assertEquals(VehicleLinkEnterTimes.NOT_FOUND, slot);
+			} else {
+				Assert.assertEquals(time, enterTimes.getTime(slot), 0.0);
+				Assert.assertEquals(time.intValue() % 100, enterTimes.getLinkIndex(slot));
+			}
+		}
+	}
+
+}
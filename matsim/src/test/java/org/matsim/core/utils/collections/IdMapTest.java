@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		IdMap<TPerson, String> map = new IdMap<>(TPerson.class);
+		Id<TPerson> id1 = Id.create("1", TPerson.class);
+		Id<TPerson> id2 = Id.create("2", TPerson.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id2, "two"));
+		Assert.assertEquals("one", map.put(id1, "uno"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("uno", map.get(id1));
+		Assert.assertTrue(map.containsKey(id2));
+		Assert.assertFalse(map.containsKey(Id.create("3", TPerson.class)));
+		Assert.assertFalse(map.containsKey("1"));
+
+		Assert.assertEquals("uno", map.remove(id1));
+		Assert.assertNull(map.remove(id1));
+		Assert.assertNull(map.get(id1));
+		Assert.assertEquals(1, map.size());
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertFalse(map.values().iterator().hasNext());
+	}
+
+	/**
+	 * Ids of different types are equal if their strings are, so they must find the same entries as with a HashMap.
+	 */
+	@Test
+	public void testIdOfOtherType() {
+		IdMap<TPerson, String> map = new IdMap<>(TPerson.class);
+		Id<TPerson> personId = Id.create("x", TPerson.class);
+		map.put(personId, "x");
+		Id<TVehicle> vehicleId = Id.create("x", TVehicle.class);
+		Assert.assertEquals("x", map.get(vehicleId));
+		Assert.assertTrue(map.containsKey(vehicleId));
+		Assert.assertEquals("x", map.remove(vehicleId));
+		Assert.assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testInsertionOrder() {
+		IdMap<TPerson, Integer> map = new IdMap<>(TPerson.class);
+		Map<Id<TPerson>, Integer> expected = new LinkedHashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			Id<TPerson> id = Id.create("p" + random.nextInt(1000), TPerson.class);
+			if (random.nextInt(3) == 0) {
+				Assert.assertEquals(expected.remove(id), map.remove(id));
+			} else {
+				Assert.assertEquals(expected.put(id, i), map.put(id, i));
+			}
+		}
+		Assert.assertEquals(expected, map);
+		Assert.assertEquals(expected.keySet().toString(), map.keySet().toString());
+		Assert.assertEquals(expected.values().toString(), map.values().toString());
+		Assert.assertEquals(expected.entrySet().toString(), map.entrySet().toString());
+	}
+
+	@Test
+	public void testIteratorRemove() {
+		IdMap<TPerson, Integer> map = new IdMap<>(TPerson.class);
+		for (int i = 0; i < 10; i++) {
+			map.put(Id.create("r" + i, TPerson.class), i);
+		}
+		Iterator<Integer> iterator = map.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() % 2 == 0) {
+				iterator.remove();
+			}
+		}
+		Assert.assertEquals(5, map.size());
+		Assert.assertEquals("[1, 3, 5, 7, 9]", map.values().toString());
+	}
+
+	@Test
+	public void testIdSet() {
+		IdSet<TPerson> set = new IdSet<>(TPerson.class);
+		Id<TPerson> id1 = Id.create("s1", TPerson.class);
+		Id<TPerson> id2 = Id.create("s2", TPerson.class);
+		Assert.assertTrue(set.add(id2));
+		Assert.assertTrue(set.add(id1));
+		Assert.assertFalse(set.add(id2));
+		Assert.assertEquals(2, set.size());
+		Assert.assertTrue(set.contains(id1));
+		Assert.assertEquals("[s2, s1]", set.toString());
+		Assert.assertTrue(set.remove(id2));
+		Assert.assertFalse(set.contains(id2));
+		Assert.assertEquals(1, set.size());
+	}
+
+	private static class TPerson {}
+	private static class TVehicle {}
+
+}
@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PackedKdTreeTest {
+
+	@Test
+	public void testEmptyTree() {
+		PackedKdTree<String> tree = new PackedKdTree.Builder<String>().build();
+		Assert.assertEquals(0, tree.size());
+		Assert.assertNull(tree.getClosest(0.0, 0.0));
+		Assert.assertEquals(0, tree.getDisk(0.0, 0.0, 100.0).size());
+		Assert.assertEquals(0, tree.getKNearest(0.0, 0.0, 3).size());
+	}
+
+	@Test
+	public void testGetKNearest() {
+		PackedKdTree.Builder<String> builder = new PackedKdTree.Builder<>();
+		builder.put(10.0, 10.0, "10.0, 10.0");
+		builder.put(15.0, 15.0, "15.0, 15.0");
+		builder.put(-15.0, 0.0, "-15.0, 0.0");
+		builder.put(20.0, 10.0, "20.0, 10.0");
+		builder.put(100.0, 0.0, "100.0, 0.0");
+		PackedKdTree<String> tree = builder.build();
+
+		String[] values = new String[3];
+		double[] distances = new double[3];
+		Assert.assertEquals(3, tree.getKNearest(12.0, 10.0, 3, values, distances));
+		Assert.assertEquals("10.0, 10.0", values[0]);
+		Assert.assertEquals("15.0, 15.0", values[1]);
+		Assert.assertEquals("20.0, 10.0", values[2]);
+		Assert.assertEquals(2.0, distances[0], 1e-10);
+		Assert.assertEquals(Math.sqrt(34.0), distances[1], 1e-10);
+		Assert.assertEquals(8.0, distances[2], 1e-10);
+
+		Assert.assertEquals(5, tree.getKNearest(12.0, 10.0, 10).size());
+		Assert.assertEquals("100.0, 0.0", tree.getKNearest(12.0, 10.0, 10).get(4));
+	}
+
+	/**
+	 * Compares all queries with the results of a {@link QuadTree} holding the same entries.
+	 */
+	@Test
+	public void testSameResultsAsQuadTree() {
+		Random random = new Random(4711);
+		QuadTree<Integer> quadTree = new QuadTree<>(0.0, 0.0, 1000.0, 1000.0);
+		double[] xs = new double[5000];
+		double[] ys = new double[5000];
+		for (int i = 0; i < xs.length; i++) {
+			// rounded, so there are several entries at the same location and on the borders of the queries
+			xs[i] = Math.round(random.nextDouble() * 1000.0);
+			ys[i] = Math.round(random.nextDouble() * 1000.0);
+			quadTree.put(xs[i], ys[i], i);
+		}
+		PackedKdTree<Integer> tree = new PackedKdTree.Builder<Integer>().putAll(quadTree).build();
+		Assert.assertEquals(quadTree.size(), tree.size());
+
+		for (int q = 0; q < 200; q++) {
+			double x = Math.round(random.nextDouble() * 1200.0 - 100.0);
+			double y = Math.round(random.nextDouble() * 1200.0 - 100.0);
+			double r = Math.round(random.nextDouble() * 200.0);
+
+			int expected = quadTree.getClosest(x, y);
+			int actual = tree.getClosest(x, y);
+			Assert.assertEquals(Math.hypot(xs[expected] - x, ys[expected] - y), Math.hypot(xs[actual] - x, ys[actual] - y), 0.0);
+
+			assertSameValues(quadTree.getDisk(x, y, r), tree.getDisk(x, y, r));
+			assertSameValues(quadTree.getRing(x, y, r / 2, r), tree.getRing(x, y, r / 2, r));
+			assertSameValues(quadTree.getElliptical(x, y, x + r, y, 1.5 * r), tree.getElliptical(x, y, x + r, y, 1.5 * r));
+			assertSameValues(quadTree.getRectangle(x, y, x + r, y + r, new ArrayList<Integer>()),
+					tree.getRectangle(x, y, x + r, y + r, new ArrayList<Integer>()));
+			Assert.assertEquals(quadTree.execute(x, y, x + r, y + r, new CountingExecutor()), tree.execute(x, y, x + r, y + r, new CountingExecutor()));
+		}
+	}
+
+	private static void assertSameValues(Collection<Integer> expected, Collection<Integer> actual) {
+		List<Integer> expectedList = new ArrayList<>(expected);
+		List<Integer> actualList = new ArrayList<>(actual);
+		Collections.sort(expectedList);
+		Collections.sort(actualList);
+		Assert.assertEquals(expectedList, actualList);
+	}
+
+	private static class CountingExecutor implements QuadTree.Executor<Integer> {
+		int count = 0;
+
+		@Override
+		public void execute(double x, double y, Integer object) {
+			this.count++;
+		}
+	}
+
+}
@@ -242,6 +242,64 @@ public class IOUtilsTest {
 		Assert.assertTrue("compressed file should be equal 62 bytes, but is " + file.length(), file.length() == 62);
 	}
 
+	@Test
+	public void testGetBufferedWriter_zstd() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.zst";
+		BufferedWriter writer = IOUtils.getBufferedWriter(filename);
+		writer.write("12345678901234567890123456789012345678901234567890");
+		writer.close();
+		File file = new File(filename);
+		Assert.assertTrue("compressed file should be less than 50 bytes, but is " + file.length(), file.length() < 50);
+		BufferedReader reader = IOUtils.getBufferedReader(filename);
+		Assert.assertEquals("12345678901234567890123456789012345678901234567890", reader.readLine());
+		reader.close();
+	}
+
+	@Test
+	public void testGetBufferedWriter_parallelGzip() throws IOException {
+		assertParallelCompression(this.utils.getOutputDirectory() + "test.txt.gz");
+	}
+
+	@Test
+	public void testGetBufferedWriter_parallelZstd() throws IOException {
+		assertParallelCompression(this.utils.getOutputDirectory() + "test.txt.zst");
+	}
+
+	@Test
+	public void testGetBufferedWriter_parallelFlush() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.gz";
+		BufferedWriter writer = IOUtils.getBufferedWriter(filename, 3);
+		writer.write("line 1\n");
+		writer.flush();
+		// the flushed data must be in the file before the writer is closed
+		BufferedReader reader = IOUtils.getBufferedReader(filename);
+		Assert.assertEquals("line 1", reader.readLine());
+		reader.close();
+		writer.write("line 2\n");
+		writer.close();
+		reader = IOUtils.getBufferedReader(filename);
+		Assert.assertEquals("line 1", reader.readLine());
+		Assert.assertEquals("line 2", reader.readLine());
+		Assert.assertNull(reader.readLine());
+		reader.close();
+	}
+
+	private static void assertParallelCompression(final String filename) throws IOException {
+		// more than one block of ParallelCompressingOutputStream
+		int lines = 3 * ParallelCompressingOutputStream.DEFAULT_BLOCK_SIZE / 20;
+		BufferedWriter writer = IOUtils.getBufferedWriter(filename, 3);
+		for (int i = 0; i < lines; i++) {
+			writer.write("line " + i + "\n");
+		}
+		writer.close();
+		BufferedReader reader = IOUtils.getBufferedReader(filename);
+		for (int i = 0; i < lines; i++) {
+			Assert.assertEquals("line " + i, reader.readLine());
+		}
+		Assert.assertNull(reader.readLine());
+		reader.close();
+	}
+
 	@Test
 	public void testGetInputStream_UTFwithoutBOM() throws IOException {
 		String filename = utils.getOutputDirectory() + "test.txt";
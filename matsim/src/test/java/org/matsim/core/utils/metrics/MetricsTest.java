@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.metrics;
+
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsTest {
+
+	@After
+	public void tearDown() {
+		Metrics.setEnabled(false);
+		Metrics.reset();
+	}
+
+	@Test
+	public void testDisabled() {
+		Counter counter = Metrics.counter("test.disabled.counter");
+		Timer timer = Metrics.timer("test.disabled.timer");
+		counter.increment();
+		timer.stop(timer.start());
+		timer.record(1000);
+		Assert.assertEquals(0, counter.getCount());
+		Assert.assertEquals(0, timer.getCount());
+	}
+
+	@Test
+	public void testSameInstance() {
+		Assert.assertSame(Metrics.counter("test.same"), Metrics.counter("test.same"));
+		try {
+			Metrics.timer("test.same");
+			Assert.fail("expected an exception, the name is registered as counter");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testHistogramBuckets() {
+		long previousBound = -1;
+		for (long value = 0; value < 100000; value++) {
+			int bucket = Histogram.getBucket(value);
+			long upperBound = Histogram.getUpperBound(bucket);
+			Assert.assertTrue(value <= upperBound);
+			Assert.assertTrue(upperBound <= value * 1.25 + 1);
+			if (bucket > 0) {
+				Assert.assertTrue(Histogram.getUpperBound(bucket - 1) < value);
+			}
+			Assert.assertTrue(upperBound >= previousBound);
+			previousBound = upperBound;
+		}
+		Assert.assertEquals(Long.MAX_VALUE, Histogram.getUpperBound(Histogram.getBucket(Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void testHistogramValues() {
+		Metrics.setEnabled(true);
+		Histogram histogram = Metrics.histogram("test.histogram");
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		Map<String, Double> values = histogram.getValues();
+		Assert.assertEquals(1000.0, values.get("count"), 0.0);
+		Assert.assertEquals(500500.0, values.get("sum"), 0.0);
+		Assert.assertEquals(500.5, values.get("mean"), 1e-9);
+		Assert.assertEquals(1000.0, values.get("max"), 0.0);
+		Assert.assertTrue(values.get("p50") >= 500 && values.get("p50") <= 625);
+		Assert.assertTrue(values.get("p99") >= 990 && values.get("p99") <= 1000);
+
+		Metrics.reset();
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(0, histogram.getQuantile(0.5));
+	}
+
+	@Test
+	public void testPrometheusText() {
+		Metrics.setEnabled(true);
+		Metrics.counter("test.prometheus.counter").add(42);
+		Metrics.timer("test.prometheus.timer").record(2000000);
+		String text = PrometheusEndpoint.getText();
+		Assert.assertTrue(text.contains("# TYPE matsim_test_prometheus_counter counter\nmatsim_test_prometheus_counter 42\n"));
+		Assert.assertTrue(text.contains("matsim_test_prometheus_timer_count 1\n"));
+		Assert.assertTrue(text.contains("matsim_test_prometheus_timer_max_ms 2\n"));
+	}
+
+}
@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.testcases.MatsimTestCase;
+
+public class RaptorTransitRouterTest {
+
+	@Test
+	public void testTreeMatchesSingleQueries() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		FakeFacility fromFacility = new FakeFacility(new Coord(3800, 5100));
+		double departureTime = 6.0 * 3600;
+
+		TransitRouterTree tree = router.calcTree(fromFacility, departureTime, null);
+		Assert.assertEquals(departureTime, tree.getDepartureTime(), 0.0);
+		Coord[] toCoords = { new Coord(16100, 5050), new Coord(16100, 10050), new Coord(28100, 4950), new Coord(4100, 5050) };
+		for (Coord toCoord : toCoords) {
+			List<Leg> expected = router.calcRoute(fromFacility, new FakeFacility(toCoord), departureTime, null);
+			List<Leg> actual = tree.calcRoute(new FakeFacility(toCoord));
+			Assert.assertEquals("different number of legs to " + toCoord, expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				Assert.assertEquals(expected.get(i).getMode(), actual.get(i).getMode());
+			}
+			Assert.assertEquals("different travel time to " + toCoord, calcTravelTime(expected), calcTravelTime(actual), MatsimTestCase.EPSILON);
+		}
+	}
+
+	@Test
+	public void testRangeQuery() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		// exactly at the stops A and B, so there is no access and egress walk time
+		FakeFacility fromFacility = new FakeFacility(new Coord(4000, 5002));
+		FakeFacility toFacility = new FakeFacility(new Coord(8000, 5002));
+
+		List<ProfileRoute> routes = router.calcRoutes(fromFacility, toFacility, 5.0 * 3600, 5.0 * 3600 + 50.0 * 60, null);
+		// departures at *:06, *:26 and *:46, and the end of the window which has to wait for 06:06
+		Assert.assertEquals(4, routes.size());
+		double[] departureTimes = { 5.0 * 3600 + 6.0 * 60, 5.0 * 3600 + 26.0 * 60, 5.0 * 3600 + 46.0 * 60, 5.0 * 3600 + 50.0 * 60 };
+		double[] arrivalTimes = { 5.0 * 3600 + 13.0 * 60, 5.0 * 3600 + 33.0 * 60, 5.0 * 3600 + 53.0 * 60, 6.0 * 3600 + 13.0 * 60 };
+		for (int i = 0; i < routes.size(); i++) {
+			ProfileRoute route = routes.get(i);
+			Assert.assertEquals(departureTimes[i], route.getDepartureTime(), MatsimTestCase.EPSILON);
+			Assert.assertEquals(arrivalTimes[i], route.getArrivalTime(), MatsimTestCase.EPSILON);
+			Assert.assertEquals(3, route.getLegs().size());
+			Assert.assertEquals(TransportMode.pt, route.getLegs().get(1).getMode());
+		}
+	}
+
+	@Test
+	public void testRangeQuery_dominatedRoutesRemoved() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		FakeFacility fromFacility = new FakeFacility(new Coord(3800, 5100));
+		FakeFacility toFacility = new FakeFacility(new Coord(28100, 4950));
+
+		List<ProfileRoute> routes = router.calcRoutes(fromFacility, toFacility, 5.0 * 3600, 7.0 * 3600, null);
+		Assert.assertFalse(routes.isEmpty());
+		for (int i = 1; i < routes.size(); i++) {
+			Assert.assertTrue(routes.get(i - 1).getDepartureTime() < routes.get(i).getDepartureTime());
+			Assert.assertTrue(routes.get(i - 1).getArrivalTime() < routes.get(i).getArrivalTime());
+		}
+	}
+
+	private static double calcTravelTime(final List<Leg> legs) {
+		double travelTime = 0.0;
+		for (Leg leg : legs) {
+			travelTime += leg.getTravelTime();
+		}
+		return travelTime;
+	}
+
+}
@@ -78,6 +78,7 @@ public class TransitRouterImplTest {
 	public static Collection<Object> createRouterTypes() {
 		Object[] router = new Object [] { 
 				"standard"
+				,"raptor"
 //				,TransitRouterType.raptor
 		};
 		return Arrays.asList(router);
@@ -130,6 +131,9 @@ public class TransitRouterImplTest {
 		case "standard":
 			router = new TransitRouterImpl(trConfig, schedule);
 			break;
+		case "raptor":
+			router = new RaptorTransitRouter(trConfig, schedule);
+			break;
 		default:
 			break;
 		}
@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ParallelSnapshotWriterTest {
+
+	@Test
+	public void testSnapshotsArePassedOnInOrder() {
+		RecordingWriter recorder = new RecordingWriter();
+		ParallelSnapshotWriter writer = new ParallelSnapshotWriter(recorder, 1);
+		AgentSnapshotInfoFactory factory = new AgentSnapshotInfoFactory(new SnapshotLinkWidthCalculator());
+
+		for (int time = 0; time < 100; time++) {
+			writer.beginSnapshot(time);
+			for (int i = 0; i < time % 5; i++) {
+				writer.addAgent(factory.createAgentSnapshotInfo(Id.create(i, Person.class), time, i, 0.0, 0.0));
+			}
+			writer.endSnapshot();
+		}
+		writer.finish();
+
+		Assert.assertTrue(recorder.finished);
+		Assert.assertNotSame(Thread.currentThread(), recorder.thread);
+		Assert.assertEquals(100, recorder.times.size());
+		Assert.assertEquals(200, recorder.positions.size());
+		for (int time = 0; time < 100; time++) {
+			Assert.assertEquals(time, recorder.times.get(time), 0.0);
+		}
+		Assert.assertEquals(Id.create(0, Person.class), recorder.positions.get(0).getId());
+		Assert.assertEquals(1.0, recorder.positions.get(0).getEasting(), 0.0);
+	}
+
+	@Test
+	public void testExceptionIsRethrown() {
+		RecordingWriter recorder = new RecordingWriter();
+		recorder.failAt = 3;
+		ParallelSnapshotWriter writer = new ParallelSnapshotWriter(recorder, 1);
+
+		try {
+			for (int time = 0; time < 100; time++) {
+				writer.beginSnapshot(time);
+				writer.endSnapshot();
+			}
+			writer.finish();
+			Assert.fail("expected exception.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		Assert.assertFalse(recorder.finished);
+	}
+
+	private static class RecordingWriter implements SnapshotWriter {
+		private final List<Double> times = new ArrayList<>();
+		private final List<AgentSnapshotInfo> positions = new ArrayList<>();
+		private boolean finished = false;
+		private int failAt = -1;
+		private Thread thread = null;
+
+		@Override
+		public void beginSnapshot(double time) {
+			this.thread = Thread.currentThread();
+			if (this.times.size() == this.failAt) {
+				throw new IllegalStateException("failing on purpose");
+			}
+			this.times.add(time);
+		}
+
+		@Override
+		public void endSnapshot() {
+		}
+
+		@Override
+		public void addAgent(AgentSnapshotInfo position) {
+			this.positions.add(position);
+		}
+
+		@Override
+		public void finish() {
+			this.finished = true;
+		}
+	}
+}
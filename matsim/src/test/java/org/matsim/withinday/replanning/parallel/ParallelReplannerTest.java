@@ -0,0 +1,293 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelReplannerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.withinday.replanning.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.facilities.Facility;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringLegReplanner;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayDuringLegReplannerFactory;
+import org.matsim.withinday.replanning.replanners.tools.ReplanningTask;
+
+public class ParallelReplannerTest {
+
+	private static final int THREADS = 4;
+
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() {
+		this.pool = ParallelReplanner.createPool(THREADS);
+	}
+
+	@After
+	public void tearDown() {
+		this.pool.shutdownNow();
+	}
+
+	@Test
+	public void testEveryAgentReplannedOnce() {
+		final Map<Id<Person>, AtomicInteger> replanned = new ConcurrentHashMap<>();
+		TestReplannerFactory factory = new TestReplannerFactory(agent -> {
+			replanned.computeIfAbsent(agent.getId(), id -> new AtomicInteger()).incrementAndGet();
+			return true;
+		});
+		ParallelDuringLegReplanner replanner = new ParallelDuringLegReplanner(this.pool, null);
+		replanner.addWithinDayReplannerFactory(factory);
+		replanner.onPrepareSim();
+
+		// more tasks than the batches of all threads together, and not a multiple of the batch size
+		int numberOfAgents = 2 * THREADS * ParallelReplanner.BATCHES_PER_THREAD * ParallelReplanner.MAX_BATCH_SIZE + 17;
+		for (TestAgent agent : createAgents("a", numberOfAgents)) {
+			replanner.addReplanningTask(new ReplanningTask(agent, factory.getId()));
+		}
+		replanner.run(3600.0);
+
+		Assert.assertEquals("not all agents were replanned", numberOfAgents, replanned.size());
+		for (Map.Entry<Id<Person>, AtomicInteger> entry : replanned.entrySet()) {
+			Assert.assertEquals("agent " + entry.getKey() + " was not replanned exactly once", 1, entry.getValue().get());
+		}
+
+		// the tasks are done, so the next time step replans nobody
+		replanner.run(3601.0);
+		for (AtomicInteger count : replanned.values()) {
+			Assert.assertEquals(1, count.get());
+		}
+		replanner.afterSim();
+	}
+
+	@Test
+	public void testExceptionReachesRun() {
+		final Id<Person> failingAgentId = Id.createPersonId("b137");
+		final AtomicBoolean runReturned = new AtomicBoolean(false);
+		final AtomicInteger replannedAfterRun = new AtomicInteger();
+		TestReplannerFactory factory = new TestReplannerFactory(agent -> {
+			if (runReturned.get()) {
+				replannedAfterRun.incrementAndGet();
+			}
+			if (agent.getId().equals(failingAgentId)) {
+				throw new IllegalStateException("replanning " + failingAgentId + " failed");
+			}
+			return true;
+		});
+		ParallelDuringLegReplanner replanner = new ParallelDuringLegReplanner(this.pool, null);
+		replanner.addWithinDayReplannerFactory(factory);
+		replanner.onPrepareSim();
+		for (TestAgent agent : createAgents("b", 1000)) {
+			replanner.addReplanningTask(new ReplanningTask(agent, factory.getId()));
+		}
+
+		try {
+			replanner.run(3600.0);
+			Assert.fail("expected the exception of the replanner");
+		} catch (RuntimeException e) {
+			runReturned.set(true);
+			// the exception may be rethrown as a copy, with the original one as cause
+			Throwable cause = e;
+			while (cause != null && !("replanning " + failingAgentId + " failed").equals(cause.getMessage())) {
+				cause = cause.getCause();
+			}
+			Assert.assertNotNull("the exception of the replanner is not the cause", cause);
+			Assert.assertTrue(cause instanceof IllegalStateException);
+		}
+
+		// the other batches must be done when run(...) throws
+		Assert.assertTrue(this.pool.awaitQuiescence(10, TimeUnit.SECONDS));
+		Assert.assertEquals("agents were replanned after run(...) returned", 0, replannedAfterRun.get());
+
+		// the failed tasks are dropped, they must not be replanned again in the next time step
+		replanner.run(3601.0);
+		Assert.assertEquals(0, replannedAfterRun.get());
+		replanner.afterSim();
+	}
+
+	@Test
+	public void testReplannersRunOneAfterAnother() {
+		final AtomicInteger sequence = new AtomicInteger();
+		final AtomicInteger[] active = { new AtomicInteger(), new AtomicInteger() };
+		final AtomicInteger overlaps = new AtomicInteger();
+		final List<List<Integer>> sequenceNumbers = new ArrayList<>();
+		List<TestReplannerFactory> factories = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			final int self = i;
+			final int other = 1 - i;
+			final List<Integer> numbers = new ArrayList<>();
+			sequenceNumbers.add(numbers);
+			factories.add(new TestReplannerFactory(agent -> {
+				active[self].incrementAndGet();
+				if (active[other].get() > 0) {
+					overlaps.incrementAndGet();
+				}
+				synchronized (numbers) {
+					numbers.add(sequence.getAndIncrement());
+				}
+				Thread.yield();
+				active[self].decrementAndGet();
+				return true;
+			}));
+		}
+		ParallelDuringLegReplanner replanner = new ParallelDuringLegReplanner(this.pool, null);
+		for (TestReplannerFactory factory : factories) {
+			replanner.addWithinDayReplannerFactory(factory);
+		}
+		replanner.onPrepareSim();
+
+		// the tasks of both replanners are interleaved
+		List<TestAgent> agents = createAgents("c", 2000);
+		for (int i = 0; i < agents.size(); i++) {
+			replanner.addReplanningTask(new ReplanningTask(agents.get(i), factories.get(i % 2).getId()));
+		}
+		replanner.run(3600.0);
+		replanner.afterSim();
+
+		Assert.assertEquals("replanners with different ids ran at the same time", 0, overlaps.get());
+		Assert.assertEquals(1000, sequenceNumbers.get(0).size());
+		Assert.assertEquals(1000, sequenceNumbers.get(1).size());
+		// the replanners run in the order of their ids
+		int first = factories.get(0).getId().compareTo(factories.get(1).getId()) < 0 ? 0 : 1;
+		int lastOfFirst = sequenceNumbers.get(first).stream().mapToInt(Integer::intValue).max().getAsInt();
+		int firstOfSecond = sequenceNumbers.get(1 - first).stream().mapToInt(Integer::intValue).min().getAsInt();
+		Assert.assertTrue("the second replanner started before the first one was done", lastOfFirst < firstOfSecond);
+	}
+
+	private static List<TestAgent> createAgents(final String prefix, final int numberOfAgents) {
+		List<TestAgent> agents = new ArrayList<>();
+		for (int i = 0; i < numberOfAgents; i++) {
+			agents.add(new TestAgent(Id.createPersonId(prefix + i)));
+		}
+		return agents;
+	}
+
+	private static final class TestReplannerFactory extends WithinDayDuringLegReplannerFactory {
+
+		private final Predicate<MobsimAgent> replanning;
+
+		TestReplannerFactory(final Predicate<MobsimAgent> replanning) {
+			super(null);
+			this.replanning = replanning;
+		}
+
+		@Override
+		public WithinDayDuringLegReplanner createReplanner() {
+			return new WithinDayDuringLegReplanner(getId(), null, null) {
+				@Override
+				public boolean doReplanning(final MobsimAgent withinDayAgent) {
+					return TestReplannerFactory.this.replanning.test(withinDayAgent);
+				}
+			};
+		}
+
+	}
+
+	private static final class TestAgent implements MobsimAgent {
+
+		private final Id<Person> id;
+
+		TestAgent(final Id<Person> id) {
+			this.id = id;
+		}
+
+		@Override
+		public Id<Person> getId() {
+			return this.id;
+		}
+
+		@Override
+		public Id<Link> getCurrentLinkId() {
+			return null;
+		}
+
+		@Override
+		public Id<Link> getDestinationLinkId() {
+			return null;
+		}
+
+		@Override
+		public String getMode() {
+			return null;
+		}
+
+		@Override
+		public State getState() {
+			return State.LEG;
+		}
+
+		@Override
+		public double getActivityEndTime() {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		@Override
+		public void endActivityAndComputeNextState(final double now) {
+		}
+
+		@Override
+		public void endLegAndComputeNextState(final double now) {
+		}
+
+		@Override
+		public void setStateToAbort(final double now) {
+		}
+
+		@Override
+		public Double getExpectedTravelTime() {
+			return null;
+		}
+
+		@Override
+		public Double getExpectedTravelDistance() {
+			return null;
+		}
+
+		@Override
+		public void notifyArrivalOnLinkByNonNetworkMode(final Id<Link> linkId) {
+		}
+
+		@Override
+		public Facility getCurrentFacility() {
+			return null;
+		}
+
+		@Override
+		public Facility getDestinationFacility() {
+			return null;
+		}
+
+	}
+
+}
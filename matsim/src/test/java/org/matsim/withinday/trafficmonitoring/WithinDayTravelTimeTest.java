@@ -25,10 +25,14 @@ import java.util.Random;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.QSimConfigGroup;
@@ -40,6 +44,7 @@ import org.matsim.core.controler.listener.StartupListener;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.*;
@@ -51,6 +56,7 @@ import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestCase;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
 
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
@@ -153,6 +159,70 @@ public class WithinDayTravelTimeTest extends MatsimTestCase {
 		controler.run();
 	}
 
+	@Test
+	public void testSetSmoothingFactor() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		WithinDayTravelTime travelTime = new WithinDayTravelTime(scenario, null);
+		assertEquals(1.0, travelTime.getSmoothingFactor(), 0.0);
+		
+		travelTime.setSmoothingFactor(0.25);
+		assertEquals(0.25, travelTime.getSmoothingFactor(), 0.0);
+		
+		try {
+			travelTime.setSmoothingFactor(0.0);
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			travelTime.setSmoothingFactor(1.5);
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(0.25, travelTime.getSmoothingFactor(), 0.0);
+	}
+
+	@Test
+	public void testSmoothingAndSnapshotVersion() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("s1"), new Coord(0.0, 0.0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("s2"), new Coord(100.0, 0.0));
+		Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId("s1"), node1, node2, 100.0, 10.0, 3600.0, 1.0);
+		Id<Vehicle> vehicleId = Id.createVehicleId("s1");
+
+		WithinDayTravelTime travelTime = new WithinDayTravelTime(scenario, null);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<>(null));
+		assertEquals(10.0, travelTime.getLinkTravelTime(link, 0.0, null, null), 0.0);
+		assertEquals(0, travelTime.getSnapshotVersion());
+
+		// set after the mobsim was initialized, must still be used by the update threads
+		travelTime.setSmoothingFactor(0.5);
+
+		// a single trip of 30 seconds
+		travelTime.handleEvent(new LinkEnterEvent(0.0, vehicleId, link.getId()));
+		travelTime.handleEvent(new LinkLeaveEvent(30.0, vehicleId, link.getId()));
+
+		// 0.5 * 30.0 (mean of the trips) + 0.5 * 10.0 (previous estimate)
+		travelTime.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, 31.0));
+		assertEquals(20.0, travelTime.getLinkTravelTime(link, 31.0, null, null), 1e-10);
+		assertEquals(1, travelTime.getSnapshotVersion());
+
+		// the trip is still in the time bin, 0.5 * 30.0 + 0.5 * 20.0
+		travelTime.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, 32.0));
+		assertEquals(25.0, travelTime.getLinkTravelTime(link, 32.0, null, null), 1e-10);
+		assertEquals(2, travelTime.getSnapshotVersion());
+
+		// without smoothing, the mean travel time of the trips is used right away
+		travelTime.setSmoothingFactor(1.0);
+		travelTime.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, 33.0));
+		assertEquals(30.0, travelTime.getLinkTravelTime(link, 33.0, null, null), 1e-10);
+		assertEquals(3, travelTime.getSnapshotVersion());
+
+		travelTime.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<>(null));
+	}
+
 	/**
 	 * Check travel times before and after a time step.
 	 * 